@@ -0,0 +1,60 @@
+package hiperium.city.devices.read.function.functions;
+
+import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.read.function.dto.ReadDeviceResponse;
+import hiperium.city.devices.read.function.utils.FunctionUtils;
+import hiperium.city.devices.read.function.utils.TestsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers an invalid request through the operators chain and through the already resolved Mono. The benchmarks are
+ * run by the {@link ReadFunctionAllocationTest} with the GC profiler, or from the command line with:
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main ReadFunctionBenchmark -prof gc}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReadFunctionBenchmark {
+
+    private static final Message<byte[]> INVALID_REQUEST = TestsUtils.createMessage(
+        "{\"deviceId\":\"\",\"cityId\":\"a0ecb466-7ef5-47bf-a1ca-12f9f9328528\"}".getBytes(StandardCharsets.UTF_8));
+
+    // The invalid requests are rejected before the function uses the mapper and the service.
+    private final ReadFunction readFunction = new ReadFunction(null, null);
+
+    @Benchmark
+    public int operatorsChain() {
+        return applyWithOperatorsChain(INVALID_REQUEST).block().error().errorCode();
+    }
+
+    @Benchmark
+    public int resolvedMono() {
+        return this.readFunction.apply(INVALID_REQUEST).block().error().errorCode();
+    }
+
+    // The way the invalid requests were answered before the synchronous outcomes were resolved in place.
+    private static Mono<ReadDeviceResponse> applyWithOperatorsChain(Message<byte[]> requestMessage) {
+        return Mono.fromCallable(() -> FunctionUtils.deserializeRequest(requestMessage))
+            .doOnNext(FunctionUtils::validateRequest)
+            .map(readDeviceRequest -> new ReadDeviceResponse(null, null, null, null, null, null, null))
+            .onErrorResume(throwable -> Mono.just(throwable)
+                .map(ExceptionHandlerUtil::generateErrorResponse)
+                .map(errorResponse -> new ReadDeviceResponse(null, null, null, null, null, null, errorResponse)));
+    }
+}
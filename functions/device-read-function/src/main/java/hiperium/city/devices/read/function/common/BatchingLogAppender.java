@@ -0,0 +1,328 @@
+package hiperium.city.devices.read.function.common;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The BatchingLogAppender class is a Logback appender that writes the log events to the standard output from a
+ * background thread, in batches.
+ *
+ * <p>
+ * The logging threads only prepare the events and add them to a lock-free {@link LogRingBuffer}. The writer thread
+ * renders them with the configured layout into a reusable StringBuilder, encodes the whole batch into a reusable
+ * byte buffer, and writes it with a single call. The Lambda runtime may freeze the environment as soon as an
+ * invocation returns, so the functions call {@link #flushAll(Duration)} before returning, which waits until the
+ * events logged so far are written.
+ * </p>
+ *
+ * <p>
+ * When the buffer is full, the events below the {@code neverDropLevel} are dropped, and the others wait up to
+ * {@code maxBlockMillis} for a free slot before being dropped too. The dropped events are counted, and the writer
+ * reports them with a WARN event in the next batch.
+ * </p>
+ */
+public class BatchingLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final Set<BatchingLogAppender> ACTIVE_APPENDERS = new CopyOnWriteArraySet<>();
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final OutputStream outputStream;
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder blockedEvents = new LongAdder();
+    private final AtomicLong unreportedDroppedEvents = new AtomicLong();
+    private final AtomicInteger pendingFlushes = new AtomicInteger();
+    private final Object flushMonitor = new Object();
+    private final StringBuilder batch = new StringBuilder(8_192);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private Layout<ILoggingEvent> layout;
+    private int capacity = 8_192;
+    private int maxBatchSize = 256;
+    private long maxBlockMillis = 50L;
+    private Level neverDropLevel = Level.WARN;
+
+    private LogRingBuffer ringBuffer;
+    private ByteBuffer encodedBatch = ByteBuffer.allocate(32_768);
+    private Thread writerThread;
+    private volatile boolean running;
+    private volatile boolean writerParked;
+    private volatile long writtenSequence;
+
+    /**
+     * Creates the appender used by the Logback configuration, which writes to the standard output.
+     */
+    public BatchingLogAppender() {
+        this(new FileOutputStream(FileDescriptor.out));
+    }
+
+    BatchingLogAppender(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Waits until the events logged so far by every started appender are written.
+     *
+     * @param timeout the maximum time to wait for each appender.
+     * @return true if all the events were written before the timeout.
+     */
+    public static boolean flushAll(final Duration timeout) {
+        boolean flushed = true;
+        for (BatchingLogAppender appender : ACTIVE_APPENDERS) {
+            flushed &= appender.flush(timeout);
+        }
+        return flushed;
+    }
+
+    /**
+     * Returns whether any appender is started, so the callers can skip the flush when there is nothing to flush.
+     *
+     * @return true if there is at least one started appender.
+     */
+    public static boolean isAnyActive() {
+        return !ACTIVE_APPENDERS.isEmpty();
+    }
+
+    @Override
+    public void start() {
+        if (Objects.isNull(this.layout)) {
+            this.addError("No layout set for the appender named [" + this.name + "].");
+            return;
+        }
+        if (this.capacity < 1 || this.maxBatchSize < 1 || this.maxBlockMillis < 0) {
+            this.addError("The capacity and the max batch size must be positive, and the max block time can't be "
+                + "negative.");
+            return;
+        }
+        this.ringBuffer = new LogRingBuffer(this.capacity);
+        this.running = true;
+        this.writerThread = new Thread(this::runWriter, "log-writer-" + this.name);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        super.start();
+        ACTIVE_APPENDERS.add(this);
+    }
+
+    @Override
+    public void stop() {
+        if (!this.isStarted()) {
+            return;
+        }
+        ACTIVE_APPENDERS.remove(this);
+        super.stop();
+        this.running = false;
+        LockSupport.unpark(this.writerThread);
+        try {
+            this.writerThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void append(final ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (this.ringBuffer.offer(event)) {
+            this.wakeUpWriter();
+            return;
+        }
+        if (event.getLevel().isGreaterOrEqual(this.neverDropLevel) && this.offerBlocking(event)) {
+            return;
+        }
+        this.droppedEvents.increment();
+        this.unreportedDroppedEvents.incrementAndGet();
+    }
+
+    /**
+     * Waits until the events logged so far are written.
+     *
+     * @param timeout the maximum time to wait.
+     * @return true if the events were written before the timeout.
+     */
+    public boolean flush(final Duration timeout) {
+        if (!this.isStarted()) {
+            return true;
+        }
+        long targetSequence = this.ringBuffer.claimedSequence();
+        if (this.writtenSequence >= targetSequence) {
+            return true;
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        this.pendingFlushes.incrementAndGet();
+        try {
+            LockSupport.unpark(this.writerThread);
+            synchronized (this.flushMonitor) {
+                while (this.writtenSequence < targetSequence) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this.flushMonitor, remainingNanos);
+                }
+            }
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            this.pendingFlushes.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer was full.
+     *
+     * @return the dropped events since the appender was created.
+     */
+    public long getDroppedEvents() {
+        return this.droppedEvents.sum();
+    }
+
+    /**
+     * Returns the number of events that waited for a free slot because the buffer was full.
+     *
+     * @return the blocked events since the appender was created.
+     */
+    public long getBlockedEvents() {
+        return this.blockedEvents.sum();
+    }
+
+    public void setLayout(Layout<ILoggingEvent> layout) {
+        this.layout = layout;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void setMaxBlockMillis(long maxBlockMillis) {
+        this.maxBlockMillis = maxBlockMillis;
+    }
+
+    public void setNeverDropLevel(String neverDropLevel) {
+        this.neverDropLevel = Level.toLevel(neverDropLevel, Level.WARN);
+    }
+
+    private boolean offerBlocking(final ILoggingEvent event) {
+        this.blockedEvents.increment();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.maxBlockMillis);
+        do {
+            LockSupport.unpark(this.writerThread);
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+            if (this.ringBuffer.offer(event)) {
+                this.wakeUpWriter();
+                return true;
+            }
+        } while (System.nanoTime() < deadline);
+        return false;
+    }
+
+    private void wakeUpWriter() {
+        if (this.writerParked) {
+            LockSupport.unpark(this.writerThread);
+        }
+    }
+
+    private void runWriter() {
+        while (this.running || this.ringBuffer.consumedSequence() < this.ringBuffer.claimedSequence()) {
+            if (this.writeBatch() > 0) {
+                continue;
+            }
+            if (this.ringBuffer.consumedSequence() < this.ringBuffer.claimedSequence()) {
+                // An event was claimed by a producer that didn't publish it yet.
+                Thread.onSpinWait();
+                continue;
+            }
+            this.writerParked = true;
+            if (this.running && this.ringBuffer.consumedSequence() == this.ringBuffer.claimedSequence()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            this.writerParked = false;
+        }
+    }
+
+    private int writeBatch() {
+        this.batch.setLength(0);
+        long droppedSinceLastBatch = this.unreportedDroppedEvents.getAndSet(0);
+        if (droppedSinceLastBatch > 0) {
+            this.appendToBatch(this.createDroppedEventsEvent(droppedSinceLastBatch));
+        }
+        int batchSize = 0;
+        ILoggingEvent event;
+        while (batchSize < this.maxBatchSize && Objects.nonNull(event = this.ringBuffer.poll())) {
+            this.appendToBatch(event);
+            batchSize++;
+        }
+        if (!this.batch.isEmpty()) {
+            this.writeEncodedBatch();
+        }
+        this.writtenSequence = this.ringBuffer.consumedSequence();
+        if (this.pendingFlushes.get() > 0) {
+            synchronized (this.flushMonitor) {
+                this.flushMonitor.notifyAll();
+            }
+        }
+        return batchSize;
+    }
+
+    private void appendToBatch(final ILoggingEvent event) {
+        try {
+            this.batch.append(this.layout.doLayout(event));
+        } catch (RuntimeException exception) {
+            this.addError("Couldn't render the log event.", exception);
+        }
+    }
+
+    private void writeEncodedBatch() {
+        int maxEncodedLength = (int) Math.ceil(this.batch.length() * (double) this.encoder.maxBytesPerChar());
+        if (this.encodedBatch.capacity() < maxEncodedLength) {
+            this.encodedBatch = ByteBuffer.allocate(maxEncodedLength);
+        }
+        this.encodedBatch.clear();
+        this.encoder.reset();
+        this.encoder.encode(CharBuffer.wrap(this.batch), this.encodedBatch, true);
+        this.encoder.flush(this.encodedBatch);
+        try {
+            this.outputStream.write(this.encodedBatch.array(), 0, this.encodedBatch.position());
+            this.outputStream.flush();
+        } catch (IOException exception) {
+            this.addError("Couldn't write the log events.", exception);
+        }
+    }
+
+    private ILoggingEvent createDroppedEventsEvent(final long droppedEvents) {
+        LoggerContext loggerContext = (LoggerContext) this.getContext();
+        return new LoggingEvent(BatchingLogAppender.class.getName(),
+            loggerContext.getLogger(BatchingLogAppender.class), Level.WARN,
+            "Dropped " + droppedEvents + " log events because the buffer was full.", null, null);
+    }
+}
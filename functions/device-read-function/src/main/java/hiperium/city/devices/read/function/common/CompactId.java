@@ -0,0 +1,96 @@
+package hiperium.city.devices.read.function.common;
+
+import java.util.Objects;
+
+/**
+ * Represents a UUID identifier, like the device and city IDs, as two primitive longs.
+ *
+ * <p>
+ * The IDs are parsed once from their canonical text representation, and this type is used as the key of the
+ * in-memory caches and batches, so the hashing and equality checks don't depend on the length of the text.
+ * The text representation is only created again at the DynamoDB and JSON edges.
+ * </p>
+ *
+ * @param mostSignificantBits  The first 8 bytes of the UUID.
+ * @param leastSignificantBits The last 8 bytes of the UUID.
+ */
+public record CompactId(long mostSignificantBits, long leastSignificantBits) {
+
+    private static final int CANONICAL_LENGTH = 36;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Parses the canonical text representation of a UUID (8-4-4-4-12 lowercase hexadecimal digits) in a single
+     * pass, without intermediate allocations. The uppercase digits are rejected: the IDs are also the keys of the
+     * DynamoDB items, which are case-sensitive, so a compact ID must map to a single text representation.
+     *
+     * @param text The text to parse.
+     * @return The parsed ID, or null if the text is not a valid UUID.
+     */
+    public static CompactId parse(final CharSequence text) {
+        if (Objects.isNull(text) || text.length() != CANONICAL_LENGTH) {
+            return null;
+        }
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+        int digits = 0;
+        for (int index = 0; index < CANONICAL_LENGTH; index++) {
+            char character = text.charAt(index);
+            if (index == 8 || index == 13 || index == 18 || index == 23) {
+                if (character != '-') {
+                    return null;
+                }
+                continue;
+            }
+            int value = hexValue(character);
+            if (value < 0) {
+                return null;
+            }
+            if (digits < 16) {
+                mostSignificantBits = (mostSignificantBits << 4) | value;
+            } else {
+                leastSignificantBits = (leastSignificantBits << 4) | value;
+            }
+            digits++;
+        }
+        return new CompactId(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Tells if the text is the canonical representation of a UUID.
+     *
+     * @param text The text to check.
+     * @return true if the text can be parsed.
+     */
+    public static boolean isValid(final CharSequence text) {
+        return Objects.nonNull(parse(text));
+    }
+
+    /**
+     * Returns the canonical text representation of the ID, in lowercase.
+     */
+    @Override
+    public String toString() {
+        char[] characters = new char[CANONICAL_LENGTH];
+        int position = 0;
+        for (int digit = 0; digit < 32; digit++) {
+            if (digit == 8 || digit == 12 || digit == 16 || digit == 20) {
+                characters[position++] = '-';
+            }
+            long bits = digit < 16 ? this.mostSignificantBits : this.leastSignificantBits;
+            int shift = (15 - (digit & 15)) * 4;
+            characters[position++] = HEX_DIGITS[(int) ((bits >>> shift) & 0xF)];
+        }
+        return new String(characters);
+    }
+
+    private static int hexValue(char character) {
+        if (character >= '0' && character <= '9') {
+            return character - '0';
+        }
+        if (character >= 'a' && character <= 'f') {
+            return character - 'a' + 10;
+        }
+        return -1;
+    }
+}
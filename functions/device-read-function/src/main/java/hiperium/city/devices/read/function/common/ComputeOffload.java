@@ -0,0 +1,62 @@
+package hiperium.city.devices.read.function.common;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Objects;
+
+/**
+ * The ComputeOffload class moves the CPU work that follows a DynamoDB call off the AWS SDK completion threads.
+ *
+ * <p>
+ * The signals of a Mono created from a CompletableFuture of the SDK are emitted on the thread that completed the
+ * future, so the item mapping and the response construction steal time from the network I/O. When the offload is
+ * enabled, the signals are published on a bounded CPU scheduler after the I/O boundary. When it's disabled, the
+ * boundary is a no-op, which is the best option for the Lambda runtime, where there is only one request in progress.
+ * </p>
+ */
+public class ComputeOffload {
+
+    private final Scheduler scheduler;
+
+    /**
+     * Creates the compute offload.
+     *
+     * @param scheduler The CPU scheduler where the signals are published after an I/O call, or null to disable
+     *                  the offload.
+     */
+    public ComputeOffload(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns whether the CPU work is offloaded from the SDK completion threads.
+     *
+     * @return true if the offload is enabled.
+     */
+    public boolean isEnabled() {
+        return Objects.nonNull(this.scheduler);
+    }
+
+    /**
+     * Publishes the signals of the given I/O Mono on the CPU scheduler. It's meant to be used with
+     * {@link Mono#transform}, right after the Mono created from the SDK future.
+     *
+     * @param ioMono The Mono completed by an SDK thread.
+     * @param <T>    The type of the emitted value.
+     * @return The Mono whose downstream operators run on the CPU scheduler, or the same Mono if the offload is
+     * disabled.
+     */
+    public <T> Mono<T> afterIo(final Mono<T> ioMono) {
+        return this.isEnabled() ? ioMono.publishOn(this.scheduler) : ioMono;
+    }
+
+    /**
+     * Disposes the CPU scheduler.
+     */
+    public void dispose() {
+        if (this.isEnabled()) {
+            this.scheduler.dispose();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package hiperium.city.devices.read.function.common;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The ErrorLogSampler class is a Logback filter that limits the number of ERROR events written per message key.
+ *
+ * <p>
+ * Every key has a token bucket that holds up to {@code permitsPerInterval} permits, refilled at that rate per
+ * {@code intervalMillis}. The ERROR events that find their bucket empty are denied and counted, and a WARN summary
+ * with the number of suppressed events is logged for every key once per interval, so a flood of bad requests costs
+ * a few lines instead of one per request. The key is made of the logger name and the beginning of the message, up
+ * to {@code keyLength} characters, so the rendered arguments at the end of the message don't split the key. The
+ * events of the other levels are left to the next filters.
+ * </p>
+ */
+public class ErrorLogSampler extends Filter<ILoggingEvent> {
+
+    private static final Logger SUMMARY_LOGGER = LoggerFactory.getLogger(ErrorLogSampler.class);
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    private int permitsPerInterval = 10;
+    private long intervalMillis = 60_000L;
+    private int keyLength = 64;
+    private int maxKeys = 1_024;
+    private ScheduledExecutorService summaryExecutor;
+
+    /**
+     * Creates the sampler used by the Logback configuration.
+     */
+    public ErrorLogSampler() {
+        this(System::nanoTime);
+    }
+
+    ErrorLogSampler(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public FilterReply decide(final ILoggingEvent event) {
+        if (!this.isStarted() || event.getLevel() != Level.ERROR) {
+            return FilterReply.NEUTRAL;
+        }
+        String key = this.keyOf(event);
+        TokenBucket bucket = this.buckets.get(key);
+        if (Objects.isNull(bucket)) {
+            if (this.buckets.size() >= this.maxKeys) {
+                // Too many distinct keys to track them all, so the new ones are logged without sampling.
+                return FilterReply.NEUTRAL;
+            }
+            bucket = this.buckets.computeIfAbsent(key, newKey -> new TokenBucket(this.permitsPerInterval,
+                this.nanoClock.getAsLong()));
+        }
+        return bucket.tryAcquire(this.nanoClock.getAsLong(), this.permitsPerInterval,
+            TimeUnit.MILLISECONDS.toNanos(this.intervalMillis)) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    @Override
+    public void start() {
+        if (this.permitsPerInterval < 1 || this.intervalMillis < 1 || this.keyLength < 1 || this.maxKeys < 1) {
+            this.addError("The permits, interval, key length and max keys of the sampler must be positive.");
+            return;
+        }
+        this.summaryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "error-log-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.summaryExecutor.scheduleWithFixedDelay(this::logSummaries, this.intervalMillis, this.intervalMillis,
+            TimeUnit.MILLISECONDS);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (Objects.nonNull(this.summaryExecutor)) {
+            this.summaryExecutor.shutdownNow();
+        }
+        this.logSummaries();
+    }
+
+    /**
+     * Logs a summary for every key with suppressed events since the previous summary, and forgets the keys that
+     * had no events during the last interval.
+     */
+    void logSummaries() {
+        long now = this.nanoClock.getAsLong();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(this.intervalMillis);
+        this.buckets.forEach((key, bucket) -> {
+            long suppressed = bucket.drainSuppressed();
+            if (suppressed > 0) {
+                SUMMARY_LOGGER.warn("Suppressed {} similar error logs: {}", suppressed, key);
+            } else if (bucket.isIdle(now, idleNanos)) {
+                this.buckets.remove(key, bucket);
+            }
+        });
+    }
+
+    private String keyOf(final ILoggingEvent event) {
+        String message = Objects.requireNonNullElse(event.getMessage(), "");
+        return event.getLoggerName() + ": " + message.substring(0, Math.min(message.length(), this.keyLength));
+    }
+
+    public void setPermitsPerInterval(int permitsPerInterval) {
+        this.permitsPerInterval = permitsPerInterval;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void setKeyLength(int keyLength) {
+        this.keyLength = keyLength;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    private static final class TokenBucket {
+
+        private double permits;
+        private long lastRefillNanos;
+        private long lastEventNanos;
+        private long suppressed;
+
+        private TokenBucket(int permits, long nowNanos) {
+            this.permits = permits;
+            this.lastRefillNanos = nowNanos;
+            this.lastEventNanos = nowNanos;
+        }
+
+        private synchronized boolean tryAcquire(long nowNanos, int capacity, long intervalNanos) {
+            this.permits = Math.min(capacity,
+                this.permits + (double) (nowNanos - this.lastRefillNanos) * capacity / intervalNanos);
+            this.lastRefillNanos = nowNanos;
+            this.lastEventNanos = nowNanos;
+            if (this.permits >= 1.0) {
+                this.permits -= 1.0;
+                return true;
+            }
+            this.suppressed++;
+            return false;
+        }
+
+        private synchronized long drainSuppressed() {
+            long drained = this.suppressed;
+            this.suppressed = 0;
+            return drained;
+        }
+
+        private synchronized boolean isIdle(long nowNanos, long idleNanos) {
+            return nowNanos - this.lastEventNanos >= idleNanos;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package hiperium.city.devices.read.function.common;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import java.util.Objects;
+
+/**
+ * Validator of the {@link ValidId} constraint.
+ */
+public class ValidIdValidator implements ConstraintValidator<ValidId, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return Objects.isNull(value) || CompactId.isValid(value);
+    }
+}
@@ -1,9 +1,16 @@
 package hiperium.city.devices.read.function.configurations;
 
 import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.dto.ReadChangedDevicesResponse;
+import hiperium.city.devices.read.function.dto.ReadCityCountersResponse;
 import hiperium.city.devices.read.function.dto.ReadDeviceResponse;
+import hiperium.city.devices.read.function.functions.ChangedDevicesFunction;
+import hiperium.city.devices.read.function.functions.CountersFunction;
+import hiperium.city.devices.read.function.functions.LogFlushingFunction;
 import hiperium.city.devices.read.function.functions.ReadFunction;
 import hiperium.city.devices.read.function.mappers.DeviceMapper;
+import hiperium.city.devices.read.function.services.ChangedDevicesService;
+import hiperium.city.devices.read.function.services.CityCountersService;
 import hiperium.city.devices.read.function.services.DevicesService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,27 +20,37 @@ import reactor.core.publisher.Mono;
 import java.util.function.Function;
 
 /**
- * This class represents the configuration for functions in the application.
+ * This class represents the configuration for functions in the application. Every function writes its batched
+ * log events before returning its result.
  */
 @Configuration(proxyBeanMethods=false)
 public class FunctionConfig {
 
     public static final String FUNCTION_BEAN_NAME = "findById";
+    public static final String COUNTERS_FUNCTION_BEAN_NAME = "findCityCounters";
+    public static final String CHANGES_FUNCTION_BEAN_NAME = "findChangedDevices";
 
     private static final HiperiumLogger LOGGER = new HiperiumLogger(FunctionConfig.class);
 
     private final DeviceMapper deviceMapper;
     private final DevicesService devicesService;
+    private final CityCountersService cityCountersService;
+    private final ChangedDevicesService changedDevicesService;
 
     /**
      * This class represents the configuration for functions in the application.
      *
      * @param deviceMapper The DeviceMapper used for mapping device data between different representations.
      * @param devicesService The DevicesService used for working with devices.
+     * @param cityCountersService The CityCountersService used for reading the device counters of the cities.
+     * @param changedDevicesService The ChangedDevicesService used for reading the changed devices of the cities.
      */
-    public FunctionConfig(DeviceMapper deviceMapper, DevicesService devicesService) {
+    public FunctionConfig(DeviceMapper deviceMapper, DevicesService devicesService,
+                          CityCountersService cityCountersService, ChangedDevicesService changedDevicesService) {
         this.deviceMapper = deviceMapper;
         this.devicesService = devicesService;
+        this.cityCountersService = cityCountersService;
+        this.changedDevicesService = changedDevicesService;
     }
 
     /**
@@ -44,6 +61,28 @@ public class FunctionConfig {
     @Bean(FUNCTION_BEAN_NAME)
     public Function<Message<byte[]>, Mono<ReadDeviceResponse>> findByIdFunction() {
         LOGGER.debug("Creating Device Data Function Bean...");
-        return new ReadFunction(this.deviceMapper, this.devicesService);
+        return new LogFlushingFunction<>(new ReadFunction(this.deviceMapper, this.devicesService));
+    }
+
+    /**
+     * Creates a bean that finds the device counters of a city.
+     *
+     * @return The function that finds the device counters of a city.
+     */
+    @Bean(COUNTERS_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<ReadCityCountersResponse>> findCityCountersFunction() {
+        LOGGER.debug("Creating City Counters Function Bean...");
+        return new LogFlushingFunction<>(new CountersFunction(this.cityCountersService));
+    }
+
+    /**
+     * Creates a bean that finds the devices of a city changed since a timestamp.
+     *
+     * @return The function that finds the changed devices of a city.
+     */
+    @Bean(CHANGES_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<ReadChangedDevicesResponse>> findChangedDevicesFunction() {
+        LOGGER.debug("Creating Changed Devices Function Bean...");
+        return new LogFlushingFunction<>(new ChangedDevicesFunction(this.changedDevicesService));
     }
 }
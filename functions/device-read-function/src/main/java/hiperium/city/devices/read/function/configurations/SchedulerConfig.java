@@ -0,0 +1,82 @@
+package hiperium.city.devices.read.function.configurations;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.common.ComputeOffload;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SchedulerConfig class provides the CPU scheduler where the work that follows the DynamoDB calls is executed.
+ *
+ * <p>
+ * The scheduler is backed by a fixed pool of daemon threads with a bounded queue. When the queue is full, the task
+ * runs on the submitting thread, which slows down the SDK completion threads instead of failing the request. The
+ * pool is monitored with the Micrometer executor metrics, named "devices-cpu": the queue depth is published by the
+ * {@code executor.queued} gauge, the time the tasks wait in the queue by the {@code executor.idle} timer, and their
+ * execution time by the {@code executor} timer.
+ * </p>
+ */
+@Configuration(proxyBeanMethods = false)
+public class SchedulerConfig {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(SchedulerConfig.class);
+
+    private static final String SCHEDULER_NAME = "devices-cpu";
+    private static final String PROPERTY_PREFIX = "hiperium.devices.scheduler.";
+
+    private final Environment environment;
+
+    /**
+     * Create an instance of SchedulerConfig with the specified environment.
+     *
+     * @param environment the environment used to read the scheduler properties
+     */
+    public SchedulerConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Returns the compute offload. The offload is disabled unless the "offload-enabled" property is true.
+     *
+     * @param meterRegistry the registry used to publish the scheduler metrics
+     * @return an instance of ComputeOffload
+     */
+    @Bean(destroyMethod = "dispose")
+    public ComputeOffload computeOffload(MeterRegistry meterRegistry) {
+        if (!this.getProperty("offload-enabled", Boolean.class, false)) {
+            LOGGER.debug("Compute offload disabled.");
+            return new ComputeOffload(null);
+        }
+        int threads = this.getProperty("threads", Integer.class, Runtime.getRuntime().availableProcessors());
+        int queueCapacity = this.getProperty("queue-capacity", Integer.class, 1_024);
+        LOGGER.debug("Creating Compute Offload scheduler...", threads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), createThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        ExecutorService monitoredExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, SCHEDULER_NAME);
+        return new ComputeOffload(Schedulers.fromExecutorService(monitoredExecutor, SCHEDULER_NAME));
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, SCHEDULER_NAME + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private <T> T getProperty(String name, Class<T> type, T defaultValue) {
+        return this.environment.getProperty(PROPERTY_PREFIX + name, type, defaultValue);
+    }
+}
@@ -0,0 +1,97 @@
+package hiperium.city.devices.read.function.configurations;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.WebFilter;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The ServerConfig class tunes the Netty server used when the functions are served over HTTP
+ * as a long-lived service, instead of behind the Lambda runtime.
+ *
+ * @apiNote For native images, the "server" profile must be active when the image is built,
+ * because the profile conditions are evaluated during the AOT processing.
+ */
+@Profile("server")
+@Configuration(proxyBeanMethods = false)
+public class ServerConfig {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(ServerConfig.class);
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.server.";
+
+    private final Environment environment;
+
+    /**
+     * Create an instance of ServerConfig with the specified environment.
+     *
+     * @param environment the environment used to read the server properties
+     */
+    public ServerConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Returns the event loops used by the Netty server. The functions never block, so the number of event loop
+     * threads defaults to the number of available processors.
+     *
+     * @return an instance of LoopResources
+     */
+    @Bean(destroyMethod = "dispose")
+    public LoopResources serverLoopResources() {
+        int eventLoopThreads = this.getProperty("event-loop-threads", Integer.class,
+            Runtime.getRuntime().availableProcessors());
+        LOGGER.debug("Creating Netty event loops", eventLoopThreads);
+        return LoopResources.create("devices-http", 1, eventLoopThreads, true);
+    }
+
+    /**
+     * Returns the customizer that runs the Netty server on the configured event loops,
+     * and keeps the idle client connections open for reuse.
+     *
+     * @param serverLoopResources the event loops used by the Netty server
+     * @return an instance of WebServerFactoryCustomizer
+     */
+    @Bean
+    public WebServerFactoryCustomizer<NettyReactiveWebServerFactory> nettyServerCustomizer(
+        LoopResources serverLoopResources) {
+        Duration keepAliveTimeout = Duration.ofSeconds(
+            this.getProperty("keep-alive-timeout-seconds", Long.class, 60L));
+        int maxKeepAliveRequests = this.getProperty("max-keep-alive-requests", Integer.class, 1_000);
+        return factory -> factory.addServerCustomizers(httpServer -> httpServer
+            .runOn(serverLoopResources)
+            .idleTimeout(keepAliveTimeout)
+            .maxKeepAliveRequests(maxKeepAliveRequests));
+    }
+
+    /**
+     * Returns the filter that caps the number of requests processed concurrently. The requests over the limit
+     * are rejected with a 503 status code, so the service sheds load instead of queueing it without bound.
+     *
+     * @return an instance of WebFilter
+     */
+    @Bean
+    public WebFilter concurrencyLimitWebFilter() {
+        Semaphore permits = new Semaphore(this.getProperty("max-concurrent-requests", Integer.class, 256));
+        return (exchange, chain) -> {
+            if (!permits.tryAcquire()) {
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange).doFinally(signalType -> permits.release());
+        };
+    }
+
+    private <T> T getProperty(String name, Class<T> type, T defaultValue) {
+        return this.environment.getProperty(PROPERTY_PREFIX + name, type, defaultValue);
+    }
+}
@@ -0,0 +1,18 @@
+package hiperium.city.devices.read.function.dto;
+
+import hiperium.city.devices.read.function.common.DeviceStatus;
+
+/**
+ * Represents a device changed since the requested timestamp, with the attributes projected by the
+ * {@code CityUpdatedAtIndex} index only.
+ *
+ * @param deviceId  The ID of the device.
+ * @param status    The current status of the device.
+ * @param updatedAt The timestamp of the last change of the device.
+ */
+public record ChangedDevice(
+
+    String deviceId,
+    DeviceStatus status,
+    String updatedAt) {
+}
@@ -0,0 +1,31 @@
+package hiperium.city.devices.read.function.dto;
+
+import hiperium.city.devices.read.function.common.ValidId;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Represents a request to retrieve the devices of a city changed since a timestamp.
+ * The {@code since} timestamp is an ISO-8601 instant, and the optional {@code nextToken} is the token returned with
+ * the previous page of the same request.
+ */
+public record ReadChangedDevicesRequest(
+
+    @NotEmpty(message = "City ID cannot be empty.")
+    @NotBlank(message = "City ID cannot be blank.")
+    @ValidId(message = "City ID must have a valid format.")
+    String cityId,
+
+    @NotBlank(message = "Since timestamp cannot be blank.")
+    String since,
+
+    @Positive(message = "Page size must be positive.")
+    @Max(value = ReadChangedDevicesRequest.MAX_PAGE_SIZE, message = "Page size cannot be greater than 1000.")
+    Integer pageSize,
+
+    String nextToken) {
+
+    public static final int MAX_PAGE_SIZE = 1_000;
+}
@@ -0,0 +1,24 @@
+package hiperium.city.devices.read.function.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import hiperium.cities.commons.dto.ErrorResponse;
+
+import java.util.List;
+
+/**
+ * Represents a page of the devices of a city changed since a timestamp, in the order of their last change. The null
+ * fields are omitted from the serialized response.
+ *
+ * @param cityId    The ID of the city.
+ * @param devices   The changed devices of the page.
+ * @param nextToken The token to request the next page, or null if this is the last page.
+ * @param error     The error response if the changed devices couldn't be read.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReadChangedDevicesResponse(
+
+    String cityId,
+    List<ChangedDevice> devices,
+    String nextToken,
+    ErrorResponse error) {
+}
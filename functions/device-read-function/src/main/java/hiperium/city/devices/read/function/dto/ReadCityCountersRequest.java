@@ -0,0 +1,16 @@
+package hiperium.city.devices.read.function.dto;
+
+import hiperium.city.devices.read.function.common.ValidId;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+/**
+ * Represents a request to retrieve the device counters of a city.
+ */
+public record ReadCityCountersRequest(
+
+    @NotEmpty(message = "City ID cannot be empty.")
+    @NotBlank(message = "City ID cannot be blank.")
+    @ValidId(message = "City ID must have a valid format.")
+    String cityId) {
+}
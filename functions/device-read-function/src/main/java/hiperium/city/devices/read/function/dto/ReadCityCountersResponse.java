@@ -0,0 +1,24 @@
+package hiperium.city.devices.read.function.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import hiperium.cities.commons.dto.ErrorResponse;
+
+/**
+ * Represents a response object that contains the device counters of a city. The null fields are omitted from the
+ * serialized response.
+ *
+ * @param cityId The ID of the city.
+ * @param total  The number of devices of the city.
+ * @param on     The number of devices of the city that are ON.
+ * @param off    The number of devices of the city that are OFF.
+ * @param error  The error response if the counters couldn't be read.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReadCityCountersResponse(
+
+    String cityId,
+    Long total,
+    Long on,
+    Long off,
+    ErrorResponse error) {
+}
@@ -1,21 +1,37 @@
 package hiperium.city.devices.read.function.dto;
 
-import hiperium.cities.commons.annotations.ValidUUID;
+import hiperium.city.devices.read.function.common.ValidId;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.PositiveOrZero;
 
 /**
  * Represents a request to retrieve information about a device using its unique identifier.
+ * The optional {@code ifVersion} holds the device version already known by the caller, so the response omits
+ * the device data when the version didn't change.
  */
 public record ReadDeviceRequest(
 
     @NotEmpty(message = "Device ID cannot be empty.")
     @NotBlank(message = "Device ID cannot be blank.")
-    @ValidUUID(message = "Device ID must have a valid format.")
+    @ValidId(message = "Device ID must have a valid format.")
     String deviceId,
 
     @NotEmpty(message = "City ID cannot be empty.")
     @NotBlank(message = "City ID cannot be blank.")
-    @ValidUUID(message = "City ID must have a valid format.")
-    String cityId) {
+    @ValidId(message = "City ID must have a valid format.")
+    String cityId,
+
+    @PositiveOrZero(message = "If version cannot be negative.")
+    Long ifVersion) {
+
+    /**
+     * Creates a request that always returns the device data.
+     *
+     * @param deviceId The device ID.
+     * @param cityId   The city ID.
+     */
+    public ReadDeviceRequest(String deviceId, String cityId) {
+        this(deviceId, cityId, null);
+    }
 }
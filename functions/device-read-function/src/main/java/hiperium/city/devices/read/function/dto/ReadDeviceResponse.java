@@ -1,16 +1,22 @@
 package hiperium.city.devices.read.function.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import hiperium.cities.commons.dto.ErrorResponse;
 import hiperium.city.devices.read.function.common.DeviceStatus;
 
 /**
  * Represents a response object that contains information about a device.
+ * When the device version matches the one of the request, only the device IDs, the version and the
+ * {@code notModified} flag are returned. The null fields are omitted from the serialized response.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record ReadDeviceResponse(
 
     String id,
     String name,
     String cityId,
     DeviceStatus status,
+    Long version,
+    Boolean notModified,
     ErrorResponse error) {
 }
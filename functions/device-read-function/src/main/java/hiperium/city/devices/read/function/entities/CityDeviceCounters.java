@@ -0,0 +1,24 @@
+package hiperium.city.devices.read.function.entities;
+
+/**
+ * Represents the device counters of a city, maintained by the update functions with every device status change.
+ *
+ * @param cityId The ID of the city.
+ * @param total  The number of devices of the city.
+ * @param on     The number of devices of the city that are ON.
+ * @param off    The number of devices of the city that are OFF.
+ */
+public record CityDeviceCounters(
+
+    String cityId,
+    long total,
+    long on,
+    long off) {
+
+    public static final String TABLE_NAME = "DeviceCityCounters";
+
+    public static final String CITY_ID_COLUMN_NAME = "cityId";
+    public static final String TOTAL_COLUMN_NAME = "total";
+    public static final String ON_COLUMN_NAME = "on";
+    public static final String OFF_COLUMN_NAME = "off";
+}
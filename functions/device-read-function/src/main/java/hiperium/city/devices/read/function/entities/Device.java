@@ -11,13 +11,17 @@ public record Device(
     String name,
     String cityId,
     String description,
-    DeviceStatus status) {
+    DeviceStatus status,
+    Long version) {
 
     public static final String TABLE_NAME = "Devices";
+    public static final String CITY_UPDATED_AT_INDEX_NAME = "CityUpdatedAtIndex";
 
     public static final String ID_COLUMN_NAME = "id";
     public static final String NAME_COLUMN_NAME = "name";
     public static final String STATUS_COLUMN_NAME = "status";
     public static final String CITY_ID_COLUMN_NAME = "cityId";
     public static final String DESCRIPTION_COLUMN_NAME = "description";
+    public static final String VERSION_COLUMN_NAME = "version";
+    public static final String UPDATED_AT_COLUMN_NAME = "updatedAt";
 }
@@ -0,0 +1,47 @@
+package hiperium.city.devices.read.function.functions;
+
+import hiperium.city.devices.read.function.dto.ReadChangedDevicesRequest;
+import hiperium.city.devices.read.function.dto.ReadChangedDevicesResponse;
+import hiperium.city.devices.read.function.services.ChangedDevicesService;
+import hiperium.city.devices.read.function.utils.FunctionUtils;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Represents a function that finds the devices of a city changed since a timestamp, one page at a time.
+ */
+public class ChangedDevicesFunction implements Function<Message<byte[]>, Mono<ReadChangedDevicesResponse>> {
+
+    private final ChangedDevicesService changedDevicesService;
+
+    /**
+     * Represents a function that retrieves the devices of a city changed since a timestamp.
+     *
+     * @param changedDevicesService The ChangedDevicesService used for reading the changed devices of the cities.
+     */
+    public ChangedDevicesFunction(ChangedDevicesService changedDevicesService) {
+        this.changedDevicesService = changedDevicesService;
+    }
+
+    /**
+     * Applies the ChangedDevicesFunction to the given request Message. The invalid requests are returned as already
+     * resolved Mono instances.
+     *
+     * @param requestMessage the request Message to apply the function to
+     * @return a Mono that emits the resulting ReadChangedDevicesResponse
+     */
+    @Override
+    public Mono<ReadChangedDevicesResponse> apply(Message<byte[]> requestMessage) {
+        final ReadChangedDevicesRequest changedDevicesRequest;
+        try {
+            changedDevicesRequest = FunctionUtils.deserializeChangesRequest(requestMessage);
+            FunctionUtils.validateRequest(changedDevicesRequest);
+        } catch (Exception exception) {
+            return FunctionUtils.handleChangesException(exception);
+        }
+        return this.changedDevicesService.findChangedSince(changedDevicesRequest)
+            .onErrorResume(FunctionUtils::handleChangesException);
+    }
+}
@@ -0,0 +1,49 @@
+package hiperium.city.devices.read.function.functions;
+
+import hiperium.city.devices.read.function.dto.ReadCityCountersRequest;
+import hiperium.city.devices.read.function.dto.ReadCityCountersResponse;
+import hiperium.city.devices.read.function.services.CityCountersService;
+import hiperium.city.devices.read.function.utils.FunctionUtils;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Represents a function that finds the device counters of a city.
+ */
+public class CountersFunction implements Function<Message<byte[]>, Mono<ReadCityCountersResponse>> {
+
+    private final CityCountersService cityCountersService;
+
+    /**
+     * Represents a function that retrieves the device counters of a city.
+     *
+     * @param cityCountersService The CityCountersService used for reading the counters of the cities.
+     */
+    public CountersFunction(CityCountersService cityCountersService) {
+        this.cityCountersService = cityCountersService;
+    }
+
+    /**
+     * Applies the CountersFunction to the given request Message. The invalid requests are returned as already
+     * resolved Mono instances.
+     *
+     * @param requestMessage the request Message to apply the function to
+     * @return a Mono that emits the resulting ReadCityCountersResponse
+     */
+    @Override
+    public Mono<ReadCityCountersResponse> apply(Message<byte[]> requestMessage) {
+        final ReadCityCountersRequest readCityCountersRequest;
+        try {
+            readCityCountersRequest = FunctionUtils.deserializeCountersRequest(requestMessage);
+            FunctionUtils.validateRequest(readCityCountersRequest);
+        } catch (Exception exception) {
+            return FunctionUtils.handleCountersException(exception);
+        }
+        return this.cityCountersService.findByCityId(readCityCountersRequest)
+            .map(counters -> new ReadCityCountersResponse(counters.cityId(), counters.total(), counters.on(),
+                counters.off(), null))
+            .onErrorResume(FunctionUtils::handleCountersException);
+    }
+}
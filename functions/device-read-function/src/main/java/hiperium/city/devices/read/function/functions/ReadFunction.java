@@ -1,13 +1,16 @@
 package hiperium.city.devices.read.function.functions;
 
+import hiperium.city.devices.read.function.dto.ReadDeviceRequest;
 import hiperium.city.devices.read.function.dto.ReadDeviceResponse;
 import hiperium.city.devices.read.function.entities.Device;
 import hiperium.city.devices.read.function.mappers.DeviceMapper;
 import hiperium.city.devices.read.function.services.DevicesService;
 import hiperium.city.devices.read.function.utils.FunctionUtils;
 import org.springframework.messaging.Message;
+import reactor.core.Fuseable;
 import reactor.core.publisher.Mono;
 
+import java.util.Objects;
 import java.util.function.Function;
 
 /**
@@ -31,20 +34,40 @@ public class ReadFunction implements Function<Message<byte[]>, Mono<ReadDeviceRe
 
     /**
      * Applies the ReadFunction to the given request Message and performs a series of operations on it.
+     * The outcomes known synchronously, like the cache hits and the invalid requests, are returned as already
+     * resolved Mono instances. Only the requests that read the Devices table go through the operators chain.
+     * When the request version matches the device version, a compact not-modified response is returned, so the
+     * polling clients don't receive the device data. The version of a conditional read is always confirmed with the
+     * Devices table, never with the cache.
      *
      * @param requestMessage the request Message to apply the function to
      * @return a Mono that emits the resulting ReadDeviceResponse
      */
     @Override
     public Mono<ReadDeviceResponse> apply(Message<byte[]> requestMessage) {
-        return Mono.fromCallable(() -> FunctionUtils.deserializeRequest(requestMessage))
-            .doOnNext(FunctionUtils::validateRequest)
-            .flatMap(this.devicesService::findById)
-            .flatMap(this::mapResponse)
+        final ReadDeviceRequest readDeviceRequest;
+        final Mono<Device> foundDevice;
+        try {
+            readDeviceRequest = FunctionUtils.deserializeRequest(requestMessage);
+            FunctionUtils.validateRequest(readDeviceRequest);
+            foundDevice = this.devicesService.findById(readDeviceRequest);
+            if (foundDevice instanceof Fuseable.ScalarCallable<?> resolvedDevice) {
+                Device device = (Device) resolvedDevice.call();
+                return Objects.isNull(device) ? Mono.empty() : Mono.just(this.mapResponse(readDeviceRequest, device));
+            }
+        } catch (Exception exception) {
+            return FunctionUtils.handleRuntimeException(exception);
+        }
+        return foundDevice
+            .map(device -> this.mapResponse(readDeviceRequest, device))
             .onErrorResume(FunctionUtils::handleRuntimeException);
     }
 
-    private Mono<ReadDeviceResponse> mapResponse(Device device) {
-        return Mono.fromSupplier(() -> this.deviceMapper.mapToDeviceResponse(device));
+    private ReadDeviceResponse mapResponse(ReadDeviceRequest readDeviceRequest, Device device) {
+        if (Objects.nonNull(readDeviceRequest.ifVersion())
+            && readDeviceRequest.ifVersion().equals(device.version())) {
+            return this.deviceMapper.mapToNotModifiedResponse(device);
+        }
+        return this.deviceMapper.mapToDeviceResponse(device);
     }
 }
@@ -4,6 +4,7 @@ import hiperium.cities.commons.loggers.HiperiumLogger;
 import hiperium.city.devices.read.function.common.DeviceStatus;
 import hiperium.city.devices.read.function.dto.ReadDeviceResponse;
 import hiperium.city.devices.read.function.entities.Device;
+import hiperium.city.devices.read.function.utils.LogArguments;
 import org.mapstruct.AfterMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -33,6 +34,7 @@ public interface DeviceMapper {
     @Mapping(target = "cityId",       expression = "java(getStringValueFromAttributesMap(itemAttributesMap, Device.CITY_ID_COLUMN_NAME))")
     @Mapping(target = "status",       expression = "java(getDeviceStatusEnumFromAttributesMap(itemAttributesMap))")
     @Mapping(target = "description",  expression = "java(getStringValueFromAttributesMap(itemAttributesMap, Device.DESCRIPTION_COLUMN_NAME))")
+    @Mapping(target = "version",      expression = "java(getLongValueFromAttributesMap(itemAttributesMap, Device.VERSION_COLUMN_NAME))")
     Device mapToDevice(Map<String, AttributeValue> itemAttributesMap);
 
     /**
@@ -42,8 +44,22 @@ public interface DeviceMapper {
      * @return       The converted {@link ReadDeviceResponse} object.
      */
     @Mapping(target = "error", ignore = true)
+    @Mapping(target = "notModified", ignore = true)
     ReadDeviceResponse mapToDeviceResponse(Device device);
 
+    /**
+     * Converts a {@link Device} object to a compact {@link ReadDeviceResponse} object, for the requests whose
+     * version matches the device version. Only the device IDs and its version are returned.
+     *
+     * @param device The {@link Device} object to convert.
+     * @return       The converted {@link ReadDeviceResponse} object.
+     */
+    @Mapping(target = "name", ignore = true)
+    @Mapping(target = "status", ignore = true)
+    @Mapping(target = "error", ignore = true)
+    @Mapping(target = "notModified", constant = "true")
+    ReadDeviceResponse mapToNotModifiedResponse(Device device);
+
     /**
      * Retrieves the string value associated with the specified key from the given attributes map.
      *
@@ -55,6 +71,17 @@ public interface DeviceMapper {
         return attributesMap.containsKey(key) ? attributesMap.get(key).s() : null;
     }
 
+    /**
+     * Retrieves the numeric value associated with the specified key from the given attributes map.
+     *
+     * @param attributesMap the map containing the attribute values
+     * @param key           the key of the desired value
+     * @return the numeric value associated with the key if it exists, or null if the key is not present in the map
+     */
+    default Long getLongValueFromAttributesMap(Map<String, AttributeValue> attributesMap, String key) {
+        return attributesMap.containsKey(key) ? Long.valueOf(attributesMap.get(key).n()) : null;
+    }
+
     /**
      * Retrieves the DeviceStatus enum value from the given attributes map.
      *
@@ -73,7 +100,7 @@ public interface DeviceMapper {
      */
     @AfterMapping
     default void afterMapToDevice(@MappingTarget Device device, Map<String, AttributeValue> itemAttributesMap) {
-        LOGGER.debug("Mapped device", device);
+        LOGGER.debug("Mapped device", LogArguments.lazy(device::toString));
     }
 
     /**
@@ -84,6 +111,6 @@ public interface DeviceMapper {
      */
     @AfterMapping
     default void afterMapToResponse(@MappingTarget ReadDeviceResponse response, Device device) {
-        LOGGER.debug("Mapped response", response);
+        LOGGER.debug("Mapped response", LogArguments.lazy(response::toString));
     }
 }
@@ -0,0 +1,272 @@
+package hiperium.city.devices.read.function.repository;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * The CircuitBreaker class protects the DynamoDB calls of the repositories from a degraded data source.
+ * It uses a count-based sliding window with the outcome of the last calls to compute the error rate.
+ *
+ * <ul>
+ *     <li>CLOSED: calls are permitted and their outcome is recorded in the sliding window.</li>
+ *     <li>OPEN: calls are rejected immediately until the wait duration has elapsed.</li>
+ *     <li>HALF_OPEN: a limited number of trial calls are permitted to probe the data source.</li>
+ * </ul>
+ *
+ * @apiNote Every state transition is published as a Micrometer counter, and the current state as a gauge.
+ */
+public class CircuitBreaker {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CircuitBreaker.class);
+
+    /**
+     * Enum representing the possible states of the circuit breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final int permittedHalfOpenCalls;
+    private final float failureRateThreshold;
+    private final long waitDurationInOpenStateNanos;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejectedCallsCounter;
+
+    private final boolean[] slidingWindow;
+    private int windowIndex;
+    private int recordedCalls;
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenAcquiredCalls;
+    private int halfOpenSucceededCalls;
+
+    /**
+     * Creates a circuit breaker with the given sliding window configuration.
+     *
+     * @param name                   The name used to tag the circuit breaker metrics.
+     * @param slidingWindowSize      The number of most recent calls used to compute the failure rate.
+     * @param minimumCalls           The minimum number of recorded calls before the failure rate is evaluated.
+     * @param failureRateThreshold   The failure rate percentage that opens the circuit.
+     * @param waitDurationInOpenState The time the circuit stays open before permitting trial calls.
+     * @param permittedHalfOpenCalls The number of trial calls permitted in the half-open state.
+     * @param meterRegistry          The registry used to publish the circuit breaker metrics.
+     */
+    public CircuitBreaker(String name, int slidingWindowSize, int minimumCalls, float failureRateThreshold,
+                          Duration waitDurationInOpenState, int permittedHalfOpenCalls, MeterRegistry meterRegistry) {
+        this(name, slidingWindowSize, minimumCalls, failureRateThreshold, waitDurationInOpenState,
+            permittedHalfOpenCalls, meterRegistry, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int slidingWindowSize, int minimumCalls, float failureRateThreshold,
+                   Duration waitDurationInOpenState, int permittedHalfOpenCalls, MeterRegistry meterRegistry,
+                   LongSupplier nanoClock) {
+        if (slidingWindowSize < 1 || permittedHalfOpenCalls < 1) {
+            throw new IllegalArgumentException("Sliding window size and half-open calls must be greater than zero.");
+        }
+        this.name = name;
+        this.slidingWindow = new boolean[slidingWindowSize];
+        this.minimumCalls = Math.min(Math.max(minimumCalls, 1), slidingWindowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.waitDurationInOpenStateNanos = waitDurationInOpenState.toNanos();
+        this.permittedHalfOpenCalls = permittedHalfOpenCalls;
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        this.rejectedCallsCounter = Counter.builder("devices.circuit.breaker.rejected")
+            .description("Calls rejected while the circuit breaker was open.")
+            .tag("name", name)
+            .register(meterRegistry);
+        Gauge.builder("devices.circuit.breaker.state", this, breaker -> breaker.getState().ordinal())
+            .description("Current circuit breaker state: 0=CLOSED, 1=OPEN, 2=HALF_OPEN.")
+            .tag("name", name)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Acquires a permission to execute a call against the protected data source.
+     *
+     * @return true if the call is permitted, or false if it must fail fast.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (this.state == State.OPEN) {
+            if (this.nanoClock.getAsLong() - this.openedAtNanos < this.waitDurationInOpenStateNanos) {
+                this.rejectedCallsCounter.increment();
+                return false;
+            }
+            this.transitionTo(State.HALF_OPEN);
+        }
+        if (this.state == State.HALF_OPEN) {
+            if (this.halfOpenAcquiredCalls >= this.permittedHalfOpenCalls) {
+                this.rejectedCallsCounter.increment();
+                return false;
+            }
+            this.halfOpenAcquiredCalls++;
+        }
+        return true;
+    }
+
+    /**
+     * Releases the permission of a call whose outcome won't be recorded, like a call cancelled before it completed,
+     * so the trial call of the half-open state can be acquired again.
+     */
+    public synchronized void releasePermission() {
+        if (this.state == State.HALF_OPEN && this.halfOpenAcquiredCalls > 0) {
+            this.halfOpenAcquiredCalls--;
+        }
+    }
+
+    /**
+     * Executes the given call when the returned Mono is subscribed, and only if it's permitted, so a call whose Mono
+     * is created but never subscribed doesn't hold a permission. The outcome of the call is recorded when it
+     * completes, unless the subscription is cancelled first, in which case the permission is released instead.
+     *
+     * @param call         The supplier of the call, invoked once the call is permitted.
+     * @param errorFilter  Maps the error of the call to the recorded error, or to null if the call must be recorded
+     *                     as successful, like the condition check failures of the conditional writes.
+     * @param rejectedCall The supplier of the error emitted when the call isn't permitted.
+     * @param <T>          The type of the call result.
+     * @return A Mono emitting the result of the call, or the error of the rejected call.
+     */
+    public <T> Mono<T> executeAsync(final Supplier<? extends CompletionStage<T>> call,
+                                    final UnaryOperator<Throwable> errorFilter,
+                                    final Supplier<? extends Throwable> rejectedCall) {
+        return Mono.defer(() -> {
+            if (!this.tryAcquirePermission()) {
+                return Mono.error(rejectedCall.get());
+            }
+            AtomicBoolean settled = new AtomicBoolean();
+            return Mono.<T>fromCompletionStage(() -> {
+                    final CompletionStage<T> callStage;
+                    try {
+                        callStage = call.get();
+                    } catch (RuntimeException exception) {
+                        settled.set(true);
+                        this.releasePermission();
+                        throw exception;
+                    }
+                    return callStage.whenComplete((result, exception) -> {
+                        if (settled.compareAndSet(false, true)) {
+                            this.onResult(Objects.isNull(exception) ? null : errorFilter.apply(exception));
+                        }
+                    });
+                })
+                .doOnCancel(() -> {
+                    if (settled.compareAndSet(false, true)) {
+                        this.releasePermission();
+                    }
+                });
+        });
+    }
+
+    /**
+     * Records the outcome of a permitted call.
+     *
+     * @param throwable The error of the call, or null if the call succeeded.
+     */
+    public void onResult(Throwable throwable) {
+        if (throwable == null) {
+            this.onSuccess();
+        } else {
+            this.onFailure();
+        }
+    }
+
+    /**
+     * Records a successful call.
+     */
+    public synchronized void onSuccess() {
+        if (this.state == State.HALF_OPEN) {
+            this.halfOpenSucceededCalls++;
+            if (this.halfOpenSucceededCalls >= this.permittedHalfOpenCalls) {
+                this.transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        this.recordOutcome(false);
+    }
+
+    /**
+     * Records a failed call.
+     */
+    public synchronized void onFailure() {
+        if (this.state == State.HALF_OPEN) {
+            this.transitionTo(State.OPEN);
+            return;
+        }
+        this.recordOutcome(true);
+        if (this.state == State.CLOSED && this.recordedCalls >= this.minimumCalls
+            && this.getFailureRate() >= this.failureRateThreshold) {
+            this.transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Returns the current state of the circuit breaker.
+     *
+     * @return The current state.
+     */
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    private float getFailureRate() {
+        return this.failedCalls * 100.0f / this.recordedCalls;
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (this.recordedCalls == this.slidingWindow.length) {
+            if (this.slidingWindow[this.windowIndex]) {
+                this.failedCalls--;
+            }
+        } else {
+            this.recordedCalls++;
+        }
+        this.slidingWindow[this.windowIndex] = failed;
+        if (failed) {
+            this.failedCalls++;
+        }
+        this.windowIndex = (this.windowIndex + 1) % this.slidingWindow.length;
+    }
+
+    private void transitionTo(State newState) {
+        State previousState = this.state;
+        this.state = newState;
+        switch (newState) {
+            case OPEN -> this.openedAtNanos = this.nanoClock.getAsLong();
+            case HALF_OPEN -> {
+                this.halfOpenAcquiredCalls = 0;
+                this.halfOpenSucceededCalls = 0;
+            }
+            case CLOSED -> {
+                this.windowIndex = 0;
+                this.recordedCalls = 0;
+                this.failedCalls = 0;
+            }
+        }
+        Counter.builder("devices.circuit.breaker.transitions")
+            .description("Circuit breaker state transitions.")
+            .tag("name", this.name)
+            .tag("from", previousState.name())
+            .tag("to", newState.name())
+            .register(this.meterRegistry)
+            .increment();
+        LOGGER.info("Circuit breaker '" + this.name + "' transitioned from " + previousState + " to " + newState);
+    }
+}
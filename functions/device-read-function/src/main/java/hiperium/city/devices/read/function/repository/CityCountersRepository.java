@@ -0,0 +1,72 @@
+package hiperium.city.devices.read.function.repository;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.entities.CityDeviceCounters;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The CityCountersRepository class is responsible for retrieving the device counters of a city from the DynamoDB
+ * table. The counters are kept by the update functions, so a single item read answers how many devices of a city
+ * are in every status.
+ */
+@Repository
+public class CityCountersRepository {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CityCountersRepository.class);
+
+    private static final GetItemRequest FIND_BY_CITY_ID_TEMPLATE = GetItemRequest.builder()
+        .tableName(CityDeviceCounters.TABLE_NAME)
+        .projectionExpression("#total, #on, #off")
+        .expressionAttributeNames(Map.of(
+            "#total", CityDeviceCounters.TOTAL_COLUMN_NAME,
+            "#on", CityDeviceCounters.ON_COLUMN_NAME,
+            "#off", CityDeviceCounters.OFF_COLUMN_NAME))
+        .build();
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    /**
+     * The CityCountersRepository class represents a repository for reading the city device counters.
+     *
+     * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
+     */
+    public CityCountersRepository(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    /**
+     * Retrieves the device counters of a city. A city without counters has no devices, so its counters are zero.
+     *
+     * @param cityId The ID of the city.
+     * @return A CompletableFuture that completes with the counters of the city.
+     * @throws CityException if an error occurs while reading the item.
+     */
+    public CompletableFuture<CityDeviceCounters> findByCityIdAsync(final String cityId) {
+        GetItemRequest getItemRequest = FIND_BY_CITY_ID_TEMPLATE.toBuilder()
+            .key(Map.of(CityDeviceCounters.CITY_ID_COLUMN_NAME, AttributeValue.fromS(cityId)))
+            .build();
+
+        return this.dynamoDbAsyncClient.getItem(getItemRequest)
+            .thenApply(response -> new CityDeviceCounters(cityId,
+                getLongValue(response.item(), CityDeviceCounters.TOTAL_COLUMN_NAME),
+                getLongValue(response.item(), CityDeviceCounters.ON_COLUMN_NAME),
+                getLongValue(response.item(), CityDeviceCounters.OFF_COLUMN_NAME)))
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to find the city device counters.", exception.getMessage(), cityId);
+                throw new CityException("Error when trying to find the city device counters.");
+            });
+    }
+
+    private static long getLongValue(final Map<String, AttributeValue> item, final String columnName) {
+        AttributeValue value = Objects.isNull(item) ? null : item.get(columnName);
+        return Objects.isNull(value) ? 0L : Long.parseLong(value.n());
+    }
+}
@@ -0,0 +1,204 @@
+package hiperium.city.devices.read.function.repository;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.common.CompactId;
+import hiperium.city.devices.read.function.dto.ReadDeviceRequest;
+import hiperium.city.devices.read.function.entities.Device;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DevicesBatchLoader class coalesces the concurrent device lookups into BatchGetItem requests.
+ *
+ * <p>
+ * The lookups are collected for up to the batching window, or until the batch reaches the maximum size, and then
+ * loaded with a single request. Every caller gets its own CompletableFuture, which completes with the item of its
+ * key, or with an empty map if the device doesn't exist. The keys that DynamoDB returns as unprocessed are retried
+ * in a later batch, and only their callers fail when the retries are exhausted.
+ * </p>
+ *
+ * <p>
+ * When batching is disabled, which is the default for the Lambda runtime because it serves one request at a time,
+ * the lookups go straight to the repository.
+ * </p>
+ */
+@Component
+public class DevicesBatchLoader {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DevicesBatchLoader.class);
+    private static final int MAX_BATCH_GET_KEYS = 100;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final int maxAttempts;
+    private final Duration window;
+    private final Scheduler scheduler = Schedulers.parallel();
+    private final DevicesRepository devicesRepository;
+    private final DistributionSummary batchSizeSummary;
+
+    private Map<DeviceKey, PendingLookup> pendingLookups = new LinkedHashMap<>();
+
+    /**
+     * Creates the batch loader of devices.
+     *
+     * @param environment       The environment used to read the batching properties.
+     * @param meterRegistry     The registry used to publish the batch size metric.
+     * @param devicesRepository The repository used for retrieving devices from the DynamoDB table.
+     */
+    public DevicesBatchLoader(Environment environment, MeterRegistry meterRegistry,
+                              DevicesRepository devicesRepository) {
+        this.devicesRepository = devicesRepository;
+        this.enabled = environment.getProperty("hiperium.devices.batching.enabled", Boolean.class, false);
+        this.maxBatchSize = Math.min(MAX_BATCH_GET_KEYS,
+            environment.getProperty("hiperium.devices.batching.max-batch-size", Integer.class, MAX_BATCH_GET_KEYS));
+        this.maxAttempts = environment.getProperty("hiperium.devices.batching.max-attempts", Integer.class, 3);
+        this.window = Duration.ofMillis(
+            environment.getProperty("hiperium.devices.batching.window-ms", Long.class, 2L));
+        this.batchSizeSummary = meterRegistry.summary("devices.batch.size");
+    }
+
+    /**
+     * Retrieves a device from the DynamoDB table, batched with the other concurrent lookups.
+     *
+     * @param readDeviceRequest The device data request containing the device ID and city ID.
+     * @return A CompletableFuture that completes with the item attributes of the device,
+     * or with an empty map if the device doesn't exist.
+     */
+    public CompletableFuture<Map<String, AttributeValue>> findByIdAsync(final ReadDeviceRequest readDeviceRequest) {
+        if (!this.enabled) {
+            return this.devicesRepository.findByIdAsync(readDeviceRequest);
+        }
+        CompletableFuture<Map<String, AttributeValue>> result = new CompletableFuture<>();
+        this.enqueue(readDeviceRequest, List.of(result), 1);
+        return result;
+    }
+
+    private void enqueue(final ReadDeviceRequest readDeviceRequest,
+                         final List<CompletableFuture<Map<String, AttributeValue>>> callers, final int attempt) {
+        Map<DeviceKey, PendingLookup> fullBatch = null;
+        boolean firstInBatch;
+        synchronized (this) {
+            firstInBatch = this.pendingLookups.isEmpty();
+            // Lookups of the same key share the same entry, because BatchGetItem rejects duplicated keys.
+            this.pendingLookups.computeIfAbsent(DeviceKey.of(readDeviceRequest),
+                    key -> new PendingLookup(readDeviceRequest, attempt))
+                .callers().addAll(callers);
+            if (this.pendingLookups.size() >= this.maxBatchSize) {
+                fullBatch = this.takePendingLookups();
+            }
+        }
+        if (Objects.nonNull(fullBatch)) {
+            this.load(fullBatch);
+        } else if (firstInBatch) {
+            this.scheduler.schedule(this::flush, this.window.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<DeviceKey, PendingLookup> batch;
+        synchronized (this) {
+            batch = this.takePendingLookups();
+        }
+        if (!batch.isEmpty()) {
+            this.load(batch);
+        }
+    }
+
+    private Map<DeviceKey, PendingLookup> takePendingLookups() {
+        Map<DeviceKey, PendingLookup> batch = this.pendingLookups;
+        this.pendingLookups = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void load(final Map<DeviceKey, PendingLookup> batch) {
+        this.batchSizeSummary.record(batch.size());
+        this.devicesRepository.batchFindByIdsAsync(batch.values().stream().map(PendingLookup::request).toList())
+            .whenComplete((response, exception) -> {
+                if (Objects.nonNull(exception)) {
+                    Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+                    batch.values().forEach(pendingLookup -> pendingLookup.completeExceptionally(cause));
+                    return;
+                }
+                this.dispatch(batch, response);
+            });
+    }
+
+    private void dispatch(final Map<DeviceKey, PendingLookup> batch, final BatchGetItemResponse response) {
+        Map<DeviceKey, PendingLookup> remaining = new HashMap<>(batch);
+        response.responses().getOrDefault(Device.TABLE_NAME, List.of()).forEach(item -> {
+            PendingLookup pendingLookup = remaining.remove(DeviceKey.of(item));
+            if (Objects.nonNull(pendingLookup)) {
+                pendingLookup.complete(item);
+            }
+        });
+        KeysAndAttributes unprocessed = response.unprocessedKeys().get(Device.TABLE_NAME);
+        if (Objects.nonNull(unprocessed)) {
+            unprocessed.keys().forEach(key -> {
+                PendingLookup pendingLookup = remaining.remove(DeviceKey.of(key));
+                if (Objects.nonNull(pendingLookup)) {
+                    this.retry(pendingLookup);
+                }
+            });
+        }
+        // The keys absent from both the responses and the unprocessed keys don't exist in the table.
+        remaining.values().forEach(pendingLookup -> pendingLookup.complete(Map.of()));
+    }
+
+    private void retry(final PendingLookup pendingLookup) {
+        if (pendingLookup.attempt() >= this.maxAttempts) {
+            LOGGER.error("Device lookup was not processed after the maximum attempts.", pendingLookup.request());
+            pendingLookup.completeExceptionally(new CityException("Error when trying to find a Device by ID."));
+            return;
+        }
+        this.enqueue(pendingLookup.request(), pendingLookup.callers(), pendingLookup.attempt() + 1);
+    }
+
+    // The key of the pending lookups, using the compact representation of the IDs.
+    private record DeviceKey(CompactId deviceId, CompactId cityId) {
+
+        private static DeviceKey of(final ReadDeviceRequest readDeviceRequest) {
+            return new DeviceKey(CompactId.parse(readDeviceRequest.deviceId()),
+                CompactId.parse(readDeviceRequest.cityId()));
+        }
+
+        private static DeviceKey of(final Map<String, AttributeValue> item) {
+            return new DeviceKey(CompactId.parse(item.get(Device.ID_COLUMN_NAME).s()),
+                CompactId.parse(item.get(Device.CITY_ID_COLUMN_NAME).s()));
+        }
+    }
+
+    private record PendingLookup(ReadDeviceRequest request, int attempt,
+                                 List<CompletableFuture<Map<String, AttributeValue>>> callers) {
+
+        private PendingLookup(ReadDeviceRequest request, int attempt) {
+            this(request, attempt, new ArrayList<>(1));
+        }
+
+        private void complete(Map<String, AttributeValue> item) {
+            this.callers.forEach(caller -> caller.complete(item));
+        }
+
+        private void completeExceptionally(Throwable exception) {
+            this.callers.forEach(caller -> caller.completeExceptionally(exception));
+        }
+    }
+}
@@ -2,17 +2,27 @@ package hiperium.city.devices.read.function.repository;
 
 import hiperium.cities.commons.exceptions.CityException;
 import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.common.CircuitBreakerOpenException;
 import hiperium.city.devices.read.function.dto.ReadDeviceRequest;
 import hiperium.city.devices.read.function.entities.Device;
 import org.springframework.stereotype.Repository;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * The DevicesRepository class is responsible for retrieving Devices objects from the DynamoDB table.
@@ -26,16 +36,19 @@ public class DevicesRepository {
 
     private static final HiperiumLogger LOGGER = new HiperiumLogger(DevicesRepository.class);
 
+    private final CircuitBreaker circuitBreaker;
     private final DynamoDbAsyncClient dynamoDbAsyncClient;
 
     /**
      * The DevicesRepository class represents a repository for accessing and manipulating device data
      * in a DynamoDB database.
      *
+     * @param circuitBreaker      The circuit breaker used to fail fast when DynamoDB is degraded.
      * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
      * @see DynamoDbAsyncClient
      */
-    public DevicesRepository(DynamoDbAsyncClient dynamoDbAsyncClient) {
+    public DevicesRepository(CircuitBreaker circuitBreaker, DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.circuitBreaker = circuitBreaker;
         this.dynamoDbAsyncClient = dynamoDbAsyncClient;
     }
 
@@ -45,21 +58,71 @@ public class DevicesRepository {
      * @param readDeviceRequest The device data request containing the device ID and city ID.
      * @return A CompletableFuture that completes with a Map of item attributes representing the found device.
      * @throws CityException if an error occurs while retrieving the device.
+     * @throws CircuitBreakerOpenException if the circuit breaker is open and the call is rejected.
      */
     public CompletableFuture<Map<String, AttributeValue>> findByIdAsync(ReadDeviceRequest readDeviceRequest) {
-        HashMap<String, AttributeValue> keyMap = new HashMap<>();
-        keyMap.put(Device.ID_COLUMN_NAME, AttributeValue.builder().s(readDeviceRequest.deviceId()).build());
-        keyMap.put(Device.CITY_ID_COLUMN_NAME, AttributeValue.builder().s(readDeviceRequest.cityId()).build());
-        GetItemRequest itemRequest = GetItemRequest.builder()
-            .key(keyMap)
-            .tableName(Device.TABLE_NAME)
+        GetItemRequest itemRequest = DevicesRequestTemplates.findById(readDeviceRequest);
+
+        return this.executeAsync(() -> this.dynamoDbAsyncClient.getItem(itemRequest).thenApply(GetItemResponse::item),
+            "Error when trying to find a Device by ID.", readDeviceRequest);
+    }
+
+    /**
+     * Retrieves up to 100 devices from the DynamoDB table asynchronously with a single BatchGetItem request.
+     *
+     * @param readDeviceRequests The distinct device data requests containing the device ID and city ID.
+     * @return A CompletableFuture that completes with the BatchGetItem response. The devices not found are absent
+     * from the response, and the keys that DynamoDB didn't process are returned as unprocessed keys.
+     * @throws CityException if an error occurs while retrieving the devices.
+     * @throws CircuitBreakerOpenException if the circuit breaker is open and the call is rejected.
+     */
+    public CompletableFuture<BatchGetItemResponse> batchFindByIdsAsync(
+        Collection<ReadDeviceRequest> readDeviceRequests) {
+        List<Map<String, AttributeValue>> keys = readDeviceRequests.stream()
+            .map(DevicesRequestTemplates::key)
+            .toList();
+        BatchGetItemRequest batchGetItemRequest = BatchGetItemRequest.builder()
+            .requestItems(Map.of(Device.TABLE_NAME, KeysAndAttributes.builder().keys(keys).build()))
             .build();
 
-        return this.dynamoDbAsyncClient.getItem(itemRequest)
-            .thenApply(GetItemResponse::item)
-            .exceptionally(exception -> {
-                LOGGER.error("Error when trying to find a Device by ID.", exception.getMessage(), readDeviceRequest);
-                throw new CityException("Error when trying to find a Device by ID.");
-            });
+        return this.executeAsync(() -> this.dynamoDbAsyncClient.batchGetItem(batchGetItemRequest),
+            "Error when trying to find a batch of Devices by ID.", readDeviceRequests.size());
+    }
+
+    /**
+     * Retrieves a page of the devices of a city changed since the given timestamp, from the {@code CityUpdatedAtIndex}
+     * index, in the order of their last change. Only the device ID, status and last change timestamp are read.
+     *
+     * @param cityId            The ID of the city.
+     * @param since             The inclusive timestamp from which the changes are returned.
+     * @param exclusiveStartKey The last evaluated key of the previous page, or null for the first page.
+     * @param pageSize          The maximum number of devices of the page.
+     * @return A CompletableFuture that completes with the query response, whose last evaluated key is absent on the
+     * last page.
+     * @throws CityException if an error occurs while querying the devices.
+     * @throws CircuitBreakerOpenException if the circuit breaker is open and the call is rejected.
+     */
+    public CompletableFuture<QueryResponse> findChangedSinceAsync(final String cityId, final Instant since,
+                                                                  final Map<String, AttributeValue> exclusiveStartKey,
+                                                                  final int pageSize) {
+        QueryRequest queryRequest = DevicesRequestTemplates.changedSince(cityId, since, exclusiveStartKey, pageSize);
+
+        return this.executeAsync(() -> this.dynamoDbAsyncClient.query(queryRequest),
+            "Error when trying to find the changed Devices.", cityId);
+    }
+
+    // The permission of the circuit breaker is acquired when the call is sent, and released if the returned
+    // CompletableFuture is cancelled before the call completed, so the half-open trial calls can't leak.
+    private <T> CompletableFuture<T> executeAsync(final Supplier<CompletableFuture<T>> call, final String errorMessage,
+                                                  final Object detail) {
+        return this.circuitBreaker.executeAsync(call, UnaryOperator.identity(), () -> {
+                LOGGER.error("Devices circuit breaker is open. Failing fast.", detail);
+                return new CircuitBreakerOpenException("Devices data source is temporarily unavailable.");
+            })
+            .onErrorMap(exception -> !(exception instanceof CircuitBreakerOpenException), exception -> {
+                LOGGER.error(errorMessage, exception.getMessage(), detail);
+                return new CityException(errorMessage);
+            })
+            .toFuture();
     }
 }
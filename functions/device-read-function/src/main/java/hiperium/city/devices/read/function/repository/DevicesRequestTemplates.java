@@ -0,0 +1,69 @@
+package hiperium.city.devices.read.function.repository;
+
+import hiperium.city.devices.read.function.dto.ReadDeviceRequest;
+import hiperium.city.devices.read.function.entities.Device;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Holds the immutable parts of the DynamoDB requests sent by the {@link DevicesRepository}. They are built once,
+ * so only the item key is created for every request. The changed devices are queried with the same fixed-width UTC
+ * timestamps written by the update functions, so they compare in time order as strings.
+ */
+final class DevicesRequestTemplates {
+
+    private static final GetItemRequest FIND_BY_ID_TEMPLATE = GetItemRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .build();
+
+    private static final QueryRequest CHANGED_SINCE_TEMPLATE = QueryRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .indexName(Device.CITY_UPDATED_AT_INDEX_NAME)
+        .keyConditionExpression("#cityId = :city_id AND #updatedAt >= :since")
+        .projectionExpression("#id, #deviceStatus, #version, #updatedAt")
+        .expressionAttributeNames(Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#version", Device.VERSION_COLUMN_NAME,
+            "#cityId", Device.CITY_ID_COLUMN_NAME,
+            "#deviceStatus", Device.STATUS_COLUMN_NAME,
+            "#updatedAt", Device.UPDATED_AT_COLUMN_NAME))
+        .build();
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private DevicesRequestTemplates() {
+    }
+
+    static GetItemRequest findById(final ReadDeviceRequest readDeviceRequest) {
+        return FIND_BY_ID_TEMPLATE.toBuilder()
+            .key(key(readDeviceRequest))
+            .build();
+    }
+
+    static QueryRequest changedSince(final String cityId, final Instant since,
+                                     final Map<String, AttributeValue> exclusiveStartKey, final int pageSize) {
+        QueryRequest.Builder queryRequestBuilder = CHANGED_SINCE_TEMPLATE.toBuilder()
+            .expressionAttributeValues(Map.of(
+                ":city_id", AttributeValue.fromS(cityId),
+                ":since", AttributeValue.fromS(TIMESTAMP_FORMATTER.format(since))))
+            .limit(pageSize);
+        if (Objects.nonNull(exclusiveStartKey)) {
+            queryRequestBuilder.exclusiveStartKey(exclusiveStartKey);
+        }
+        return queryRequestBuilder.build();
+    }
+
+    static Map<String, AttributeValue> key(final ReadDeviceRequest readDeviceRequest) {
+        return Map.of(
+            Device.ID_COLUMN_NAME, AttributeValue.fromS(readDeviceRequest.deviceId()),
+            Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(readDeviceRequest.cityId()));
+    }
+}
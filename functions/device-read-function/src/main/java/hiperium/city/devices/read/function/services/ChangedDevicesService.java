@@ -0,0 +1,134 @@
+package hiperium.city.devices.read.function.services;
+
+import hiperium.city.devices.read.function.common.ComputeOffload;
+import hiperium.city.devices.read.function.common.DeviceStatus;
+import hiperium.city.devices.read.function.dto.ChangedDevice;
+import hiperium.city.devices.read.function.dto.ReadChangedDevicesRequest;
+import hiperium.city.devices.read.function.dto.ReadChangedDevicesResponse;
+import hiperium.city.devices.read.function.entities.Device;
+import hiperium.city.devices.read.function.repository.DevicesRepository;
+import jakarta.validation.ValidationException;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The ChangedDevicesService class is a service class that provides the devices of a city changed since a timestamp,
+ * so the clients can synchronize their copies with work proportional to the changes instead of the fleet size.
+ *
+ * <p>
+ * The pages are read from the {@code CityUpdatedAtIndex} index in the order of the last change of the devices. The
+ * next token holds the last change timestamp and the ID of the last device of the page, so it's only valid for
+ * the same city.
+ * </p>
+ */
+@Service
+public class ChangedDevicesService {
+
+    private static final char TOKEN_SEPARATOR = '|';
+
+    private final int defaultPageSize;
+    private final ComputeOffload computeOffload;
+    private final CityStatusCache cityStatusCache;
+    private final DevicesRepository devicesRepository;
+
+    /**
+     * Represents a service class that provides the changed devices of the cities.
+     *
+     * @param environment       The environment used to read the default page size.
+     * @param computeOffload    The offload used for mapping the items out of the SDK completion threads.
+     * @param cityStatusCache   The cache used for verifying that the city is enabled.
+     * @param devicesRepository The repository used for querying the changed devices.
+     */
+    public ChangedDevicesService(Environment environment, ComputeOffload computeOffload,
+                                 CityStatusCache cityStatusCache, DevicesRepository devicesRepository) {
+        this.defaultPageSize = Math.min(ReadChangedDevicesRequest.MAX_PAGE_SIZE,
+            environment.getProperty("hiperium.devices.changes.default-page-size", Integer.class, 100));
+        this.computeOffload = computeOffload;
+        this.cityStatusCache = cityStatusCache;
+        this.devicesRepository = devicesRepository;
+    }
+
+    /**
+     * Finds a page of the devices of a city changed since the requested timestamp, inclusive. A device changed
+     * again after being returned is returned again on a later page, with its new status.
+     *
+     * @param changedDevicesRequest The request object containing the city ID, the timestamp and the page.
+     * @return A Mono that emits the page of changed devices. The request fails before accessing the Devices table if
+     * the city doesn't exist or is disabled, or if the timestamp or the next token are invalid.
+     */
+    public Mono<ReadChangedDevicesResponse> findChangedSince(final ReadChangedDevicesRequest changedDevicesRequest) {
+        final String cityId = changedDevicesRequest.cityId();
+        final Instant since;
+        final Map<String, AttributeValue> exclusiveStartKey;
+        try {
+            since = parseSince(changedDevicesRequest.since());
+            exclusiveStartKey = decodeToken(cityId, changedDevicesRequest.nextToken());
+        } catch (ValidationException exception) {
+            return Mono.error(exception);
+        }
+        final int pageSize = Objects.isNull(changedDevicesRequest.pageSize()) ? this.defaultPageSize
+            : changedDevicesRequest.pageSize();
+        return this.cityStatusCache.verifyCityIsEnabled(cityId)
+            .then(Mono.fromCompletionStage(() ->
+                this.devicesRepository.findChangedSinceAsync(cityId, since, exclusiveStartKey, pageSize)))
+            .transform(this.computeOffload::afterIo)
+            .map(queryResponse -> toResponse(cityId, queryResponse));
+    }
+
+    private static ReadChangedDevicesResponse toResponse(final String cityId, final QueryResponse queryResponse) {
+        List<ChangedDevice> changedDevices = queryResponse.items().stream()
+            .map(item -> new ChangedDevice(
+                item.get(Device.ID_COLUMN_NAME).s(),
+                DeviceStatus.valueOf(item.get(Device.STATUS_COLUMN_NAME).s()),
+                item.get(Device.UPDATED_AT_COLUMN_NAME).s()))
+            .toList();
+        String nextToken = queryResponse.hasLastEvaluatedKey() && !queryResponse.lastEvaluatedKey().isEmpty()
+            ? encodeToken(queryResponse.lastEvaluatedKey()) : null;
+        return new ReadChangedDevicesResponse(cityId, changedDevices, nextToken, null);
+    }
+
+    private static Instant parseSince(final String since) {
+        try {
+            return Instant.parse(since);
+        } catch (DateTimeParseException exception) {
+            throw new ValidationException("Since timestamp must be an ISO-8601 instant.");
+        }
+    }
+
+    private static String encodeToken(final Map<String, AttributeValue> lastEvaluatedKey) {
+        String token = lastEvaluatedKey.get(Device.UPDATED_AT_COLUMN_NAME).s() + TOKEN_SEPARATOR
+            + lastEvaluatedKey.get(Device.ID_COLUMN_NAME).s();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, AttributeValue> decodeToken(final String cityId, final String nextToken) {
+        if (Objects.isNull(nextToken)) {
+            return null;
+        }
+        final String token;
+        try {
+            token = new String(Base64.getUrlDecoder().decode(nextToken), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException exception) {
+            throw new ValidationException("Next token must have a valid format.");
+        }
+        int separatorIndex = token.lastIndexOf(TOKEN_SEPARATOR);
+        if (separatorIndex <= 0 || separatorIndex == token.length() - 1) {
+            throw new ValidationException("Next token must have a valid format.");
+        }
+        return Map.of(
+            Device.ID_COLUMN_NAME, AttributeValue.fromS(token.substring(separatorIndex + 1)),
+            Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(cityId),
+            Device.UPDATED_AT_COLUMN_NAME, AttributeValue.fromS(token.substring(0, separatorIndex)));
+    }
+}
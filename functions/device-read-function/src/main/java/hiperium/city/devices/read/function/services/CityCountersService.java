@@ -0,0 +1,41 @@
+package hiperium.city.devices.read.function.services;
+
+import hiperium.city.devices.read.function.dto.ReadCityCountersRequest;
+import hiperium.city.devices.read.function.entities.CityDeviceCounters;
+import hiperium.city.devices.read.function.repository.CityCountersRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * The CityCountersService class is a service class that provides the device counters of the cities.
+ */
+@Service
+public class CityCountersService {
+
+    private final CityStatusCache cityStatusCache;
+    private final CityCountersRepository cityCountersRepository;
+
+    /**
+     * Represents a service class that provides the device counters of the cities.
+     *
+     * @param cityStatusCache        The cache used for verifying that the city is enabled.
+     * @param cityCountersRepository The repository used for reading the counters of a city.
+     */
+    public CityCountersService(CityStatusCache cityStatusCache, CityCountersRepository cityCountersRepository) {
+        this.cityStatusCache = cityStatusCache;
+        this.cityCountersRepository = cityCountersRepository;
+    }
+
+    /**
+     * Finds the device counters of a city, with a single item read.
+     *
+     * @param readCityCountersRequest The request object containing the city ID.
+     * @return A Mono that emits the counters of the city. The request fails before accessing the counters table if
+     * the city doesn't exist or is disabled.
+     */
+    public Mono<CityDeviceCounters> findByCityId(final ReadCityCountersRequest readCityCountersRequest) {
+        final String cityId = readCityCountersRequest.cityId();
+        return this.cityStatusCache.verifyCityIsEnabled(cityId)
+            .then(Mono.fromCompletionStage(() -> this.cityCountersRepository.findByCityIdAsync(cityId)));
+    }
+}
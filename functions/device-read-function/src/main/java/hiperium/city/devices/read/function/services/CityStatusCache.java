@@ -0,0 +1,201 @@
+package hiperium.city.devices.read.function.services;
+
+import hiperium.cities.commons.exceptions.ResourceNotFoundException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.common.CityStatus;
+import hiperium.city.devices.read.function.repository.CitiesRepository;
+import jakarta.validation.ValidationException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The CityStatusCache class keeps an in-memory snapshot of the status of every city, so the disabled-city rule
+ * can be enforced without an extra DynamoDB lookup per request.
+ *
+ * <p>
+ * The snapshot is bulk-loaded from the Cities table and replaced atomically on every refresh. Lookups read an
+ * immutable map through a volatile reference, so they are O(1) and lock-free. The refresh runs asynchronously on a
+ * dedicated single-thread scheduler, and concurrent refresh requests share the same in-flight scan. A city missing
+ * from the snapshot, like one created after the last refresh, triggers a refresh before it's rejected, at most once
+ * per {@code hiperium.devices.city-status.miss-refresh-interval-ms}, so the requests for unknown cities can't turn
+ * into a scan per request.
+ * </p>
+ */
+@Service
+public class CityStatusCache implements InitializingBean, DisposableBean {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CityStatusCache.class);
+
+    private final Duration refreshInterval;
+    private final long missRefreshIntervalNanos;
+    private final AtomicLong lastMissRefreshNanos;
+    private final CitiesRepository citiesRepository;
+    private final AtomicReference<CompletableFuture<Map<String, CityStatus>>> inFlightRefresh = new AtomicReference<>();
+
+    private volatile Map<String, CityStatus> cityStatuses;
+    private Scheduler refreshScheduler;
+    private Disposable refreshTask;
+
+    /**
+     * Creates the city status cache.
+     *
+     * @param environment      The environment used to read the refresh interval properties.
+     * @param citiesRepository The repository used for bulk-loading the city statuses.
+     */
+    public CityStatusCache(Environment environment, CitiesRepository citiesRepository) {
+        this.citiesRepository = citiesRepository;
+        this.refreshInterval = Duration.ofSeconds(
+            environment.getProperty("hiperium.devices.city-status.refresh-interval-seconds", Long.class, 300L));
+        this.missRefreshIntervalNanos = Duration.ofMillis(
+            environment.getProperty("hiperium.devices.city-status.miss-refresh-interval-ms", Long.class, 1000L))
+            .toNanos();
+        this.lastMissRefreshNanos = new AtomicLong(System.nanoTime() - this.missRefreshIntervalNanos);
+    }
+
+    /**
+     * Verifies that the city exists and is enabled. A city missing from the snapshot is verified again with a
+     * refreshed snapshot, unless a refresh for a missing city was already started in the last interval and has
+     * completed.
+     *
+     * @param cityId The ID of the city to verify.
+     * @return A Mono that completes empty if the city is enabled, or emits a ResourceNotFoundException if the city
+     * doesn't exist, or a ValidationException if the city is disabled.
+     */
+    public Mono<Void> verifyCityIsEnabled(final String cityId) {
+        Map<String, CityStatus> snapshot = this.cityStatuses;
+        if (Objects.nonNull(snapshot)) {
+            CityStatus cityStatus = snapshot.get(cityId);
+            if (Objects.nonNull(cityStatus) || !this.tryStartMissRefresh()) {
+                try {
+                    verifyCityStatus(cityStatus, cityId);
+                } catch (RuntimeException exception) {
+                    return Mono.error(exception);
+                }
+                return Mono.empty();
+            }
+        }
+        return Mono.fromCompletionStage(this::refreshAsync)
+            .doOnNext(loadedStatuses -> verifyCityStatus(loadedStatuses.get(cityId), cityId))
+            .then();
+    }
+
+    /**
+     * Verifies that the city exists and is enabled with the loaded snapshot only, so the verification completes
+     * synchronously, without subscribing to anything.
+     *
+     * @param cityId The ID of the city to verify.
+     * @return true if the city is enabled, or false if the snapshot isn't loaded yet, or the city is missing from it
+     * and may be found by a refresh, so the city must be verified with {@link #verifyCityIsEnabled(String)}.
+     * @throws ResourceNotFoundException if the city doesn't exist.
+     * @throws ValidationException if the city is disabled.
+     */
+    public boolean isEnabledInSnapshot(final String cityId) {
+        Map<String, CityStatus> snapshot = this.cityStatuses;
+        if (Objects.isNull(snapshot)) {
+            return false;
+        }
+        CityStatus cityStatus = snapshot.get(cityId);
+        if (Objects.isNull(cityStatus) && this.isMissRefreshAllowed()) {
+            return false;
+        }
+        verifyCityStatus(cityStatus, cityId);
+        return true;
+    }
+
+    /**
+     * Reloads the city statuses from the Cities table. If there is already a refresh in progress,
+     * the returned CompletableFuture is the one of the in-flight refresh.
+     *
+     * @return A CompletableFuture that completes with the new city statuses snapshot.
+     */
+    public CompletableFuture<Map<String, CityStatus>> refreshAsync() {
+        CompletableFuture<Map<String, CityStatus>> newRefresh = new CompletableFuture<>();
+        CompletableFuture<Map<String, CityStatus>> currentRefresh =
+            this.inFlightRefresh.compareAndExchange(null, newRefresh);
+        if (Objects.nonNull(currentRefresh)) {
+            return currentRefresh;
+        }
+        this.citiesRepository.findAllStatusesAsync()
+            .thenApply(Map::copyOf)
+            .whenComplete((loadedStatuses, exception) -> {
+                this.inFlightRefresh.set(null);
+                if (Objects.nonNull(exception)) {
+                    newRefresh.completeExceptionally(exception);
+                    return;
+                }
+                this.cityStatuses = loadedStatuses;
+                LOGGER.debug("City statuses refreshed", loadedStatuses.size());
+                newRefresh.complete(loadedStatuses);
+            });
+        return newRefresh;
+    }
+
+    /**
+     * Starts the periodic refresh of the city statuses. The first refresh is executed immediately,
+     * so the snapshot is usually loaded before the first request arrives.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        this.refreshScheduler = Schedulers.newSingle("city-status-refresh", true);
+        this.refreshTask = this.refreshScheduler.schedulePeriodically(() -> this.refreshAsync()
+                .exceptionally(exception -> {
+                    LOGGER.error("Couldn't refresh the city statuses.", exception.getMessage());
+                    return null;
+                }),
+            0, this.refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic refresh of the city statuses.
+     */
+    @Override
+    public void destroy() {
+        if (Objects.nonNull(this.refreshTask)) {
+            this.refreshTask.dispose();
+        }
+        if (Objects.nonNull(this.refreshScheduler)) {
+            this.refreshScheduler.dispose();
+        }
+    }
+
+    // A missing city may join the refresh in flight, or start a new one once per interval.
+    private boolean isMissRefreshAllowed() {
+        return Objects.nonNull(this.inFlightRefresh.get())
+            || System.nanoTime() - this.lastMissRefreshNanos.get() >= this.missRefreshIntervalNanos;
+    }
+
+    private boolean tryStartMissRefresh() {
+        if (Objects.nonNull(this.inFlightRefresh.get())) {
+            return true;
+        }
+        long lastRefreshNanos = this.lastMissRefreshNanos.get();
+        long now = System.nanoTime();
+        return now - lastRefreshNanos >= this.missRefreshIntervalNanos
+            && this.lastMissRefreshNanos.compareAndSet(lastRefreshNanos, now);
+    }
+
+    private static void verifyCityStatus(final CityStatus cityStatus, final String cityId) {
+        if (Objects.isNull(cityStatus)) {
+            LOGGER.error("No city found with the provided ID.", cityId);
+            throw new ResourceNotFoundException("No city found with the provided ID.");
+        }
+        if (cityStatus == CityStatus.DISABLED) {
+            LOGGER.error("The city is disabled.", cityId);
+            throw new ValidationException("The city is disabled.");
+        }
+    }
+}
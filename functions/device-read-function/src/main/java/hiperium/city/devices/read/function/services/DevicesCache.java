@@ -0,0 +1,185 @@
+package hiperium.city.devices.read.function.services;
+
+import hiperium.city.devices.read.function.common.CompactId;
+import hiperium.city.devices.read.function.entities.Device;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The DevicesCache class keeps a projection of the devices read from the DynamoDB table.
+ *
+ * <p>
+ * Every function instance keeps its own cache, and the {@link DevicesCacheSync} delivers the device changes to it,
+ * evicting the entries older than the changed version. The entries are only served while the last synchronization
+ * is recent, so the staleness is bounded by the synchronization lag instead of the time-to-live, even after the
+ * instance was frozen between invocations. The time-to-live is only a safety net. Every entry keeps the item
+ * version, so a concurrent load of an older item doesn't replace a newer one. The entries are keyed by the compact
+ * representation of the device ID, so the keys don't retain the ID strings.
+ * </p>
+ */
+@Service
+public class DevicesCache {
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final long maxSyncAgeNanos;
+    private final ConcurrentHashMap<CompactId, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+    private final Counter staleHitsCounter;
+    private final Counter unsyncedCounter;
+    private final Counter appliedChangesCounter;
+
+    private volatile boolean synced;
+    private volatile long syncedAtNanos;
+
+    /**
+     * Creates the devices cache.
+     *
+     * @param environment   The environment used to read the cache properties.
+     * @param meterRegistry The registry used to publish the cache metrics.
+     */
+    public DevicesCache(Environment environment, MeterRegistry meterRegistry) {
+        this.maximumSize = environment.getProperty("hiperium.devices.cache.maximum-size", Integer.class, 10_000);
+        this.timeToLiveNanos = Duration.ofSeconds(
+            environment.getProperty("hiperium.devices.cache.time-to-live-seconds", Long.class, 300L)).toNanos();
+        this.maxSyncAgeNanos = Duration.ofMillis(
+            environment.getProperty("hiperium.devices.cache.max-sync-age-ms", Long.class, 3000L)).toNanos();
+        this.hitsCounter = meterRegistry.counter("devices.cache.requests", "result", "hit");
+        this.missesCounter = meterRegistry.counter("devices.cache.requests", "result", "miss");
+        this.staleHitsCounter = meterRegistry.counter("devices.cache.requests", "result", "stale");
+        this.unsyncedCounter = meterRegistry.counter("devices.cache.requests", "result", "unsynced");
+        this.appliedChangesCounter = meterRegistry.counter("devices.cache.changes.applied");
+    }
+
+    /**
+     * Returns the cached device if it is present, has not expired and the device changes were synchronized recently.
+     *
+     * @param deviceId The ID of the device.
+     * @param cityId   The ID of the city the device belongs to.
+     * @return The cached device, or null if there is no valid entry.
+     */
+    public Device get(final CompactId deviceId, final CompactId cityId) {
+        long now = System.nanoTime();
+        CacheEntry entry = Objects.isNull(deviceId) ? null : this.entries.get(deviceId);
+        if (Objects.isNull(entry) || !entry.cityId().equals(cityId) || entry.isExpired(now)) {
+            this.missesCounter.increment();
+            return null;
+        }
+        if (!this.synced || now - this.syncedAtNanos >= this.maxSyncAgeNanos) {
+            this.unsyncedCounter.increment();
+            return null;
+        }
+        this.hitsCounter.increment();
+        return entry.device();
+    }
+
+    /**
+     * Returns the cached device even if it has expired. Used as a fallback when the data source is unavailable.
+     *
+     * @param deviceId The ID of the device.
+     * @param cityId   The ID of the city the device belongs to.
+     * @return The cached device, or null if there is no entry for the device.
+     */
+    public Device getStale(final CompactId deviceId, final CompactId cityId) {
+        CacheEntry entry = Objects.isNull(deviceId) ? null : this.entries.get(deviceId);
+        if (Objects.isNull(entry) || !entry.cityId().equals(cityId)) {
+            return null;
+        }
+        this.staleHitsCounter.increment();
+        return entry.device();
+    }
+
+    /**
+     * Stores the device read from the DynamoDB table, unless the cache already holds a newer version.
+     *
+     * @param device The device to store.
+     */
+    public void put(final Device device) {
+        CompactId deviceId = CompactId.parse(device.id());
+        if (Objects.isNull(deviceId)) {
+            return;
+        }
+        if (this.entries.size() >= this.maximumSize && !this.entries.containsKey(deviceId)) {
+            this.evictExpiredEntries();
+            if (this.entries.size() >= this.maximumSize) {
+                return;
+            }
+        }
+        CacheEntry newEntry = new CacheEntry(device, CompactId.parse(device.cityId()),
+            System.nanoTime() + this.timeToLiveNanos);
+        this.entries.merge(deviceId, newEntry, (currentEntry, candidateEntry) ->
+            isOlder(candidateEntry.device().version(), currentEntry.device().version())
+                ? currentEntry : candidateEntry);
+    }
+
+    /**
+     * Applies a device change delivered by the {@link DevicesCacheSync}. The cached device is evicted if the change
+     * is newer than the cached version, or if the change has no version, so the next read loads it again.
+     *
+     * @param deviceId The ID of the changed device.
+     * @param version  The version of the device after the change.
+     */
+    public void applyChange(final CompactId deviceId, final Long version) {
+        if (Objects.isNull(deviceId)) {
+            return;
+        }
+        this.entries.computeIfPresent(deviceId, (cachedDeviceId, currentEntry) -> {
+            Long cachedVersion = currentEntry.device().version();
+            if (Objects.nonNull(version) && Objects.nonNull(cachedVersion) && cachedVersion >= version) {
+                return currentEntry;
+            }
+            this.appliedChangesCounter.increment();
+            return null;
+        });
+    }
+
+    /**
+     * Records that the device changes were synchronized up to the start of a synchronization.
+     *
+     * @param syncStartNanos The {@link System#nanoTime()} when the synchronization started.
+     */
+    public void markSynced(final long syncStartNanos) {
+        this.syncedAtNanos = syncStartNanos;
+        this.synced = true;
+    }
+
+    /**
+     * Returns the IDs of the cities with cached devices, whose changes must be synchronized.
+     *
+     * @return A snapshot of the city IDs of the cached entries.
+     */
+    public Set<CompactId> getCachedCityIds() {
+        Set<CompactId> cityIds = new HashSet<>();
+        this.entries.values().forEach(entry -> cityIds.add(entry.cityId()));
+        return cityIds;
+    }
+
+    private void evictExpiredEntries() {
+        long now = System.nanoTime();
+        this.entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private static boolean isOlder(Long version, Long otherVersion) {
+        if (Objects.isNull(version) || Objects.isNull(otherVersion)) {
+            return Objects.isNull(version) && Objects.nonNull(otherVersion);
+        }
+        return version < otherVersion;
+    }
+
+    private record CacheEntry(Device device, CompactId cityId, long expiresAtNanos) {
+
+        private boolean isExpired(long nowNanos) {
+            return nowNanos - this.expiresAtNanos >= 0;
+        }
+    }
+}
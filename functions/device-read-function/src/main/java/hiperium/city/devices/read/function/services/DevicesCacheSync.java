@@ -0,0 +1,146 @@
+package hiperium.city.devices.read.function.services;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.common.CompactId;
+import hiperium.city.devices.read.function.entities.Device;
+import hiperium.city.devices.read.function.repository.DevicesRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The DevicesCacheSync class delivers the device changes to the {@link DevicesCache} of the function instance.
+ *
+ * <p>
+ * Every interval, the devices changed since the previous synchronization are queried from the
+ * {@code CityUpdatedAtIndex} index for every city with cached devices, and the cached entries older than the changed
+ * version are evicted. The queried window overlaps the previous one, so the changes that reach the index late, and
+ * the older items loaded while a synchronization was running, are caught by the next one. The window only moves
+ * forward when every city was synchronized, and the cache stops serving its entries when the synchronizations fail,
+ * so the staleness of the cached reads is bounded by the synchronization lag.
+ * </p>
+ */
+@Service
+public class DevicesCacheSync implements InitializingBean, DisposableBean {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CONCURRENT_CITIES = 4;
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DevicesCacheSync.class);
+
+    private final Duration syncInterval;
+    private final Duration windowOverlap;
+    private final DevicesCache devicesCache;
+    private final DevicesRepository devicesRepository;
+    private final AtomicBoolean syncInProgress = new AtomicBoolean();
+
+    private volatile Instant syncedUntil;
+    private Scheduler syncScheduler;
+    private Disposable syncTask;
+
+    /**
+     * Creates the synchronization of the devices cache.
+     *
+     * @param environment       The environment used to read the synchronization properties.
+     * @param devicesCache      The cache the device changes are delivered to.
+     * @param devicesRepository The repository used for querying the changed devices.
+     */
+    public DevicesCacheSync(Environment environment, DevicesCache devicesCache, DevicesRepository devicesRepository) {
+        this.devicesCache = devicesCache;
+        this.devicesRepository = devicesRepository;
+        this.syncInterval = Duration.ofMillis(
+            environment.getProperty("hiperium.devices.cache.sync-interval-ms", Long.class, 1000L));
+        this.windowOverlap = Duration.ofMillis(
+            environment.getProperty("hiperium.devices.cache.sync-overlap-ms", Long.class, 2000L));
+        // The first window starts before any device is cached, so no change of a cached device is missed.
+        this.syncedUntil = Instant.now();
+    }
+
+    /**
+     * Queries the devices changed since the previous synchronization and applies them to the devices cache.
+     * If there is already a synchronization in progress, this one completes without doing anything.
+     *
+     * @return A Mono that completes when the changes of every city with cached devices were applied.
+     */
+    public Mono<Void> syncAsync() {
+        return Mono.defer(() -> {
+            if (!this.syncInProgress.compareAndSet(false, true)) {
+                return Mono.empty();
+            }
+            long syncStartNanos = System.nanoTime();
+            Instant syncStart = Instant.now();
+            Instant since = this.syncedUntil.minus(this.windowOverlap);
+            return Flux.fromIterable(this.devicesCache.getCachedCityIds())
+                .flatMap(cityId -> this.syncCity(cityId.toString(), since), MAX_CONCURRENT_CITIES)
+                .then(Mono.fromRunnable(() -> {
+                    this.syncedUntil = syncStart;
+                    this.devicesCache.markSynced(syncStartNanos);
+                }))
+                .doFinally(signalType -> this.syncInProgress.set(false))
+                .then();
+        });
+    }
+
+    /**
+     * Starts the periodic synchronization of the devices cache.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        this.syncScheduler = Schedulers.newSingle("devices-cache-sync", true);
+        this.syncTask = this.syncScheduler.schedulePeriodically(() -> this.syncAsync()
+                .subscribe(null, exception -> LOGGER.error("Couldn't synchronize the devices cache.",
+                    exception.getMessage())),
+            0, this.syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic synchronization of the devices cache.
+     */
+    @Override
+    public void destroy() {
+        if (Objects.nonNull(this.syncTask)) {
+            this.syncTask.dispose();
+        }
+        if (Objects.nonNull(this.syncScheduler)) {
+            this.syncScheduler.dispose();
+        }
+    }
+
+    private Mono<Void> syncCity(final String cityId, final Instant since) {
+        return this.findChangedPage(cityId, since, null)
+            .expand(queryResponse -> hasNextPage(queryResponse)
+                ? this.findChangedPage(cityId, since, queryResponse.lastEvaluatedKey()) : Mono.empty())
+            .doOnNext(queryResponse -> queryResponse.items().forEach(this::applyChange))
+            .then();
+    }
+
+    private Mono<QueryResponse> findChangedPage(final String cityId, final Instant since,
+                                                final Map<String, AttributeValue> exclusiveStartKey) {
+        return Mono.fromCompletionStage(() ->
+            this.devicesRepository.findChangedSinceAsync(cityId, since, exclusiveStartKey, PAGE_SIZE));
+    }
+
+    private void applyChange(final Map<String, AttributeValue> item) {
+        AttributeValue version = item.get(Device.VERSION_COLUMN_NAME);
+        this.devicesCache.applyChange(CompactId.parse(item.get(Device.ID_COLUMN_NAME).s()),
+            Objects.isNull(version) ? null : Long.valueOf(version.n()));
+    }
+
+    private static boolean hasNextPage(final QueryResponse queryResponse) {
+        return queryResponse.hasLastEvaluatedKey() && !queryResponse.lastEvaluatedKey().isEmpty();
+    }
+}
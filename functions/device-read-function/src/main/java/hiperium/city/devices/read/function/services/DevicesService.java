@@ -2,10 +2,13 @@ package hiperium.city.devices.read.function.services;
 
 import hiperium.cities.commons.exceptions.ResourceNotFoundException;
 import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.common.CircuitBreakerOpenException;
+import hiperium.city.devices.read.function.common.CompactId;
+import hiperium.city.devices.read.function.common.ComputeOffload;
 import hiperium.city.devices.read.function.dto.ReadDeviceRequest;
 import hiperium.city.devices.read.function.entities.Device;
 import hiperium.city.devices.read.function.mappers.DeviceMapper;
-import hiperium.city.devices.read.function.repository.DevicesRepository;
+import hiperium.city.devices.read.function.repository.DevicesBatchLoader;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
@@ -19,35 +22,93 @@ public class DevicesService {
 
     private static final HiperiumLogger LOGGER = new HiperiumLogger(DevicesService.class);
 
+    private final DevicesCache devicesCache;
     private final DeviceMapper deviceMapper;
-    private final DevicesRepository devicesRepository;
+    private final ComputeOffload computeOffload;
+    private final CityStatusCache cityStatusCache;
+    private final DevicesBatchLoader devicesBatchLoader;
 
     /**
      * Represents a service class that provides methods for working with devices.
      *
+     * @param devicesCache         The cache used for serving devices without accessing the DynamoDB table.
      * @param deviceMapper         The mapper used for mapping device data between different representations.
-     * @param devicesRepository    The repository used for retrieving devices from the DynamoDB table.
+     * @param cityStatusCache      The cache used for verifying that the device's city is enabled.
+     * @param devicesBatchLoader   The loader used for retrieving devices from the DynamoDB table.
+     * @param computeOffload       The offload used for mapping the items out of the SDK completion threads.
      */
-    public DevicesService(DeviceMapper deviceMapper, DevicesRepository devicesRepository) {
+    public DevicesService(DevicesCache devicesCache, DeviceMapper deviceMapper, CityStatusCache cityStatusCache,
+                          DevicesBatchLoader devicesBatchLoader, ComputeOffload computeOffload) {
+        this.devicesCache = devicesCache;
         this.deviceMapper = deviceMapper;
-        this.devicesRepository = devicesRepository;
+        this.computeOffload = computeOffload;
+        this.cityStatusCache = cityStatusCache;
+        this.devicesBatchLoader = devicesBatchLoader;
     }
 
     /**
-     * Finds a device by its ID.
+     * Finds a device by its ID. The device is served from the cache when possible. The conditional reads with a known
+     * version are only served from the cache when the cached version isn't older than the known one, so they still
+     * reach the Devices table on a miss, an expired entry, or an entry older than the caller's version.
      *
      * @param readDeviceRequest The request object containing the device ID and city ID.
      * @return A Mono that emits the found Device object, or throws a ResourceNotFoundException if no device is found.
+     * The request fails before accessing the Devices table if the city doesn't exist or is disabled. When the city
+     * is verified with the loaded snapshot, the cache hits and the city verification failures are returned as
+     * already resolved Mono instances, so the caller can read them without subscribing.
      */
     public Mono<Device> findById(final ReadDeviceRequest readDeviceRequest) {
-        return Mono.fromCompletionStage(() -> this.devicesRepository.findByIdAsync(readDeviceRequest))
-            .handle((returnedItem, sink) -> {
+        try {
+            if (!this.cityStatusCache.isEnabledInSnapshot(readDeviceRequest.cityId())) {
+                return this.cityStatusCache.verifyCityIsEnabled(readDeviceRequest.cityId())
+                    .then(Mono.defer(() -> this.findByIdInEnabledCity(readDeviceRequest)));
+            }
+        } catch (RuntimeException exception) {
+            return Mono.error(exception);
+        }
+        return this.findByIdInEnabledCity(readDeviceRequest);
+    }
+
+    private Mono<Device> findByIdInEnabledCity(final ReadDeviceRequest readDeviceRequest) {
+        // The IDs were validated with the request, so they are parsed only once here.
+        CompactId deviceId = CompactId.parse(readDeviceRequest.deviceId());
+        CompactId cityId = CompactId.parse(readDeviceRequest.cityId());
+        // The cached entries are only served while the device changes are synchronized, so a cached version that
+        // isn't older than the known one is as fresh as any other cache hit.
+        Device cachedDevice = this.devicesCache.get(deviceId, cityId);
+        if (Objects.nonNull(cachedDevice) && isNotOlderThan(cachedDevice, readDeviceRequest.ifVersion())) {
+            return Mono.just(cachedDevice);
+        }
+        return this.findByIdInTable(readDeviceRequest, deviceId, cityId);
+    }
+
+    private Mono<Device> findByIdInTable(final ReadDeviceRequest readDeviceRequest, final CompactId deviceId,
+                                         final CompactId cityId) {
+        return Mono.fromCompletionStage(() -> this.devicesBatchLoader.findByIdAsync(readDeviceRequest))
+            .transform(this.computeOffload::afterIo)
+            .<Device>handle((returnedItem, sink) -> {
                 if (Objects.isNull(returnedItem) || returnedItem.isEmpty()) {
                     LOGGER.error("No device found with the provided ID.", readDeviceRequest);
                     sink.error(new ResourceNotFoundException("No device found with the provided ID."));
                     return;
                 }
                 sink.next(this.deviceMapper.mapToDevice(returnedItem));
+            })
+            .doOnNext(this.devicesCache::put)
+            .onErrorResume(CircuitBreakerOpenException.class, exception -> {
+                // A stale device could wrongly answer a conditional read as not modified, unless it's newer.
+                Device staleDevice = this.devicesCache.getStale(deviceId, cityId);
+                boolean servable = Objects.nonNull(staleDevice) && (Objects.isNull(readDeviceRequest.ifVersion())
+                    || isNewerThan(staleDevice, readDeviceRequest.ifVersion()));
+                return servable ? Mono.just(staleDevice) : Mono.error(exception);
             });
     }
+
+    private static boolean isNotOlderThan(final Device device, final Long ifVersion) {
+        return Objects.isNull(ifVersion) || Objects.nonNull(device.version()) && device.version() >= ifVersion;
+    }
+
+    private static boolean isNewerThan(final Device device, final Long ifVersion) {
+        return Objects.nonNull(device.version()) && device.version() > ifVersion;
+    }
 }
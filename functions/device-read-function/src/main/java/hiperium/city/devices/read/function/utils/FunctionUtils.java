@@ -4,20 +4,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import hiperium.cities.commons.exceptions.ParsingException;
 import hiperium.cities.commons.loggers.HiperiumLogger;
 import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.read.function.dto.ReadChangedDevicesRequest;
+import hiperium.city.devices.read.function.dto.ReadChangedDevicesResponse;
+import hiperium.city.devices.read.function.dto.ReadCityCountersRequest;
+import hiperium.city.devices.read.function.dto.ReadCityCountersResponse;
 import hiperium.city.devices.read.function.dto.ReadDeviceRequest;
 import hiperium.city.devices.read.function.dto.ReadDeviceResponse;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.ValidationException;
 import jakarta.validation.Validator;
-import jakarta.validation.ValidatorFactory;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.springframework.messaging.Message;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.Set;
 
 /**
@@ -28,6 +30,7 @@ public final class FunctionUtils {
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final HiperiumLogger LOGGER = new HiperiumLogger(FunctionUtils.class);
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
 
     /**
      * Deserialize a request message into a {@code ReadDeviceRequest} object.
@@ -40,12 +43,46 @@ public final class FunctionUtils {
         try {
             return OBJECT_MAPPER.readValue(requestMessage.getPayload(), ReadDeviceRequest.class);
         } catch (IOException exception) {
-            String messageContent = new String(requestMessage.getPayload(), StandardCharsets.UTF_8);
-            LOGGER.error("Couldn't deserialize request message.", exception.getMessage(), messageContent);
+            LOGGER.error("Couldn't deserialize request message.", LogArguments.truncate(exception.getMessage()),
+                LogArguments.payload(requestMessage.getPayload()));
             throw new ParsingException("Couldn't deserialize request message.");
         }
     }
 
+    /**
+     * Deserialize a request message into a {@code ReadCityCountersRequest} object.
+     *
+     * @param requestMessage the request message to deserialize
+     * @return the deserialized {@code ReadCityCountersRequest} object
+     * @throws ParsingException if an error occurs during deserialization
+     */
+    public static ReadCityCountersRequest deserializeCountersRequest(final Message<byte[]> requestMessage) {
+        try {
+            return OBJECT_MAPPER.readValue(requestMessage.getPayload(), ReadCityCountersRequest.class);
+        } catch (IOException exception) {
+            LOGGER.error("Couldn't deserialize counters request message.",
+                LogArguments.truncate(exception.getMessage()), LogArguments.payload(requestMessage.getPayload()));
+            throw new ParsingException("Couldn't deserialize counters request message.");
+        }
+    }
+
+    /**
+     * Deserialize a request message into a {@code ReadChangedDevicesRequest} object.
+     *
+     * @param requestMessage the request message to deserialize
+     * @return the deserialized {@code ReadChangedDevicesRequest} object
+     * @throws ParsingException if an error occurs during deserialization
+     */
+    public static ReadChangedDevicesRequest deserializeChangesRequest(final Message<byte[]> requestMessage) {
+        try {
+            return OBJECT_MAPPER.readValue(requestMessage.getPayload(), ReadChangedDevicesRequest.class);
+        } catch (IOException exception) {
+            LOGGER.error("Couldn't deserialize changes request message.",
+                LogArguments.truncate(exception.getMessage()), LogArguments.payload(requestMessage.getPayload()));
+            throw new ParsingException("Couldn't deserialize changes request message.");
+        }
+    }
+
     /**
      * Validates a ReadDeviceRequest object using bean validation.
      *
@@ -53,14 +90,41 @@ public final class FunctionUtils {
      * @throws ValidationException if the ReadDeviceRequest object is invalid.
      */
     public static void validateRequest(final ReadDeviceRequest dataRequest) {
-        LOGGER.debug("Validating request message", dataRequest);
-        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
-            Validator validator = factory.getValidator();
-            Set<ConstraintViolation<ReadDeviceRequest>> violations = validator.validate(dataRequest);
-            if (!violations.isEmpty()) {
-                ConstraintViolation<ReadDeviceRequest> firstViolation = violations.iterator().next();
-                throw new ValidationException(firstViolation.getMessage());
-            }
+        LOGGER.debug("Validating request message", LogArguments.lazy(dataRequest::toString));
+        Set<ConstraintViolation<ReadDeviceRequest>> violations = VALIDATOR.validate(dataRequest);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<ReadDeviceRequest> firstViolation = violations.iterator().next();
+            throw new ValidationException(firstViolation.getMessage());
+        }
+    }
+
+    /**
+     * Validates a ReadCityCountersRequest object using bean validation.
+     *
+     * @param countersRequest The ReadCityCountersRequest object to be validated.
+     * @throws ValidationException if the ReadCityCountersRequest object is invalid.
+     */
+    public static void validateRequest(final ReadCityCountersRequest countersRequest) {
+        LOGGER.debug("Validating counters request message", LogArguments.lazy(countersRequest::toString));
+        Set<ConstraintViolation<ReadCityCountersRequest>> violations = VALIDATOR.validate(countersRequest);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<ReadCityCountersRequest> firstViolation = violations.iterator().next();
+            throw new ValidationException(firstViolation.getMessage());
+        }
+    }
+
+    /**
+     * Validates a ReadChangedDevicesRequest object using bean validation.
+     *
+     * @param changesRequest The ReadChangedDevicesRequest object to be validated.
+     * @throws ValidationException if the ReadChangedDevicesRequest object is invalid.
+     */
+    public static void validateRequest(final ReadChangedDevicesRequest changesRequest) {
+        LOGGER.debug("Validating changes request message", LogArguments.lazy(changesRequest::toString));
+        Set<ConstraintViolation<ReadChangedDevicesRequest>> violations = VALIDATOR.validate(changesRequest);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<ReadChangedDevicesRequest> firstViolation = violations.iterator().next();
+            throw new ValidationException(firstViolation.getMessage());
         }
     }
 
@@ -68,12 +132,38 @@ public final class FunctionUtils {
      * Handles a runtime exception by generating an error response and mapping it to a {@code ReadDeviceResponse} object.
      *
      * @param throwable the runtime exception to handle
-     * @return a {@code Mono} that emits a {@code ReadDeviceResponse} object with the error response
+     * @return an already resolved {@code Mono} that emits a {@code ReadDeviceResponse} object with the error response
      */
     public static Mono<ReadDeviceResponse> handleRuntimeException(final Throwable throwable) {
-        return Mono.just(throwable)
-            .map(ExceptionHandlerUtil::generateErrorResponse)
-            .map(errorResponse -> new ReadDeviceResponse(null, null, null, null, errorResponse))
-            .doOnNext(deviceUpdateResponse -> LOGGER.debug("Mapped response", deviceUpdateResponse));
+        ReadDeviceResponse errorResponse = new ReadDeviceResponse(null, null, null, null, null, null,
+            ExceptionHandlerUtil.generateErrorResponse(throwable));
+        LOGGER.debug("Mapped response", LogArguments.lazy(errorResponse::toString));
+        return Mono.just(errorResponse);
+    }
+
+    /**
+     * Handles a runtime exception by generating an error response and mapping it to a
+     * {@code ReadCityCountersResponse} object.
+     *
+     * @param throwable the runtime exception to handle
+     * @return an already resolved {@code Mono} that emits a {@code ReadCityCountersResponse} object with the error
+     * response
+     */
+    public static Mono<ReadCityCountersResponse> handleCountersException(final Throwable throwable) {
+        return Mono.just(new ReadCityCountersResponse(null, null, null, null,
+            ExceptionHandlerUtil.generateErrorResponse(throwable)));
+    }
+
+    /**
+     * Handles a runtime exception by generating an error response and mapping it to a
+     * {@code ReadChangedDevicesResponse} object.
+     *
+     * @param throwable the runtime exception to handle
+     * @return an already resolved {@code Mono} that emits a {@code ReadChangedDevicesResponse} object with the error
+     * response
+     */
+    public static Mono<ReadChangedDevicesResponse> handleChangesException(final Throwable throwable) {
+        return Mono.just(new ReadChangedDevicesResponse(null, null, null,
+            ExceptionHandlerUtil.generateErrorResponse(throwable)));
     }
 }
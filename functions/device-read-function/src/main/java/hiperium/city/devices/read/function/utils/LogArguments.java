@@ -0,0 +1,86 @@
+package hiperium.city.devices.read.function.utils;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Utility class for the arguments passed to the loggers.
+ *
+ * <p>
+ * The returned arguments are rendered only when the log event is written, so the records and payloads of the
+ * discarded or sampled events are never turned into strings. The rendered text is truncated to
+ * {@link #MAX_RENDERED_LENGTH} characters, so a big or malicious payload can't flood the logs.
+ * </p>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LogArguments {
+
+    /**
+     * The maximum number of characters of a rendered argument.
+     */
+    public static final int MAX_RENDERED_LENGTH = 512;
+
+    /**
+     * Returns an argument that renders the value of the given supplier when the log event is written.
+     *
+     * @param supplier the supplier of the value to log
+     * @return the lazy argument
+     */
+    public static Object lazy(final Supplier<?> supplier) {
+        return new LazyArgument(() -> truncate(String.valueOf(supplier.get())));
+    }
+
+    /**
+     * Returns an argument that renders the beginning of the given UTF-8 payload when the log event is written.
+     * Only the bytes that fit in the maximum length are decoded.
+     *
+     * @param payload the payload to log
+     * @return the lazy argument
+     */
+    public static Object payload(final byte[] payload) {
+        return new LazyArgument(() -> {
+            if (Objects.isNull(payload)) {
+                return "null";
+            }
+            if (payload.length <= MAX_RENDERED_LENGTH) {
+                return new String(payload, StandardCharsets.UTF_8);
+            }
+            return new String(payload, 0, MAX_RENDERED_LENGTH, StandardCharsets.UTF_8)
+                + truncationSuffix(payload.length);
+        });
+    }
+
+    /**
+     * Truncates the given text to the maximum length.
+     *
+     * @param text the text to truncate
+     * @return the same text if it's short enough, or its beginning followed by its original length
+     */
+    public static String truncate(final String text) {
+        if (Objects.isNull(text) || text.length() <= MAX_RENDERED_LENGTH) {
+            return text;
+        }
+        return text.substring(0, MAX_RENDERED_LENGTH) + truncationSuffix(text.length());
+    }
+
+    private static String truncationSuffix(final int originalLength) {
+        return "...[truncated, length: " + originalLength + "]";
+    }
+
+    /**
+     * The rendered value is also used by Jackson, in case the logger serializes its arguments.
+     */
+    private record LazyArgument(Supplier<String> renderer) {
+
+        @JsonValue
+        @Override
+        public String toString() {
+            return this.renderer.get();
+        }
+    }
+}
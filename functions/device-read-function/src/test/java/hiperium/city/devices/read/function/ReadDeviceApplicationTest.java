@@ -2,10 +2,17 @@ package hiperium.city.devices.read.function;
 
 import hiperium.city.devices.read.function.common.TestContainersBase;
 import hiperium.city.devices.read.function.configurations.FunctionConfig;
+import hiperium.city.devices.read.function.dto.ReadCityCountersResponse;
 import hiperium.city.devices.read.function.dto.ReadDeviceResponse;
+import hiperium.city.devices.read.function.entities.Device;
+import hiperium.city.devices.read.function.functions.ReadFunction;
+import hiperium.city.devices.read.function.mappers.DeviceMapper;
+import hiperium.city.devices.read.function.services.CityStatusCache;
+import hiperium.city.devices.read.function.services.DevicesService;
 import hiperium.city.devices.read.function.utils.TestsUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,12 +21,17 @@ import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.Message;
 import org.springframework.test.context.ActiveProfiles;
+import reactor.core.Fuseable;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -34,6 +46,15 @@ class ReadDeviceApplicationTest extends TestContainersBase {
     @Autowired
     private FunctionCatalog functionCatalog;
 
+    @Autowired
+    private DeviceMapper deviceMapper;
+
+    @Autowired
+    private DevicesService devicesService;
+
+    @Autowired
+    private CityStatusCache cityStatusCache;
+
     @BeforeEach
     void init() {
         TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
@@ -59,11 +80,89 @@ class ReadDeviceApplicationTest extends TestContainersBase {
         }
     }
 
+    @Test
+    @DisplayName("Not-modified requests")
+    void givenKnownDeviceVersion_whenInvokeLambdaFunction_thenReturnNotModifiedResponse() {
+        Function<Message<byte[]>, Mono<ReadDeviceResponse>> function = this.getFunctionUnderTest();
+        ReadDeviceResponse fullResponse = function.apply(createReadMessage(null)).block();
+        assertThat(fullResponse).isNotNull();
+        assertThat(fullResponse.version()).isNotNull();
+
+        StepVerifier.create(function.apply(createReadMessage(fullResponse.version())))
+            .assertNext(response -> {
+                assertThat(response.notModified()).isTrue();
+                assertThat(response.version()).isEqualTo(fullResponse.version());
+                assertThat(response.name()).isNull();
+                assertThat(response.status()).isNull();
+                assertThat(response.error()).isNull();
+            })
+            .verifyComplete();
+        StepVerifier.create(function.apply(createReadMessage(fullResponse.version() - 1)))
+            .assertNext(response -> {
+                assertThat(response.notModified()).isNull();
+                assertThat(response.name()).isNotNull();
+                assertThat(response.status()).isNotNull();
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Not-modified requests of changed devices")
+    void givenDeviceChangedAfterCaching_whenInvokeLambdaFunction_thenConfirmVersionWithTable() {
+        Function<Message<byte[]>, Mono<ReadDeviceResponse>> function = this.getFunctionUnderTest();
+        ReadDeviceResponse cachedResponse = function.apply(createReadMessage(null)).block();
+        assertThat(cachedResponse).isNotNull();
+
+        // The device changes in the table while the previous version is still cached.
+        this.dynamoDbAsyncClient.updateItem(UpdateItemRequest.builder()
+                .tableName(Device.TABLE_NAME)
+                .key(Map.of(
+                    Device.ID_COLUMN_NAME, AttributeValue.fromS("37f44ed4-b672-4f81-a579-47679c0d6f31"),
+                    Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS("a0ecb466-7ef5-47bf-a1ca-12f9f9328528")))
+                .updateExpression("ADD #version :one")
+                .expressionAttributeNames(Map.of("#version", Device.VERSION_COLUMN_NAME))
+                .expressionAttributeValues(Map.of(":one", AttributeValue.fromN("1")))
+                .build())
+            .join();
+
+        StepVerifier.create(function.apply(createReadMessage(cachedResponse.version())))
+            .assertNext(response -> {
+                assertThat(response.notModified()).isNull();
+                assertThat(response.version()).isEqualTo(cachedResponse.version() + 1);
+                assertThat(response.status()).isNotNull();
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("City counters requests")
+    void givenEnabledCity_whenInvokeCountersFunction_thenReturnCityCounters() {
+        Function<Message<byte[]>, Mono<ReadCityCountersResponse>> function = this.functionCatalog.lookup(
+            Function.class, FunctionConfig.COUNTERS_FUNCTION_BEAN_NAME);
+        assertThat(function).isNotNull();
+
+        StepVerifier.create(function.apply(createCountersMessage("a0ecb466-7ef5-47bf-a1ca-12f9f9328528")))
+            .assertNext(response -> {
+                assertThat(response.error()).isNull();
+                assertThat(response.total()).isEqualTo(1L);
+                assertThat(response.on()).isZero();
+                assertThat(response.off()).isEqualTo(1L);
+            })
+            .verifyComplete();
+        StepVerifier.create(function.apply(createCountersMessage("a0ecb466-7ef5-47bf-a1ca-12f9f9328529")))
+            .assertNext(response -> {
+                assertThat(response.error()).isNotNull();
+                assertThat(response.total()).isNull();
+            })
+            .verifyComplete();
+    }
+
     @ParameterizedTest
     @DisplayName("Non-valid requests")
     @ValueSource(strings = {
         "requests/invalid/empty-city-id.json",
         "requests/invalid/empty-device-id.json",
+        "requests/invalid/existing-device-disabled-city.json",
         "requests/invalid/wrong-device-id.json",
         "requests/invalid/non-existing-city.json",
         "requests/invalid/non-existing-device.json",
@@ -88,6 +187,43 @@ class ReadDeviceApplicationTest extends TestContainersBase {
         }
     }
 
+    @ParameterizedTest
+    @DisplayName("Synchronous outcomes")
+    @ValueSource(strings = {
+        "requests/valid/lambda-valid-id-request.json",
+        "requests/invalid/empty-device-id.json",
+        "requests/invalid/existing-device-disabled-city.json",
+        "requests/invalid/wrong-payload.json"
+    })
+    void givenSynchronousOutcome_whenApplyReadFunction_thenReturnResolvedMono(String jsonFilePath) throws IOException {
+        ReadFunction readFunction = new ReadFunction(this.deviceMapper, this.devicesService);
+        this.cityStatusCache.refreshAsync().join();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(jsonFilePath)) {
+            assert inputStream != null;
+            Message<byte[]> requestMessage = TestsUtils.createMessage(inputStream.readAllBytes());
+            // The first request of the valid device loads it in the cache, so the second one is a cache hit.
+            readFunction.apply(requestMessage).block();
+
+            Mono<ReadDeviceResponse> response = readFunction.apply(requestMessage);
+            assertThat(response).isInstanceOf(Fuseable.ScalarCallable.class);
+            StepVerifier.create(response)
+                .expectFusion(Fuseable.SYNC)
+                .expectNextCount(1)
+                .verifyComplete();
+        }
+    }
+
+    private static Message<byte[]> createReadMessage(Long ifVersion) {
+        String request = "{\"deviceId\":\"37f44ed4-b672-4f81-a579-47679c0d6f31\","
+            + "\"cityId\":\"a0ecb466-7ef5-47bf-a1ca-12f9f9328528\",\"ifVersion\":" + ifVersion + "}";
+        return TestsUtils.createMessage(request.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Message<byte[]> createCountersMessage(String cityId) {
+        String request = "{\"cityId\":\"" + cityId + "\"}";
+        return TestsUtils.createMessage(request.getBytes(StandardCharsets.UTF_8));
+    }
+
     private Function<Message<byte[]>, Mono<ReadDeviceResponse>> getFunctionUnderTest() {
         Function<Message<byte[]>, Mono<ReadDeviceResponse>> function = this.functionCatalog.lookup(Function.class,
             FunctionConfig.FUNCTION_BEAN_NAME);
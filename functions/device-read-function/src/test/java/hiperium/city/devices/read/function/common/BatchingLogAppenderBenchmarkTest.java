@@ -0,0 +1,110 @@
+package hiperium.city.devices.read.function.common;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.cities.commons.loggers.HiperiumLoggerLayout;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the logging overhead per invocation of the synchronous console appender and the batching appender.
+ * Every simulated invocation logs the same events as a read request, and the batching appender is flushed at its
+ * end, as the functions do before returning. The events are written to the null device, so every write is a real
+ * system call, like the writes to the standard output of the Lambda runtime.
+ */
+@Tag("load")
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+class BatchingLogAppenderBenchmarkTest {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(BatchingLogAppenderBenchmarkTest.class);
+
+    private static final int WARMUP_INVOCATIONS = 20_000;
+    private static final int MEASURED_INVOCATIONS = 100_000;
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(1);
+    private static final String NULL_DEVICE = "/dev/null";
+
+    @ParameterizedTest
+    @ValueSource(strings = {"INFO", "DEBUG"})
+    void givenLogLevel_whenLoggingInvocations_thenReportOverheadPerInvocation(String level)
+        throws FileNotFoundException {
+        LoggerContext loggerContext = new LoggerContext();
+        Logger logger = loggerContext.getLogger(BatchingLogAppenderBenchmarkTest.class);
+        logger.setAdditive(false);
+        logger.setLevel(Level.toLevel(level));
+
+        OutputStreamAppender<ILoggingEvent> consoleAppender = new OutputStreamAppender<>();
+        LayoutWrappingEncoder<ILoggingEvent> encoder = new LayoutWrappingEncoder<>();
+        encoder.setContext(loggerContext);
+        encoder.setLayout(createLayout(loggerContext));
+        encoder.start();
+        consoleAppender.setContext(loggerContext);
+        consoleAppender.setEncoder(encoder);
+        consoleAppender.setOutputStream(new FileOutputStream(NULL_DEVICE));
+        consoleAppender.start();
+        double consoleNanos = nanosPerInvocation(logger, consoleAppender, null);
+
+        BatchingLogAppender batchingAppender = new BatchingLogAppender(new FileOutputStream(NULL_DEVICE));
+        batchingAppender.setContext(loggerContext);
+        batchingAppender.setName("benchmark");
+        batchingAppender.setLayout(createLayout(loggerContext));
+        batchingAppender.start();
+        double batchingNanos = nanosPerInvocation(logger, batchingAppender, batchingAppender);
+
+        LOGGER.info("Logging overhead per invocation at " + level + " >>> console appender: "
+            + Math.round(consoleNanos) + " ns, batching appender: " + Math.round(batchingNanos)
+            + " ns, dropped events: " + batchingAppender.getDroppedEvents());
+        batchingAppender.stop();
+        consoleAppender.stop();
+        assertThat(batchingAppender.getDroppedEvents()).isZero();
+    }
+
+    private static double nanosPerInvocation(Logger logger, Appender<ILoggingEvent> appender,
+                                             BatchingLogAppender flushedAppender) {
+        logger.addAppender(appender);
+        for (int invocation = 0; invocation < WARMUP_INVOCATIONS; invocation++) {
+            logInvocation(logger, invocation, flushedAppender);
+        }
+        long startNanos = System.nanoTime();
+        for (int invocation = 0; invocation < MEASURED_INVOCATIONS; invocation++) {
+            logInvocation(logger, invocation, flushedAppender);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        logger.detachAppender(appender);
+        return (double) elapsedNanos / MEASURED_INVOCATIONS;
+    }
+
+    // The events logged by a read request: the validation, the mapping and the response at DEBUG, and the
+    // invocation summary at INFO.
+    private static void logInvocation(Logger logger, int invocation, BatchingLogAppender flushedAppender) {
+        logger.debug("Validating request message {}", invocation);
+        logger.debug("Mapped device {}", invocation);
+        logger.debug("Mapped response {}", invocation);
+        logger.info("Device read successfully: {}", invocation);
+        if (flushedAppender != null) {
+            assertThat(flushedAppender.flush(FLUSH_TIMEOUT)).isTrue();
+        }
+    }
+
+    private static HiperiumLoggerLayout createLayout(LoggerContext loggerContext) {
+        HiperiumLoggerLayout layout = new HiperiumLoggerLayout();
+        layout.setContext(loggerContext);
+        layout.setPrettyPrint(false);
+        layout.setNumericTimestamps(false);
+        layout.start();
+        return layout;
+    }
+}
@@ -0,0 +1,43 @@
+package hiperium.city.devices.read.function.common;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactIdTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "37f44ed4-b672-4f81-a579-47679c0d6f31",
+        "00000000-0000-0000-0000-000000000000",
+        "ffffffff-ffff-ffff-ffff-ffffffffffff"
+    })
+    void givenCanonicalUuid_whenParsing_thenMatchesJdkUuid(String text) {
+        UUID uuid = UUID.fromString(text);
+        CompactId compactId = CompactId.parse(text);
+
+        assertThat(compactId).isNotNull();
+        assertThat(compactId.mostSignificantBits()).isEqualTo(uuid.getMostSignificantBits());
+        assertThat(compactId.leastSignificantBits()).isEqualTo(uuid.getLeastSignificantBits());
+        assertThat(compactId.toString()).isEqualTo(uuid.toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        "37f44ed4-b672-4f81-a579-47679c0d6f3",
+        "37f44ed4-b672-4f81-a579-47679c0d6f311",
+        "37f44ed4xb672-4f81-a579-47679c0d6f31",
+        "37f44ed4-b672-4f81-a579-47679c0d6f3g",
+        "37f44ed4b6724f81a57947679c0d6f310000",
+        "A0ECB466-7EF5-47BF-A1CA-12F9F9328528",
+        "37f44ed4-b672-4f81-a579-47679C0D6F31"
+    })
+    void givenMalformedText_whenParsing_thenReturnNull(String text) {
+        assertThat(CompactId.parse(text)).isNull();
+        assertThat(CompactId.isValid(text)).isFalse();
+    }
+}
@@ -0,0 +1,143 @@
+package hiperium.city.devices.read.function.functions;
+
+import hiperium.city.devices.read.function.ReadDeviceApplication;
+import hiperium.city.devices.read.function.common.TestContainersBase;
+import hiperium.city.devices.read.function.configurations.FunctionConfig;
+import hiperium.city.devices.read.function.dto.ChangedDevice;
+import hiperium.city.devices.read.function.dto.ReadChangedDevicesResponse;
+import hiperium.city.devices.read.function.entities.Device;
+import hiperium.city.devices.read.function.utils.TestsUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.FunctionCatalog;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@FunctionalSpringBootTest(classes = ReadDeviceApplication.class)
+class ChangedDevicesFunctionTest extends TestContainersBase {
+
+    private static final String CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+    private static final int FLEET_SIZE = 200;
+    private static final int FIRST_CHANGED_DEVICE = 150;
+    private static final int PAGE_SIZE = 15;
+    private static final Instant FLEET_UPDATED_AT = Instant.parse("2030-01-01T00:00:00Z");
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private FunctionCatalog functionCatalog;
+
+    @BeforeEach
+    void init() {
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+    }
+
+    @Test
+    void givenGeneratedFleet_whenReadingChangesByPage_thenReturnOnlyTheChangedDevicesOnceInChangeOrder() {
+        // Every device of the fleet was changed one minute after the previous one.
+        List<String> deviceIds = IntStream.range(0, FLEET_SIZE)
+            .mapToObj(index -> UUID.randomUUID().toString())
+            .toList();
+        for (int offset = 0; offset < FLEET_SIZE; offset += 25) {
+            List<WriteRequest> writeRequests = IntStream.range(offset, Math.min(offset + 25, FLEET_SIZE))
+                .mapToObj(index -> this.createWriteRequest(deviceIds.get(index), index))
+                .toList();
+            this.dynamoDbAsyncClient.batchWriteItem(BatchWriteItemRequest.builder()
+                .requestItems(Map.of(Device.TABLE_NAME, writeRequests))
+                .build()).join();
+        }
+        String since = FLEET_UPDATED_AT.plus(Duration.ofMinutes(FIRST_CHANGED_DEVICE)).toString();
+
+        List<ChangedDevice> changedDevices = new ArrayList<>();
+        int pages = 0;
+        String nextToken = null;
+        do {
+            ReadChangedDevicesResponse response = this.getFunctionUnderTest()
+                .apply(createChangesMessage(since, nextToken))
+                .block();
+            assertThat(response).isNotNull();
+            assertThat(response.error()).isNull();
+            assertThat(response.devices()).hasSizeLessThanOrEqualTo(PAGE_SIZE);
+            changedDevices.addAll(response.devices());
+            nextToken = response.nextToken();
+            pages++;
+        } while (nextToken != null);
+
+        assertThat(pages).isGreaterThan(1);
+        assertThat(changedDevices).extracting(ChangedDevice::deviceId)
+            .containsExactlyElementsOf(deviceIds.subList(FIRST_CHANGED_DEVICE, FLEET_SIZE));
+        assertThat(changedDevices).extracting(ChangedDevice::updatedAt).isSorted();
+    }
+
+    @Test
+    void givenInvalidTimestampOrToken_whenReadingChanges_thenReturnError() {
+        ReadChangedDevicesResponse invalidSince = this.getFunctionUnderTest()
+            .apply(createChangesMessage("yesterday", null))
+            .block();
+        assertThat(invalidSince).isNotNull();
+        assertThat(invalidSince.error()).isNotNull();
+        assertThat(invalidSince.error().errorCode()).isGreaterThanOrEqualTo(HttpStatus.BAD_REQUEST.value());
+
+        ReadChangedDevicesResponse invalidToken = this.getFunctionUnderTest()
+            .apply(createChangesMessage(FLEET_UPDATED_AT.toString(), "bm8tc2VwYXJhdG9y"))
+            .block();
+        assertThat(invalidToken).isNotNull();
+        assertThat(invalidToken.error()).isNotNull();
+        assertThat(invalidToken.error().errorCode()).isGreaterThanOrEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    private WriteRequest createWriteRequest(String deviceId, int index) {
+        String updatedAt = TIMESTAMP_FORMATTER.format(FLEET_UPDATED_AT.plus(Duration.ofMinutes(index)));
+        return WriteRequest.builder()
+            .putRequest(PutRequest.builder()
+                .item(Map.of(
+                    Device.ID_COLUMN_NAME, AttributeValue.fromS(deviceId),
+                    Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(CITY_ID),
+                    Device.NAME_COLUMN_NAME, AttributeValue.fromS("Device " + index),
+                    Device.STATUS_COLUMN_NAME, AttributeValue.fromS(index % 2 == 0 ? "ON" : "OFF"),
+                    Device.VERSION_COLUMN_NAME, AttributeValue.fromN("1"),
+                    Device.UPDATED_AT_COLUMN_NAME, AttributeValue.fromS(updatedAt)))
+                .build())
+            .build();
+    }
+
+    private static Message<byte[]> createChangesMessage(String since, String nextToken) {
+        String request = "{\"cityId\":\"" + CITY_ID + "\",\"since\":\"" + since + "\",\"pageSize\":" + PAGE_SIZE
+            + (nextToken == null ? "" : ",\"nextToken\":\"" + nextToken + "\"") + "}";
+        return TestsUtils.createMessage(request.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Function<Message<byte[]>, Mono<ReadChangedDevicesResponse>> getFunctionUnderTest() {
+        Function<Message<byte[]>, Mono<ReadChangedDevicesResponse>> function = this.functionCatalog.lookup(
+            Function.class, FunctionConfig.CHANGES_FUNCTION_BEAN_NAME);
+        assertThat(function).isNotNull();
+        return function;
+    }
+}
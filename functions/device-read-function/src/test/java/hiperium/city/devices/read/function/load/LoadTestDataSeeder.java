@@ -0,0 +1,89 @@
+package hiperium.city.devices.read.function.load;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Seeds the devices and the enabled cities used by the load tests. The IDs are derived from the seed,
+ * so every run uses the same keys.
+ */
+public final class LoadTestDataSeeder {
+
+    private static final int MAX_ITEMS_PER_BATCH = 25;
+
+    private final List<String> deviceIds;
+    private final List<String> cityIds;
+
+    public LoadTestDataSeeder(LoadTestSettings settings) {
+        this.cityIds = new ArrayList<>(settings.cities());
+        for (int city = 0; city < settings.cities(); city++) {
+            this.cityIds.add(new UUID(settings.seed(), city).toString());
+        }
+        this.deviceIds = new ArrayList<>(settings.devices());
+        for (int device = 0; device < settings.devices(); device++) {
+            this.deviceIds.add(new UUID(~settings.seed(), device).toString());
+        }
+    }
+
+    public String deviceId(int index) {
+        return this.deviceIds.get(index);
+    }
+
+    public String cityId(int index) {
+        return this.cityIds.get(index % this.cityIds.size());
+    }
+
+    /**
+     * Writes the cities and the devices in the tables, retrying the unprocessed items.
+     *
+     * @param dynamoDbAsyncClient The DynamoDB client connected to LocalStack.
+     */
+    public void seed(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        List<WriteRequest> cityRequests = new ArrayList<>();
+        for (String cityId : this.cityIds) {
+            cityRequests.add(putRequest(Map.of(
+                "id", AttributeValue.fromS(cityId),
+                "status", AttributeValue.fromS("ENABLED"))));
+        }
+        this.writeAll(dynamoDbAsyncClient, "Cities", cityRequests);
+
+        List<WriteRequest> deviceRequests = new ArrayList<>();
+        for (int index = 0; index < this.deviceIds.size(); index++) {
+            deviceRequests.add(putRequest(Map.of(
+                "id", AttributeValue.fromS(this.deviceId(index)),
+                "cityId", AttributeValue.fromS(this.cityId(index)),
+                "name", AttributeValue.fromS("Load test device " + index),
+                "description", AttributeValue.fromS("Device seeded by the load test."),
+                "status", AttributeValue.fromS("OFF"),
+                "version", AttributeValue.fromN("1"))));
+        }
+        this.writeAll(dynamoDbAsyncClient, "Devices", deviceRequests);
+    }
+
+    private void writeAll(DynamoDbAsyncClient dynamoDbAsyncClient, String tableName, List<WriteRequest> requests) {
+        for (int offset = 0; offset < requests.size(); offset += MAX_ITEMS_PER_BATCH) {
+            List<WriteRequest> pending = requests.subList(offset, Math.min(offset + MAX_ITEMS_PER_BATCH, requests.size()));
+            while (!pending.isEmpty()) {
+                BatchWriteItemResponse response = dynamoDbAsyncClient.batchWriteItem(BatchWriteItemRequest.builder()
+                    .requestItems(Map.of(tableName, pending))
+                    .build()).join();
+                pending = response.unprocessedItems().getOrDefault(tableName, List.of());
+            }
+        }
+    }
+
+    private static WriteRequest putRequest(Map<String, AttributeValue> item) {
+        return WriteRequest.builder()
+            .putRequest(PutRequest.builder().item(item).build())
+            .build();
+    }
+}
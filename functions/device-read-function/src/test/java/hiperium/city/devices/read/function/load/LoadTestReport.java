@@ -0,0 +1,77 @@
+package hiperium.city.devices.read.function.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The machine-readable report of a load test run. The report is written as JSON with a stable key order,
+ * so two runs can be compared with a plain diff.
+ *
+ * @param scenario     The name of the scenario, used as the report file name.
+ * @param settings     The settings of the run.
+ * @param throughput   The number of completed requests per second in the measured phase.
+ * @param succeeded    The number of successful requests.
+ * @param failed       The number of failed requests.
+ * @param rejected     The number of requests not sent because the in-flight limit was reached.
+ * @param responseTime The percentiles of the latency measured from the scheduled start, in milliseconds.
+ * @param serviceTime  The percentiles of the latency measured from the actual start, in milliseconds.
+ */
+public record LoadTestReport(
+
+    String scenario,
+    LoadTestSettings settings,
+    double throughput,
+    long succeeded,
+    long failed,
+    long rejected,
+    Map<String, Double> responseTime,
+    Map<String, Double> serviceTime) {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+        .findAndRegisterModules()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS);
+
+    public static LoadTestReport of(String scenario, LoadTestSettings settings, LoadTestResult result) {
+        double throughput = (result.succeeded() + result.failed()) / (double) settings.duration().toSeconds();
+        return new LoadTestReport(scenario, settings, throughput, result.succeeded(), result.failed(),
+            result.rejected(), percentiles(result.responseTime()), percentiles(result.serviceTime()));
+    }
+
+    /**
+     * Writes the report in the configured directory, with the scenario name and the run timestamp as the file name.
+     *
+     * @return The path of the report file.
+     * @throws IOException If the report can't be written.
+     */
+    public Path write() throws IOException {
+        Path directory = Path.of(this.settings.reportDirectory());
+        Files.createDirectories(directory);
+        Path reportFile = directory.resolve(this.scenario + "-" + Instant.now().getEpochSecond() + ".json");
+        OBJECT_MAPPER.writeValue(reportFile.toFile(), this);
+        return reportFile;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", toMillis(histogram.getValueAtPercentile(50.0)));
+        percentiles.put("p90", toMillis(histogram.getValueAtPercentile(90.0)));
+        percentiles.put("p99", toMillis(histogram.getValueAtPercentile(99.0)));
+        percentiles.put("p99.9", toMillis(histogram.getValueAtPercentile(99.9)));
+        percentiles.put("max", toMillis(histogram.getMaxValue()));
+        percentiles.put("mean", histogram.getMean() / 1_000_000.0);
+        return percentiles;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,56 @@
+package hiperium.city.devices.read.function.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the outcome of the measured requests.
+ *
+ * <p>
+ * Two latency histograms are recorded. The service time is measured from the moment the request was actually sent.
+ * The response time is measured from the moment the request was scheduled by the open model, so the delays caused
+ * by a saturated system are included instead of omitted. The response time is the one to compare between runs.
+ * </p>
+ */
+public class LoadTestResult {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = 60_000_000_000L;
+
+    private final Histogram serviceTime = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final Histogram responseTime = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public synchronized void recordCompletion(long intendedStartNanos, long actualStartNanos, long endNanos,
+                                              boolean success) {
+        this.serviceTime.recordValue(Math.min(endNanos - actualStartNanos, HIGHEST_TRACKABLE_NANOS));
+        this.responseTime.recordValue(Math.min(endNanos - intendedStartNanos, HIGHEST_TRACKABLE_NANOS));
+        (success ? this.succeeded : this.failed).incrementAndGet();
+    }
+
+    public void recordRejection() {
+        this.rejected.incrementAndGet();
+    }
+
+    public synchronized Histogram serviceTime() {
+        return this.serviceTime.copy();
+    }
+
+    public synchronized Histogram responseTime() {
+        return this.responseTime.copy();
+    }
+
+    public long succeeded() {
+        return this.succeeded.get();
+    }
+
+    public long failed() {
+        return this.failed.get();
+    }
+
+    public long rejected() {
+        return this.rejected.get();
+    }
+}
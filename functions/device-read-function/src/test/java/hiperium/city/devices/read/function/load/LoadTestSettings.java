@@ -0,0 +1,50 @@
+package hiperium.city.devices.read.function.load;
+
+import java.time.Duration;
+
+/**
+ * The load test settings, read from the system properties with the "load." prefix, so the runs can be
+ * reproduced from the command line. For example:
+ *
+ * <pre>{@code
+ * mvn test -Pload-test -Dload.arrival-rate=500 -Dload.duration-seconds=60 -Dload.distribution=ZIPFIAN
+ * }</pre>
+ *
+ * @param arrivalRate       The number of requests per second started by the generator, regardless of the responses.
+ * @param warmup            The duration of the warmup phase, which is not recorded.
+ * @param duration          The duration of the measured phase.
+ * @param maxInFlight       The maximum number of requests in flight. The requests over this limit are not sent.
+ * @param devices           The number of devices seeded before the test.
+ * @param cities            The number of cities the devices are distributed across.
+ * @param distribution      The distribution used to select the device of each request.
+ * @param zipfExponent      The exponent of the Zipfian distribution. Higher values mean hotter devices.
+ * @param seed              The seed of the random generator, so the key sequence is reproducible.
+ * @param reportDirectory   The directory where the JSON report is written.
+ */
+public record LoadTestSettings(
+
+    int arrivalRate,
+    Duration warmup,
+    Duration duration,
+    int maxInFlight,
+    int devices,
+    int cities,
+    KeyDistribution.Type distribution,
+    double zipfExponent,
+    long seed,
+    String reportDirectory) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+            Integer.getInteger("load.arrival-rate", 200),
+            Duration.ofSeconds(Long.getLong("load.warmup-seconds", 10L)),
+            Duration.ofSeconds(Long.getLong("load.duration-seconds", 30L)),
+            Integer.getInteger("load.max-in-flight", 1_000),
+            Integer.getInteger("load.devices", 1_000),
+            Integer.getInteger("load.cities", 10),
+            KeyDistribution.Type.valueOf(System.getProperty("load.distribution", "UNIFORM")),
+            Double.parseDouble(System.getProperty("load.zipf-exponent", "1.1")),
+            Long.getLong("load.seed", 42L),
+            System.getProperty("load.report-directory", "target/load-test"));
+    }
+}
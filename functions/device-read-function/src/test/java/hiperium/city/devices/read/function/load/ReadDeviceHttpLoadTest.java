@@ -0,0 +1,78 @@
+package hiperium.city.devices.read.function.load;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.ReadDeviceApplication;
+import hiperium.city.devices.read.function.common.TestContainersBase;
+import hiperium.city.devices.read.function.configurations.FunctionConfig;
+import hiperium.city.devices.read.function.dto.ReadDeviceResponse;
+import hiperium.city.devices.read.function.services.CityStatusCache;
+import hiperium.city.devices.read.function.utils.TestsUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the read function through the HTTP serving mode against LocalStack, so the report can be compared
+ * with the one of the {@link ReadDeviceLoadTest}, which uses the same entry point as the Lambda runtime.
+ * The server profile offloads the CPU work from the SDK threads, see {@link ReadDeviceHttpNoOffloadLoadTest}.
+ */
+@Tag("load")
+@ActiveProfiles({"test", "server"})
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+@SpringBootTest(classes = ReadDeviceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReadDeviceHttpLoadTest extends TestContainersBase {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(ReadDeviceHttpLoadTest.class);
+
+    @LocalServerPort
+    private int serverPort;
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private CityStatusCache cityStatusCache;
+
+    @Test
+    void givenSeededDevices_whenReadOverHttpAtArrivalRate_thenWriteReport() throws IOException {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+        LoadTestDataSeeder seeder = new LoadTestDataSeeder(settings);
+        seeder.seed(this.dynamoDbAsyncClient);
+        // The first call may join a refresh started before seeding, so the second one loads the seeded cities.
+        this.cityStatusCache.refreshAsync().join();
+        this.cityStatusCache.refreshAsync().join();
+
+        WebClient webClient = WebClient.create("http://localhost:" + this.serverPort);
+        LoadTestResult result = new OpenModelLoadGenerator<ReadDeviceResponse>(settings).run(
+            deviceIndex -> webClient.post()
+                .uri("/" + FunctionConfig.FUNCTION_BEAN_NAME)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"deviceId\":\"" + seeder.deviceId(deviceIndex) + "\",\"cityId\":\""
+                    + seeder.cityId(deviceIndex) + "\"}")
+                .retrieve()
+                .bodyToMono(ReadDeviceResponse.class),
+            response -> Objects.isNull(response.error()));
+
+        Path reportFile = LoadTestReport.of(this.scenario(), settings, result).write();
+        LOGGER.info("Load test report written to: " + reportFile.toAbsolutePath());
+        assertThat(result.succeeded()).isPositive();
+    }
+
+    protected String scenario() {
+        return "read-device-http";
+    }
+}
@@ -0,0 +1,20 @@
+package hiperium.city.devices.read.function.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the {@link ReadDeviceHttpLoadTest} scenario with the CPU work executed on the SDK completion threads,
+ * so the throughput of both reports can be compared to measure the effect of the compute offload.
+ */
+@Tag("load")
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+@TestPropertySource(properties = "hiperium.devices.scheduler.offload-enabled=false")
+class ReadDeviceHttpNoOffloadLoadTest extends ReadDeviceHttpLoadTest {
+
+    @Override
+    protected String scenario() {
+        return "read-device-http-no-offload";
+    }
+}
@@ -0,0 +1,74 @@
+package hiperium.city.devices.read.function.load;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.read.function.ReadDeviceApplication;
+import hiperium.city.devices.read.function.common.TestContainersBase;
+import hiperium.city.devices.read.function.configurations.FunctionConfig;
+import hiperium.city.devices.read.function.dto.ReadDeviceResponse;
+import hiperium.city.devices.read.function.services.CityStatusCache;
+import hiperium.city.devices.read.function.utils.TestsUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.FunctionCatalog;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the read function through its entry point against LocalStack. Run it with the "load-test" profile.
+ */
+@Tag("load")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+@FunctionalSpringBootTest(classes = ReadDeviceApplication.class)
+class ReadDeviceLoadTest extends TestContainersBase {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(ReadDeviceLoadTest.class);
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private FunctionCatalog functionCatalog;
+
+    @Autowired
+    private CityStatusCache cityStatusCache;
+
+    @Test
+    void givenSeededDevices_whenReadAtArrivalRate_thenWriteReport() throws IOException {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+        LoadTestDataSeeder seeder = new LoadTestDataSeeder(settings);
+        seeder.seed(this.dynamoDbAsyncClient);
+        // The first call may join a refresh started before seeding, so the second one loads the seeded cities.
+        this.cityStatusCache.refreshAsync().join();
+        this.cityStatusCache.refreshAsync().join();
+
+        Function<Message<byte[]>, Mono<ReadDeviceResponse>> function = this.functionCatalog.lookup(Function.class,
+            FunctionConfig.FUNCTION_BEAN_NAME);
+        LoadTestResult result = new OpenModelLoadGenerator<ReadDeviceResponse>(settings).run(
+            deviceIndex -> function.apply(TestsUtils.createMessage(createRequest(seeder, deviceIndex))),
+            response -> Objects.isNull(response.error()));
+
+        Path reportFile = LoadTestReport.of("read-device", settings, result).write();
+        LOGGER.info("Load test report written to: " + reportFile.toAbsolutePath());
+        assertThat(result.succeeded()).isPositive();
+    }
+
+    private static byte[] createRequest(LoadTestDataSeeder seeder, int deviceIndex) {
+        return ("{\"deviceId\":\"" + seeder.deviceId(deviceIndex) + "\",\"cityId\":\""
+            + seeder.cityId(deviceIndex) + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
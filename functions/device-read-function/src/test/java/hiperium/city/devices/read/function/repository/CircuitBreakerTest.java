@@ -0,0 +1,110 @@
+package hiperium.city.devices.read.function.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong nanoClock = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void init() {
+        this.circuitBreaker = new CircuitBreaker("test", 4, 4, 50.0f, Duration.ofSeconds(10), 2,
+            this.meterRegistry, this.nanoClock::get);
+    }
+
+    @Test
+    void givenFailureRateAboveThreshold_whenRecordingOutcomes_thenOpensAndFailsFast() {
+        this.recordOutcomes(false, true, false, true);
+
+        assertThat(this.circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(this.circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(this.meterRegistry.get("devices.circuit.breaker.transitions")
+            .tag("to", "OPEN").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void givenFailuresOutsideTheSlidingWindow_whenRecordingOutcomes_thenStaysClosed() {
+        this.recordOutcomes(true, false, false, false, false, true);
+
+        assertThat(this.circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void givenOpenCircuit_whenWaitDurationElapsesAndTrialCallsSucceed_thenCloses() {
+        this.recordOutcomes(true, true, true, true);
+        this.nanoClock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        this.recordOutcomes(false, false);
+        assertThat(this.circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(this.circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void givenHalfOpenCircuit_whenTrialCallFails_thenOpensAgain() {
+        this.recordOutcomes(true, true, true, true);
+        this.nanoClock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertThat(this.circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(this.circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        this.circuitBreaker.onFailure();
+        assertThat(this.circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void givenHalfOpenCircuit_whenCallIsCreatedButNotSubscribed_thenKeepTheTrialPermissions() {
+        this.openAndWaitForHalfOpen();
+
+        Mono<String> notSubscribedCall = this.circuitBreaker.executeAsync(
+            () -> CompletableFuture.completedFuture("result"), UnaryOperator.identity(), IllegalStateException::new);
+
+        assertThat(notSubscribedCall).isNotNull();
+        assertThat(this.circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(this.circuitBreaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void givenHalfOpenCircuit_whenCallIsCancelled_thenReleaseItsTrialPermission() {
+        this.openAndWaitForHalfOpen();
+        CompletableFuture<String> pendingCall = new CompletableFuture<>();
+
+        this.circuitBreaker.executeAsync(() -> pendingCall, UnaryOperator.identity(), IllegalStateException::new)
+            .subscribe()
+            .dispose();
+        pendingCall.completeExceptionally(new IllegalStateException("Unavailable."));
+
+        assertThat(this.circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(this.circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(this.circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(this.circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    private void openAndWaitForHalfOpen() {
+        this.recordOutcomes(true, true, true, true);
+        this.nanoClock.addAndGet(Duration.ofSeconds(11).toNanos());
+    }
+
+    private void recordOutcomes(boolean... failures) {
+        for (boolean failed : failures) {
+            assertThat(this.circuitBreaker.tryAcquirePermission()).isTrue();
+            if (failed) {
+                this.circuitBreaker.onFailure();
+            } else {
+                this.circuitBreaker.onSuccess();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hiperium.city.devices.read.function.repository;
+
+import hiperium.city.devices.read.function.dto.ReadDeviceRequest;
+import hiperium.city.devices.read.function.entities.Device;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DevicesBatchLoaderTest {
+
+    private static final String CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+    private static final ReadDeviceRequest FIRST_DEVICE =
+        new ReadDeviceRequest("37f44ed4-b672-4f81-a579-47679c0d6f31", CITY_ID);
+    private static final ReadDeviceRequest SECOND_DEVICE =
+        new ReadDeviceRequest("37f44ed4-b672-4f81-a579-47679c0d6f32", CITY_ID);
+    private static final ReadDeviceRequest MISSING_DEVICE =
+        new ReadDeviceRequest("37f44ed4-b672-4f81-a579-47679c0d6f33", CITY_ID);
+
+    private final DevicesRepository devicesRepository = mock(DevicesRepository.class);
+
+    private DevicesBatchLoader devicesBatchLoader;
+
+    @BeforeEach
+    void init() {
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("hiperium.devices.batching.enabled", "true")
+            .withProperty("hiperium.devices.batching.window-ms", "50");
+        this.devicesBatchLoader = new DevicesBatchLoader(environment, new SimpleMeterRegistry(),
+            this.devicesRepository);
+    }
+
+    @Test
+    void givenConcurrentLookups_whenLoading_thenIssueSingleBatchAndFanOutResults() {
+        when(this.devicesRepository.batchFindByIdsAsync(anyCollection())).thenAnswer(invocation -> {
+            Collection<ReadDeviceRequest> keys = invocation.getArgument(0);
+            assertThat(keys).containsExactlyInAnyOrder(FIRST_DEVICE, SECOND_DEVICE, MISSING_DEVICE);
+            return CompletableFuture.completedFuture(response(List.of(item(FIRST_DEVICE), item(SECOND_DEVICE)),
+                List.of()));
+        });
+
+        var first = this.devicesBatchLoader.findByIdAsync(FIRST_DEVICE);
+        var firstAgain = this.devicesBatchLoader.findByIdAsync(FIRST_DEVICE);
+        var second = this.devicesBatchLoader.findByIdAsync(SECOND_DEVICE);
+        var missing = this.devicesBatchLoader.findByIdAsync(MISSING_DEVICE);
+
+        assertThat(first.join()).isEqualTo(item(FIRST_DEVICE));
+        assertThat(firstAgain.join()).isEqualTo(item(FIRST_DEVICE));
+        assertThat(second.join()).isEqualTo(item(SECOND_DEVICE));
+        assertThat(missing.join()).isEmpty();
+        verify(this.devicesRepository, times(1)).batchFindByIdsAsync(anyCollection());
+    }
+
+    @Test
+    void givenUnprocessedKey_whenLoading_thenRetryOnlyThatKey() {
+        when(this.devicesRepository.batchFindByIdsAsync(anyCollection()))
+            .thenReturn(CompletableFuture.completedFuture(response(List.of(item(FIRST_DEVICE)),
+                List.of(key(SECOND_DEVICE)))))
+            .thenReturn(CompletableFuture.completedFuture(response(List.of(item(SECOND_DEVICE)), List.of())));
+
+        var first = this.devicesBatchLoader.findByIdAsync(FIRST_DEVICE);
+        var second = this.devicesBatchLoader.findByIdAsync(SECOND_DEVICE);
+
+        assertThat(first.join()).isEqualTo(item(FIRST_DEVICE));
+        assertThat(second.join()).isEqualTo(item(SECOND_DEVICE));
+        verify(this.devicesRepository, times(2)).batchFindByIdsAsync(anyCollection());
+    }
+
+    private static BatchGetItemResponse response(List<Map<String, AttributeValue>> items,
+                                                 List<Map<String, AttributeValue>> unprocessedKeys) {
+        BatchGetItemResponse.Builder builder = BatchGetItemResponse.builder()
+            .responses(Map.of(Device.TABLE_NAME, items));
+        if (!unprocessedKeys.isEmpty()) {
+            builder.unprocessedKeys(Map.of(Device.TABLE_NAME,
+                KeysAndAttributes.builder().keys(unprocessedKeys).build()));
+        }
+        return builder.build();
+    }
+
+    private static Map<String, AttributeValue> key(ReadDeviceRequest request) {
+        return Map.of(
+            Device.ID_COLUMN_NAME, AttributeValue.fromS(request.deviceId()),
+            Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(request.cityId()));
+    }
+
+    private static Map<String, AttributeValue> item(ReadDeviceRequest request) {
+        return Map.of(
+            Device.ID_COLUMN_NAME, AttributeValue.fromS(request.deviceId()),
+            Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(request.cityId()),
+            Device.STATUS_COLUMN_NAME, AttributeValue.fromS("ON"));
+    }
+}
@@ -0,0 +1,63 @@
+package hiperium.city.devices.read.function.services;
+
+import hiperium.cities.commons.exceptions.ResourceNotFoundException;
+import hiperium.city.devices.read.function.common.CityStatus;
+import hiperium.city.devices.read.function.repository.CitiesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CityStatusCacheTest {
+
+    private static final String CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+    private static final String NEW_CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328529";
+
+    private final CitiesRepository citiesRepository = mock(CitiesRepository.class);
+
+    private CityStatusCache cityStatusCache;
+
+    @BeforeEach
+    void init() {
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("hiperium.devices.city-status.miss-refresh-interval-ms", "60000");
+        this.cityStatusCache = new CityStatusCache(environment, this.citiesRepository);
+        when(this.citiesRepository.findAllStatusesAsync())
+            .thenReturn(CompletableFuture.completedFuture(Map.of(CITY_ID, CityStatus.ENABLED)));
+        this.cityStatusCache.refreshAsync().join();
+    }
+
+    @Test
+    void givenCityCreatedAfterTheRefresh_whenVerifying_thenRefreshTheSnapshot() {
+        when(this.citiesRepository.findAllStatusesAsync())
+            .thenReturn(CompletableFuture.completedFuture(Map.of(
+                CITY_ID, CityStatus.ENABLED,
+                NEW_CITY_ID, CityStatus.ENABLED)));
+
+        assertThat(this.cityStatusCache.isEnabledInSnapshot(NEW_CITY_ID)).isFalse();
+        this.cityStatusCache.verifyCityIsEnabled(NEW_CITY_ID).block();
+
+        assertThat(this.cityStatusCache.isEnabledInSnapshot(NEW_CITY_ID)).isTrue();
+    }
+
+    @Test
+    void givenUnknownCities_whenVerifying_thenRefreshOncePerInterval() {
+        assertThatThrownBy(() -> this.cityStatusCache.verifyCityIsEnabled(NEW_CITY_ID).block())
+            .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> this.cityStatusCache.isEnabledInSnapshot(NEW_CITY_ID))
+            .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> this.cityStatusCache.verifyCityIsEnabled(NEW_CITY_ID).block())
+            .isInstanceOf(ResourceNotFoundException.class);
+
+        verify(this.citiesRepository, times(2)).findAllStatusesAsync();
+    }
+}
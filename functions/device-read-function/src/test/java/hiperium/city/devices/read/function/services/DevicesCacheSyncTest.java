@@ -0,0 +1,84 @@
+package hiperium.city.devices.read.function.services;
+
+import hiperium.city.devices.read.function.common.CompactId;
+import hiperium.city.devices.read.function.entities.Device;
+import hiperium.city.devices.read.function.entities.DeviceStatus;
+import hiperium.city.devices.read.function.repository.DevicesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DevicesCacheSyncTest {
+
+    private static final String CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+    private static final String FIRST_DEVICE_ID = "37f44ed4-b672-4f81-a579-47679c0d6f31";
+    private static final String SECOND_DEVICE_ID = "37f44ed4-b672-4f81-a579-47679c0d6f32";
+
+    private final DevicesRepository devicesRepository = mock(DevicesRepository.class);
+
+    private DevicesCache devicesCache;
+    private DevicesCacheSync devicesCacheSync;
+
+    @BeforeEach
+    void init() {
+        MockEnvironment environment = new MockEnvironment();
+        this.devicesCache = new DevicesCache(environment, new SimpleMeterRegistry());
+        this.devicesCacheSync = new DevicesCacheSync(environment, this.devicesCache, this.devicesRepository);
+        this.devicesCache.put(device(FIRST_DEVICE_ID, 1L));
+        this.devicesCache.put(device(SECOND_DEVICE_ID, 3L));
+    }
+
+    @Test
+    void givenNoSynchronization_whenReading_thenSkipTheCache() {
+        assertThat(this.devicesCache.get(CompactId.parse(FIRST_DEVICE_ID), CompactId.parse(CITY_ID))).isNull();
+    }
+
+    @Test
+    void givenNewerChange_whenSynchronizing_thenEvictOnlyTheOlderEntries() {
+        when(this.devicesRepository.findChangedSinceAsync(eq(CITY_ID), any(), isNull(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder()
+                .items(List.of(change(FIRST_DEVICE_ID, 2L), change(SECOND_DEVICE_ID, 3L)))
+                .build()));
+
+        this.devicesCacheSync.syncAsync().block();
+
+        assertThat(this.devicesCache.get(CompactId.parse(FIRST_DEVICE_ID), CompactId.parse(CITY_ID))).isNull();
+        assertThat(this.devicesCache.get(CompactId.parse(SECOND_DEVICE_ID), CompactId.parse(CITY_ID)))
+            .isEqualTo(device(SECOND_DEVICE_ID, 3L));
+    }
+
+    @Test
+    void givenFailedSynchronization_whenReading_thenSkipTheCache() {
+        when(this.devicesRepository.findChangedSinceAsync(eq(CITY_ID), any(), isNull(), anyInt()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Unavailable.")));
+
+        this.devicesCacheSync.syncAsync().onErrorComplete().block();
+
+        assertThat(this.devicesCache.get(CompactId.parse(SECOND_DEVICE_ID), CompactId.parse(CITY_ID))).isNull();
+    }
+
+    private static Device device(final String deviceId, final Long version) {
+        return new Device(deviceId, "Device", CITY_ID, "Description", DeviceStatus.ON, version);
+    }
+
+    private static Map<String, AttributeValue> change(final String deviceId, final Long version) {
+        return Map.of(
+            Device.ID_COLUMN_NAME, AttributeValue.fromS(deviceId),
+            Device.VERSION_COLUMN_NAME, AttributeValue.fromN(version.toString()));
+    }
+}
@@ -0,0 +1,69 @@
+package hiperium.city.devices.read.function.services;
+
+import hiperium.city.devices.read.function.common.ComputeOffload;
+import hiperium.city.devices.read.function.dto.ReadDeviceRequest;
+import hiperium.city.devices.read.function.entities.Device;
+import hiperium.city.devices.read.function.entities.DeviceStatus;
+import hiperium.city.devices.read.function.mappers.DeviceMapper;
+import hiperium.city.devices.read.function.repository.DevicesBatchLoader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DevicesServiceTest {
+
+    private static final String CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+    private static final String DEVICE_ID = "37f44ed4-b672-4f81-a579-47679c0d6f31";
+    private static final Device CACHED_DEVICE =
+        new Device(DEVICE_ID, "Device", CITY_ID, "Description", DeviceStatus.ON, 3L);
+
+    private final DeviceMapper deviceMapper = mock(DeviceMapper.class);
+    private final CityStatusCache cityStatusCache = mock(CityStatusCache.class);
+    private final DevicesBatchLoader devicesBatchLoader = mock(DevicesBatchLoader.class);
+
+    private DevicesService devicesService;
+
+    @BeforeEach
+    void init() {
+        DevicesCache devicesCache = new DevicesCache(new MockEnvironment(), new SimpleMeterRegistry());
+        devicesCache.put(CACHED_DEVICE);
+        devicesCache.markSynced(System.nanoTime());
+        when(this.cityStatusCache.isEnabledInSnapshot(CITY_ID)).thenReturn(true);
+        this.devicesService = new DevicesService(devicesCache, this.deviceMapper, this.cityStatusCache,
+            this.devicesBatchLoader, new ComputeOffload(null));
+    }
+
+    @Test
+    void givenCachedVersionNotOlderThanKnownOne_whenFindingById_thenServeTheCachedDevice() {
+        assertThat(this.devicesService.findById(new ReadDeviceRequest(DEVICE_ID, CITY_ID, 3L)).block())
+            .isEqualTo(CACHED_DEVICE);
+        assertThat(this.devicesService.findById(new ReadDeviceRequest(DEVICE_ID, CITY_ID, 2L)).block())
+            .isEqualTo(CACHED_DEVICE);
+        verify(this.devicesBatchLoader, never()).findByIdAsync(any());
+    }
+
+    @Test
+    void givenCachedVersionOlderThanKnownOne_whenFindingById_thenReadTheDevicesTable() {
+        Device storedDevice = new Device(DEVICE_ID, "Device", CITY_ID, "Description", DeviceStatus.OFF, 4L);
+        Map<String, AttributeValue> storedItem = Map.of(Device.ID_COLUMN_NAME, AttributeValue.fromS(DEVICE_ID));
+        ReadDeviceRequest readDeviceRequest = new ReadDeviceRequest(DEVICE_ID, CITY_ID, 4L);
+        when(this.devicesBatchLoader.findByIdAsync(readDeviceRequest))
+            .thenReturn(CompletableFuture.completedFuture(storedItem));
+        when(this.deviceMapper.mapToDevice(storedItem)).thenReturn(storedDevice);
+
+        assertThat(this.devicesService.findById(readDeviceRequest).block()).isEqualTo(storedDevice);
+        verify(this.devicesBatchLoader).findByIdAsync(readDeviceRequest);
+    }
+}
@@ -0,0 +1,62 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the bytes allocated per update request built from scratch and from the precomputed template. It runs the
+ * {@link DevicesRequestTemplatesBenchmark} in a forked JVM with the GC profiler, so it runs with the "load-test"
+ * profile only.
+ */
+@Tag("load")
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+class DevicesRequestTemplatesAllocationTest {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DevicesRequestTemplatesAllocationTest.class);
+
+    private static final String ALLOCATION_RATE_LABEL = "gc.alloc.rate.norm";
+
+    @Test
+    void givenTemplates_whenBuildingUpdateRequests_thenAllocateLessThanBuildingFromScratch() throws RunnerException {
+        Map<String, Double> bytesPerOperation = runBenchmarks();
+        double fromScratch = bytesPerOperation.get("fromScratch");
+        double fromTemplate = bytesPerOperation.get("fromTemplate");
+
+        LOGGER.info("Bytes per update request >>> from scratch: " + fromScratch + ", from template: " + fromTemplate);
+        assertThat(fromTemplate).isLessThan(fromScratch);
+    }
+
+    // Returns the normalized allocation rate reported by the GC profiler, by the name of each benchmark method.
+    private static Map<String, Double> runBenchmarks() throws RunnerException {
+        Collection<RunResult> runResults = new Runner(new OptionsBuilder()
+            .include(DevicesRequestTemplatesBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+        Map<String, Double> bytesPerOperation = new HashMap<>();
+        for (RunResult runResult : runResults) {
+            String benchmark = runResult.getParams().getBenchmark();
+            for (Map.Entry<String, Result> secondaryResult : runResult.getSecondaryResults().entrySet()) {
+                if (secondaryResult.getKey().endsWith(ALLOCATION_RATE_LABEL)) {
+                    bytesPerOperation.put(benchmark.substring(benchmark.lastIndexOf('.') + 1),
+                        secondaryResult.getValue().getScore());
+                }
+            }
+        }
+        assertThat(bytesPerOperation).containsKeys("fromScratch", "fromTemplate");
+        return bytesPerOperation;
+    }
+}
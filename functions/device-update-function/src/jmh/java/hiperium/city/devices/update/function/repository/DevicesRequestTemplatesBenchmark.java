@@ -0,0 +1,73 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.entities.Device;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the device status update requests from scratch and from the precomputed templates. The benchmarks are run
+ * by the {@link DevicesRequestTemplatesAllocationTest} with the GC profiler, or from the command line with:
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main DevicesRequestTemplatesBenchmark -prof gc}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DevicesRequestTemplatesBenchmark {
+
+    private static final String DEVICE_ID = "37f44ed4-b672-4f81-a579-47679c0d6f31";
+    private static final String CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+    private static final String UPDATED_AT = "2024-05-08T20:00:00.000Z";
+
+    private int iteration;
+
+    @Benchmark
+    public UpdateItemRequest fromScratch() {
+        return buildFromScratch(this.nextStatus());
+    }
+
+    @Benchmark
+    public UpdateItemRequest fromTemplate() {
+        return DevicesRequestTemplates.updateStatus(DEVICE_ID, CITY_ID, this.nextStatus(), null, null, UPDATED_AT);
+    }
+
+    private DeviceStatus nextStatus() {
+        return (this.iteration++ & 1) == 0 ? DeviceStatus.ON : DeviceStatus.OFF;
+    }
+
+    // The way the update request was built before the templates were introduced, with the same attributes.
+    private static UpdateItemRequest buildFromScratch(DeviceStatus newDeviceStatus) {
+        HashMap<String, AttributeValue> keyMap = new HashMap<>();
+        keyMap.put(Device.ID_COLUMN_NAME, AttributeValue.builder().s(DEVICE_ID).build());
+        keyMap.put(Device.CITY_ID_COLUMN_NAME, AttributeValue.builder().s(CITY_ID).build());
+        return UpdateItemRequest.builder()
+            .tableName(Device.TABLE_NAME)
+            .key(keyMap)
+            .updateExpression("SET #deviceStatus = :new_status, #updatedAt = :updated_at ADD #version :one")
+            .expressionAttributeNames(Map.of(
+                "#deviceStatus", Device.STATUS_COLUMN_NAME,
+                "#version", Device.VERSION_COLUMN_NAME,
+                "#updatedAt", Device.UPDATED_AT_COLUMN_NAME))
+            .expressionAttributeValues(Map.of(
+                ":new_status", AttributeValue.builder().s(newDeviceStatus.name()).build(),
+                ":updated_at", AttributeValue.builder().s(UPDATED_AT).build(),
+                ":one", AttributeValue.builder().n("1").build()))
+            .build();
+    }
+}
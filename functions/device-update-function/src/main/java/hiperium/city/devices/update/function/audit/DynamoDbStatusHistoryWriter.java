@@ -0,0 +1,75 @@
+package hiperium.city.devices.update.function.audit;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.entities.DeviceStatusTransition;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The DynamoDbStatusHistoryWriter class writes the device status transitions to the status history table
+ * using a single BatchWriteItem request per batch.
+ */
+public class DynamoDbStatusHistoryWriter implements StatusHistoryWriter {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DynamoDbStatusHistoryWriter.class);
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    /**
+     * Creates the writer of the status history table.
+     *
+     * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
+     */
+    public DynamoDbStatusHistoryWriter(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    @Override
+    public CompletableFuture<List<DeviceStatusTransition>> writeAsync(final List<DeviceStatusTransition> transitions) {
+        List<WriteRequest> writeRequests = transitions.stream()
+            .map(transition -> WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(toItem(transition)).build())
+                .build())
+            .toList();
+        BatchWriteItemRequest batchWriteItemRequest = BatchWriteItemRequest.builder()
+            .requestItems(Map.of(DeviceStatusTransition.TABLE_NAME, writeRequests))
+            .build();
+
+        return this.dynamoDbAsyncClient.batchWriteItem(batchWriteItemRequest)
+            .thenApply(response -> response.unprocessedItems()
+                .getOrDefault(DeviceStatusTransition.TABLE_NAME, List.of())
+                .stream()
+                .map(writeRequest -> fromItem(writeRequest.putRequest().item()))
+                .toList())
+            .exceptionally(exception -> {
+                LOGGER.error("Couldn't write the device status transitions.", exception.getMessage());
+                return transitions;
+            });
+    }
+
+    private static Map<String, AttributeValue> toItem(final DeviceStatusTransition transition) {
+        return Map.of(
+            DeviceStatusTransition.DEVICE_ID_COLUMN_NAME, AttributeValue.fromS(transition.deviceId()),
+            DeviceStatusTransition.CHANGED_AT_COLUMN_NAME, AttributeValue.fromS(transition.changedAt()),
+            DeviceStatusTransition.CITY_ID_COLUMN_NAME, AttributeValue.fromS(transition.cityId()),
+            DeviceStatusTransition.OLD_STATUS_COLUMN_NAME, AttributeValue.fromS(transition.oldStatus().name()),
+            DeviceStatusTransition.NEW_STATUS_COLUMN_NAME, AttributeValue.fromS(transition.newStatus().name()));
+    }
+
+    private static DeviceStatusTransition fromItem(final Map<String, AttributeValue> item) {
+        return new DeviceStatusTransition(
+            item.get(DeviceStatusTransition.DEVICE_ID_COLUMN_NAME).s(),
+            item.get(DeviceStatusTransition.CITY_ID_COLUMN_NAME).s(),
+            DeviceStatus.valueOf(item.get(DeviceStatusTransition.OLD_STATUS_COLUMN_NAME).s()),
+            DeviceStatus.valueOf(item.get(DeviceStatusTransition.NEW_STATUS_COLUMN_NAME).s()),
+            item.get(DeviceStatusTransition.CHANGED_AT_COLUMN_NAME).s());
+    }
+}
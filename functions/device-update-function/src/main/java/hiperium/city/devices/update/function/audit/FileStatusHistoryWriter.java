@@ -0,0 +1,61 @@
+package hiperium.city.devices.update.function.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.entities.DeviceStatusTransition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The FileStatusHistoryWriter class appends the device status transitions to a local file,
+ * one JSON document per line. It's intended for tests and local development.
+ */
+public class FileStatusHistoryWriter implements StatusHistoryWriter {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(FileStatusHistoryWriter.class);
+
+    private final Path filePath;
+
+    /**
+     * Creates the writer of the status history file.
+     *
+     * @param filePath The path of the file where the transitions are appended.
+     */
+    public FileStatusHistoryWriter(Path filePath) {
+        this.filePath = filePath;
+    }
+
+    @Override
+    public CompletableFuture<List<DeviceStatusTransition>> writeAsync(final List<DeviceStatusTransition> transitions) {
+        return CompletableFuture.supplyAsync(() -> {
+            StringBuilder lines = new StringBuilder();
+            try {
+                for (DeviceStatusTransition transition : transitions) {
+                    lines.append(OBJECT_MAPPER.writeValueAsString(transition)).append(System.lineSeparator());
+                }
+                this.appendLines(lines.toString());
+                return List.<DeviceStatusTransition>of();
+            } catch (IOException | UncheckedIOException exception) {
+                LOGGER.error("Couldn't write the device status transitions.", exception.getMessage());
+                return transitions;
+            }
+        });
+    }
+
+    private synchronized void appendLines(final String lines) throws IOException {
+        Path parentDirectory = this.filePath.toAbsolutePath().getParent();
+        if (parentDirectory != null) {
+            Files.createDirectories(parentDirectory);
+        }
+        Files.writeString(this.filePath, lines, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,167 @@
+package hiperium.city.devices.update.function.audit;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.entities.DeviceStatusTransition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The StatusAuditSink class keeps a write-behind log of the device status transitions.
+ *
+ * <p>
+ * Recording a transition never blocks the status update: it is offered to a bounded in-memory buffer, and the
+ * buffer is drained to the {@link StatusHistoryWriter} in batches. When the buffer is full the transition is
+ * dropped and counted, so the audit log never applies back-pressure to the device updates. The function flushes
+ * the buffer before the invocation ends, because the Lambda execution environment may be frozen afterward.
+ * </p>
+ *
+ * <p>
+ * The {@code changedAt} sort key of a transition is a fixed-width UTC timestamp followed by the ID of the sink and
+ * a zero-padded sequence number, so the transitions of a device sort in time order as strings, and the ones
+ * recorded in the same millisecond, by this or another function instance, don't overwrite each other.
+ * </p>
+ */
+public class StatusAuditSink {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(StatusAuditSink.class);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+    private static final int SEQUENCE_WIDTH = 12;
+
+    private final int batchSize;
+    private final StatusHistoryWriter statusHistoryWriter;
+    private final BlockingQueue<DeviceStatusTransition> buffer;
+    private final AtomicReference<Mono<Void>> inFlightFlush = new AtomicReference<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final String sinkId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final Counter recordedCounter;
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+
+    /**
+     * Creates the status audit sink.
+     *
+     * @param capacity            The maximum number of transitions kept in memory before dropping new ones.
+     * @param batchSize           The maximum number of transitions written per request.
+     * @param statusHistoryWriter The writer of the status transitions.
+     * @param meterRegistry       The registry used to publish the audit metrics.
+     */
+    public StatusAuditSink(int capacity, int batchSize, StatusHistoryWriter statusHistoryWriter,
+                           MeterRegistry meterRegistry) {
+        this.batchSize = batchSize;
+        this.statusHistoryWriter = statusHistoryWriter;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.recordedCounter = meterRegistry.counter("devices.audit.transitions", "result", "recorded");
+        this.droppedCounter = meterRegistry.counter("devices.audit.transitions", "result", "dropped");
+        this.writtenCounter = meterRegistry.counter("devices.audit.transitions", "result", "written");
+        meterRegistry.gauge("devices.audit.buffer.size", this.buffer, BlockingQueue::size);
+    }
+
+    /**
+     * Records the status transition of a device without blocking. A background flush is started
+     * when the buffer holds at least a full batch.
+     *
+     * @param device    The device before the update.
+     * @param newStatus The new status of the device.
+     */
+    public void record(final Device device, final DeviceStatus newStatus) {
+        DeviceStatusTransition transition = new DeviceStatusTransition(device.id(), device.cityId(),
+            device.status(), newStatus, this.nextChangedAt());
+        if (!this.buffer.offer(transition)) {
+            this.droppedCounter.increment();
+            LOGGER.error("Audit buffer is full. Dropping status transition.", transition);
+            return;
+        }
+        this.recordedCounter.increment();
+        if (this.buffer.size() >= this.batchSize) {
+            this.flush().subscribe(null, exception ->
+                LOGGER.error("Couldn't flush the audit buffer.", exception.getMessage()));
+        }
+    }
+
+    /**
+     * Drains the buffered transitions to the status history writer. Transitions that couldn't be written, including
+     * the batches whose write failed, are returned to the buffer for the next flush. If there is already a flush in
+     * progress, waits for it and then drains the transitions buffered meanwhile, so the caller never returns before
+     * the transitions recorded until the call were written or requeued.
+     *
+     * @return A Mono that completes when the buffered transitions have been written or requeued.
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            Mono<Void> inFlight = this.inFlightFlush.get();
+            if (Objects.nonNull(inFlight)) {
+                return inFlight.then(Mono.defer(this::flush));
+            }
+            // The flush is cached, so it runs once for all its callers and isn't cancelled by their timeouts. It's
+            // released before its callers are signaled, so the ones that waited for it can start the next flush.
+            Mono<Void> newFlush = this.writeBufferedBatches()
+                .doOnTerminate(() -> this.inFlightFlush.set(null))
+                .cache();
+            return this.inFlightFlush.compareAndSet(null, newFlush) ? newFlush : this.flush();
+        });
+    }
+
+    private Mono<Void> writeBufferedBatches() {
+        return Flux.defer(() -> Flux.fromIterable(this.drainBatches()))
+            .concatMap(batch -> Mono.fromCompletionStage(() -> this.statusHistoryWriter.writeAsync(batch))
+                .doOnNext(unprocessed -> {
+                    this.writtenCounter.increment(batch.size() - unprocessed.size());
+                    unprocessed.forEach(this::requeue);
+                })
+                .onErrorResume(exception -> {
+                    LOGGER.error("Couldn't write the status transitions batch.", exception.getMessage());
+                    batch.forEach(this::requeue);
+                    return Mono.empty();
+                }))
+            .then();
+    }
+
+    private List<List<DeviceStatusTransition>> drainBatches() {
+        List<DeviceStatusTransition> drained = new ArrayList<>(this.buffer.size());
+        this.buffer.drainTo(drained);
+        List<List<DeviceStatusTransition>> batches = new ArrayList<>();
+        for (int offset = 0; offset < drained.size(); offset += this.batchSize) {
+            batches.add(drained.subList(offset, Math.min(offset + this.batchSize, drained.size())));
+        }
+        return batches;
+    }
+
+    private void requeue(final DeviceStatusTransition transition) {
+        if (!this.buffer.offer(transition)) {
+            this.droppedCounter.increment();
+            LOGGER.error("Audit buffer is full. Dropping unprocessed status transition.", transition);
+        }
+    }
+
+    private String nextChangedAt() {
+        String sequenceNumber = Long.toString(this.sequence.incrementAndGet());
+        StringBuilder changedAt = new StringBuilder(48)
+            .append(TIMESTAMP_FORMATTER.format(Instant.now()))
+            .append('#')
+            .append(this.sinkId)
+            .append('-');
+        for (int padding = sequenceNumber.length(); padding < SEQUENCE_WIDTH; padding++) {
+            changedAt.append('0');
+        }
+        return changedAt.append(sequenceNumber).toString();
+    }
+}
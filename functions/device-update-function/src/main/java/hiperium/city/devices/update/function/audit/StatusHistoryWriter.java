@@ -0,0 +1,20 @@
+package hiperium.city.devices.update.function.audit;
+
+import hiperium.city.devices.update.function.entities.DeviceStatusTransition;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents the destination of the device status transitions flushed by the {@link StatusAuditSink}.
+ */
+public interface StatusHistoryWriter {
+
+    /**
+     * Writes a batch of status transitions asynchronously.
+     *
+     * @param transitions The status transitions to write. The batch never exceeds the configured batch size.
+     * @return A CompletableFuture that completes with the transitions that couldn't be written and must be retried.
+     */
+    CompletableFuture<List<DeviceStatusTransition>> writeAsync(List<DeviceStatusTransition> transitions);
+}
@@ -0,0 +1,91 @@
+package hiperium.city.devices.update.function.commons;
+
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The AdaptivePacer class paces the writes of a bulk operation to the capacity available in a DynamoDB table.
+ *
+ * <p>
+ * Every throttled write doubles a pacing delay shared by all the writes of the operation, up to the maximum backoff,
+ * and every write that isn't throttled halves it again, until it drops below the base backoff. So the operation
+ * slows down to the capacity of the table instead of retrying against it. The throttled writes are retried after an
+ * exponential backoff with jitter. A new pacer must be created for every operation.
+ * </p>
+ */
+public final class AdaptivePacer {
+
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final AtomicLong pacingDelayMillis = new AtomicLong();
+
+    /**
+     * Creates the pacer of a bulk operation.
+     *
+     * @param baseBackoffMillis The backoff of the first retry, and the minimum pacing delay.
+     * @param maxBackoffMillis  The maximum backoff and pacing delay.
+     */
+    public AdaptivePacer(long baseBackoffMillis, long maxBackoffMillis) {
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Waits for the current pacing delay before the next write.
+     *
+     * @return A Mono that completes once the pacing delay elapsed, or immediately if there is no delay.
+     */
+    public Mono<Void> pace() {
+        long delayMillis = this.pacingDelayMillis.get();
+        return delayMillis == 0 ? Mono.empty() : Mono.delay(Duration.ofMillis(delayMillis)).then();
+    }
+
+    /**
+     * Halves the pacing delay after a write that wasn't throttled.
+     */
+    public void onWriteCompleted() {
+        this.pacingDelayMillis.updateAndGet(delayMillis ->
+            delayMillis / 2 < this.baseBackoffMillis ? 0 : delayMillis / 2);
+    }
+
+    /**
+     * Doubles the pacing delay after a throttled write.
+     */
+    public void onWriteThrottled() {
+        this.pacingDelayMillis.updateAndGet(delayMillis ->
+            Math.min(this.maxBackoffMillis, Math.max(this.baseBackoffMillis, delayMillis * 2)));
+    }
+
+    /**
+     * Returns the backoff before retrying a throttled write, with a random jitter of up to half of it.
+     *
+     * @param attempt The number of the attempt that was throttled, starting from one.
+     * @return The backoff before the next attempt.
+     */
+    public Duration getBackoff(final int attempt) {
+        long exponentialBackoff = Math.min(this.maxBackoffMillis,
+            this.baseBackoffMillis << Math.min(attempt - 1, 20));
+        long halfBackoff = exponentialBackoff / 2;
+        return Duration.ofMillis(halfBackoff + ThreadLocalRandom.current().nextLong(halfBackoff + 1));
+    }
+
+    /**
+     * Returns whether the given error means that DynamoDB throttled the request.
+     *
+     * @param throwable The error of the request, wrapped or not in a CompletionException.
+     * @return true if the request was throttled and can be retried later.
+     */
+    public static boolean isThrottlingError(final Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && Objects.nonNull(throwable.getCause())
+            ? throwable.getCause() : throwable;
+        return cause instanceof ProvisionedThroughputExceededException
+            || cause instanceof RequestLimitExceededException;
+    }
+}
@@ -0,0 +1,18 @@
+package hiperium.city.devices.update.function.commons;
+
+import hiperium.cities.commons.exceptions.CityException;
+
+/**
+ * Exception thrown when the Devices circuit breaker is open and the request is rejected without calling DynamoDB.
+ */
+public class CircuitBreakerOpenException extends CityException {
+
+    /**
+     * Creates a new exception with the specified detail message.
+     *
+     * @param message the detail message.
+     */
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package hiperium.city.devices.update.function.commons;
+
+/**
+ * An enumeration representing the result of a device status update request.
+ * <ul>
+ *     <li>UPDATED: the status of the device was changed.</li>
+ *     <li>UNCHANGED: the device was already in the requested status, so nothing was written.</li>
+ *     <li>DUPLICATED: the event was already processed by a previous delivery.</li>
+ *     <li>STALE: the device was already changed by a newer event, so the older one was discarded.</li>
+ * </ul>
+ */
+public enum DeviceUpdateResult {
+    UPDATED, UNCHANGED, DUPLICATED, STALE
+}
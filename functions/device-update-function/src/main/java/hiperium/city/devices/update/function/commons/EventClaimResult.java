@@ -0,0 +1,13 @@
+package hiperium.city.devices.update.function.commons;
+
+/**
+ * An enumeration representing the result of claiming an event in the processed events table.
+ * <ul>
+ *     <li>CLAIMED: the event wasn't processed yet, or its previous lease expired, so this delivery processes it.</li>
+ *     <li>IN_PROGRESS: another delivery holds an unexpired lease on the event and is still processing it.</li>
+ *     <li>COMPLETED: the event was already processed by a previous delivery.</li>
+ * </ul>
+ */
+public enum EventClaimResult {
+    CLAIMED, IN_PROGRESS, COMPLETED
+}
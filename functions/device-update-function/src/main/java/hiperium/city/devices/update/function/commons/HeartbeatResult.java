@@ -0,0 +1,14 @@
+package hiperium.city.devices.update.function.commons;
+
+/**
+ * An enumeration representing the result of writing the last heartbeat of a device.
+ * <ul>
+ *     <li>REFRESHED: the device was already online, so only its last seen time was changed.</li>
+ *     <li>ONLINE: the device was offline, or silent for too long, and it was marked as online.</li>
+ *     <li>STALE: the device was already seen at the same time or later, so nothing was written.</li>
+ *     <li>NOT_FOUND: the device doesn't exist, so nothing was written.</li>
+ * </ul>
+ */
+public enum HeartbeatResult {
+    REFRESHED, ONLINE, STALE, NOT_FOUND
+}
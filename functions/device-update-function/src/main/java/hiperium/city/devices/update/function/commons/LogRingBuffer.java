@@ -0,0 +1,89 @@
+package hiperium.city.devices.update.function.commons;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The LogRingBuffer class is a bounded, lock-free queue of log events for many producers and a single consumer.
+ *
+ * <p>
+ * The producers claim a sequence with a compare-and-set on the tail, and publish the event in the slot of that
+ * sequence. The consumer reads the slots in sequence order, and a claimed slot whose event isn't published yet is
+ * seen as empty until the producer writes it.
+ * </p>
+ */
+final class LogRingBuffer {
+
+    private final int mask;
+    private final int capacity;
+    private final AtomicReferenceArray<ILoggingEvent> slots;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * Creates a ring buffer with the given capacity, rounded up to the next power of two.
+     *
+     * @param requestedCapacity the minimum number of events held by the buffer.
+     */
+    LogRingBuffer(int requestedCapacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    /**
+     * Adds an event to the buffer. Called by any thread.
+     *
+     * @param event the event to add.
+     * @return false if the buffer is full.
+     */
+    boolean offer(final ILoggingEvent event) {
+        long sequence;
+        do {
+            sequence = this.tail.get();
+            if (sequence - this.head >= this.capacity) {
+                return false;
+            }
+        } while (!this.tail.compareAndSet(sequence, sequence + 1));
+        this.slots.setRelease((int) (sequence & this.mask), event);
+        return true;
+    }
+
+    /**
+     * Removes the next event from the buffer. Called by the consumer thread only.
+     *
+     * @return the next event, or null if the buffer is empty or the next event isn't published yet.
+     */
+    ILoggingEvent poll() {
+        long sequence = this.head;
+        int index = (int) (sequence & this.mask);
+        ILoggingEvent event = this.slots.getAcquire(index);
+        if (event == null) {
+            return null;
+        }
+        this.slots.setPlain(index, null);
+        // The volatile write releases the slot to the producers after it's cleared.
+        this.head = sequence + 1;
+        return event;
+    }
+
+    /**
+     * Returns the sequence of the next event to be claimed by a producer.
+     *
+     * @return the number of events added since the buffer was created.
+     */
+    long claimedSequence() {
+        return this.tail.get();
+    }
+
+    /**
+     * Returns the sequence of the next event to be consumed.
+     *
+     * @return the number of events removed since the buffer was created.
+     */
+    long consumedSequence() {
+        return this.head;
+    }
+}
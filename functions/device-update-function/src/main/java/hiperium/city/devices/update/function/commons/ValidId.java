@@ -0,0 +1,27 @@
+package hiperium.city.devices.update.function.commons;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Validates that a String is the canonical, lowercase representation of a UUID, using the {@link CompactId}
+ * parser instead of a regular expression. Null values are considered valid.
+ */
+@Documented
+@Target({ElementType.FIELD, ElementType.PARAMETER, ElementType.RECORD_COMPONENT})
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = ValidIdValidator.class)
+public @interface ValidId {
+
+    String message() default "The ID must have a valid format.";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,61 @@
+package hiperium.city.devices.update.function.configurations;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.audit.DynamoDbStatusHistoryWriter;
+import hiperium.city.devices.update.function.audit.FileStatusHistoryWriter;
+import hiperium.city.devices.update.function.audit.StatusAuditSink;
+import hiperium.city.devices.update.function.audit.StatusHistoryWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.nio.file.Path;
+
+/**
+ * The AuditConfig class provides the write-behind sink of the device status transitions.
+ * The destination is selected with the "hiperium.devices.audit.sink" property: "dynamodb" or "file".
+ */
+@Configuration(proxyBeanMethods = false)
+public class AuditConfig {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(AuditConfig.class);
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.audit.";
+
+    private final Environment environment;
+
+    /**
+     * Create an instance of AuditConfig with the specified environment.
+     *
+     * @param environment the environment used to read the audit properties
+     */
+    public AuditConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Returns the sink of the device status transitions.
+     *
+     * @param dynamoDbAsyncClient the DynamoDB client used when the status history table is the destination
+     * @param meterRegistry       the registry used to publish the audit metrics
+     * @return an instance of StatusAuditSink
+     */
+    @Bean
+    public StatusAuditSink statusAuditSink(DynamoDbAsyncClient dynamoDbAsyncClient, MeterRegistry meterRegistry) {
+        int capacity = this.getProperty("buffer-capacity", Integer.class, 1_000);
+        // A BatchWriteItem request accepts up to 25 items.
+        int batchSize = Math.min(this.getProperty("batch-size", Integer.class, 25), 25);
+        String sink = this.getProperty("sink", String.class, "dynamodb");
+        LOGGER.debug("Creating Status Audit Sink bean", sink);
+        StatusHistoryWriter statusHistoryWriter = "file".equalsIgnoreCase(sink)
+            ? new FileStatusHistoryWriter(Path.of(this.getProperty("file-path", String.class, "status-history.ndjson")))
+            : new DynamoDbStatusHistoryWriter(dynamoDbAsyncClient);
+        return new StatusAuditSink(capacity, batchSize, statusHistoryWriter, meterRegistry);
+    }
+
+    private <T> T getProperty(String name, Class<T> type, T defaultValue) {
+        return this.environment.getProperty(PROPERTY_PREFIX + name, type, defaultValue);
+    }
+}
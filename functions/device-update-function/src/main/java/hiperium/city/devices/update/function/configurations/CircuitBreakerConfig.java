@@ -0,0 +1,55 @@
+package hiperium.city.devices.update.function.configurations;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.repository.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * The CircuitBreakerConfig class provides the circuit breaker used by the repositories to fail fast
+ * when DynamoDB is degraded.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CircuitBreakerConfig {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CircuitBreakerConfig.class);
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.circuit-breaker.";
+
+    private final Environment environment;
+
+    /**
+     * Create an instance of CircuitBreakerConfig with the specified environment.
+     *
+     * @param environment the environment used to read the circuit breaker properties
+     */
+    public CircuitBreakerConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Returns the circuit breaker that protects the DynamoDB calls.
+     *
+     * @param meterRegistry the registry used to publish the circuit breaker metrics
+     * @return an instance of CircuitBreaker
+     */
+    @Bean
+    public CircuitBreaker devicesCircuitBreaker(MeterRegistry meterRegistry) {
+        int slidingWindowSize = this.getProperty("sliding-window-size", Integer.class, 20);
+        int minimumCalls = this.getProperty("minimum-calls", Integer.class, 10);
+        float failureRateThreshold = this.getProperty("failure-rate-threshold", Float.class, 50.0f);
+        long waitDurationInOpenState = this.getProperty("wait-duration-in-open-state-ms", Long.class, 10_000L);
+        int permittedHalfOpenCalls = this.getProperty("permitted-half-open-calls", Integer.class, 3);
+        LOGGER.debug("Creating Devices Circuit Breaker bean...");
+        return new CircuitBreaker("devices-table", slidingWindowSize, minimumCalls, failureRateThreshold,
+            Duration.ofMillis(waitDurationInOpenState), permittedHalfOpenCalls, meterRegistry);
+    }
+
+    private <T> T getProperty(String name, Class<T> type, T defaultValue) {
+        return this.environment.getProperty(PROPERTY_PREFIX + name, type, defaultValue);
+    }
+}
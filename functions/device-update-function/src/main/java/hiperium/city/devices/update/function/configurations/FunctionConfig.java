@@ -1,9 +1,31 @@
 package hiperium.city.devices.update.function.configurations;
 
 import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.audit.StatusAuditSink;
+import hiperium.city.devices.update.function.dto.CityCommandResponse;
+import hiperium.city.devices.update.function.dto.CountersRepairResponse;
+import hiperium.city.devices.update.function.dto.ImportDevicesResponse;
+import hiperium.city.devices.update.function.dto.IngestHeartbeatsResponse;
+import hiperium.city.devices.update.function.dto.OfflineSweepResponse;
+import hiperium.city.devices.update.function.dto.ShardsBackfillResponse;
+import hiperium.city.devices.update.function.dto.StreamBatchResponse;
 import hiperium.city.devices.update.function.dto.UpdateDeviceResponse;
+import hiperium.city.devices.update.function.functions.CityCommandFunction;
+import hiperium.city.devices.update.function.functions.CommandStreamFunction;
+import hiperium.city.devices.update.function.functions.CountersRepairFunction;
+import hiperium.city.devices.update.function.functions.HeartbeatFunction;
+import hiperium.city.devices.update.function.functions.ImportFunction;
+import hiperium.city.devices.update.function.functions.LogFlushingFunction;
+import hiperium.city.devices.update.function.functions.OfflineSweepFunction;
+import hiperium.city.devices.update.function.functions.ShardsBackfillFunction;
 import hiperium.city.devices.update.function.functions.UpdateFunction;
+import hiperium.city.devices.update.function.services.CityCommandService;
+import hiperium.city.devices.update.function.services.CityCountersRepairService;
+import hiperium.city.devices.update.function.services.CityShardsBackfillService;
+import hiperium.city.devices.update.function.services.DeviceCommandStreamService;
+import hiperium.city.devices.update.function.services.DeviceImportService;
 import hiperium.city.devices.update.function.services.DevicesService;
+import hiperium.city.devices.update.function.services.HeartbeatService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
@@ -12,21 +34,49 @@ import reactor.core.publisher.Mono;
 import java.util.function.Function;
 
 /**
- * This class represents the configuration for functions in the application.
+ * This class represents the configuration for functions in the application. Every function writes its batched
+ * log events before returning its result.
  */
 @Configuration(proxyBeanMethods = false)
 public class FunctionConfig {
 
     public static final String FUNCTION_BEAN_NAME = "updateStatus";
+    public static final String IMPORT_FUNCTION_BEAN_NAME = "importDevices";
+    public static final String CITY_COMMAND_FUNCTION_BEAN_NAME = "updateCityStatus";
+    public static final String COUNTERS_REPAIR_FUNCTION_BEAN_NAME = "repairCityCounters";
+    public static final String HEARTBEAT_FUNCTION_BEAN_NAME = "ingestHeartbeats";
+    public static final String OFFLINE_SWEEP_FUNCTION_BEAN_NAME = "sweepOfflineDevices";
+    public static final String COMMAND_STREAM_FUNCTION_BEAN_NAME = "processCommandStream";
+    public static final String SHARDS_BACKFILL_FUNCTION_BEAN_NAME = "backfillCityShards";
     private static final HiperiumLogger LOGGER = new HiperiumLogger(FunctionConfig.class);
 
     private final DevicesService devicesService;
+    private final StatusAuditSink statusAuditSink;
+    private final DeviceImportService deviceImportService;
+    private final CityCommandService cityCommandService;
+    private final CityCountersRepairService cityCountersRepairService;
+    private final HeartbeatService heartbeatService;
+    private final DeviceCommandStreamService deviceCommandStreamService;
+    private final CityShardsBackfillService cityShardsBackfillService;
 
     /**
      * Represents the configuration for functions in the application.
      */
-    public FunctionConfig(DevicesService devicesService) {
+    public FunctionConfig(DevicesService devicesService, StatusAuditSink statusAuditSink,
+                          DeviceImportService deviceImportService,
+                          CityCommandService cityCommandService,
+                          CityCountersRepairService cityCountersRepairService,
+                          HeartbeatService heartbeatService,
+                          DeviceCommandStreamService deviceCommandStreamService,
+                          CityShardsBackfillService cityShardsBackfillService) {
         this.devicesService = devicesService;
+        this.statusAuditSink = statusAuditSink;
+        this.deviceImportService = deviceImportService;
+        this.cityCommandService = cityCommandService;
+        this.cityCountersRepairService = cityCountersRepairService;
+        this.heartbeatService = heartbeatService;
+        this.deviceCommandStreamService = deviceCommandStreamService;
+        this.cityShardsBackfillService = cityShardsBackfillService;
     }
 
     /**
@@ -37,6 +87,84 @@ public class FunctionConfig {
     @Bean(FUNCTION_BEAN_NAME)
     public Function<Message<byte[]>, Mono<UpdateDeviceResponse>> updateStatusFunction() {
         LOGGER.debug("Creating Update Status Function bean...");
-        return new UpdateFunction(this.devicesService);
+        return new LogFlushingFunction<>(new UpdateFunction(this.devicesService, this.statusAuditSink));
+    }
+
+    /**
+     * Creates a bean that imports the devices of a bulk import file.
+     *
+     * @return The function that imports the devices.
+     */
+    @Bean(IMPORT_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<ImportDevicesResponse>> importDevicesFunction() {
+        LOGGER.debug("Creating Import Devices Function bean...");
+        return new LogFlushingFunction<>(new ImportFunction(this.deviceImportService));
+    }
+
+    /**
+     * Creates a bean that applies a device operation to all the devices of a city.
+     *
+     * @return The function that applies the city-wide status commands.
+     */
+    @Bean(CITY_COMMAND_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<CityCommandResponse>> updateCityStatusFunction() {
+        LOGGER.debug("Creating Update City Status Function bean...");
+        return new LogFlushingFunction<>(new CityCommandFunction(this.cityCommandService, this.statusAuditSink));
+    }
+
+    /**
+     * Creates a bean that rebuilds the device counters of the cities from the Devices table.
+     *
+     * @return The function that repairs the city device counters.
+     */
+    @Bean(COUNTERS_REPAIR_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<CountersRepairResponse>> repairCityCountersFunction() {
+        LOGGER.debug("Creating Repair City Counters Function bean...");
+        return new LogFlushingFunction<>(new CountersRepairFunction(this.cityCountersRepairService));
+    }
+
+    /**
+     * Creates a bean that ingests the batches of device heartbeats.
+     *
+     * @return The function that writes the latest heartbeat of every device.
+     */
+    @Bean(HEARTBEAT_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<IngestHeartbeatsResponse>> ingestHeartbeatsFunction() {
+        LOGGER.debug("Creating Ingest Heartbeats Function bean...");
+        return new LogFlushingFunction<>(new HeartbeatFunction(this.heartbeatService));
+    }
+
+    /**
+     * Creates a bean that marks as offline the devices without a recent heartbeat.
+     *
+     * @return The function that sweeps the silent devices.
+     */
+    @Bean(OFFLINE_SWEEP_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<OfflineSweepResponse>> sweepOfflineDevicesFunction() {
+        LOGGER.debug("Creating Sweep Offline Devices Function bean...");
+        return new LogFlushingFunction<>(new OfflineSweepFunction(this.heartbeatService));
+    }
+
+    /**
+     * Creates a bean that applies the device status commands of the device commands stream.
+     *
+     * @return The function that processes the device commands stream records.
+     */
+    @Bean(COMMAND_STREAM_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<StreamBatchResponse>> processCommandStreamFunction() {
+        LOGGER.debug("Creating Process Command Stream Function bean...");
+        return new LogFlushingFunction<>(
+            new CommandStreamFunction(this.deviceCommandStreamService, this.statusAuditSink));
+    }
+
+    /**
+     * Creates a bean that writes the city shard of the devices written before sharding was enabled.
+     *
+     * @return The function that backfills the city shards.
+     */
+    @Bean(SHARDS_BACKFILL_FUNCTION_BEAN_NAME)
+    public Function<Message<byte[]>, Mono<ShardsBackfillResponse>> backfillCityShardsFunction() {
+        LOGGER.debug("Creating Backfill City Shards Function bean...");
+        return new LogFlushingFunction<>(new ShardsBackfillFunction(this.cityShardsBackfillService));
     }
 }
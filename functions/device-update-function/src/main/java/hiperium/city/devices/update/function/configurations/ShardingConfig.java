@@ -0,0 +1,45 @@
+package hiperium.city.devices.update.function.configurations;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.repository.CityShards;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * The ShardingConfig class provides the city shards used by the repositories to spread the writes of a city
+ * across the partitions of the sharded city index.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ShardingConfig {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(ShardingConfig.class);
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.sharding.";
+
+    private final Environment environment;
+
+    /**
+     * Create an instance of ShardingConfig with the specified environment.
+     *
+     * @param environment the environment used to read the sharding properties
+     */
+    public ShardingConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Returns the city shards. Sharding is disabled unless the "enabled" property is true, and the reads only use
+     * the sharded city index once the "backfilled" property is true.
+     *
+     * @return an instance of CityShards
+     */
+    @Bean
+    public CityShards cityShards() {
+        boolean enabled = this.environment.getProperty(PROPERTY_PREFIX + "enabled", Boolean.class, false);
+        boolean backfilled = this.environment.getProperty(PROPERTY_PREFIX + "backfilled", Boolean.class, false);
+        int shardCount = this.environment.getProperty(PROPERTY_PREFIX + "shard-count", Integer.class, 8);
+        LOGGER.debug("Creating City Shards bean...", enabled ? shardCount : 1);
+        return new CityShards(enabled ? shardCount : 1, backfilled);
+    }
+}
@@ -0,0 +1,22 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.city.devices.update.function.commons.DeviceOperation;
+import hiperium.city.devices.update.function.commons.ValidId;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * The {@code CityCommandDetail} class represents the details of an event that applies an operation
+ * to all the devices of a city.
+ */
+public record CityCommandDetail(
+
+    @NotEmpty(message = "City ID cannot be empty.")
+    @NotBlank(message = "City ID cannot be blank.")
+    @ValidId(message = "City ID must have a valid format.")
+    String cityId,
+
+    @NotNull(message = "Device operation cannot be null.")
+    DeviceOperation deviceOperation) {
+}
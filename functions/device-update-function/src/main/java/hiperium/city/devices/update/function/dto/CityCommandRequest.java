@@ -0,0 +1,34 @@
+package hiperium.city.devices.update.function.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * The CityCommandRequest class represents a city-wide status command received from EventBridge.
+ * It has the same envelope as the {@link EventBridgeRequest} class. The event ID identifies the command,
+ * so a new delivery of the same event resumes the command from its last checkpoint.
+ *
+ * @see CityCommandDetail
+ */
+public record CityCommandRequest(
+
+    @NotBlank(message = "Event ID cannot be blank.")
+    String id,
+    String version,
+    String source,
+    String account,
+    String time,
+    String region,
+    List<String> resources,
+
+    @JsonProperty("detail-type")
+    String detailType,
+
+    @Valid
+    @NotNull(message = "Event detail cannot be null.")
+    CityCommandDetail detail) {
+}
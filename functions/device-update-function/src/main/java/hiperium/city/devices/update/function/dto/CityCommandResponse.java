@@ -0,0 +1,21 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.cities.commons.dto.ErrorResponse;
+
+/**
+ * Represents the report of a city-wide status command.
+ *
+ * @param statusCode     The status code of the command.
+ * @param updatedDevices The number of devices whose status was changed.
+ * @param skippedDevices The number of devices that were already in the requested status.
+ * @param failedDevices  The number of devices that couldn't be updated.
+ * @param error          The error response if the command couldn't be executed.
+ */
+public record CityCommandResponse(
+
+    Integer statusCode,
+    long updatedDevices,
+    long skippedDevices,
+    long failedDevices,
+    ErrorResponse error) {
+}
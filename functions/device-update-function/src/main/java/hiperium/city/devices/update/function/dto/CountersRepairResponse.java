@@ -0,0 +1,24 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.cities.commons.dto.ErrorResponse;
+
+/**
+ * Represents the report of a city device counters repair.
+ *
+ * @param statusCode       The status code of the repair.
+ * @param checkedCities    The number of cities whose counters were compared with their devices.
+ * @param driftedCities    The number of cities whose counters didn't match their devices.
+ * @param repairedCities   The number of drifted cities whose counters were replaced.
+ * @param conflictedCities The number of drifted cities whose counters changed while they were rebuilt, so they
+ *                         weren't replaced until the next repair.
+ * @param error            The error response if the repair couldn't be executed.
+ */
+public record CountersRepairResponse(
+
+    Integer statusCode,
+    long checkedCities,
+    long driftedCities,
+    long repairedCities,
+    long conflictedCities,
+    ErrorResponse error) {
+}
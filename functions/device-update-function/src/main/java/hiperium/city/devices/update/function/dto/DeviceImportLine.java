@@ -0,0 +1,25 @@
+package hiperium.city.devices.update.function.dto;
+
+/**
+ * Represents a line read from a bulk import file. A line holds either the parsed and validated device,
+ * or the reason why it was rejected.
+ *
+ * @param lineNumber The number of the line in the import file, starting at 1.
+ * @param row        The parsed device, or null if the line was rejected.
+ * @param error      The reason why the line was rejected, or null if it is valid.
+ */
+public record DeviceImportLine(
+
+    long lineNumber,
+    DeviceImportRow row,
+    String error) {
+
+    /**
+     * Indicates whether the line holds a valid device.
+     *
+     * @return true if the line can be imported, false otherwise.
+     */
+    public boolean isValid() {
+        return this.error == null;
+    }
+}
@@ -0,0 +1,32 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.ValidId;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * The {@code DeviceImportRow} class represents a device read from a bulk import file.
+ * The device and city IDs follow the same rules as the ones of the {@link EventBridgeDetail} class.
+ */
+public record DeviceImportRow(
+
+    @NotEmpty(message = "Device ID cannot be empty.")
+    @NotBlank(message = "Device ID cannot be blank.")
+    @ValidId(message = "Device ID must have a valid format.")
+    String deviceId,
+
+    @NotEmpty(message = "City ID cannot be empty.")
+    @NotBlank(message = "City ID cannot be blank.")
+    @ValidId(message = "City ID must have a valid format.")
+    String cityId,
+
+    @NotBlank(message = "Device name cannot be blank.")
+    String name,
+
+    String description,
+
+    @NotNull(message = "Device status cannot be null.")
+    DeviceStatus status) {
+}
@@ -1,7 +1,7 @@
 package hiperium.city.devices.update.function.dto;
 
-import hiperium.cities.commons.annotations.ValidUUID;
 import hiperium.city.devices.update.function.commons.DeviceOperation;
+import hiperium.city.devices.update.function.commons.ValidId;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -14,12 +14,12 @@ public record EventBridgeDetail(
 
     @NotEmpty(message = "Device ID cannot be empty.")
     @NotBlank(message = "Device ID cannot be blank.")
-    @ValidUUID(message = "Device ID must have a valid format.")
+    @ValidId(message = "Device ID must have a valid format.")
     String deviceId,
 
     @NotEmpty(message = "City ID cannot be empty.")
     @NotBlank(message = "City ID cannot be blank.")
-    @ValidUUID(message = "City ID must have a valid format.")
+    @ValidId(message = "City ID must have a valid format.")
     String cityId,
 
     @NotNull(message = "Device operation cannot be null.")
@@ -0,0 +1,32 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.city.devices.update.function.commons.ValidId;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * The {@code HeartbeatRecord} class represents a heartbeat sent by a device. The device and city IDs follow the
+ * same rules as the ones of the {@link EventBridgeDetail} class.
+ *
+ * @param deviceId  The ID of the device.
+ * @param cityId    The ID of the city of the device.
+ * @param timestamp The time when the device sent the heartbeat, in milliseconds since the epoch.
+ */
+public record HeartbeatRecord(
+
+    @NotEmpty(message = "Device ID cannot be empty.")
+    @NotBlank(message = "Device ID cannot be blank.")
+    @ValidId(message = "Device ID must have a valid format.")
+    String deviceId,
+
+    @NotEmpty(message = "City ID cannot be empty.")
+    @NotBlank(message = "City ID cannot be blank.")
+    @ValidId(message = "City ID must have a valid format.")
+    String cityId,
+
+    @NotNull(message = "Heartbeat timestamp cannot be null.")
+    @Positive(message = "Heartbeat timestamp must be positive.")
+    Long timestamp) {
+}
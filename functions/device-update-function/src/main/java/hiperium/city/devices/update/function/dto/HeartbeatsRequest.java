@@ -0,0 +1,17 @@
+package hiperium.city.devices.update.function.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * The {@code HeartbeatsRequest} class represents a batch of heartbeats sent by the devices. The records are
+ * validated one by one, so an invalid record doesn't reject the whole batch.
+ *
+ * @param heartbeats The heartbeats of the batch, in any order.
+ */
+public record HeartbeatsRequest(
+
+    @NotNull(message = "Heartbeats cannot be null.")
+    List<HeartbeatRecord> heartbeats) {
+}
@@ -0,0 +1,41 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.cities.commons.dto.ErrorResponse;
+
+import java.util.List;
+
+/**
+ * Represents the report of a bulk device import.
+ *
+ * @param statusCode     The status code of the import.
+ * @param totalRows      The number of rows read from the import file.
+ * @param importedRows   The number of devices written to the Devices table.
+ * @param failedRows     The number of rows that were rejected or couldn't be written.
+ * @param elapsedMillis  The time spent importing the devices, in milliseconds.
+ * @param rowsPerSecond  The number of devices written per second.
+ * @param rowFailures    The first failed rows, up to the configured limit.
+ * @param error          The error response if the import couldn't be executed.
+ */
+public record ImportDevicesResponse(
+
+    Integer statusCode,
+    long totalRows,
+    long importedRows,
+    long failedRows,
+    long elapsedMillis,
+    double rowsPerSecond,
+    List<RowFailure> rowFailures,
+    ErrorResponse error) {
+
+    /**
+     * Represents a row of the import file that couldn't be imported.
+     *
+     * @param lineNumber The number of the line in the import file, starting at 1.
+     * @param reason     The reason why the row couldn't be imported.
+     */
+    public record RowFailure(
+
+        long lineNumber,
+        String reason) {
+    }
+}
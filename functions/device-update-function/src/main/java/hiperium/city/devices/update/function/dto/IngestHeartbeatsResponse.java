@@ -0,0 +1,40 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.cities.commons.dto.ErrorResponse;
+
+/**
+ * Represents the report of a batch of device heartbeats.
+ *
+ * @param statusCode       The status code of the ingestion.
+ * @param receivedRecords  The number of heartbeat records of the batch.
+ * @param invalidRecords   The number of records that were rejected, because they were invalid, too old, or too far
+ *                         in the future.
+ * @param devices          The number of devices of the valid records, after keeping the latest record of every
+ *                         device.
+ * @param skippedDevices   The number of devices whose last heartbeat was written recently enough, so nothing was
+ *                         written for them.
+ * @param writtenDevices   The number of devices whose heartbeat was sent to the Devices table.
+ * @param onlineDevices    The number of written devices that were offline, and were marked as online.
+ * @param failedDevices    The number of devices whose heartbeat couldn't be written.
+ * @param elapsedMillis    The time spent ingesting the batch, in milliseconds.
+ * @param recordsPerSecond The number of records received per second.
+ * @param writesPerSecond  The number of heartbeats written per second.
+ * @param coalescingRatio  The fraction of the valid records that didn't need a write of their own, from 0 to 1.
+ * @param error            The error response if the batch couldn't be ingested.
+ */
+public record IngestHeartbeatsResponse(
+
+    Integer statusCode,
+    long receivedRecords,
+    long invalidRecords,
+    long devices,
+    long skippedDevices,
+    long writtenDevices,
+    long onlineDevices,
+    long failedDevices,
+    long elapsedMillis,
+    double recordsPerSecond,
+    double writesPerSecond,
+    double coalescingRatio,
+    ErrorResponse error) {
+}
@@ -0,0 +1,47 @@
+package hiperium.city.devices.update.function.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * The KinesisCommandEvent class represents a batch of records received from the device commands Kinesis stream.
+ * Only the attributes required to apply the commands in order are deserialized.
+ *
+ * @see KinesisCommandRecord
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record KinesisCommandEvent(
+
+    @JsonProperty("Records")
+    List<KinesisCommandRecord> records) {
+
+    /**
+     * Represents a single record of the Kinesis stream.
+     *
+     * @param eventID The unique identifier of the stream record, made of the shard ID and the sequence number.
+     * @param kinesis The Kinesis data of the record.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record KinesisCommandRecord(
+
+        String eventID,
+        KinesisCommandData kinesis) {
+    }
+
+    /**
+     * Represents the Kinesis data of a stream record.
+     *
+     * @param partitionKey   The partition key of the record, which is the ID of the device of the command.
+     * @param sequenceNumber The sequence number of the record, unique within its shard.
+     * @param data           The command, encoded in Base64.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record KinesisCommandData(
+
+        String partitionKey,
+        String sequenceNumber,
+        String data) {
+    }
+}
@@ -0,0 +1,20 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.cities.commons.dto.ErrorResponse;
+
+/**
+ * Represents the report of a sweep of the silent devices.
+ *
+ * @param statusCode     The status code of the sweep.
+ * @param silentDevices  The number of online devices found without a heartbeat since the offline threshold.
+ * @param offlineDevices The number of silent devices marked as offline. The others sent a heartbeat after they
+ *                       were found.
+ * @param error          The error response if the sweep couldn't be executed.
+ */
+public record OfflineSweepResponse(
+
+    Integer statusCode,
+    long silentDevices,
+    long offlineDevices,
+    ErrorResponse error) {
+}
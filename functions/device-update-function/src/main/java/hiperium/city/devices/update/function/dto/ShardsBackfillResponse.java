@@ -0,0 +1,20 @@
+package hiperium.city.devices.update.function.dto;
+
+import hiperium.cities.commons.dto.ErrorResponse;
+
+/**
+ * Represents the report of a city shards backfill.
+ *
+ * @param statusCode        The status code of the backfill.
+ * @param scannedDevices    The number of devices found without a city shard.
+ * @param backfilledDevices The number of those devices whose city shard was written. The others were deleted or got
+ *                          their city shard from an update in the meantime.
+ * @param error             The error response if the backfill couldn't be completed.
+ */
+public record ShardsBackfillResponse(
+
+    Integer statusCode,
+    long scannedDevices,
+    long backfilledDevices,
+    ErrorResponse error) {
+}
@@ -0,0 +1,24 @@
+package hiperium.city.devices.update.function.dto;
+
+import java.util.List;
+
+/**
+ * Represents the partial batch response of a stream function. Lambda resumes the processing of the batch from
+ * the lowest sequence number reported as failed.
+ *
+ * @param batchItemFailures The records that couldn't be processed.
+ */
+public record StreamBatchResponse(
+
+    List<BatchItemFailure> batchItemFailures) {
+
+    /**
+     * Represents a record that couldn't be processed.
+     *
+     * @param itemIdentifier The sequence number of the failed record.
+     */
+    public record BatchItemFailure(
+
+        String itemIdentifier) {
+    }
+}
@@ -0,0 +1,17 @@
+package hiperium.city.devices.update.function.entities;
+
+import hiperium.city.devices.update.function.commons.CityStatus;
+
+/**
+ * Represents the subset of the City attributes required by the devices functions.
+ */
+public record City(
+
+    String id,
+    CityStatus status) {
+
+    public static final String TABLE_NAME = "Cities";
+
+    public static final String ID_COLUMN_NAME = "id";
+    public static final String STATUS_COLUMN_NAME = "status";
+}
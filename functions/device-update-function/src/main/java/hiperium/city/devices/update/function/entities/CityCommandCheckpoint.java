@@ -0,0 +1,38 @@
+package hiperium.city.devices.update.function.entities;
+
+/**
+ * Represents the progress of a city-wide status command. The checkpoint is saved after every page of devices,
+ * so a new delivery of the same command resumes from the last completed page. The items expire automatically
+ * through the table's time-to-live attribute.
+ *
+ * @param commandId     The ID of the event that carried the command.
+ * @param cityId        The ID of the city the command applies to.
+ * @param lastDeviceId  The ID of the last device of the last completed page, or null if no page was completed.
+ * @param updated       The number of devices whose status was changed.
+ * @param skipped       The number of devices that were already in the requested status.
+ * @param failed        The number of devices that couldn't be updated.
+ * @param completed     Whether all the devices of the city were processed.
+ * @param expiresAt     The expiration time of the checkpoint, in epoch seconds.
+ */
+public record CityCommandCheckpoint(
+
+    String commandId,
+    String cityId,
+    String lastDeviceId,
+    long updated,
+    long skipped,
+    long failed,
+    boolean completed,
+    Long expiresAt) {
+
+    public static final String TABLE_NAME = "DeviceCityCommands";
+
+    public static final String COMMAND_ID_COLUMN_NAME = "commandId";
+    public static final String CITY_ID_COLUMN_NAME = "cityId";
+    public static final String LAST_DEVICE_ID_COLUMN_NAME = "lastDeviceId";
+    public static final String UPDATED_COLUMN_NAME = "updated";
+    public static final String SKIPPED_COLUMN_NAME = "skipped";
+    public static final String FAILED_COLUMN_NAME = "failed";
+    public static final String COMPLETED_COLUMN_NAME = "completed";
+    public static final String EXPIRES_AT_COLUMN_NAME = "expiresAt";
+}
@@ -0,0 +1,54 @@
+package hiperium.city.devices.update.function.entities;
+
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+
+/**
+ * Represents the device counters of a city. The status counters are changed in the same transaction as the
+ * device status, or from the old devices returned by the writes of a bulk import, and the whole item is rebuilt
+ * from the Devices table by the counters repair job. Every status change also increases the changes counter, which
+ * never goes down, so the repair job can tell that the counters were changed even when the changes cancelled each
+ * other out.
+ *
+ * @param cityId  The ID of the city.
+ * @param total   The number of devices of the city.
+ * @param on      The number of devices of the city that are ON.
+ * @param off     The number of devices of the city that are OFF.
+ * @param changes The number of status changes applied to the counters, or zero if they were only rebuilt.
+ */
+public record CityDeviceCounters(
+
+    String cityId,
+    long total,
+    long on,
+    long off,
+    long changes) {
+
+    public static final String TABLE_NAME = "DeviceCityCounters";
+
+    public static final String CITY_ID_COLUMN_NAME = "cityId";
+    public static final String TOTAL_COLUMN_NAME = "total";
+    public static final String ON_COLUMN_NAME = "on";
+    public static final String OFF_COLUMN_NAME = "off";
+    public static final String CHANGES_COLUMN_NAME = "changes";
+    public static final String REPAIRED_AT_COLUMN_NAME = "repairedAt";
+
+    /**
+     * Returns the name of the attribute that counts the devices in the given status.
+     *
+     * @param deviceStatus The device status.
+     * @return The name of the counter attribute.
+     */
+    public static String columnNameOf(final DeviceStatus deviceStatus) {
+        return deviceStatus == DeviceStatus.ON ? ON_COLUMN_NAME : OFF_COLUMN_NAME;
+    }
+
+    /**
+     * Returns whether the given counters count the same devices, regardless of the changes applied to them.
+     *
+     * @param other The counters to compare with.
+     * @return true if both counters have the same total, ON and OFF values.
+     */
+    public boolean hasSameCountsAs(final CityDeviceCounters other) {
+        return this.total == other.total && this.on == other.on && this.off == other.off;
+    }
+}
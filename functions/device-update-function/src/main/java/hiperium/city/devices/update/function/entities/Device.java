@@ -9,11 +9,23 @@ public record Device(
 
     String id,
     String cityId,
-    DeviceStatus status) {
+    DeviceStatus status,
+    Long version) {
 
     public static final String TABLE_NAME = "Devices";
+    public static final String CITY_INDEX_NAME = "CityIdIndex";
+    public static final String CITY_SHARD_INDEX_NAME = "CityShardIndex";
 
     public static final String ID_COLUMN_NAME = "id";
+    public static final String NAME_COLUMN_NAME = "name";
     public static final String STATUS_COLUMN_NAME = "status";
     public static final String CITY_ID_COLUMN_NAME = "cityId";
+    public static final String DESCRIPTION_COLUMN_NAME = "description";
+    public static final String VERSION_COLUMN_NAME = "version";
+    public static final String CREATED_AT_COLUMN_NAME = "createdAt";
+    public static final String UPDATED_AT_COLUMN_NAME = "updatedAt";
+    public static final String CITY_SHARD_COLUMN_NAME = "cityShard";
+    public static final String LAST_EVENT_TIME_COLUMN_NAME = "lastEventTime";
+    public static final String LAST_SEEN_COLUMN_NAME = "lastSeen";
+    public static final String ONLINE_COLUMN_NAME = "online";
 }
@@ -0,0 +1,23 @@
+package hiperium.city.devices.update.function.entities;
+
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+
+/**
+ * Represents a device status transition recorded in the status history table for audit purposes.
+ */
+public record DeviceStatusTransition(
+
+    String deviceId,
+    String cityId,
+    DeviceStatus oldStatus,
+    DeviceStatus newStatus,
+    String changedAt) {
+
+    public static final String TABLE_NAME = "DeviceStatusHistory";
+
+    public static final String DEVICE_ID_COLUMN_NAME = "deviceId";
+    public static final String CHANGED_AT_COLUMN_NAME = "changedAt";
+    public static final String CITY_ID_COLUMN_NAME = "cityId";
+    public static final String OLD_STATUS_COLUMN_NAME = "oldStatus";
+    public static final String NEW_STATUS_COLUMN_NAME = "newStatus";
+}
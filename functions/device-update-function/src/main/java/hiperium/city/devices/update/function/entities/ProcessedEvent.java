@@ -0,0 +1,22 @@
+package hiperium.city.devices.update.function.entities;
+
+/**
+ * Represents an EventBridge event already claimed by a function invocation. An event in progress expires after a
+ * short lease, so a delivery that timed out or crashed doesn't block the retries, and a completed event expires
+ * after the idempotency window. The items expire automatically through the table's time-to-live attribute, so the
+ * table only keeps the recent event IDs.
+ */
+public record ProcessedEvent(
+
+    String eventId,
+    Long expiresAt) {
+
+    public static final String TABLE_NAME = "DeviceProcessedEvents";
+
+    public static final String EVENT_ID_COLUMN_NAME = "eventId";
+    public static final String STATUS_COLUMN_NAME = "status";
+    public static final String EXPIRES_AT_COLUMN_NAME = "expiresAt";
+
+    public static final String IN_PROGRESS_STATUS = "IN_PROGRESS";
+    public static final String COMPLETED_STATUS = "COMPLETED";
+}
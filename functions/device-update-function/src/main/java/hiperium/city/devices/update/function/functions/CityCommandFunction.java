@@ -0,0 +1,66 @@
+package hiperium.city.devices.update.function.functions;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.update.function.audit.StatusAuditSink;
+import hiperium.city.devices.update.function.dto.CityCommandResponse;
+import hiperium.city.devices.update.function.services.CityCommandService;
+import hiperium.city.devices.update.function.utils.FunctionUtils;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * The CityCommandFunction class represents a function that applies a device operation
+ * to all the devices of a city.
+ */
+public class CityCommandFunction implements Function<Message<byte[]>, Mono<CityCommandResponse>> {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CityCommandFunction.class);
+    private static final Duration AUDIT_FLUSH_TIMEOUT = Duration.ofSeconds(2);
+
+    private final CityCommandService cityCommandService;
+    private final StatusAuditSink statusAuditSink;
+
+    /**
+     * Constructor for the CityCommandFunction class.
+     *
+     * @param cityCommandService the CityCommandService instance used for applying the city-wide commands
+     * @param statusAuditSink    the StatusAuditSink instance flushed before the invocation ends
+     */
+    public CityCommandFunction(CityCommandService cityCommandService, StatusAuditSink statusAuditSink) {
+        this.cityCommandService = cityCommandService;
+        this.statusAuditSink = statusAuditSink;
+    }
+
+    /**
+     * Applies the city-wide status command.
+     *
+     * @param requestMessage the message containing the command payload as a byte array
+     * @return a Mono emitting the counts of updated, skipped and failed devices
+     */
+    @Override
+    public Mono<CityCommandResponse> apply(Message<byte[]> requestMessage) {
+        return Mono.fromCallable(() -> FunctionUtils.deserializeCityCommand(requestMessage))
+            .doOnNext(FunctionUtils::validateCityCommand)
+            .flatMap(this.cityCommandService::applyCityCommand)
+            .onErrorResume(throwable -> {
+                LOGGER.error("Couldn't apply the city command.", throwable.getMessage());
+                return Mono.just(throwable)
+                    .map(ExceptionHandlerUtil::generateErrorResponse)
+                    .map(errorResponse -> new CityCommandResponse(null, 0, 0, 0, errorResponse));
+            })
+            .flatMap(response -> this.flushAuditSink().thenReturn(response));
+    }
+
+    private Mono<Void> flushAuditSink() {
+        return this.statusAuditSink.flush()
+            .timeout(AUDIT_FLUSH_TIMEOUT)
+            .onErrorResume(exception -> {
+                LOGGER.error("Couldn't flush the status audit sink.", exception.getMessage());
+                return Mono.empty();
+            });
+    }
+}
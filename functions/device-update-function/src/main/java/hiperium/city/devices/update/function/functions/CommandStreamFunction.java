@@ -0,0 +1,65 @@
+package hiperium.city.devices.update.function.functions;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.audit.StatusAuditSink;
+import hiperium.city.devices.update.function.dto.StreamBatchResponse;
+import hiperium.city.devices.update.function.services.DeviceCommandStreamService;
+import hiperium.city.devices.update.function.utils.FunctionUtils;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * The CommandStreamFunction class represents a function that consumes the device commands Kinesis stream
+ * and applies the status commands of every device in the order of the stream.
+ */
+public class CommandStreamFunction implements Function<Message<byte[]>, Mono<StreamBatchResponse>> {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CommandStreamFunction.class);
+    private static final Duration AUDIT_FLUSH_TIMEOUT = Duration.ofSeconds(2);
+
+    private final DeviceCommandStreamService deviceCommandStreamService;
+    private final StatusAuditSink statusAuditSink;
+
+    /**
+     * Constructor for the CommandStreamFunction class.
+     *
+     * @param deviceCommandStreamService the DeviceCommandStreamService instance used for applying the commands
+     * @param statusAuditSink            the StatusAuditSink instance flushed before the invocation ends
+     */
+    public CommandStreamFunction(DeviceCommandStreamService deviceCommandStreamService,
+                                 StatusAuditSink statusAuditSink) {
+        this.deviceCommandStreamService = deviceCommandStreamService;
+        this.statusAuditSink = statusAuditSink;
+    }
+
+    /**
+     * Applies the stream batch and updates the device statuses.
+     *
+     * @param requestMessage the message containing the stream batch as a byte array
+     * @return a Mono emitting the partial batch response with the first record of every device that couldn't be
+     * applied. The Mono emits the error of the whole batch if it couldn't be processed, so Lambda retries every
+     * record of the batch instead of checkpointing past them.
+     */
+    @Override
+    public Mono<StreamBatchResponse> apply(Message<byte[]> requestMessage) {
+        return Mono.fromCallable(() -> FunctionUtils.deserializeKinesisEvent(requestMessage))
+            .flatMap(this.deviceCommandStreamService::applyCommands)
+            .onErrorResume(throwable -> {
+                LOGGER.error("Couldn't process the device commands stream batch.", throwable.getMessage());
+                return this.flushAuditSink().then(Mono.error(throwable));
+            })
+            .flatMap(response -> this.flushAuditSink().thenReturn(response));
+    }
+
+    private Mono<Void> flushAuditSink() {
+        return this.statusAuditSink.flush()
+            .timeout(AUDIT_FLUSH_TIMEOUT)
+            .onErrorResume(exception -> {
+                LOGGER.error("Couldn't flush the status audit sink.", exception.getMessage());
+                return Mono.empty();
+            });
+    }
+}
@@ -0,0 +1,47 @@
+package hiperium.city.devices.update.function.functions;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.update.function.dto.CountersRepairResponse;
+import hiperium.city.devices.update.function.services.CityCountersRepairService;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * The CountersRepairFunction class represents a function that rebuilds the device counters of the cities from the
+ * Devices table. It's triggered by a schedule, so the content of the request is ignored.
+ */
+public class CountersRepairFunction implements Function<Message<byte[]>, Mono<CountersRepairResponse>> {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CountersRepairFunction.class);
+
+    private final CityCountersRepairService cityCountersRepairService;
+
+    /**
+     * Constructor for the CountersRepairFunction class.
+     *
+     * @param cityCountersRepairService the CityCountersRepairService instance used for repairing the counters
+     */
+    public CountersRepairFunction(CityCountersRepairService cityCountersRepairService) {
+        this.cityCountersRepairService = cityCountersRepairService;
+    }
+
+    /**
+     * Repairs the device counters of all the cities.
+     *
+     * @param requestMessage the scheduled event message, which is ignored
+     * @return a Mono emitting the counts of checked, drifted, repaired and conflicted cities
+     */
+    @Override
+    public Mono<CountersRepairResponse> apply(Message<byte[]> requestMessage) {
+        return Mono.defer(this.cityCountersRepairService::repairCounters)
+            .onErrorResume(throwable -> {
+                LOGGER.error("Couldn't repair the city device counters.", throwable.getMessage());
+                return Mono.just(throwable)
+                    .map(ExceptionHandlerUtil::generateErrorResponse)
+                    .map(errorResponse -> new CountersRepairResponse(null, 0, 0, 0, 0, errorResponse));
+            });
+    }
+}
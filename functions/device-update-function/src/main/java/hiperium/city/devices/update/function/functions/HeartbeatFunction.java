@@ -0,0 +1,53 @@
+package hiperium.city.devices.update.function.functions;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.update.function.dto.HeartbeatsRequest;
+import hiperium.city.devices.update.function.dto.IngestHeartbeatsResponse;
+import hiperium.city.devices.update.function.services.HeartbeatService;
+import hiperium.city.devices.update.function.utils.FunctionUtils;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * The HeartbeatFunction class represents a function that receives a batch of device heartbeats and writes the
+ * latest heartbeat of every device to the Devices table.
+ */
+public class HeartbeatFunction implements Function<Message<byte[]>, Mono<IngestHeartbeatsResponse>> {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(HeartbeatFunction.class);
+
+    private final HeartbeatService heartbeatService;
+
+    /**
+     * Constructor for the HeartbeatFunction class.
+     *
+     * @param heartbeatService the HeartbeatService instance used for ingesting the heartbeats
+     */
+    public HeartbeatFunction(HeartbeatService heartbeatService) {
+        this.heartbeatService = heartbeatService;
+    }
+
+    /**
+     * Ingests the batch of device heartbeats.
+     *
+     * @param requestMessage the message containing the heartbeats batch as a byte array
+     * @return a Mono emitting the ingestion report, with the ingestion and write rates and the coalescing ratio
+     */
+    @Override
+    public Mono<IngestHeartbeatsResponse> apply(Message<byte[]> requestMessage) {
+        return Mono.fromCallable(() -> FunctionUtils.deserializeHeartbeats(requestMessage))
+            .doOnNext(FunctionUtils::validateHeartbeats)
+            .map(HeartbeatsRequest::heartbeats)
+            .flatMap(this.heartbeatService::ingestHeartbeats)
+            .onErrorResume(throwable -> {
+                LOGGER.error("Couldn't ingest the device heartbeats.", throwable.getMessage());
+                return Mono.just(throwable)
+                    .map(ExceptionHandlerUtil::generateErrorResponse)
+                    .map(errorResponse -> new IngestHeartbeatsResponse(null, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                        errorResponse));
+            });
+    }
+}
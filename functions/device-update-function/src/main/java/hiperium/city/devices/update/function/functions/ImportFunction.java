@@ -0,0 +1,49 @@
+package hiperium.city.devices.update.function.functions;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.update.function.dto.ImportDevicesResponse;
+import hiperium.city.devices.update.function.services.DeviceImportService;
+import hiperium.city.devices.update.function.utils.DeviceImportReader;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The ImportFunction class represents a function that reads a bulk import file of devices,
+ * in the NDJSON or CSV format, and writes the devices to the Devices table.
+ */
+public class ImportFunction implements Function<Message<byte[]>, Mono<ImportDevicesResponse>> {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(ImportFunction.class);
+
+    private final DeviceImportService deviceImportService;
+
+    /**
+     * Constructor for the ImportFunction class.
+     *
+     * @param deviceImportService the DeviceImportService instance used for importing the devices
+     */
+    public ImportFunction(DeviceImportService deviceImportService) {
+        this.deviceImportService = deviceImportService;
+    }
+
+    /**
+     * Applies the import file and writes its devices.
+     *
+     * @param requestMessage the message containing the import file as a byte array
+     * @return a Mono emitting the import report, with the throughput and the rows that couldn't be imported
+     */
+    @Override
+    public Mono<ImportDevicesResponse> apply(Message<byte[]> requestMessage) {
+        return this.deviceImportService.importDevices(DeviceImportReader.read(requestMessage))
+            .onErrorResume(throwable -> {
+                LOGGER.error("Couldn't import the devices.", throwable.getMessage());
+                return Mono.just(throwable)
+                    .map(ExceptionHandlerUtil::generateErrorResponse)
+                    .map(errorResponse -> new ImportDevicesResponse(null, 0, 0, 0, 0, 0, List.of(), errorResponse));
+            });
+    }
+}
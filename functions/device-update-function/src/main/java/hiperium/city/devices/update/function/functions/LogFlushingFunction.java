@@ -0,0 +1,50 @@
+package hiperium.city.devices.update.function.functions;
+
+import hiperium.city.devices.update.function.commons.BatchingLogAppender;
+import org.springframework.messaging.Message;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * The LogFlushingFunction class decorates a function to write the batched log events before its result is
+ * returned, so no event is lost when the Lambda runtime freezes the environment after the invocation.
+ *
+ * <p>
+ * The flush is skipped when no {@link BatchingLogAppender} is started. The already resolved results are returned
+ * as they are, after flushing the events in place.
+ * </p>
+ *
+ * @param <T> The type of the function result.
+ */
+public class LogFlushingFunction<T> implements Function<Message<byte[]>, Mono<T>> {
+
+    private static final Duration LOG_FLUSH_TIMEOUT = Duration.ofSeconds(1);
+
+    private final Function<Message<byte[]>, Mono<T>> delegate;
+
+    /**
+     * Constructor for the LogFlushingFunction class.
+     *
+     * @param delegate the function whose log events are flushed before its result is returned
+     */
+    public LogFlushingFunction(Function<Message<byte[]>, Mono<T>> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Mono<T> apply(Message<byte[]> requestMessage) {
+        Mono<T> result = this.delegate.apply(requestMessage);
+        if (!BatchingLogAppender.isAnyActive()) {
+            return result;
+        }
+        if (result instanceof Fuseable.ScalarCallable<?>) {
+            BatchingLogAppender.flushAll(LOG_FLUSH_TIMEOUT);
+            return result;
+        }
+        // The flush runs before the result signal reaches the runtime that completes the invocation.
+        return result.doOnTerminate(() -> BatchingLogAppender.flushAll(LOG_FLUSH_TIMEOUT));
+    }
+}
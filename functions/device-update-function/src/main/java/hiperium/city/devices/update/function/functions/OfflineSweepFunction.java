@@ -0,0 +1,47 @@
+package hiperium.city.devices.update.function.functions;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.update.function.dto.OfflineSweepResponse;
+import hiperium.city.devices.update.function.services.HeartbeatService;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * The OfflineSweepFunction class represents a function that marks as offline the devices without a recent
+ * heartbeat. It's triggered by a schedule, so the content of the request is ignored.
+ */
+public class OfflineSweepFunction implements Function<Message<byte[]>, Mono<OfflineSweepResponse>> {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(OfflineSweepFunction.class);
+
+    private final HeartbeatService heartbeatService;
+
+    /**
+     * Constructor for the OfflineSweepFunction class.
+     *
+     * @param heartbeatService the HeartbeatService instance used for sweeping the silent devices
+     */
+    public OfflineSweepFunction(HeartbeatService heartbeatService) {
+        this.heartbeatService = heartbeatService;
+    }
+
+    /**
+     * Marks the silent devices as offline.
+     *
+     * @param requestMessage the scheduled event message, which is ignored
+     * @return a Mono emitting the counts of silent devices and of devices marked as offline
+     */
+    @Override
+    public Mono<OfflineSweepResponse> apply(Message<byte[]> requestMessage) {
+        return this.heartbeatService.sweepOfflineDevices()
+            .onErrorResume(throwable -> {
+                LOGGER.error("Couldn't sweep the silent devices.", throwable.getMessage());
+                return Mono.just(throwable)
+                    .map(ExceptionHandlerUtil::generateErrorResponse)
+                    .map(errorResponse -> new OfflineSweepResponse(null, 0, 0, errorResponse));
+            });
+    }
+}
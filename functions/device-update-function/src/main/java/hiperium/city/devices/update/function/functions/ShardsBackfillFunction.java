@@ -0,0 +1,48 @@
+package hiperium.city.devices.update.function.functions;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.update.function.dto.ShardsBackfillResponse;
+import hiperium.city.devices.update.function.services.CityShardsBackfillService;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * The ShardsBackfillFunction class represents a function that writes the city shard of the devices written before
+ * sharding was enabled. It's invoked once before switching the city reads to the sharded index, so the content of
+ * the request is ignored.
+ */
+public class ShardsBackfillFunction implements Function<Message<byte[]>, Mono<ShardsBackfillResponse>> {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(ShardsBackfillFunction.class);
+
+    private final CityShardsBackfillService cityShardsBackfillService;
+
+    /**
+     * Constructor for the ShardsBackfillFunction class.
+     *
+     * @param cityShardsBackfillService the CityShardsBackfillService instance used for backfilling the city shards
+     */
+    public ShardsBackfillFunction(CityShardsBackfillService cityShardsBackfillService) {
+        this.cityShardsBackfillService = cityShardsBackfillService;
+    }
+
+    /**
+     * Backfills the city shards of all the devices.
+     *
+     * @param requestMessage the invocation message, which is ignored
+     * @return a Mono emitting the counts of scanned and backfilled devices
+     */
+    @Override
+    public Mono<ShardsBackfillResponse> apply(Message<byte[]> requestMessage) {
+        return Mono.defer(this.cityShardsBackfillService::backfillShards)
+            .onErrorResume(throwable -> {
+                LOGGER.error("Couldn't backfill the city shards.", throwable.getMessage());
+                return Mono.just(throwable)
+                    .map(ExceptionHandlerUtil::generateErrorResponse)
+                    .map(errorResponse -> new ShardsBackfillResponse(null, 0, 0, errorResponse));
+            });
+    }
+}
@@ -1,12 +1,19 @@
 package hiperium.city.devices.update.function.functions;
 
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.audit.StatusAuditSink;
+import hiperium.city.devices.update.function.commons.DeviceUpdateResult;
+import hiperium.city.devices.update.function.dto.EventBridgeRequest;
 import hiperium.city.devices.update.function.dto.UpdateDeviceResponse;
 import hiperium.city.devices.update.function.services.DevicesService;
 import hiperium.city.devices.update.function.utils.FunctionUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.Message;
+import reactor.core.Fuseable;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Objects;
 import java.util.function.Function;
 
 /**
@@ -15,36 +22,70 @@ import java.util.function.Function;
  */
 public class UpdateFunction implements Function<Message<byte[]>, Mono<UpdateDeviceResponse>> {
 
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(UpdateFunction.class);
+    private static final Duration AUDIT_FLUSH_TIMEOUT = Duration.ofSeconds(2);
+
     private final DevicesService devicesService;
+    private final StatusAuditSink statusAuditSink;
 
     /**
      * Constructor for the UpdateFunction class.
      *
-     * @param devicesService the DevicesService instance used for updating device status
+     * @param devicesService  the DevicesService instance used for updating device status
+     * @param statusAuditSink the StatusAuditSink instance flushed before the invocation ends
      */
-    public UpdateFunction(DevicesService devicesService) {
+    public UpdateFunction(DevicesService devicesService, StatusAuditSink statusAuditSink) {
         this.devicesService = devicesService;
+        this.statusAuditSink = statusAuditSink;
     }
 
     /**
-     * Applies the device update request and updates the device status.
+     * Applies the device update request and updates the device status. The invalid requests, and the requests
+     * rejected synchronously before writing anything, are answered with an already resolved Mono, without the
+     * operators chain of the update nor the audit sink flush.
      *
      * @param requestMessage the message containing the request payload as a byte array
      * @return a Mono emitting the UpdateDeviceResponse object representing the result of the operation
      */
     @Override
     public Mono<UpdateDeviceResponse> apply(Message<byte[]> requestMessage) {
-        return Mono.fromCallable(() -> FunctionUtils.deserializeRequest(requestMessage))
-            .doOnNext(FunctionUtils::validateRequest)
-            .flatMap(this.devicesService::updateDeviceStatus)
-            .then(this.createResponse())
-            .onErrorResume(FunctionUtils::handleRuntimeException);
+        final Mono<DeviceUpdateResult> updateResult;
+        try {
+            EventBridgeRequest eventBridgeRequest = FunctionUtils.deserializeRequest(requestMessage);
+            FunctionUtils.validateRequest(eventBridgeRequest);
+            updateResult = this.devicesService.updateDeviceStatus(eventBridgeRequest);
+            if (updateResult instanceof Fuseable.ScalarCallable<?> resolvedResult) {
+                DeviceUpdateResult resolvedUpdateResult = (DeviceUpdateResult) resolvedResult.call();
+                return Objects.isNull(resolvedUpdateResult) ? Mono.empty()
+                    : Mono.just(createResponse(resolvedUpdateResult));
+            }
+        } catch (Exception exception) {
+            return FunctionUtils.handleRuntimeException(exception);
+        }
+        return updateResult
+            .map(UpdateFunction::createResponse)
+            .onErrorResume(FunctionUtils::handleRuntimeException)
+            .flatMap(response -> this.flushAuditSink().thenReturn(response));
+    }
+
+    private Mono<Void> flushAuditSink() {
+        return this.statusAuditSink.flush()
+            .timeout(AUDIT_FLUSH_TIMEOUT)
+            .onErrorResume(exception -> {
+                LOGGER.error("Couldn't flush the status audit sink.", exception.getMessage());
+                return Mono.empty();
+            });
     }
 
-    private Mono<UpdateDeviceResponse> createResponse() {
-        return Mono.fromSupplier(() -> new UpdateDeviceResponse.Builder()
+    private static UpdateDeviceResponse createResponse(final DeviceUpdateResult updateResult) {
+        return new UpdateDeviceResponse.Builder()
             .statusCode(HttpStatus.OK.value())
-            .body("Device status updated successfully.")
-            .build());
+            .body(switch (updateResult) {
+                case UPDATED -> "Device status updated successfully.";
+                case UNCHANGED -> "Device status unchanged.";
+                case DUPLICATED -> "Duplicated device status update ignored.";
+                case STALE -> "Stale device status update ignored.";
+            })
+            .build();
     }
 }
@@ -1,15 +1,20 @@
 package hiperium.city.devices.update.function.mapper;
 
 import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.DeviceOperation;
 import hiperium.city.devices.update.function.commons.DeviceStatus;
 import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.utils.LogArguments;
 import org.mapstruct.AfterMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * The DeviceMapper interface is responsible for mapping device data between different representations.
@@ -30,6 +35,7 @@ public interface DeviceMapper {
     @Mapping(target = "id",     expression = "java(getStringValueFromAttributesMap(itemAttributesMap, Device.ID_COLUMN_NAME))")
     @Mapping(target = "cityId", expression = "java(getStringValueFromAttributesMap(itemAttributesMap, Device.CITY_ID_COLUMN_NAME))")
     @Mapping(target = "status", expression = "java(getDeviceStatusEnumFromAttributesMap(itemAttributesMap))")
+    @Mapping(target = "version", expression = "java(getLongValueFromAttributesMap(itemAttributesMap, Device.VERSION_COLUMN_NAME))")
     Device mapToDevice(Map<String, AttributeValue> itemAttributesMap);
 
     /**
@@ -43,6 +49,17 @@ public interface DeviceMapper {
         return attributesMap.containsKey(key) ? attributesMap.get(key).s() : null;
     }
 
+    /**
+     * Retrieves the numeric value associated with the specified key from the given attributes map.
+     *
+     * @param attributesMap the map containing the attribute values
+     * @param key           the key of the desired value
+     * @return the numeric value associated with the key if it exists, or null if the key is not present in the map
+     */
+    default Long getLongValueFromAttributesMap(Map<String, AttributeValue> attributesMap, String key) {
+        return attributesMap.containsKey(key) ? Long.valueOf(attributesMap.get(key).n()) : null;
+    }
+
     /**
      * Retrieves the DeviceStatus enum value from the given attributes map.
      *
@@ -53,6 +70,35 @@ public interface DeviceMapper {
         return DeviceStatus.valueOf(this.getStringValueFromAttributesMap(itemAttributesMap, Device.STATUS_COLUMN_NAME));
     }
 
+    /**
+     * Converts a device operation to the device status it results in.
+     *
+     * @param deviceOperation The device operation to convert.
+     * @return The device status that the operation results in.
+     */
+    default DeviceStatus mapToDeviceStatus(DeviceOperation deviceOperation) {
+        return deviceOperation == DeviceOperation.ACTIVATE ? DeviceStatus.ON : DeviceStatus.OFF;
+    }
+
+    /**
+     * Converts the ISO-8601 time of an EventBridge event to epoch milliseconds, so the events of a device can be
+     * ordered by the time they were emitted.
+     *
+     * @param time The time of the event.
+     * @return The time in epoch milliseconds, or null if the time is missing or isn't a valid ISO-8601 instant.
+     */
+    default Long mapToEventTime(String time) {
+        if (Objects.isNull(time)) {
+            return null;
+        }
+        try {
+            return Instant.parse(time).toEpochMilli();
+        } catch (DateTimeParseException exception) {
+            LOGGER.debug("Couldn't parse the event time. The update won't be ordered.", LogArguments.truncate(time));
+            return null;
+        }
+    }
+
     /**
      * Performs operations after mapping from source to a target object in the {@link DeviceMapper} class.
      *
@@ -61,6 +107,6 @@ public interface DeviceMapper {
      */
     @AfterMapping
     default void afterMapToDevice(@MappingTarget Device device, Map<String, AttributeValue> itemAttributesMap) {
-        LOGGER.debug("Mapped device", device);
+        LOGGER.debug("Mapped device", LogArguments.lazy(device::toString));
     }
 }
@@ -0,0 +1,70 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.CityStatus;
+import hiperium.city.devices.update.function.entities.City;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The CitiesRepository class is responsible for retrieving the status of the Cities from the DynamoDB table.
+ *
+ * @apiNote The Cities table is owned by the cities module. This repository only reads the
+ * ID and status attributes, so the scan uses a projection expression to reduce the consumed capacity.
+ */
+@Repository
+public class CitiesRepository {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CitiesRepository.class);
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    /**
+     * The CitiesRepository class represents a repository for reading city data from a DynamoDB database.
+     *
+     * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
+     */
+    public CitiesRepository(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    /**
+     * Retrieves the status of all the cities asynchronously, following the scan pagination until the last page.
+     *
+     * @return A CompletableFuture that completes with a Map of city IDs and their statuses.
+     * @throws CityException if an error occurs while scanning the cities.
+     */
+    public CompletableFuture<Map<String, CityStatus>> findAllStatusesAsync() {
+        ScanRequest scanRequest = ScanRequest.builder()
+            .tableName(City.TABLE_NAME)
+            .projectionExpression("#id, #status")
+            .expressionAttributeNames(Map.of("#id", City.ID_COLUMN_NAME, "#status", City.STATUS_COLUMN_NAME))
+            .build();
+
+        Map<String, CityStatus> cityStatuses = new HashMap<>();
+        return this.dynamoDbAsyncClient.scanPaginator(scanRequest)
+            .items()
+            .subscribe(item -> this.putCityStatus(cityStatuses, item))
+            .thenApply(unused -> cityStatuses)
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to scan the Cities status.", exception.getMessage());
+                throw new CityException("Error when trying to scan the Cities status.");
+            });
+    }
+
+    private void putCityStatus(Map<String, CityStatus> cityStatuses, Map<String, AttributeValue> item) {
+        AttributeValue id = item.get(City.ID_COLUMN_NAME);
+        AttributeValue status = item.get(City.STATUS_COLUMN_NAME);
+        if (id == null || status == null) {
+            return;
+        }
+        cityStatuses.put(id.s(), CityStatus.valueOf(status.s()));
+    }
+}
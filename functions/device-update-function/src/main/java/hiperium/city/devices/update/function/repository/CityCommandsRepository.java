@@ -0,0 +1,106 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.entities.CityCommandCheckpoint;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The CityCommandsRepository class is responsible for reading and saving the checkpoints of the city-wide status
+ * commands in the DynamoDB table.
+ */
+@Repository
+public class CityCommandsRepository {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CityCommandsRepository.class);
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    /**
+     * The CityCommandsRepository class represents a repository for the city command checkpoints table.
+     *
+     * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
+     */
+    public CityCommandsRepository(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    /**
+     * Retrieves the checkpoint of a city command with a strongly consistent read, so the last saved page is seen
+     * by a delivery that resumes the command right after a timeout.
+     *
+     * @param commandId The ID of the command.
+     * @return A CompletableFuture that completes with the checkpoint, or with null if the command has no checkpoint.
+     * @throws CityException if an error occurs while reading the item.
+     */
+    public CompletableFuture<CityCommandCheckpoint> findByIdAsync(final String commandId) {
+        GetItemRequest getItemRequest = GetItemRequest.builder()
+            .tableName(CityCommandCheckpoint.TABLE_NAME)
+            .key(Map.of(CityCommandCheckpoint.COMMAND_ID_COLUMN_NAME, AttributeValue.fromS(commandId)))
+            .consistentRead(true)
+            .build();
+
+        return this.dynamoDbAsyncClient.getItem(getItemRequest)
+            .thenApply(response -> response.hasItem() ? mapToCheckpoint(response.item()) : null)
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to find the city command checkpoint.", exception.getMessage(),
+                    commandId);
+                throw new CityException("Error when trying to find the city command checkpoint.");
+            });
+    }
+
+    /**
+     * Saves the checkpoint of a city command, replacing the previous one.
+     *
+     * @param checkpoint The checkpoint to save.
+     * @return A CompletableFuture that completes when the item is written.
+     * @throws CityException if an error occurs while writing the item.
+     */
+    public CompletableFuture<Void> saveAsync(final CityCommandCheckpoint checkpoint) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(CityCommandCheckpoint.COMMAND_ID_COLUMN_NAME, AttributeValue.fromS(checkpoint.commandId()));
+        item.put(CityCommandCheckpoint.CITY_ID_COLUMN_NAME, AttributeValue.fromS(checkpoint.cityId()));
+        if (Objects.nonNull(checkpoint.lastDeviceId())) {
+            item.put(CityCommandCheckpoint.LAST_DEVICE_ID_COLUMN_NAME, AttributeValue.fromS(checkpoint.lastDeviceId()));
+        }
+        item.put(CityCommandCheckpoint.UPDATED_COLUMN_NAME, AttributeValue.fromN(Long.toString(checkpoint.updated())));
+        item.put(CityCommandCheckpoint.SKIPPED_COLUMN_NAME, AttributeValue.fromN(Long.toString(checkpoint.skipped())));
+        item.put(CityCommandCheckpoint.FAILED_COLUMN_NAME, AttributeValue.fromN(Long.toString(checkpoint.failed())));
+        item.put(CityCommandCheckpoint.COMPLETED_COLUMN_NAME, AttributeValue.fromBool(checkpoint.completed()));
+        item.put(CityCommandCheckpoint.EXPIRES_AT_COLUMN_NAME, AttributeValue.fromN(checkpoint.expiresAt().toString()));
+        PutItemRequest putItemRequest = PutItemRequest.builder()
+            .tableName(CityCommandCheckpoint.TABLE_NAME)
+            .item(item)
+            .build();
+
+        return this.dynamoDbAsyncClient.putItem(putItemRequest)
+            .<Void>thenApply(response -> null)
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to save the city command checkpoint.", exception.getMessage(),
+                    checkpoint);
+                throw new CityException("Error when trying to save the city command checkpoint.");
+            });
+    }
+
+    private static CityCommandCheckpoint mapToCheckpoint(final Map<String, AttributeValue> item) {
+        AttributeValue lastDeviceId = item.get(CityCommandCheckpoint.LAST_DEVICE_ID_COLUMN_NAME);
+        return new CityCommandCheckpoint(
+            item.get(CityCommandCheckpoint.COMMAND_ID_COLUMN_NAME).s(),
+            item.get(CityCommandCheckpoint.CITY_ID_COLUMN_NAME).s(),
+            Objects.isNull(lastDeviceId) ? null : lastDeviceId.s(),
+            Long.parseLong(item.get(CityCommandCheckpoint.UPDATED_COLUMN_NAME).n()),
+            Long.parseLong(item.get(CityCommandCheckpoint.SKIPPED_COLUMN_NAME).n()),
+            Long.parseLong(item.get(CityCommandCheckpoint.FAILED_COLUMN_NAME).n()),
+            item.get(CityCommandCheckpoint.COMPLETED_COLUMN_NAME).bool(),
+            Long.parseLong(item.get(CityCommandCheckpoint.EXPIRES_AT_COLUMN_NAME).n()));
+    }
+}
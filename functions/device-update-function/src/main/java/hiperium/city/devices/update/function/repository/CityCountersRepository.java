@@ -0,0 +1,149 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.entities.CityDeviceCounters;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The CityCountersRepository class is responsible for reading and rebuilding the device counters of the cities in
+ * the DynamoDB table. The counters are changed with every device status change by the {@link DevicesRepository},
+ * in the same transaction, and after every chunk of a bulk import, when the {@code hiperium.devices.counters.enabled}
+ * property is true.
+ */
+@Repository
+public class CityCountersRepository {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CityCountersRepository.class);
+
+    private final boolean enabled;
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    /**
+     * The CityCountersRepository class represents a repository for the city device counters table.
+     *
+     * @param environment         The environment used to read the counters properties.
+     * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
+     */
+    public CityCountersRepository(Environment environment, DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.enabled = environment.getProperty("hiperium.devices.counters.enabled", Boolean.class, false);
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    /**
+     * Returns whether the device status changes also change the counters of their city.
+     *
+     * @return true if the counters are maintained with every status change.
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Retrieves the counters of all the cities with a strongly consistent scan, following the scan pagination until
+     * the last page. The counters that weren't set yet are read as zero.
+     *
+     * @return A CompletableFuture that completes with a Map of city IDs and their counters.
+     * @throws CityException if an error occurs while scanning the counters.
+     */
+    public CompletableFuture<Map<String, CityDeviceCounters>> findAllAsync() {
+        ScanRequest scanRequest = ScanRequest.builder()
+            .tableName(CityDeviceCounters.TABLE_NAME)
+            .consistentRead(true)
+            .build();
+
+        Map<String, CityDeviceCounters> cityCounters = new HashMap<>();
+        return this.dynamoDbAsyncClient.scanPaginator(scanRequest)
+            .items()
+            .subscribe(item -> {
+                CityDeviceCounters counters = mapToCounters(item);
+                cityCounters.put(counters.cityId(), counters);
+            })
+            .thenApply(unused -> cityCounters)
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to scan the city device counters.", exception.getMessage());
+                throw new CityException("Error when trying to scan the city device counters.");
+            });
+    }
+
+    /**
+     * Replaces the counters of a city with the rebuilt ones, with a conditional put that only succeeds if the
+     * changes counter still has the value read before rebuilding them. Every status change increases that counter,
+     * so the status changes applied while the counters were rebuilt are never overwritten, even when they cancelled
+     * each other out. The changes counter is kept, so it never goes back to a value already read.
+     *
+     * @param rebuiltCounters The counters rebuilt from the Devices table.
+     * @param liveCounters    The counters read before rebuilding them, or null if the city had no counters.
+     * @return A CompletableFuture that completes with true if the counters were replaced, or false if they were
+     * changed in the meantime.
+     * @throws CityException if an error occurs while writing the item.
+     */
+    public CompletableFuture<Boolean> replaceIfUnchangedAsync(final CityDeviceCounters rebuiltCounters,
+                                                              final CityDeviceCounters liveCounters) {
+        Map<String, AttributeValue> item = new HashMap<>(Map.of(
+            CityDeviceCounters.CITY_ID_COLUMN_NAME, AttributeValue.fromS(rebuiltCounters.cityId()),
+            CityDeviceCounters.TOTAL_COLUMN_NAME, AttributeValue.fromN(Long.toString(rebuiltCounters.total())),
+            CityDeviceCounters.ON_COLUMN_NAME, AttributeValue.fromN(Long.toString(rebuiltCounters.on())),
+            CityDeviceCounters.OFF_COLUMN_NAME, AttributeValue.fromN(Long.toString(rebuiltCounters.off())),
+            CityDeviceCounters.REPAIRED_AT_COLUMN_NAME, AttributeValue.fromS(Instant.now().toString())));
+        PutItemRequest.Builder putItemRequest = PutItemRequest.builder()
+            .tableName(CityDeviceCounters.TABLE_NAME);
+        if (Objects.isNull(liveCounters)) {
+            putItemRequest
+                .conditionExpression("attribute_not_exists(#cityId)")
+                .expressionAttributeNames(Map.of("#cityId", CityDeviceCounters.CITY_ID_COLUMN_NAME));
+        } else if (liveCounters.changes() == 0) {
+            putItemRequest
+                .conditionExpression("attribute_exists(#cityId) AND attribute_not_exists(#changes)")
+                .expressionAttributeNames(Map.of(
+                    "#cityId", CityDeviceCounters.CITY_ID_COLUMN_NAME,
+                    "#changes", CityDeviceCounters.CHANGES_COLUMN_NAME));
+        } else {
+            AttributeValue liveChanges = AttributeValue.fromN(Long.toString(liveCounters.changes()));
+            item.put(CityDeviceCounters.CHANGES_COLUMN_NAME, liveChanges);
+            putItemRequest
+                .conditionExpression("#changes = :live_changes")
+                .expressionAttributeNames(Map.of("#changes", CityDeviceCounters.CHANGES_COLUMN_NAME))
+                .expressionAttributeValues(Map.of(":live_changes", liveChanges));
+        }
+
+        return this.dynamoDbAsyncClient.putItem(putItemRequest.item(item).build())
+            .thenApply(response -> Boolean.TRUE)
+            .exceptionally(exception -> {
+                Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+                if (cause instanceof ConditionalCheckFailedException) {
+                    return Boolean.FALSE;
+                }
+                LOGGER.error("Error when trying to replace the city device counters.", cause.getMessage(),
+                    rebuiltCounters);
+                throw new CityException("Error when trying to replace the city device counters.");
+            });
+    }
+
+    private static CityDeviceCounters mapToCounters(final Map<String, AttributeValue> item) {
+        return new CityDeviceCounters(
+            item.get(CityDeviceCounters.CITY_ID_COLUMN_NAME).s(),
+            getLongValue(item, CityDeviceCounters.TOTAL_COLUMN_NAME),
+            getLongValue(item, CityDeviceCounters.ON_COLUMN_NAME),
+            getLongValue(item, CityDeviceCounters.OFF_COLUMN_NAME),
+            getLongValue(item, CityDeviceCounters.CHANGES_COLUMN_NAME));
+    }
+
+    private static long getLongValue(final Map<String, AttributeValue> item, final String columnName) {
+        AttributeValue value = item.get(columnName);
+        return Objects.isNull(value) ? 0L : Long.parseLong(value.n());
+    }
+}
@@ -0,0 +1,90 @@
+package hiperium.city.devices.update.function.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The CityShards class computes the write shards of the devices of a city.
+ *
+ * <p>
+ * The city index has the city ID as its partition key, so all the devices of a city are written to the same index
+ * partition, and the city-wide commands of a big city make that partition hot. When sharding is enabled, every device
+ * also holds a {@code cityShard} attribute, made of the city ID and a shard number derived from the device ID, which
+ * is the partition key of the sharded city index. The writes of a city are then spread across the configured number
+ * of index partitions, and once the shards are backfilled, the reads of a city query every shard and merge the
+ * results.
+ * </p>
+ *
+ * @apiNote The shard number only depends on the device ID, so a device is always written to the same shard. The
+ * devices written before sharding was enabled don't have the attribute until their next update, or until the shards
+ * backfill writes it, so the reads keep using the city index until the backfill is done.
+ */
+public class CityShards {
+
+    private static final char SHARD_SEPARATOR = '#';
+
+    private final int shardCount;
+    private final boolean backfilled;
+
+    /**
+     * Creates the city shards.
+     *
+     * @param shardCount The number of shards of every city. Sharding is disabled when it's lower than 2.
+     * @param backfilled Whether every device of the table already holds its city shard.
+     */
+    public CityShards(int shardCount, boolean backfilled) {
+        this.shardCount = shardCount;
+        this.backfilled = backfilled;
+    }
+
+    /**
+     * Returns whether the devices are written with a city shard.
+     *
+     * @return true if sharding is enabled.
+     */
+    public boolean isEnabled() {
+        return this.shardCount > 1;
+    }
+
+    /**
+     * Returns whether the devices of a city are read from the sharded city index. Until the shards are backfilled,
+     * the devices written before sharding was enabled are only found in the city index, so it's read instead.
+     *
+     * @return true if sharding is enabled and every device holds its city shard.
+     */
+    public boolean isReadSharded() {
+        return this.isEnabled() && this.backfilled;
+    }
+
+    /**
+     * Returns the city shard of a device.
+     *
+     * @param cityId   The ID of the city.
+     * @param deviceId The ID of the device.
+     * @return The city shard of the device, or null if sharding is disabled.
+     */
+    public String shardOf(final String cityId, final String deviceId) {
+        if (!this.isEnabled() || Objects.isNull(cityId) || Objects.isNull(deviceId)) {
+            return null;
+        }
+        return cityId + SHARD_SEPARATOR + Math.floorMod(deviceId.hashCode(), this.shardCount);
+    }
+
+    /**
+     * Returns all the shards of a city, which must be queried to read all its devices.
+     *
+     * @param cityId The ID of the city.
+     * @return The city shards, or an empty list if sharding is disabled.
+     */
+    public List<String> shardsOf(final String cityId) {
+        if (!this.isEnabled()) {
+            return List.of();
+        }
+        List<String> cityShards = new ArrayList<>(this.shardCount);
+        for (int shard = 0; shard < this.shardCount; shard++) {
+            cityShards.add(cityId + SHARD_SEPARATOR + shard);
+        }
+        return cityShards;
+    }
+}
@@ -0,0 +1,172 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.HeartbeatResult;
+import hiperium.city.devices.update.function.entities.Device;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The DeviceHeartbeatsRepository class is responsible for writing the last heartbeat of the devices, and for marking
+ * the silent devices as offline, in the Devices table.
+ *
+ * <p>
+ * A heartbeat of an online device only refreshes its {@code lastSeen} attribute, so it doesn't change the version
+ * of the device, and the Devices table stream doesn't publish it. Only when the device was offline, or silent for
+ * longer than the offline threshold, the heartbeat also sets the {@code online} attribute and increases the version.
+ * Like the bulk writes, the heartbeat writes don't go through the circuit breaker, and their throttling errors are
+ * returned as they are, so the caller can slow down and retry them.
+ * </p>
+ */
+@Repository
+public class DeviceHeartbeatsRepository {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DeviceHeartbeatsRepository.class);
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    /**
+     * The DeviceHeartbeatsRepository class represents a repository for the heartbeats of the devices.
+     *
+     * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
+     */
+    public DeviceHeartbeatsRepository(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    /**
+     * Writes the last heartbeat of a device. The last seen time of an online device is refreshed with a conditional
+     * update, which fails if the device is offline or was silent since the online cutoff. In that case, the device
+     * is marked as online with a second conditional update, and only if no later heartbeat was written meanwhile.
+     *
+     * @param deviceId     The ID of the device.
+     * @param cityId       The ID of the city of the device.
+     * @param lastSeen     The time of the last heartbeat of the device, in milliseconds since the epoch.
+     * @param onlineCutoff The time before which a silent device is considered offline, in milliseconds since the
+     *                     epoch.
+     * @return A CompletableFuture that completes with the result of the write, or completes exceptionally if the
+     * write failed.
+     */
+    public CompletableFuture<HeartbeatResult> recordHeartbeatAsync(final String deviceId, final String cityId,
+                                                                   final long lastSeen, final long onlineCutoff) {
+        return this.dynamoDbAsyncClient.updateItem(
+                DevicesRequestTemplates.refreshLastSeen(deviceId, cityId, lastSeen, onlineCutoff))
+            .thenApply(response -> HeartbeatResult.REFRESHED)
+            .exceptionallyCompose(exception -> {
+                ConditionalCheckFailedException conditionFailure = getConditionFailure(exception);
+                if (Objects.isNull(conditionFailure)) {
+                    return CompletableFuture.failedFuture(exception);
+                }
+                HeartbeatResult result = resolveConditionFailure(conditionFailure, lastSeen);
+                return Objects.nonNull(result)
+                    ? CompletableFuture.completedFuture(result)
+                    : this.markOnlineAsync(deviceId, cityId, lastSeen, onlineCutoff);
+            });
+    }
+
+    /**
+     * Retrieves the online devices whose last heartbeat is older than the online cutoff, in a segment of a parallel
+     * scan of the Devices table.
+     *
+     * @param segment       The segment to scan, from zero to the total number of segments minus one.
+     * @param totalSegments The number of segments of the parallel scan.
+     * @param onlineCutoff  The time before which a silent device is considered offline, in milliseconds since the
+     *                      epoch.
+     * @return A CompletableFuture that completes with the keys of the silent devices of the segment.
+     * @throws CityException if an error occurs while scanning the segment.
+     */
+    public CompletableFuture<List<Map<String, AttributeValue>>> findSilentDevicesAsync(final int segment,
+                                                                                       final int totalSegments,
+                                                                                       final long onlineCutoff) {
+        List<Map<String, AttributeValue>> deviceKeys = new ArrayList<>();
+        return this.dynamoDbAsyncClient.scanPaginator(
+                DevicesRequestTemplates.onlineDevicesSeenBefore(segment, totalSegments, onlineCutoff))
+            .items()
+            .subscribe(deviceKeys::add)
+            .thenApply(unused -> deviceKeys)
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to scan the silent devices.", exception.getMessage(), segment);
+                throw new CityException("Error when trying to scan the silent devices.");
+            });
+    }
+
+    /**
+     * Marks a device as offline, only if it's still online and silent since the online cutoff. So a device that
+     * sent a heartbeat after it was scanned stays online.
+     *
+     * @param deviceId     The ID of the device.
+     * @param cityId       The ID of the city of the device.
+     * @param onlineCutoff The time before which a silent device is considered offline, in milliseconds since the
+     *                     epoch.
+     * @return A CompletableFuture that completes with true if the device was marked as offline, or false if it sent
+     * a heartbeat in the meantime.
+     * @throws CityException if an error occurs while updating the device.
+     */
+    public CompletableFuture<Boolean> markOfflineAsync(final String deviceId, final String cityId,
+                                                       final long onlineCutoff) {
+        return this.dynamoDbAsyncClient.updateItem(DevicesRequestTemplates.markOffline(deviceId, cityId,
+                onlineCutoff, DevicesRequestTemplates.timestampOf(Instant.now())))
+            .thenApply(response -> Boolean.TRUE)
+            .exceptionally(exception -> {
+                if (Objects.nonNull(getConditionFailure(exception))) {
+                    return Boolean.FALSE;
+                }
+                LOGGER.error("Error when trying to mark the device as offline.", exception.getMessage(), deviceId);
+                throw new CityException("Error when trying to mark the device as offline.");
+            });
+    }
+
+    private CompletableFuture<HeartbeatResult> markOnlineAsync(final String deviceId, final String cityId,
+                                                               final long lastSeen, final long onlineCutoff) {
+        return this.dynamoDbAsyncClient.updateItem(DevicesRequestTemplates.markOnline(deviceId, cityId, lastSeen,
+                onlineCutoff, DevicesRequestTemplates.timestampOf(Instant.now())))
+            .thenApply(response -> HeartbeatResult.ONLINE)
+            .exceptionallyCompose(exception -> {
+                ConditionalCheckFailedException conditionFailure = getConditionFailure(exception);
+                if (Objects.isNull(conditionFailure)) {
+                    return CompletableFuture.failedFuture(exception);
+                }
+                HeartbeatResult result = resolveConditionFailure(conditionFailure, lastSeen);
+                if (Objects.nonNull(result)) {
+                    return CompletableFuture.completedFuture(result);
+                }
+                // Another heartbeat marked the device as online meanwhile, so only its last seen time is refreshed.
+                return this.dynamoDbAsyncClient.updateItem(
+                        DevicesRequestTemplates.refreshLastSeen(deviceId, cityId, lastSeen, onlineCutoff))
+                    .thenApply(response -> HeartbeatResult.REFRESHED)
+                    .exceptionallyCompose(refreshException -> Objects.isNull(getConditionFailure(refreshException))
+                        ? CompletableFuture.failedFuture(refreshException)
+                        : CompletableFuture.completedFuture(HeartbeatResult.STALE));
+            });
+    }
+
+    // Returns null when the device exists and wasn't seen later, so the condition failed because of its online state.
+    private static HeartbeatResult resolveConditionFailure(final ConditionalCheckFailedException conditionFailure,
+                                                           final long lastSeen) {
+        Map<String, AttributeValue> oldItem = conditionFailure.hasItem() ? conditionFailure.item() : null;
+        if (Objects.isNull(oldItem) || oldItem.isEmpty()) {
+            return HeartbeatResult.NOT_FOUND;
+        }
+        AttributeValue storedLastSeen = oldItem.get(Device.LAST_SEEN_COLUMN_NAME);
+        if (Objects.nonNull(storedLastSeen) && Long.parseLong(storedLastSeen.n()) >= lastSeen) {
+            return HeartbeatResult.STALE;
+        }
+        return null;
+    }
+
+    private static ConditionalCheckFailedException getConditionFailure(final Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        return cause instanceof ConditionalCheckFailedException conditionFailure ? conditionFailure : null;
+    }
+}
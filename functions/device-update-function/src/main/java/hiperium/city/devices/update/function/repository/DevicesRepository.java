@@ -1,25 +1,45 @@
 package hiperium.city.devices.update.function.repository;
 
 import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.exceptions.ResourceNotFoundException;
 import hiperium.cities.commons.loggers.HiperiumLogger;
-import hiperium.city.devices.update.function.commons.DeviceOperation;
+import hiperium.city.devices.update.function.audit.StatusAuditSink;
+import hiperium.city.devices.update.function.commons.AdaptivePacer;
+import hiperium.city.devices.update.function.commons.CircuitBreakerOpenException;
 import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.DeviceUpdateResult;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
 import hiperium.city.devices.update.function.dto.EventBridgeDetail;
+import hiperium.city.devices.update.function.entities.CityDeviceCounters;
 import hiperium.city.devices.update.function.entities.Device;
 import lombok.NonNull;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * The DevicesRepository class is responsible for retrieving Device objects from the DynamoDB table.
@@ -33,17 +53,32 @@ public class DevicesRepository {
 
     private static final HiperiumLogger LOGGER = new HiperiumLogger(DevicesRepository.class);
 
+    private static final String CONDITIONAL_CHECK_FAILED_CODE = "ConditionalCheckFailed";
+
+    private final CityShards cityShards;
+    private final CircuitBreaker circuitBreaker;
+    private final StatusAuditSink statusAuditSink;
     private final DynamoDbAsyncClient dynamoDbAsyncClient;
+    private final CityCountersRepository cityCountersRepository;
 
     /**
      * The DevicesRepository class represents a repository for accessing and manipulating device data
      * in a DynamoDB database.
      *
+     * @param cityShards          The city shards used to spread the writes of a city across the city index.
+     * @param circuitBreaker      The circuit breaker used to fail fast when DynamoDB is degraded.
+     * @param statusAuditSink     The sink used to record the device status transitions for audit purposes.
      * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
+     * @param cityCountersRepository The repository that tells whether the city device counters are maintained.
      * @see DynamoDbAsyncClient
      */
-    public DevicesRepository(DynamoDbAsyncClient dynamoDbAsyncClient) {
+    public DevicesRepository(CityShards cityShards, CircuitBreaker circuitBreaker, StatusAuditSink statusAuditSink,
+                             DynamoDbAsyncClient dynamoDbAsyncClient, CityCountersRepository cityCountersRepository) {
+        this.cityShards = cityShards;
+        this.circuitBreaker = circuitBreaker;
+        this.statusAuditSink = statusAuditSink;
         this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+        this.cityCountersRepository = cityCountersRepository;
     }
 
     /**
@@ -52,67 +87,435 @@ public class DevicesRepository {
      * @param eventDetail The EventBridge detail object containing the device ID and city ID.
      * @return A CompletableFuture that completes with a Map of attribute names and attribute values if the device is found, or completes exceptionally if there is an error.
      * @throws RuntimeException If there is an error when trying to find the device by ID.
+     * @throws CircuitBreakerOpenException If the circuit breaker is open and the call is rejected.
      */
     public CompletableFuture<Map<String, AttributeValue>> findByIdAsync(final EventBridgeDetail eventDetail) {
-        HashMap<String, AttributeValue> keyMap = new HashMap<>();
-        keyMap.put(Device.ID_COLUMN_NAME, AttributeValue.builder().s(eventDetail.deviceId()).build());
-        keyMap.put(Device.CITY_ID_COLUMN_NAME, AttributeValue.builder().s(eventDetail.cityId()).build());
-
-        GetItemRequest itemRequest = GetItemRequest.builder()
-            .key(keyMap)
-            .tableName(Device.TABLE_NAME)
-            .build();
+        GetItemRequest itemRequest = DevicesRequestTemplates.findById(eventDetail.deviceId(), eventDetail.cityId());
 
-        return this.dynamoDbAsyncClient.getItem(itemRequest)
-            .thenApply(GetItemResponse::item)
-            .exceptionally(exception -> {
+        return this.circuitBreaker.executeAsync(
+                () -> this.dynamoDbAsyncClient.getItem(itemRequest).thenApply(GetItemResponse::item),
+                UnaryOperator.identity(), () -> rejectedCall(eventDetail))
+            .onErrorMap(exception -> !(exception instanceof CircuitBreakerOpenException), exception -> {
                 LOGGER.error("Error when trying to find a Device by ID.", exception.getMessage(), eventDetail);
-                throw new CityException("Error when trying to find a Device by ID.");
-            });
+                return new CityException("Error when trying to find a Device by ID.");
+            })
+            .toFuture();
     }
 
     /**
-     * Updates the status of a device asynchronously.
+     * Updates the status of a device asynchronously. When the event time is given, the update only succeeds if the
+     * device has no event time yet or an older one, in the same round trip. When the city device counters are
+     * enabled, the status is only changed if it's different, in a transaction that also changes the counters.
      *
      * @param device The device object to update the status for. Must not be null.
-     * @param deviceOperation The device operation that represents the new status. Must not be null.
-     * @return A Mono<Void> representing the completion of the update operation.
+     * @param newDeviceStatus The new status of the device. Must not be null.
+     * @param eventTime The time of the event that requested the update in epoch milliseconds, or null to update
+     *                  the device regardless of the order of the events.
+     * @return A Mono emitting UPDATED if the status was changed, STALE if the device was changed by a newer event, or
+     * UNCHANGED if the counters are enabled and the device was already in the new status. The status transition
+     * is recorded in the audit sink without waiting for it to be written.
      * @throws IllegalStateException If the DynamoDbAsyncClient is not initialized.
+     * @throws CircuitBreakerOpenException If the circuit breaker is open and the call is rejected.
      */
-    public Mono<Void> updateDeviceStatusAsync(@NonNull final Device device,
-                                              @NonNull final DeviceOperation deviceOperation) {
+    public Mono<DeviceUpdateResult> updateDeviceStatusAsync(@NonNull final Device device,
+                                                            @NonNull final DeviceStatus newDeviceStatus,
+                                                            final Long eventTime) {
         final String deviceId = device.id();
         final String cityId = device.cityId();
-        final DeviceStatus newDeviceStatus = this.mapDeviceOperationToStatus(deviceOperation);
-
-        HashMap<String, AttributeValue> keyMap = new HashMap<>();
-        keyMap.put(Device.ID_COLUMN_NAME, AttributeValue.builder().s(deviceId).build());
-        keyMap.put(Device.CITY_ID_COLUMN_NAME, AttributeValue.builder().s(cityId).build());
-
-        UpdateItemRequest updateItemRequest = this.createUpdateItemRequest(keyMap, newDeviceStatus);
 
+        if (this.cityCountersRepository.isEnabled()) {
+            return this.updateStatusWithCounters(deviceId, cityId, newDeviceStatus, eventTime, true)
+                .doOnNext(updateResult -> {
+                    if (updateResult == DeviceUpdateResult.UPDATED) {
+                        LOGGER.info("Successfully updated device status for Device ID: " + deviceId);
+                    }
+                })
+                .doOnError(exception -> LOGGER.error("Couldn't update device status.", exception.getMessage(), device))
+                .onErrorMap(DynamoDbException.class, exception ->
+                    new CompletionException("Couldn't update device status.", exception));
+        }
+        UpdateItemRequest updateItemRequest = DevicesRequestTemplates.updateStatus(deviceId, cityId, newDeviceStatus,
+            this.cityShards.shardOf(cityId, deviceId), eventTime, DevicesRequestTemplates.timestampOf(Instant.now()));
         return Mono.justOrEmpty(this.dynamoDbAsyncClient)
-            .flatMap(client -> Mono.fromCompletionStage(client.updateItem(updateItemRequest))
-                .doOnSuccess(response -> LOGGER.info("Successfully updated device status for Device ID: " + deviceId))
+            .flatMap(client -> this.sendWrite(() -> client.updateItem(updateItemRequest), true, device)
+                .map(response -> {
+                    LOGGER.info("Successfully updated device status for Device ID: " + deviceId);
+                    this.statusAuditSink.record(device, newDeviceStatus);
+                    return DeviceUpdateResult.UPDATED;
+                })
+                .onErrorResume(ConditionalCheckFailedException.class, exception -> {
+                    LOGGER.debug("Device already changed by a newer event", device);
+                    return Mono.just(DeviceUpdateResult.STALE);
+                })
                 .doOnError(exception -> LOGGER.error("Couldn't update device status.", exception.getMessage(), device))
                 .onErrorMap(DynamoDbException.class, exception -> new CompletionException("Couldn't update device status.", exception))
             )
-            .switchIfEmpty(Mono.error(new CityException("DynamoDbAsyncClient is not initialized.")))
-            .then();
+            .switchIfEmpty(Mono.error(new CityException("DynamoDbAsyncClient is not initialized.")));
+    }
+
+    /**
+     * Updates the status of a device in a single round trip, with a conditional update that only succeeds if the
+     * device exists and isn't in the new status yet. When the event time is given, the same condition also requires
+     * the device to have no event time yet or an older one. The condition failures are successful calls for the
+     * circuit breaker.
+     *
+     * @param eventDetail     The EventBridge detail object containing the device ID and city ID.
+     * @param newDeviceStatus The new status of the device.
+     * @param eventTime       The time of the event in epoch milliseconds, or null to ignore the order of the events.
+     * @return A Mono emitting UPDATED if the status was changed, UNCHANGED if the device was already in the new
+     * status, or STALE if the device was changed by a newer event. The Mono emits a ResourceNotFoundException if
+     * the device doesn't exist.
+     * @throws CircuitBreakerOpenException If the circuit breaker is open and the call is rejected.
+     */
+    public Mono<DeviceUpdateResult> updateDeviceStatusIfChangedAsync(@NonNull final EventBridgeDetail eventDetail,
+                                                                     @NonNull final DeviceStatus newDeviceStatus,
+                                                                     final Long eventTime) {
+        return this.updateStatusIfChanged(eventDetail.deviceId(), eventDetail.cityId(), newDeviceStatus, eventTime,
+            true);
+    }
+
+    /**
+     * Updates the status of a device of a city-wide command, with the same conditional update used for the single
+     * round trip updates. Like the bulk writes, these updates don't go through the circuit breaker.
+     *
+     * @param device          The device to update.
+     * @param newDeviceStatus The new status of the device.
+     * @return A Mono emitting UPDATED if the status was changed, or UNCHANGED if the device was already in the new
+     * status. The Mono emits a ResourceNotFoundException if the device doesn't exist anymore.
+     */
+    public Mono<DeviceUpdateResult> updateCityDeviceStatusAsync(@NonNull final Device device,
+                                                                @NonNull final DeviceStatus newDeviceStatus) {
+        return this.updateStatusIfChanged(device.id(), device.cityId(), newDeviceStatus, null, false);
+    }
+
+    private Mono<DeviceUpdateResult> updateStatusIfChanged(final String deviceId, final String cityId,
+                                                           final DeviceStatus newDeviceStatus, final Long eventTime,
+                                                           final boolean circuitBreakerGuarded) {
+        if (this.cityCountersRepository.isEnabled()) {
+            return this.updateStatusWithCounters(deviceId, cityId, newDeviceStatus, eventTime, circuitBreakerGuarded);
+        }
+        UpdateItemRequest updateItemRequest = DevicesRequestTemplates.updateStatusIfChanged(deviceId, cityId,
+            newDeviceStatus, this.cityShards.shardOf(cityId, deviceId), eventTime,
+            DevicesRequestTemplates.timestampOf(Instant.now()));
+
+        return this.sendWrite(() -> this.dynamoDbAsyncClient.updateItem(updateItemRequest), circuitBreakerGuarded,
+                deviceId)
+            .map(response -> {
+                this.statusAuditSink.record(mapToDevice(response.attributes()), newDeviceStatus);
+                return DeviceUpdateResult.UPDATED;
+            })
+            .onErrorResume(ConditionalCheckFailedException.class, exception ->
+                resolveConditionFailure(deviceId, exception.hasItem() ? exception.item() : null, newDeviceStatus));
+    }
+
+    // The device update and the counters update are written in the same transaction, so the counters only change
+    // when the status does. The statuses are binary, so the device leaves the other status.
+    private Mono<DeviceUpdateResult> updateStatusWithCounters(final String deviceId, final String cityId,
+                                                              final DeviceStatus newDeviceStatus,
+                                                              final Long eventTime,
+                                                              final boolean circuitBreakerGuarded) {
+        TransactWriteItemsRequest transactWriteItemsRequest = DevicesRequestTemplates
+            .updateStatusIfChangedWithCounters(deviceId, cityId, newDeviceStatus,
+                this.cityShards.shardOf(cityId, deviceId), eventTime,
+                DevicesRequestTemplates.timestampOf(Instant.now()));
+
+        return this.sendWrite(() -> this.dynamoDbAsyncClient.transactWriteItems(transactWriteItemsRequest),
+                circuitBreakerGuarded, deviceId)
+            .map(response -> {
+                DeviceStatus previousStatus = newDeviceStatus == DeviceStatus.ON ? DeviceStatus.OFF : DeviceStatus.ON;
+                this.statusAuditSink.record(new Device(deviceId, cityId, previousStatus, null), newDeviceStatus);
+                return DeviceUpdateResult.UPDATED;
+            })
+            .onErrorResume(TransactionCanceledException.class, exception -> {
+                CancellationReason deviceReason = getDeviceCancellationReason(exception);
+                if (Objects.isNull(deviceReason)) {
+                    return Mono.error(exception);
+                }
+                return resolveConditionFailure(deviceId, deviceReason.item(), newDeviceStatus);
+            });
+    }
+
+    // The permission of the circuit breaker is acquired when the write is subscribed, not when its Mono is created,
+    // and released if the subscription is cancelled before the write completed. The condition failures are
+    // successful calls for the circuit breaker.
+    private <T> Mono<T> sendWrite(final Supplier<CompletableFuture<T>> write, final boolean circuitBreakerGuarded,
+                                  final Object detail) {
+        if (!circuitBreakerGuarded) {
+            return Mono.fromCompletionStage(write);
+        }
+        return this.circuitBreaker.executeAsync(write,
+            exception -> isConditionalCheckFailure(exception) ? null : exception, () -> rejectedCall(detail));
+    }
+
+    private static CircuitBreakerOpenException rejectedCall(final Object detail) {
+        LOGGER.error("Devices circuit breaker is open. Failing fast.", detail);
+        return new CircuitBreakerOpenException("Devices data source is temporarily unavailable.");
+    }
+
+    private static Mono<DeviceUpdateResult> resolveConditionFailure(final String deviceId,
+                                                                    final Map<String, AttributeValue> oldItem,
+                                                                    final DeviceStatus newDeviceStatus) {
+        if (Objects.nonNull(oldItem) && !oldItem.isEmpty()) {
+            // The device exists, so either its status or its event time didn't match the condition.
+            return Mono.just(mapToDevice(oldItem).status() == newDeviceStatus
+                ? DeviceUpdateResult.UNCHANGED
+                : DeviceUpdateResult.STALE);
+        }
+        LOGGER.error("No device found with the provided ID.", deviceId);
+        return Mono.error(new ResourceNotFoundException("No device found with the provided ID."));
+    }
+
+    /**
+     * Retrieves a page of the devices of a city, ordered by device ID. When sharding is enabled and the shards were
+     * backfilled, every shard of the city is queried in parallel and the results are merged, so the page has the
+     * same content as the one read from the city index. Until then, the city index is read, because it also holds
+     * the devices written before sharding was enabled.
+     *
+     * @param cityId                 The ID of the city.
+     * @param exclusiveStartDeviceId The ID of the last device of the previous page, or null for the first page.
+     * @param pageSize               The maximum number of devices of the page.
+     * @return A CompletableFuture that completes with the query response, whose items only hold the device ID,
+     * the city ID and the device status. The response has a last evaluated key if there are more devices.
+     * @throws CityException if an error occurs while querying the index.
+     */
+    public CompletableFuture<QueryResponse> findCityDevicesAsync(final String cityId,
+                                                                 final String exclusiveStartDeviceId,
+                                                                 final int pageSize) {
+        CompletableFuture<QueryResponse> queryResponse = this.cityShards.isReadSharded()
+            ? this.findCityShardsDevicesAsync(cityId, exclusiveStartDeviceId, pageSize)
+            : this.dynamoDbAsyncClient.query(DevicesRequestTemplates.cityDevices(cityId, exclusiveStartDeviceId,
+                pageSize));
+        return queryResponse
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to find the devices of a city.", exception.getMessage(), cityId);
+                throw new CityException("Error when trying to find the devices of a city.");
+            });
+    }
+
+    private CompletableFuture<QueryResponse> findCityShardsDevicesAsync(final String cityId,
+                                                                       final String exclusiveStartDeviceId,
+                                                                       final int pageSize) {
+        List<CompletableFuture<QueryResponse>> shardQueries = this.cityShards.shardsOf(cityId).stream()
+            .map(cityShard -> this.dynamoDbAsyncClient.query(DevicesRequestTemplates.cityShardDevices(cityShard,
+                exclusiveStartDeviceId, pageSize)))
+            .toList();
+        return CompletableFuture.allOf(shardQueries.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> mergeShardPages(cityId, shardQueries.stream()
+                .map(CompletableFuture::join)
+                .toList(), pageSize));
+    }
+
+    // Every shard returns its devices in ID order. A shard with more devices only guarantees the ones up to its last
+    // evaluated key, so the merged page stops at the lowest of those keys.
+    private static QueryResponse mergeShardPages(final String cityId, final List<QueryResponse> shardPages,
+                                                 final int pageSize) {
+        String upperDeviceId = shardPages.stream()
+            .filter(QueryResponse::hasLastEvaluatedKey)
+            .map(shardPage -> shardPage.lastEvaluatedKey().get(Device.ID_COLUMN_NAME).s())
+            .min(String::compareTo)
+            .orElse(null);
+        List<Map<String, AttributeValue>> candidates = shardPages.stream()
+            .flatMap(shardPage -> shardPage.items().stream())
+            .filter(item -> Objects.isNull(upperDeviceId)
+                || item.get(Device.ID_COLUMN_NAME).s().compareTo(upperDeviceId) <= 0)
+            .sorted(Comparator.comparing(item -> item.get(Device.ID_COLUMN_NAME).s()))
+            .toList();
+        List<Map<String, AttributeValue>> page = candidates.subList(0, Math.min(pageSize, candidates.size()));
+        QueryResponse.Builder mergedPage = QueryResponse.builder()
+            .items(page)
+            .count(page.size());
+        if (!page.isEmpty() && (candidates.size() > pageSize || Objects.nonNull(upperDeviceId))) {
+            mergedPage.lastEvaluatedKey(DevicesRequestTemplates.key(
+                page.get(page.size() - 1).get(Device.ID_COLUMN_NAME).s(), cityId));
+        }
+        return mergedPage.build();
+    }
+
+    /**
+     * Counts the devices of every city in a segment of a parallel scan of the Devices table. The scan is strongly
+     * consistent and only reads the city ID and the status of the devices. Like the bulk writes, the scans don't go
+     * through the circuit breaker.
+     *
+     * @param segment       The segment to scan, from zero to the total number of segments minus one.
+     * @param totalSegments The number of segments of the parallel scan.
+     * @return A CompletableFuture that completes with a Map of city IDs and the counters of their devices in the
+     * segment.
+     * @throws CityException if an error occurs while scanning the segment.
+     */
+    public CompletableFuture<Map<String, CityDeviceCounters>> countSegmentDevicesAsync(final int segment,
+                                                                                       final int totalSegments) {
+        Map<String, CityDeviceCounters> segmentCounters = new HashMap<>();
+        return this.dynamoDbAsyncClient.scanPaginator(DevicesRequestTemplates.deviceStatuses(segment, totalSegments))
+            .items()
+            .subscribe(item -> countDevice(segmentCounters, item))
+            .thenApply(unused -> segmentCounters)
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to scan the devices statuses.", exception.getMessage(), segment);
+                throw new CityException("Error when trying to scan the devices statuses.");
+            });
+    }
+
+    /**
+     * Scans a segment of the Devices table for the devices without a city shard, which were written before sharding
+     * was enabled. Like the bulk writes, the scans don't go through the circuit breaker.
+     *
+     * @param segment       The segment to scan, from zero to the total number of segments minus one.
+     * @param totalSegments The number of segments of the parallel scan.
+     * @return A Flux emitting the keys of the devices without a city shard, page by page.
+     */
+    public Flux<Map<String, AttributeValue>> findUnshardedDevices(final int segment, final int totalSegments) {
+        return Flux.from(this.dynamoDbAsyncClient.scanPaginator(
+                DevicesRequestTemplates.unshardedDevices(segment, totalSegments)).items())
+            .doOnError(exception ->
+                LOGGER.error("Error when trying to scan the unsharded devices.", exception.getMessage(), segment))
+            .onErrorMap(exception -> new CityException("Error when trying to scan the unsharded devices."));
+    }
+
+    /**
+     * Writes the city shard of a device, only if it still exists and doesn't have one yet.
+     *
+     * @param deviceId The ID of the device.
+     * @param cityId   The ID of the city of the device.
+     * @return A CompletableFuture that completes with true if the city shard was written, or false if the device
+     * was deleted or got its city shard in the meantime.
+     * @throws CityException if an error occurs while updating the device.
+     */
+    public CompletableFuture<Boolean> backfillCityShardAsync(final String deviceId, final String cityId) {
+        return this.dynamoDbAsyncClient.updateItem(DevicesRequestTemplates.backfillCityShard(deviceId, cityId,
+                this.cityShards.shardOf(cityId, deviceId)))
+            .thenApply(response -> Boolean.TRUE)
+            .exceptionally(exception -> {
+                if (isConditionalCheckFailure(exception)) {
+                    return Boolean.FALSE;
+                }
+                LOGGER.error("Error when trying to backfill the city shard.", exception.getMessage(), deviceId);
+                throw new CityException("Error when trying to backfill the city shard.");
+            });
+    }
+
+    /**
+     * Writes the given devices with one concurrent UpdateItem request per device. An existing device keeps its
+     * creation time, event time and presence attributes, and its version is increased, so a device imported again
+     * doesn't go back to version 1 and the conditional reads and ordered updates still see it changed. A
+     * BatchWriteItem request can only replace whole items, so it isn't used. The bulk writes don't go through the
+     * circuit breaker, so the throttling of an import doesn't make the device updates fail fast. When the city
+     * device counters are enabled, the old devices returned by the writes are compared with the imported ones, and
+     * the counters of every city with new devices or status changes are adjusted with a single update. A counters
+     * update that fails is logged and left to the counters repair job.
+     *
+     * @param deviceRows The devices to write, without repeated device IDs. All of them are written concurrently, so
+     *                   the callers bound their number.
+     * @return A CompletableFuture that completes with the positions of the devices that DynamoDB throttled, or
+     * completes exceptionally, once all the writes ended, if any of them failed for another reason.
+     */
+    public CompletableFuture<List<Integer>> batchImportAsync(final List<DeviceImportRow> deviceRows) {
+        String timestamp = DevicesRequestTemplates.timestampOf(Instant.now());
+        // Every write completes with the old device, which is empty for a new device, or with null if throttled.
+        List<CompletableFuture<Map<String, AttributeValue>>> rowWrites = deviceRows.stream()
+            .map(deviceRow -> this.dynamoDbAsyncClient.updateItem(DevicesRequestTemplates.importDevice(deviceRow,
+                    timestamp, this.cityShards.shardOf(deviceRow.cityId(), deviceRow.deviceId())))
+                .thenApply(UpdateItemResponse::attributes)
+                .exceptionally(exception -> {
+                    if (AdaptivePacer.isThrottlingError(exception)) {
+                        return null;
+                    }
+                    throw exception instanceof CompletionException completionException ? completionException
+                        : new CompletionException(exception);
+                }))
+            .toList();
+
+        return CompletableFuture.allOf(rowWrites.toArray(CompletableFuture[]::new))
+            .thenCompose(unused -> {
+                List<Integer> throttledPositions = new ArrayList<>();
+                Map<String, CityDeviceCounters> previousCounters = new HashMap<>();
+                Map<String, CityDeviceCounters> importedCounters = new HashMap<>();
+                for (int position = 0; position < deviceRows.size(); position++) {
+                    Map<String, AttributeValue> oldItem = rowWrites.get(position).join();
+                    if (Objects.isNull(oldItem)) {
+                        throttledPositions.add(position);
+                    } else if (this.cityCountersRepository.isEnabled()) {
+                        countImportedDevice(previousCounters, importedCounters, deviceRows.get(position), oldItem);
+                    }
+                }
+                return this.adjustCountersAsync(previousCounters, importedCounters)
+                    .thenApply(adjusted -> throttledPositions);
+            });
+    }
+
+    private CompletableFuture<Void> adjustCountersAsync(final Map<String, CityDeviceCounters> previousCounters,
+                                                        final Map<String, CityDeviceCounters> importedCounters) {
+        return CompletableFuture.allOf(importedCounters.values().stream()
+            .map(counters -> this.dynamoDbAsyncClient.updateItem(DevicesRequestTemplates.adjustCounters(
+                    previousCounters.getOrDefault(counters.cityId(),
+                        new CityDeviceCounters(counters.cityId(), 0, 0, 0, 0)), counters))
+                .exceptionally(exception -> {
+                    LOGGER.error("Couldn't adjust the city device counters of the import.", exception.getMessage(),
+                        counters.cityId());
+                    return null;
+                }))
+            .toArray(CompletableFuture[]::new));
+    }
+
+    // Only the new devices and the status changes are counted, before and after the import.
+    private static void countImportedDevice(final Map<String, CityDeviceCounters> previousCounters,
+                                            final Map<String, CityDeviceCounters> importedCounters,
+                                            final DeviceImportRow deviceRow,
+                                            final Map<String, AttributeValue> oldItem) {
+        AttributeValue oldStatus = oldItem.get(Device.STATUS_COLUMN_NAME);
+        if (Objects.nonNull(oldStatus) && deviceRow.status().name().equals(oldStatus.s())) {
+            return;
+        }
+        if (!oldItem.isEmpty()) {
+            countDevice(previousCounters, deviceRow.cityId(), Objects.isNull(oldStatus) ? null : oldStatus.s());
+        }
+        countDevice(importedCounters, deviceRow.cityId(), deviceRow.status().name());
+    }
+
+    private static boolean isConditionalCheckFailure(final Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        return cause instanceof ConditionalCheckFailedException
+            || cause instanceof TransactionCanceledException transactionCanceled
+            && Objects.nonNull(getDeviceCancellationReason(transactionCanceled));
+    }
+
+    // The device update is the first item of the status transactions. Any other reason, like a conflict with
+    // another transaction, is a failure of the whole update.
+    private static CancellationReason getDeviceCancellationReason(final TransactionCanceledException exception) {
+        if (!exception.hasCancellationReasons() || exception.cancellationReasons().isEmpty()) {
+            return null;
+        }
+        CancellationReason deviceReason = exception.cancellationReasons().get(0);
+        return CONDITIONAL_CHECK_FAILED_CODE.equals(deviceReason.code()) ? deviceReason : null;
+    }
+
+    private static void countDevice(final Map<String, CityDeviceCounters> cityCounters,
+                                    final Map<String, AttributeValue> item) {
+        AttributeValue cityId = item.get(Device.CITY_ID_COLUMN_NAME);
+        if (Objects.isNull(cityId)) {
+            return;
+        }
+        AttributeValue status = item.get(Device.STATUS_COLUMN_NAME);
+        countDevice(cityCounters, cityId.s(), Objects.isNull(status) ? null : status.s());
     }
 
-    private DeviceStatus mapDeviceOperationToStatus(DeviceOperation deviceOperation){
-        return deviceOperation.equals(DeviceOperation.ACTIVATE) ? DeviceStatus.ON : DeviceStatus.OFF;
+    private static void countDevice(final Map<String, CityDeviceCounters> cityCounters, final String cityId,
+                                    final String status) {
+        boolean on = DeviceStatus.ON.name().equals(status);
+        boolean off = DeviceStatus.OFF.name().equals(status);
+        CityDeviceCounters counters = cityCounters.get(cityId);
+        cityCounters.put(cityId, Objects.isNull(counters)
+            ? new CityDeviceCounters(cityId, 1L, on ? 1L : 0L, off ? 1L : 0L, 0L)
+            : new CityDeviceCounters(cityId, counters.total() + 1, counters.on() + (on ? 1 : 0),
+                counters.off() + (off ? 1 : 0), 0L));
     }
 
-    private UpdateItemRequest createUpdateItemRequest(final Map<String, AttributeValue> keyMap,
-                                                      final DeviceStatus newDeviceStatus) {
-        return UpdateItemRequest.builder()
-            .tableName(Device.TABLE_NAME)
-            .key(keyMap)
-            .updateExpression("SET #deviceStatus = :new_status")
-            .expressionAttributeNames(Map.of("#deviceStatus", Device.STATUS_COLUMN_NAME))
-            .expressionAttributeValues(Map.of(":new_status", AttributeValue.builder().s(newDeviceStatus.name()).build()))
-            .build();
+    private static Device mapToDevice(final Map<String, AttributeValue> oldAttributes) {
+        AttributeValue status = oldAttributes.get(Device.STATUS_COLUMN_NAME);
+        AttributeValue version = oldAttributes.get(Device.VERSION_COLUMN_NAME);
+        return new Device(
+            oldAttributes.get(Device.ID_COLUMN_NAME).s(),
+            oldAttributes.get(Device.CITY_ID_COLUMN_NAME).s(),
+            Objects.isNull(status) ? null : DeviceStatus.valueOf(status.s()),
+            Objects.isNull(version) ? null : Long.valueOf(version.n()));
     }
 }
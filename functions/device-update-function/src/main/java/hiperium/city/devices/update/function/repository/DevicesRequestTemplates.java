@@ -0,0 +1,516 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import hiperium.city.devices.update.function.entities.CityDeviceCounters;
+import hiperium.city.devices.update.function.entities.Device;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Holds the immutable parts of the DynamoDB requests sent by the {@link DevicesRepository}. They are built once,
+ * including one update request per device status, so only the item key and the expression values are created for
+ * every request. When the city shard of the device is given, the sharded variants of the updates also set the
+ * {@code cityShard} attribute. When the event time is given, the ordered variants also set the
+ * {@code lastEventTime} attribute, and only succeed if the device has no event time yet or an older one. The
+ * transactional updates also change the status counters of the city, in the DeviceCityCounters table, and a missing
+ * counters item is initialized with the devices known to exist from the old device, so no counter goes negative.
+ * Every write sets the {@code updatedAt} attribute with a fixed-width UTC timestamp, so the timestamps of the
+ * {@code CityUpdatedAtIndex} index sort in time order as strings. The heartbeat requests of the
+ * {@link DeviceHeartbeatsRepository} only refresh the {@code lastSeen} attribute of the online devices, and only
+ * the writes that flip the {@code online} attribute also set {@code updatedAt} and increase the version. The import
+ * updates replace the imported attributes of a device, but keep its {@code createdAt}, {@code lastEventTime},
+ * {@code online}, {@code lastSeen} and {@code cityShard} attributes and increase its version, so a device imported
+ * again isn't reset. They return the old device, so the import can adjust the counters of the city with the same
+ * initialization. The backfill requests only set the {@code cityShard} attribute of the devices that don't have it.
+ */
+final class DevicesRequestTemplates {
+
+    private static final GetItemRequest FIND_BY_ID_TEMPLATE = GetItemRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .build();
+
+    private static final QueryRequest CITY_DEVICES_TEMPLATE = QueryRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .indexName(Device.CITY_INDEX_NAME)
+        .keyConditionExpression("#cityId = :city_id")
+        .projectionExpression("#id, #cityId, #deviceStatus")
+        .expressionAttributeNames(Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#cityId", Device.CITY_ID_COLUMN_NAME,
+            "#deviceStatus", Device.STATUS_COLUMN_NAME))
+        .build();
+
+    private static final QueryRequest CITY_SHARD_DEVICES_TEMPLATE = QueryRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .indexName(Device.CITY_SHARD_INDEX_NAME)
+        .keyConditionExpression("#cityShard = :city_shard")
+        .projectionExpression("#id, #cityId, #deviceStatus")
+        .expressionAttributeNames(Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#cityId", Device.CITY_ID_COLUMN_NAME,
+            "#cityShard", Device.CITY_SHARD_COLUMN_NAME,
+            "#deviceStatus", Device.STATUS_COLUMN_NAME))
+        .build();
+
+    private static final QueryRequest CITY_SHARD_DEVICES_AFTER_TEMPLATE = CITY_SHARD_DEVICES_TEMPLATE.toBuilder()
+        .keyConditionExpression("#cityShard = :city_shard AND #id > :last_device_id")
+        .build();
+
+    private static final ScanRequest DEVICE_STATUSES_TEMPLATE = ScanRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .projectionExpression("#cityId, #deviceStatus")
+        .expressionAttributeNames(Map.of(
+            "#cityId", Device.CITY_ID_COLUMN_NAME,
+            "#deviceStatus", Device.STATUS_COLUMN_NAME))
+        .consistentRead(true)
+        .build();
+
+    private static final ScanRequest UNSHARDED_DEVICES_TEMPLATE = ScanRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .projectionExpression("#id, #cityId")
+        .filterExpression("attribute_not_exists(#cityShard)")
+        .expressionAttributeNames(Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#cityId", Device.CITY_ID_COLUMN_NAME,
+            "#cityShard", Device.CITY_SHARD_COLUMN_NAME))
+        .build();
+
+    private static final UpdateItemRequest BACKFILL_CITY_SHARD_TEMPLATE = UpdateItemRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .updateExpression("SET #cityShard = :city_shard")
+        .conditionExpression("attribute_exists(#id) AND attribute_not_exists(#cityShard)")
+        .expressionAttributeNames(Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#cityShard", Device.CITY_SHARD_COLUMN_NAME))
+        .build();
+
+    private static final UpdateItemRequest REFRESH_LAST_SEEN_TEMPLATE = UpdateItemRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .updateExpression("SET #lastSeen = :last_seen")
+        .conditionExpression("attribute_exists(#id) AND #online = :true AND #lastSeen < :last_seen "
+            + "AND #lastSeen >= :online_cutoff")
+        .expressionAttributeNames(Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#online", Device.ONLINE_COLUMN_NAME,
+            "#lastSeen", Device.LAST_SEEN_COLUMN_NAME))
+        .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+        .build();
+
+    private static final UpdateItemRequest MARK_ONLINE_TEMPLATE = UpdateItemRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .updateExpression("SET #lastSeen = :last_seen, #online = :true, #updatedAt = :updated_at ADD #version :one")
+        .conditionExpression("attribute_exists(#id) "
+            + "AND (attribute_not_exists(#lastSeen) OR #lastSeen < :last_seen) "
+            + "AND (attribute_not_exists(#online) OR #online = :false OR #lastSeen < :online_cutoff)")
+        .expressionAttributeNames(Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#online", Device.ONLINE_COLUMN_NAME,
+            "#lastSeen", Device.LAST_SEEN_COLUMN_NAME,
+            "#updatedAt", Device.UPDATED_AT_COLUMN_NAME,
+            "#version", Device.VERSION_COLUMN_NAME))
+        .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+        .build();
+
+    private static final UpdateItemRequest MARK_OFFLINE_TEMPLATE = UpdateItemRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .updateExpression("SET #online = :false, #updatedAt = :updated_at ADD #version :one")
+        .conditionExpression("#online = :true AND #lastSeen < :online_cutoff")
+        .expressionAttributeNames(Map.of(
+            "#online", Device.ONLINE_COLUMN_NAME,
+            "#lastSeen", Device.LAST_SEEN_COLUMN_NAME,
+            "#updatedAt", Device.UPDATED_AT_COLUMN_NAME,
+            "#version", Device.VERSION_COLUMN_NAME))
+        .build();
+
+    private static final ScanRequest ONLINE_DEVICES_SEEN_BEFORE_TEMPLATE = ScanRequest.builder()
+        .tableName(Device.TABLE_NAME)
+        .projectionExpression("#id, #cityId")
+        .filterExpression("#online = :true AND #lastSeen < :online_cutoff")
+        .expressionAttributeNames(Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#cityId", Device.CITY_ID_COLUMN_NAME,
+            "#online", Device.ONLINE_COLUMN_NAME,
+            "#lastSeen", Device.LAST_SEEN_COLUMN_NAME))
+        .build();
+
+    private static final UpdateItemRequest ADJUST_COUNTERS_TEMPLATE = UpdateItemRequest.builder()
+        .tableName(CityDeviceCounters.TABLE_NAME)
+        .updateExpression("SET #total = if_not_exists(#total, :previous_total) + :total_delta, "
+            + "#on = if_not_exists(#on, :previous_on) + :on_delta, "
+            + "#off = if_not_exists(#off, :previous_off) + :off_delta ADD #changes :changes")
+        .expressionAttributeNames(Map.of(
+            "#total", CityDeviceCounters.TOTAL_COLUMN_NAME,
+            "#on", CityDeviceCounters.ON_COLUMN_NAME,
+            "#off", CityDeviceCounters.OFF_COLUMN_NAME,
+            "#changes", CityDeviceCounters.CHANGES_COLUMN_NAME))
+        .build();
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private static final AttributeValue ZERO = AttributeValue.fromN("0");
+    private static final AttributeValue ONE = AttributeValue.fromN("1");
+    private static final AttributeValue TRUE = AttributeValue.fromBool(true);
+    private static final AttributeValue FALSE = AttributeValue.fromBool(false);
+
+    private static final String SET_STATUS_EXPRESSION = "SET #deviceStatus = :new_status, #updatedAt = :updated_at";
+
+    private static final Map<DeviceStatus, AttributeValue> STATUS_VALUES = new EnumMap<>(DeviceStatus.class);
+
+    // The update templates of every status are indexed by these variant flags.
+    private static final int SHARDED = 1;
+    private static final int ORDERED = 2;
+    private static final String ORDERED_CONDITION = "(attribute_not_exists(#lastEventTime) "
+        + "OR #lastEventTime <= :event_time)";
+
+    private static final Map<DeviceStatus, UpdateItemRequest[]> UPDATE_STATUS_TEMPLATES =
+        new EnumMap<>(DeviceStatus.class);
+
+    private static final Map<DeviceStatus, UpdateItemRequest[]> UPDATE_STATUS_IF_CHANGED_TEMPLATES =
+        new EnumMap<>(DeviceStatus.class);
+
+    private static final Map<DeviceStatus, Update> UPDATE_COUNTERS_TEMPLATES = new EnumMap<>(DeviceStatus.class);
+
+    // The import templates are indexed by the sharded flag and this one.
+    private static final int DESCRIBED = 2;
+    private static final UpdateItemRequest[] IMPORT_DEVICE_TEMPLATES =
+        new UpdateItemRequest[(SHARDED | DESCRIBED) + 1];
+
+    static {
+        Map<String, String> expressionAttributeNames = Map.of(
+            "#deviceStatus", Device.STATUS_COLUMN_NAME,
+            "#version", Device.VERSION_COLUMN_NAME,
+            "#updatedAt", Device.UPDATED_AT_COLUMN_NAME);
+        Map<String, String> conditionalAttributeNames = Map.of(
+            "#id", Device.ID_COLUMN_NAME,
+            "#deviceStatus", Device.STATUS_COLUMN_NAME,
+            "#version", Device.VERSION_COLUMN_NAME,
+            "#updatedAt", Device.UPDATED_AT_COLUMN_NAME);
+        for (DeviceStatus deviceStatus : DeviceStatus.values()) {
+            STATUS_VALUES.put(deviceStatus, AttributeValue.fromS(deviceStatus.name()));
+            UpdateItemRequest updateStatusTemplate = UpdateItemRequest.builder()
+                .tableName(Device.TABLE_NAME)
+                .updateExpression(SET_STATUS_EXPRESSION + " ADD #version :one")
+                .expressionAttributeNames(expressionAttributeNames)
+                .build();
+            UpdateItemRequest updateStatusIfChangedTemplate = updateStatusTemplate.toBuilder()
+                .conditionExpression("attribute_exists(#id) AND #deviceStatus <> :new_status")
+                .expressionAttributeNames(conditionalAttributeNames)
+                .returnValues(ReturnValue.ALL_OLD)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build();
+            UPDATE_STATUS_TEMPLATES.put(deviceStatus, variantsOf(updateStatusTemplate));
+            UPDATE_STATUS_IF_CHANGED_TEMPLATES.put(deviceStatus, variantsOf(updateStatusIfChangedTemplate));
+            // The statuses are binary, so a device that changes to this status leaves the other one. A missing
+            // counters item starts with the changed device in its previous status, instead of going below zero.
+            DeviceStatus previousStatus = deviceStatus == DeviceStatus.ON ? DeviceStatus.OFF : DeviceStatus.ON;
+            UPDATE_COUNTERS_TEMPLATES.put(deviceStatus, Update.builder()
+                .tableName(CityDeviceCounters.TABLE_NAME)
+                .updateExpression("SET #total = if_not_exists(#total, :one), "
+                    + "#newStatus = if_not_exists(#newStatus, :zero) + :one, "
+                    + "#previousStatus = if_not_exists(#previousStatus, :one) - :one ADD #changes :one")
+                .expressionAttributeNames(Map.of(
+                    "#total", CityDeviceCounters.TOTAL_COLUMN_NAME,
+                    "#newStatus", CityDeviceCounters.columnNameOf(deviceStatus),
+                    "#previousStatus", CityDeviceCounters.columnNameOf(previousStatus),
+                    "#changes", CityDeviceCounters.CHANGES_COLUMN_NAME))
+                .expressionAttributeValues(Map.of(
+                    ":zero", ZERO,
+                    ":one", ONE))
+                .build());
+        }
+        for (int variant = 0; variant < IMPORT_DEVICE_TEMPLATES.length; variant++) {
+            IMPORT_DEVICE_TEMPLATES[variant] = importVariantOf(variant);
+        }
+    }
+
+    private DevicesRequestTemplates() {
+    }
+
+    static GetItemRequest findById(final String deviceId, final String cityId) {
+        return FIND_BY_ID_TEMPLATE.toBuilder()
+            .key(key(deviceId, cityId))
+            .build();
+    }
+
+    static String timestampOf(final Instant instant) {
+        return TIMESTAMP_FORMATTER.format(instant);
+    }
+
+    static UpdateItemRequest updateStatus(final String deviceId, final String cityId,
+                                          final DeviceStatus newDeviceStatus, final String cityShard,
+                                          final Long eventTime, final String updatedAt) {
+        return fromTemplate(UPDATE_STATUS_TEMPLATES.get(newDeviceStatus), deviceId, cityId, newDeviceStatus,
+            cityShard, eventTime, updatedAt);
+    }
+
+    static UpdateItemRequest updateStatusIfChanged(final String deviceId, final String cityId,
+                                                   final DeviceStatus newDeviceStatus, final String cityShard,
+                                                   final Long eventTime, final String updatedAt) {
+        return fromTemplate(UPDATE_STATUS_IF_CHANGED_TEMPLATES.get(newDeviceStatus), deviceId, cityId,
+            newDeviceStatus, cityShard, eventTime, updatedAt);
+    }
+
+    static TransactWriteItemsRequest updateStatusIfChangedWithCounters(final String deviceId, final String cityId,
+                                                                       final DeviceStatus newDeviceStatus,
+                                                                       final String cityShard, final Long eventTime,
+                                                                       final String updatedAt) {
+        UpdateItemRequest deviceUpdate = updateStatusIfChanged(deviceId, cityId, newDeviceStatus, cityShard,
+            eventTime, updatedAt);
+        return TransactWriteItemsRequest.builder()
+            .transactItems(
+                TransactWriteItem.builder()
+                    .update(Update.builder()
+                        .tableName(deviceUpdate.tableName())
+                        .key(deviceUpdate.key())
+                        .updateExpression(deviceUpdate.updateExpression())
+                        .conditionExpression(deviceUpdate.conditionExpression())
+                        .expressionAttributeNames(deviceUpdate.expressionAttributeNames())
+                        .expressionAttributeValues(deviceUpdate.expressionAttributeValues())
+                        .returnValuesOnConditionCheckFailure(deviceUpdate.returnValuesOnConditionCheckFailure())
+                        .build())
+                    .build(),
+                TransactWriteItem.builder()
+                    .update(UPDATE_COUNTERS_TEMPLATES.get(newDeviceStatus).toBuilder()
+                        .key(Map.of(CityDeviceCounters.CITY_ID_COLUMN_NAME, AttributeValue.fromS(cityId)))
+                        .build())
+                    .build())
+            .build();
+    }
+
+    static ScanRequest deviceStatuses(final int segment, final int totalSegments) {
+        return DEVICE_STATUSES_TEMPLATE.toBuilder()
+            .segment(segment)
+            .totalSegments(totalSegments)
+            .build();
+    }
+
+    static QueryRequest cityDevices(final String cityId, final String exclusiveStartDeviceId, final int pageSize) {
+        QueryRequest.Builder queryRequestBuilder = CITY_DEVICES_TEMPLATE.toBuilder()
+            .expressionAttributeValues(Map.of(":city_id", AttributeValue.fromS(cityId)))
+            .limit(pageSize);
+        if (Objects.nonNull(exclusiveStartDeviceId)) {
+            queryRequestBuilder.exclusiveStartKey(key(exclusiveStartDeviceId, cityId));
+        }
+        return queryRequestBuilder.build();
+    }
+
+    static QueryRequest cityShardDevices(final String cityShard, final String lastDeviceId, final int pageSize) {
+        if (Objects.isNull(lastDeviceId)) {
+            return CITY_SHARD_DEVICES_TEMPLATE.toBuilder()
+                .expressionAttributeValues(Map.of(":city_shard", AttributeValue.fromS(cityShard)))
+                .limit(pageSize)
+                .build();
+        }
+        return CITY_SHARD_DEVICES_AFTER_TEMPLATE.toBuilder()
+            .expressionAttributeValues(Map.of(
+                ":city_shard", AttributeValue.fromS(cityShard),
+                ":last_device_id", AttributeValue.fromS(lastDeviceId)))
+            .limit(pageSize)
+            .build();
+    }
+
+    static ScanRequest unshardedDevices(final int segment, final int totalSegments) {
+        return UNSHARDED_DEVICES_TEMPLATE.toBuilder()
+            .segment(segment)
+            .totalSegments(totalSegments)
+            .build();
+    }
+
+    static UpdateItemRequest backfillCityShard(final String deviceId, final String cityId, final String cityShard) {
+        return BACKFILL_CITY_SHARD_TEMPLATE.toBuilder()
+            .key(key(deviceId, cityId))
+            .expressionAttributeValues(Map.of(":city_shard", AttributeValue.fromS(cityShard)))
+            .build();
+    }
+
+    static UpdateItemRequest importDevice(final DeviceImportRow deviceRow, final String updatedAt,
+                                          final String cityShard) {
+        boolean described = Objects.nonNull(deviceRow.description()) && !deviceRow.description().isEmpty();
+        int variant = (Objects.isNull(cityShard) ? 0 : SHARDED) | (described ? DESCRIBED : 0);
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>(8);
+        expressionAttributeValues.put(":name", AttributeValue.fromS(deviceRow.name()));
+        expressionAttributeValues.put(":new_status", STATUS_VALUES.get(deviceRow.status()));
+        expressionAttributeValues.put(":updated_at", AttributeValue.fromS(updatedAt));
+        expressionAttributeValues.put(":one", ONE);
+        if (described) {
+            expressionAttributeValues.put(":description", AttributeValue.fromS(deviceRow.description()));
+        }
+        if (Objects.nonNull(cityShard)) {
+            expressionAttributeValues.put(":city_shard", AttributeValue.fromS(cityShard));
+        }
+        return IMPORT_DEVICE_TEMPLATES[variant].toBuilder()
+            .key(key(deviceRow.deviceId(), deviceRow.cityId()))
+            .expressionAttributeValues(expressionAttributeValues)
+            .build();
+    }
+
+    // The previous counters count the changed devices before the import, and the imported counters count the same
+    // devices after it, so every one of them is a change. A missing counters item starts with the previous counts.
+    static UpdateItemRequest adjustCounters(final CityDeviceCounters previousCounters,
+                                            final CityDeviceCounters importedCounters) {
+        return ADJUST_COUNTERS_TEMPLATE.toBuilder()
+            .key(Map.of(CityDeviceCounters.CITY_ID_COLUMN_NAME, AttributeValue.fromS(importedCounters.cityId())))
+            .expressionAttributeValues(Map.of(
+                ":previous_total", numberOf(previousCounters.total()),
+                ":previous_on", numberOf(previousCounters.on()),
+                ":previous_off", numberOf(previousCounters.off()),
+                ":total_delta", numberOf(importedCounters.total() - previousCounters.total()),
+                ":on_delta", numberOf(importedCounters.on() - previousCounters.on()),
+                ":off_delta", numberOf(importedCounters.off() - previousCounters.off()),
+                ":changes", numberOf(importedCounters.total())))
+            .build();
+    }
+
+    static UpdateItemRequest refreshLastSeen(final String deviceId, final String cityId, final long lastSeen,
+                                             final long onlineCutoff) {
+        return REFRESH_LAST_SEEN_TEMPLATE.toBuilder()
+            .key(key(deviceId, cityId))
+            .expressionAttributeValues(Map.of(
+                ":true", TRUE,
+                ":last_seen", AttributeValue.fromN(Long.toString(lastSeen)),
+                ":online_cutoff", AttributeValue.fromN(Long.toString(onlineCutoff))))
+            .build();
+    }
+
+    static UpdateItemRequest markOnline(final String deviceId, final String cityId, final long lastSeen,
+                                        final long onlineCutoff, final String updatedAt) {
+        return MARK_ONLINE_TEMPLATE.toBuilder()
+            .key(key(deviceId, cityId))
+            .expressionAttributeValues(Map.of(
+                ":true", TRUE,
+                ":false", FALSE,
+                ":one", ONE,
+                ":last_seen", AttributeValue.fromN(Long.toString(lastSeen)),
+                ":online_cutoff", AttributeValue.fromN(Long.toString(onlineCutoff)),
+                ":updated_at", AttributeValue.fromS(updatedAt)))
+            .build();
+    }
+
+    static UpdateItemRequest markOffline(final String deviceId, final String cityId, final long onlineCutoff,
+                                         final String updatedAt) {
+        return MARK_OFFLINE_TEMPLATE.toBuilder()
+            .key(key(deviceId, cityId))
+            .expressionAttributeValues(Map.of(
+                ":true", TRUE,
+                ":false", FALSE,
+                ":one", ONE,
+                ":online_cutoff", AttributeValue.fromN(Long.toString(onlineCutoff)),
+                ":updated_at", AttributeValue.fromS(updatedAt)))
+            .build();
+    }
+
+    static ScanRequest onlineDevicesSeenBefore(final int segment, final int totalSegments,
+                                               final long onlineCutoff) {
+        return ONLINE_DEVICES_SEEN_BEFORE_TEMPLATE.toBuilder()
+            .segment(segment)
+            .totalSegments(totalSegments)
+            .expressionAttributeValues(Map.of(
+                ":true", TRUE,
+                ":online_cutoff", AttributeValue.fromN(Long.toString(onlineCutoff))))
+            .build();
+    }
+
+    private static UpdateItemRequest fromTemplate(final UpdateItemRequest[] templates, final String deviceId,
+                                                  final String cityId, final DeviceStatus newDeviceStatus,
+                                                  final String cityShard, final Long eventTime,
+                                                  final String updatedAt) {
+        int variant = (Objects.isNull(cityShard) ? 0 : SHARDED) | (Objects.isNull(eventTime) ? 0 : ORDERED);
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>(8);
+        expressionAttributeValues.put(":new_status", STATUS_VALUES.get(newDeviceStatus));
+        expressionAttributeValues.put(":updated_at", AttributeValue.fromS(updatedAt));
+        expressionAttributeValues.put(":one", ONE);
+        if (Objects.nonNull(cityShard)) {
+            expressionAttributeValues.put(":city_shard", AttributeValue.fromS(cityShard));
+        }
+        if (Objects.nonNull(eventTime)) {
+            expressionAttributeValues.put(":event_time", AttributeValue.fromN(eventTime.toString()));
+        }
+        return templates[variant].toBuilder()
+            .key(key(deviceId, cityId))
+            .expressionAttributeValues(expressionAttributeValues)
+            .build();
+    }
+
+    private static UpdateItemRequest[] variantsOf(final UpdateItemRequest template) {
+        UpdateItemRequest[] variants = new UpdateItemRequest[(SHARDED | ORDERED) + 1];
+        for (int variant = 0; variant < variants.length; variant++) {
+            StringBuilder setExpression = new StringBuilder(SET_STATUS_EXPRESSION);
+            Map<String, String> expressionAttributeNames = new HashMap<>(template.expressionAttributeNames());
+            String conditionExpression = template.conditionExpression();
+            if ((variant & SHARDED) != 0) {
+                setExpression.append(", #cityShard = :city_shard");
+                expressionAttributeNames.put("#cityShard", Device.CITY_SHARD_COLUMN_NAME);
+            }
+            if ((variant & ORDERED) != 0) {
+                setExpression.append(", #lastEventTime = :event_time");
+                expressionAttributeNames.put("#lastEventTime", Device.LAST_EVENT_TIME_COLUMN_NAME);
+                conditionExpression = Objects.isNull(conditionExpression) ? ORDERED_CONDITION
+                    : conditionExpression + " AND " + ORDERED_CONDITION;
+            }
+            variants[variant] = template.toBuilder()
+                .updateExpression(setExpression.append(" ADD #version :one").toString())
+                .expressionAttributeNames(Map.copyOf(expressionAttributeNames))
+                .conditionExpression(conditionExpression)
+                .build();
+        }
+        return variants;
+    }
+
+    // A missing description is removed, and the attributes not imported are left untouched. The unsharded variants
+    // keep the city shard of the device, which only depends on its ID, so the device stays in the sharded index.
+    private static UpdateItemRequest importVariantOf(final int variant) {
+        StringBuilder setExpression = new StringBuilder("SET #name = :name, #deviceStatus = :new_status, "
+            + "#updatedAt = :updated_at, #createdAt = if_not_exists(#createdAt, :updated_at)");
+        Map<String, String> expressionAttributeNames = new HashMap<>(Map.of(
+            "#name", Device.NAME_COLUMN_NAME,
+            "#description", Device.DESCRIPTION_COLUMN_NAME,
+            "#deviceStatus", Device.STATUS_COLUMN_NAME,
+            "#version", Device.VERSION_COLUMN_NAME,
+            "#createdAt", Device.CREATED_AT_COLUMN_NAME,
+            "#updatedAt", Device.UPDATED_AT_COLUMN_NAME));
+        if ((variant & DESCRIBED) != 0) {
+            setExpression.append(", #description = :description");
+        }
+        if ((variant & SHARDED) != 0) {
+            setExpression.append(", #cityShard = :city_shard");
+            expressionAttributeNames.put("#cityShard", Device.CITY_SHARD_COLUMN_NAME);
+        }
+        if ((variant & DESCRIBED) == 0) {
+            setExpression.append(" REMOVE #description");
+        }
+        return UpdateItemRequest.builder()
+            .tableName(Device.TABLE_NAME)
+            .updateExpression(setExpression.append(" ADD #version :one").toString())
+            .returnValues(ReturnValue.ALL_OLD)
+            .expressionAttributeNames(Map.copyOf(expressionAttributeNames))
+            .build();
+    }
+
+    private static AttributeValue numberOf(final long value) {
+        return AttributeValue.fromN(Long.toString(value));
+    }
+
+    static Map<String, AttributeValue> key(final String deviceId, final String cityId) {
+        return Map.of(
+            Device.ID_COLUMN_NAME, AttributeValue.fromS(deviceId),
+            Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(cityId));
+    }
+}
@@ -0,0 +1,133 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.EventClaimResult;
+import hiperium.city.devices.update.function.entities.ProcessedEvent;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The ProcessedEventsRepository class is responsible for claiming the EventBridge event IDs in the DynamoDB table,
+ * so duplicated deliveries are detected across all the function instances.
+ */
+@Repository
+public class ProcessedEventsRepository {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(ProcessedEventsRepository.class);
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    /**
+     * The ProcessedEventsRepository class represents a repository for the processed events idempotency table.
+     *
+     * @param dynamoDbAsyncClient The DynamoDB asynchronous client used to interact with the database.
+     */
+    public ProcessedEventsRepository(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    /**
+     * Claims the processed event with a conditional put, which only succeeds if the event ID is not stored yet, or
+     * if its previous claim already expired but wasn't deleted by the time-to-live process. The event is stored as
+     * in progress until the given expiration time, which is the lease of this delivery.
+     *
+     * @param processedEvent The event to claim, with the expiration time of its lease in epoch seconds.
+     * @param now            The current time in epoch seconds.
+     * @return A CompletableFuture that completes with CLAIMED if the event was claimed, or with the status of the
+     * unexpired claim of a previous delivery.
+     * @throws CityException if an error occurs while writing the item.
+     */
+    public CompletableFuture<EventClaimResult> claimAsync(final ProcessedEvent processedEvent, final long now) {
+        PutItemRequest putItemRequest = PutItemRequest.builder()
+            .tableName(ProcessedEvent.TABLE_NAME)
+            .item(Map.of(
+                ProcessedEvent.EVENT_ID_COLUMN_NAME, AttributeValue.fromS(processedEvent.eventId()),
+                ProcessedEvent.STATUS_COLUMN_NAME, AttributeValue.fromS(ProcessedEvent.IN_PROGRESS_STATUS),
+                ProcessedEvent.EXPIRES_AT_COLUMN_NAME, AttributeValue.fromN(processedEvent.expiresAt().toString())))
+            .conditionExpression("attribute_not_exists(#eventId) OR #expiresAt < :now")
+            .expressionAttributeNames(Map.of(
+                "#eventId", ProcessedEvent.EVENT_ID_COLUMN_NAME,
+                "#expiresAt", ProcessedEvent.EXPIRES_AT_COLUMN_NAME))
+            .expressionAttributeValues(Map.of(":now", AttributeValue.fromN(Long.toString(now))))
+            .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+            .build();
+
+        return this.dynamoDbAsyncClient.putItem(putItemRequest)
+            .thenApply(response -> EventClaimResult.CLAIMED)
+            .exceptionally(exception -> {
+                Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+                if (cause instanceof ConditionalCheckFailedException conditionFailure) {
+                    return isInProgress(conditionFailure) ? EventClaimResult.IN_PROGRESS : EventClaimResult.COMPLETED;
+                }
+                LOGGER.error("Error when trying to claim the event.", cause.getMessage(), processedEvent);
+                throw new CityException("Error when trying to claim the event.");
+            });
+    }
+
+    /**
+     * Marks a claimed event as completed, so the later deliveries are skipped until the given expiration time. If
+     * the event can't be marked, its lease expires and a later delivery processes it again.
+     *
+     * @param processedEvent The completed event, with its expiration time in epoch seconds.
+     * @return A CompletableFuture that completes when the item is updated.
+     */
+    public CompletableFuture<Void> completeAsync(final ProcessedEvent processedEvent) {
+        UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
+            .tableName(ProcessedEvent.TABLE_NAME)
+            .key(Map.of(ProcessedEvent.EVENT_ID_COLUMN_NAME, AttributeValue.fromS(processedEvent.eventId())))
+            .updateExpression("SET #status = :completed, #expiresAt = :expires_at")
+            .expressionAttributeNames(Map.of(
+                "#status", ProcessedEvent.STATUS_COLUMN_NAME,
+                "#expiresAt", ProcessedEvent.EXPIRES_AT_COLUMN_NAME))
+            .expressionAttributeValues(Map.of(
+                ":completed", AttributeValue.fromS(ProcessedEvent.COMPLETED_STATUS),
+                ":expires_at", AttributeValue.fromN(processedEvent.expiresAt().toString())))
+            .build();
+
+        return this.dynamoDbAsyncClient.updateItem(updateItemRequest)
+            .<Void>thenApply(response -> null)
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to complete the event.", exception.getMessage(), processedEvent);
+                return null;
+            });
+    }
+
+    /**
+     * Releases a claimed event, so a later delivery of the same event can be processed again.
+     *
+     * @param eventId The ID of the event to release.
+     * @return A CompletableFuture that completes when the item is deleted.
+     */
+    public CompletableFuture<Void> releaseAsync(final String eventId) {
+        DeleteItemRequest deleteItemRequest = DeleteItemRequest.builder()
+            .tableName(ProcessedEvent.TABLE_NAME)
+            .key(Map.of(ProcessedEvent.EVENT_ID_COLUMN_NAME, AttributeValue.fromS(eventId)))
+            .build();
+
+        return this.dynamoDbAsyncClient.deleteItem(deleteItemRequest)
+            .<Void>thenApply(response -> null)
+            .exceptionally(exception -> {
+                LOGGER.error("Error when trying to release the event.", exception.getMessage(), eventId);
+                return null;
+            });
+    }
+
+    // The claims written before the leases were introduced have no status, so they are treated as completed.
+    private static boolean isInProgress(final ConditionalCheckFailedException conditionFailure) {
+        AttributeValue status = conditionFailure.hasItem()
+            ? conditionFailure.item().get(ProcessedEvent.STATUS_COLUMN_NAME) : null;
+        return Objects.nonNull(status) && ProcessedEvent.IN_PROGRESS_STATUS.equals(status.s());
+    }
+}
@@ -0,0 +1,188 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.cities.commons.exceptions.ResourceNotFoundException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.DeviceUpdateResult;
+import hiperium.city.devices.update.function.dto.CityCommandRequest;
+import hiperium.city.devices.update.function.dto.CityCommandResponse;
+import hiperium.city.devices.update.function.entities.CityCommandCheckpoint;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.mapper.DeviceMapper;
+import hiperium.city.devices.update.function.repository.CityCommandsRepository;
+import hiperium.city.devices.update.function.repository.DevicesRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The CityCommandService class applies a device operation to all the devices of a city.
+ *
+ * <p>
+ * The devices are enumerated page by page from the city index of the Devices table. The devices that are already
+ * in the requested status are skipped without writing them, and the rest are updated in parallel, up to the
+ * configured rate, with a conditional update that doesn't change the devices updated in the meantime. A checkpoint
+ * with the last device and the counters is saved after every page, so a new delivery of the same command, for
+ * example after a timeout, resumes from the last completed page.
+ * </p>
+ */
+@Service
+public class CityCommandService {
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.city-command.";
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CityCommandService.class);
+
+    private final int pageSize;
+    private final int concurrency;
+    private final Duration updateInterval;
+    private final Duration checkpointTimeToLive;
+
+    private final DeviceMapper deviceMapper;
+    private final CityStatusCache cityStatusCache;
+    private final DevicesRepository devicesRepository;
+    private final CityCommandsRepository cityCommandsRepository;
+    private final Map<DeviceOutcome, Counter> outcomeCounters = new EnumMap<>(DeviceOutcome.class);
+
+    /**
+     * Creates the service that applies the city-wide status commands.
+     *
+     * @param environment            The environment used to read the city command properties.
+     * @param meterRegistry          The registry used to publish the city command metrics.
+     * @param deviceMapper           The DeviceMapper instance used for mapping the device items.
+     * @param cityStatusCache        The CityStatusCache instance used for verifying that the city is enabled.
+     * @param devicesRepository      The DevicesRepository instance used for querying and updating the devices.
+     * @param cityCommandsRepository The CityCommandsRepository instance used for saving the command checkpoints.
+     */
+    public CityCommandService(Environment environment, MeterRegistry meterRegistry, DeviceMapper deviceMapper,
+                              CityStatusCache cityStatusCache, DevicesRepository devicesRepository,
+                              CityCommandsRepository cityCommandsRepository) {
+        this.deviceMapper = deviceMapper;
+        this.cityStatusCache = cityStatusCache;
+        this.devicesRepository = devicesRepository;
+        this.cityCommandsRepository = cityCommandsRepository;
+        this.pageSize = environment.getProperty(PROPERTY_PREFIX + "page-size", Integer.class, 100);
+        this.concurrency = environment.getProperty(PROPERTY_PREFIX + "concurrency", Integer.class, 8);
+        int updatesPerSecond = environment.getProperty(PROPERTY_PREFIX + "updates-per-second", Integer.class, 50);
+        this.updateInterval = updatesPerSecond > 0 ? Duration.ofNanos(1_000_000_000L / updatesPerSecond) : null;
+        this.checkpointTimeToLive = Duration.ofHours(
+            environment.getProperty(PROPERTY_PREFIX + "checkpoint-time-to-live-hours", Long.class, 24L));
+        for (DeviceOutcome deviceOutcome : DeviceOutcome.values()) {
+            this.outcomeCounters.put(deviceOutcome, meterRegistry.counter("devices.city.command.devices",
+                "result", deviceOutcome.name().toLowerCase()));
+        }
+    }
+
+    /**
+     * Applies the device operation of the command to all the devices of the city.
+     *
+     * @param cityCommandRequest The EventBridge request containing the city ID and the device operation.
+     * @return A Mono emitting the counts of updated, skipped and failed devices. The operation fails before
+     * accessing the Devices table if the city doesn't exist or is disabled.
+     */
+    public Mono<CityCommandResponse> applyCityCommand(final CityCommandRequest cityCommandRequest) {
+        final String commandId = cityCommandRequest.id();
+        final String cityId = cityCommandRequest.detail().cityId();
+        final DeviceStatus newDeviceStatus = this.deviceMapper.mapToDeviceStatus(
+            cityCommandRequest.detail().deviceOperation());
+
+        return this.cityStatusCache.verifyCityIsEnabled(cityId)
+            .then(Mono.fromCompletionStage(() -> this.cityCommandsRepository.findByIdAsync(commandId)))
+            .doOnNext(checkpoint -> LOGGER.debug("Resuming city command from checkpoint", checkpoint))
+            .defaultIfEmpty(new CityCommandCheckpoint(commandId, cityId, null, 0, 0, 0, false,
+                this.getExpirationTime()))
+            .expand(checkpoint -> checkpoint.completed()
+                ? Mono.empty()
+                : this.processNextPage(checkpoint, newDeviceStatus))
+            .last()
+            .map(checkpoint -> new CityCommandResponse(HttpStatus.OK.value(), checkpoint.updated(),
+                checkpoint.skipped(), checkpoint.failed(), null));
+    }
+
+    private Mono<CityCommandCheckpoint> processNextPage(final CityCommandCheckpoint checkpoint,
+                                                       final DeviceStatus newDeviceStatus) {
+        return Mono.fromCompletionStage(() -> this.devicesRepository.findCityDevicesAsync(checkpoint.cityId(),
+                checkpoint.lastDeviceId(), this.pageSize))
+            .flatMap(queryResponse -> this.applyToPage(queryResponse, newDeviceStatus)
+                .map(outcomes -> new CityCommandCheckpoint(checkpoint.commandId(), checkpoint.cityId(),
+                    getLastDeviceId(queryResponse),
+                    checkpoint.updated() + outcomes.getOrDefault(DeviceOutcome.UPDATED, 0L),
+                    checkpoint.skipped() + outcomes.getOrDefault(DeviceOutcome.SKIPPED, 0L),
+                    checkpoint.failed() + outcomes.getOrDefault(DeviceOutcome.FAILED, 0L),
+                    !queryResponse.hasLastEvaluatedKey(),
+                    this.getExpirationTime())))
+            .flatMap(nextCheckpoint -> Mono.fromCompletionStage(() ->
+                    this.cityCommandsRepository.saveAsync(nextCheckpoint))
+                .thenReturn(nextCheckpoint));
+    }
+
+    private Mono<Map<DeviceOutcome, Long>> applyToPage(final QueryResponse queryResponse,
+                                                      final DeviceStatus newDeviceStatus) {
+        List<Device> devices = queryResponse.items().stream()
+            .map(this::mapToDevice)
+            .toList();
+        Flux<Device> pendingDevices = Flux.fromIterable(devices)
+            .filter(device -> device.status() != newDeviceStatus);
+        if (Objects.nonNull(this.updateInterval)) {
+            pendingDevices = pendingDevices.delayElements(this.updateInterval);
+        }
+        return Flux.fromIterable(devices)
+            .filter(device -> device.status() == newDeviceStatus)
+            .map(device -> DeviceOutcome.SKIPPED)
+            .concatWith(pendingDevices.flatMap(device -> this.updateDevice(device, newDeviceStatus), this.concurrency))
+            .doOnNext(deviceOutcome -> this.outcomeCounters.get(deviceOutcome).increment())
+            .<Map<DeviceOutcome, Long>>collect(() -> new EnumMap<>(DeviceOutcome.class),
+                (outcomes, deviceOutcome) -> outcomes.merge(deviceOutcome, 1L, Long::sum));
+    }
+
+    private Mono<DeviceOutcome> updateDevice(final Device device, final DeviceStatus newDeviceStatus) {
+        if (Objects.isNull(device.id())) {
+            return Mono.just(DeviceOutcome.FAILED);
+        }
+        return this.devicesRepository.updateCityDeviceStatusAsync(device, newDeviceStatus)
+            .map(updateResult -> updateResult == DeviceUpdateResult.UPDATED
+                ? DeviceOutcome.UPDATED
+                : DeviceOutcome.SKIPPED)
+            .onErrorResume(ResourceNotFoundException.class, exception -> Mono.just(DeviceOutcome.SKIPPED))
+            .onErrorResume(exception -> {
+                LOGGER.error("Couldn't update the device status.", exception.getMessage(), device);
+                return Mono.just(DeviceOutcome.FAILED);
+            });
+    }
+
+    private Device mapToDevice(final Map<String, AttributeValue> deviceAttributes) {
+        try {
+            return this.deviceMapper.mapToDevice(deviceAttributes);
+        } catch (RuntimeException exception) {
+            LOGGER.error("Couldn't map the device item.", exception.getMessage(), deviceAttributes);
+            return new Device(null, null, null, null);
+        }
+    }
+
+    private Long getExpirationTime() {
+        return Instant.now().plus(this.checkpointTimeToLive).getEpochSecond();
+    }
+
+    private static String getLastDeviceId(final QueryResponse queryResponse) {
+        if (!queryResponse.hasLastEvaluatedKey()) {
+            return null;
+        }
+        return queryResponse.lastEvaluatedKey().get(Device.ID_COLUMN_NAME).s();
+    }
+
+    private enum DeviceOutcome {
+        UPDATED, SKIPPED, FAILED
+    }
+}
@@ -0,0 +1,137 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.dto.CountersRepairResponse;
+import hiperium.city.devices.update.function.entities.CityDeviceCounters;
+import hiperium.city.devices.update.function.repository.CityCountersRepository;
+import hiperium.city.devices.update.function.repository.DevicesRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The CityCountersRepairService class rebuilds the device counters of the cities from the Devices table, and
+ * replaces the ones that drifted from the devices.
+ *
+ * <p>
+ * The live counters are read first, and the devices are counted with a parallel scan of the Devices table. The
+ * counters of a drifted city are replaced with a conditional put that only succeeds if their changes counter still
+ * has the value read before the scan, so the status changes applied in the meantime are never lost, even when they
+ * cancelled each other out. Those cities are reported as
+ * conflicted and repaired by the next run. When the {@code hiperium.devices.counters.repair-dry-run} property is
+ * true, the drifted cities are only reported.
+ * </p>
+ */
+@Service
+public class CityCountersRepairService {
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.counters.";
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CityCountersRepairService.class);
+
+    private final int segments;
+    private final int concurrency;
+    private final boolean dryRun;
+
+    private final DevicesRepository devicesRepository;
+    private final CityCountersRepository cityCountersRepository;
+    private final Map<RepairOutcome, Counter> outcomeCounters = new EnumMap<>(RepairOutcome.class);
+
+    /**
+     * Creates the service that repairs the city device counters.
+     *
+     * @param environment            The environment used to read the counters properties.
+     * @param meterRegistry          The registry used to publish the repair metrics.
+     * @param devicesRepository      The DevicesRepository instance used for counting the devices of every city.
+     * @param cityCountersRepository The CityCountersRepository instance used for reading and replacing the counters.
+     */
+    public CityCountersRepairService(Environment environment, MeterRegistry meterRegistry,
+                                     DevicesRepository devicesRepository,
+                                     CityCountersRepository cityCountersRepository) {
+        this.devicesRepository = devicesRepository;
+        this.cityCountersRepository = cityCountersRepository;
+        this.segments = environment.getProperty(PROPERTY_PREFIX + "repair-segments", Integer.class, 4);
+        this.concurrency = environment.getProperty(PROPERTY_PREFIX + "repair-concurrency", Integer.class, 8);
+        this.dryRun = environment.getProperty(PROPERTY_PREFIX + "repair-dry-run", Boolean.class, false);
+        for (RepairOutcome repairOutcome : RepairOutcome.values()) {
+            this.outcomeCounters.put(repairOutcome, meterRegistry.counter("devices.counters.repair.cities",
+                "result", repairOutcome.name().toLowerCase()));
+        }
+    }
+
+    /**
+     * Rebuilds the device counters of all the cities and replaces the drifted ones.
+     *
+     * @return A Mono emitting the counts of checked, drifted, repaired and conflicted cities.
+     */
+    public Mono<CountersRepairResponse> repairCounters() {
+        return Mono.fromCompletionStage(this.cityCountersRepository::findAllAsync)
+            .flatMap(liveCounters -> this.rebuildCounters()
+                .flatMapMany(rebuiltCounters -> {
+                    Set<String> cityIds = new HashSet<>(liveCounters.keySet());
+                    cityIds.addAll(rebuiltCounters.keySet());
+                    return Flux.fromIterable(cityIds)
+                        .flatMap(cityId -> this.repairCity(
+                            rebuiltCounters.getOrDefault(cityId, new CityDeviceCounters(cityId, 0, 0, 0, 0)),
+                            liveCounters.get(cityId)), this.concurrency);
+                })
+                .doOnNext(repairOutcome -> this.outcomeCounters.get(repairOutcome).increment())
+                .<Map<RepairOutcome, Long>>collect(() -> new EnumMap<>(RepairOutcome.class),
+                    (outcomes, repairOutcome) -> outcomes.merge(repairOutcome, 1L, Long::sum)))
+            .map(outcomes -> new CountersRepairResponse(HttpStatus.OK.value(),
+                outcomes.values().stream().mapToLong(Long::longValue).sum(),
+                outcomes.getOrDefault(RepairOutcome.DRIFTED, 0L)
+                    + outcomes.getOrDefault(RepairOutcome.REPAIRED, 0L)
+                    + outcomes.getOrDefault(RepairOutcome.CONFLICTED, 0L),
+                outcomes.getOrDefault(RepairOutcome.REPAIRED, 0L),
+                outcomes.getOrDefault(RepairOutcome.CONFLICTED, 0L),
+                null));
+    }
+
+    private Mono<Map<String, CityDeviceCounters>> rebuildCounters() {
+        return Flux.range(0, this.segments)
+            .flatMap(segment -> Mono.fromCompletionStage(() ->
+                this.devicesRepository.countSegmentDevicesAsync(segment, this.segments)))
+            .reduceWith(HashMap::new, (cityCounters, segmentCounters) -> {
+                segmentCounters.forEach((cityId, counters) ->
+                    cityCounters.merge(cityId, counters, CityCountersRepairService::sum));
+                return cityCounters;
+            });
+    }
+
+    private Mono<RepairOutcome> repairCity(final CityDeviceCounters rebuiltCounters,
+                                           final CityDeviceCounters liveCounters) {
+        CityDeviceCounters currentCounters = Objects.isNull(liveCounters)
+            ? new CityDeviceCounters(rebuiltCounters.cityId(), 0, 0, 0, 0)
+            : liveCounters;
+        if (currentCounters.hasSameCountsAs(rebuiltCounters)) {
+            return Mono.just(RepairOutcome.CONSISTENT);
+        }
+        LOGGER.info("City device counters drifted: live " + currentCounters + ", rebuilt " + rebuiltCounters);
+        if (this.dryRun) {
+            return Mono.just(RepairOutcome.DRIFTED);
+        }
+        return Mono.fromCompletionStage(() ->
+                this.cityCountersRepository.replaceIfUnchangedAsync(rebuiltCounters, liveCounters))
+            .map(replaced -> Boolean.TRUE.equals(replaced) ? RepairOutcome.REPAIRED : RepairOutcome.CONFLICTED);
+    }
+
+    private static CityDeviceCounters sum(final CityDeviceCounters counters, final CityDeviceCounters others) {
+        return new CityDeviceCounters(counters.cityId(), counters.total() + others.total(),
+            counters.on() + others.on(), counters.off() + others.off(), 0);
+    }
+
+    private enum RepairOutcome {
+        CONSISTENT, DRIFTED, REPAIRED, CONFLICTED
+    }
+}
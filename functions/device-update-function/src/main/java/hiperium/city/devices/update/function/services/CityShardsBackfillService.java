@@ -0,0 +1,88 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.dto.ShardsBackfillResponse;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.repository.CityShards;
+import hiperium.city.devices.update.function.repository.DevicesRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The CityShardsBackfillService class writes the city shard of the devices written before sharding was enabled.
+ *
+ * <p>
+ * The devices without a city shard are found with a parallel scan of the Devices table, and their city shard is
+ * written with a conditional update that only succeeds if they still exist and don't have one yet, so a device
+ * updated in the meantime isn't written twice. The backfill can be run again after a failure, because the scan only
+ * finds the devices that are still missing their city shard. Once a run finds none, the
+ * {@code hiperium.devices.sharding.backfilled} property can be set to true, so the city reads use the sharded index.
+ * </p>
+ */
+@Service
+public class CityShardsBackfillService {
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.sharding.";
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(CityShardsBackfillService.class);
+
+    private final int segments;
+    private final int concurrency;
+    private final CityShards cityShards;
+    private final DevicesRepository devicesRepository;
+
+    private final Counter backfilledDevicesCounter;
+    private final Counter skippedDevicesCounter;
+
+    /**
+     * Creates the service that backfills the city shards.
+     *
+     * @param environment       The environment used to read the sharding properties.
+     * @param meterRegistry     The registry used to publish the backfill metrics.
+     * @param cityShards        The city shards written to the devices.
+     * @param devicesRepository The repository used for finding and updating the devices without a city shard.
+     */
+    public CityShardsBackfillService(Environment environment, MeterRegistry meterRegistry, CityShards cityShards,
+                                     DevicesRepository devicesRepository) {
+        this.cityShards = cityShards;
+        this.devicesRepository = devicesRepository;
+        this.segments = environment.getProperty(PROPERTY_PREFIX + "backfill-segments", Integer.class, 4);
+        this.concurrency = environment.getProperty(PROPERTY_PREFIX + "backfill-concurrency", Integer.class, 16);
+        this.backfilledDevicesCounter = meterRegistry.counter("devices.sharding.backfill.devices",
+            "result", "backfilled");
+        this.skippedDevicesCounter = meterRegistry.counter("devices.sharding.backfill.devices", "result", "skipped");
+    }
+
+    /**
+     * Writes the city shard of every device that doesn't have one. Nothing is written if sharding is disabled.
+     *
+     * @return A Mono emitting the counts of scanned and backfilled devices.
+     */
+    public Mono<ShardsBackfillResponse> backfillShards() {
+        if (!this.cityShards.isEnabled()) {
+            LOGGER.info("City shards backfill skipped, because sharding is disabled.");
+            return Mono.just(new ShardsBackfillResponse(HttpStatus.OK.value(), 0, 0, null));
+        }
+        AtomicLong scannedDevices = new AtomicLong();
+        return Flux.range(0, this.segments)
+            .flatMap(segment -> this.devicesRepository.findUnshardedDevices(segment, this.segments), this.segments)
+            .doOnNext(deviceKey -> scannedDevices.incrementAndGet())
+            .flatMap(deviceKey -> Mono.fromCompletionStage(() -> this.devicesRepository.backfillCityShardAsync(
+                deviceKey.get(Device.ID_COLUMN_NAME).s(), deviceKey.get(Device.CITY_ID_COLUMN_NAME).s())),
+                this.concurrency)
+            .doOnNext(backfilled -> (Boolean.TRUE.equals(backfilled)
+                ? this.backfilledDevicesCounter : this.skippedDevicesCounter).increment())
+            .filter(Boolean.TRUE::equals)
+            .count()
+            .map(backfilledDevices -> new ShardsBackfillResponse(HttpStatus.OK.value(), scannedDevices.get(),
+                backfilledDevices, null))
+            .doOnNext(response -> LOGGER.info("City shards backfill finished. Scanned: " + response.scannedDevices()
+                + ", backfilled: " + response.backfilledDevices()));
+    }
+}
@@ -0,0 +1,152 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.cities.commons.exceptions.ParsingException;
+import hiperium.cities.commons.exceptions.ResourceNotFoundException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.DeviceUpdateResult;
+import hiperium.city.devices.update.function.dto.EventBridgeRequest;
+import hiperium.city.devices.update.function.dto.KinesisCommandEvent;
+import hiperium.city.devices.update.function.dto.KinesisCommandEvent.KinesisCommandRecord;
+import hiperium.city.devices.update.function.dto.StreamBatchResponse;
+import hiperium.city.devices.update.function.dto.StreamBatchResponse.BatchItemFailure;
+import hiperium.city.devices.update.function.utils.FunctionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ValidationException;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The DeviceCommandStreamService class applies the device status commands received from the device commands Kinesis
+ * stream, whose records are partitioned by device ID.
+ *
+ * <p>
+ * Kinesis keeps the records of a partition key in order within its shard, so the records of a batch are grouped by
+ * device, and the commands of every device are applied one after the other, in the order of the stream. The devices
+ * are processed in parallel, up to the configured concurrency, so the ordering doesn't serialize the whole fleet.
+ * </p>
+ *
+ * <p>
+ * When a command fails, the remaining commands of its device aren't applied, and the sequence number of the failed
+ * record is reported as a batch item failure. Lambda checkpoints the shard before the lowest failed record and
+ * delivers the following records again, so the later commands of that device are retried in order, and the ones of
+ * the other devices are skipped as duplicated by the idempotency checks. The commands that can never be applied,
+ * because they can't be decoded, are invalid, or refer to a missing device or a disabled city, are logged and
+ * skipped instead, so they don't block the shard.
+ * </p>
+ */
+@Service
+public class DeviceCommandStreamService {
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.command-stream.";
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DeviceCommandStreamService.class);
+
+    private final int concurrency;
+    private final DevicesService devicesService;
+
+    private final Counter rejectedCommandsCounter;
+    private final Counter failedCommandsCounter;
+    private final Counter deferredCommandsCounter;
+    private final Map<DeviceUpdateResult, Counter> resultCounters = new EnumMap<>(DeviceUpdateResult.class);
+
+    /**
+     * Creates the service that applies the device commands of the stream.
+     *
+     * @param environment    The environment used to read the command stream properties.
+     * @param meterRegistry  The registry used to publish the command stream metrics.
+     * @param devicesService The DevicesService instance used for updating the device statuses.
+     */
+    public DeviceCommandStreamService(Environment environment, MeterRegistry meterRegistry,
+                                      DevicesService devicesService) {
+        this.devicesService = devicesService;
+        this.concurrency = environment.getProperty(PROPERTY_PREFIX + "concurrency", Integer.class, 16);
+        for (DeviceUpdateResult updateResult : DeviceUpdateResult.values()) {
+            this.resultCounters.put(updateResult, meterRegistry.counter("devices.command.stream.records",
+                "result", updateResult.name().toLowerCase()));
+        }
+        this.rejectedCommandsCounter = meterRegistry.counter("devices.command.stream.records", "result", "rejected");
+        this.failedCommandsCounter = meterRegistry.counter("devices.command.stream.records", "result", "failed");
+        this.deferredCommandsCounter = meterRegistry.counter("devices.command.stream.records", "result", "deferred");
+    }
+
+    /**
+     * Applies the commands of the stream batch, in order for every device.
+     *
+     * @param commandEvent The batch of records received from the device commands stream.
+     * @return A Mono emitting the partial batch response with the sequence numbers of the first failed record of
+     * every device.
+     */
+    public Mono<StreamBatchResponse> applyCommands(final KinesisCommandEvent commandEvent) {
+        if (Objects.isNull(commandEvent.records()) || commandEvent.records().isEmpty()) {
+            return Mono.just(new StreamBatchResponse(List.of()));
+        }
+        Map<String, List<KinesisCommandRecord>> deviceRecords = new LinkedHashMap<>();
+        commandEvent.records().forEach(commandRecord -> deviceRecords
+            .computeIfAbsent(commandRecord.kinesis().partitionKey(), partitionKey -> new ArrayList<>())
+            .add(commandRecord));
+
+        return Flux.fromIterable(deviceRecords.values())
+            .flatMap(this::applyDeviceCommands, this.concurrency)
+            .map(BatchItemFailure::new)
+            .collectList()
+            .map(StreamBatchResponse::new);
+    }
+
+    // Emits the sequence number of the first failed record of the device, or completes empty if all were applied.
+    private Mono<String> applyDeviceCommands(final List<KinesisCommandRecord> commandRecords) {
+        return Flux.range(0, commandRecords.size())
+            .concatMap(position -> {
+                KinesisCommandRecord commandRecord = commandRecords.get(position);
+                return this.applyCommand(commandRecord)
+                    .then(Mono.<String>empty())
+                    .onErrorResume(exception -> {
+                        LOGGER.error("Couldn't apply the stream command.", exception.getMessage(),
+                            commandRecord.eventID());
+                        this.failedCommandsCounter.increment();
+                        this.deferredCommandsCounter.increment(commandRecords.size() - position - 1);
+                        return Mono.just(commandRecord.kinesis().sequenceNumber());
+                    });
+            })
+            .next();
+    }
+
+    private Mono<DeviceUpdateResult> applyCommand(final KinesisCommandRecord commandRecord) {
+        return Mono.defer(() -> {
+                EventBridgeRequest eventBridgeRequest = FunctionUtils.deserializeStreamCommand(
+                    decodeData(commandRecord));
+                FunctionUtils.validateRequest(eventBridgeRequest);
+                return this.devicesService.updateDeviceStatus(eventBridgeRequest);
+            })
+            .doOnNext(updateResult -> this.resultCounters.get(updateResult).increment())
+            .onErrorResume(DeviceCommandStreamService::isPermanentError, exception -> {
+                LOGGER.error("Skipped the stream command that can't be applied.", exception.getMessage(),
+                    commandRecord.eventID());
+                this.rejectedCommandsCounter.increment();
+                return Mono.empty();
+            });
+    }
+
+    private static byte[] decodeData(final KinesisCommandRecord commandRecord) {
+        try {
+            return Base64.getDecoder().decode(commandRecord.kinesis().data());
+        } catch (RuntimeException exception) {
+            throw new ParsingException("Couldn't decode the stream record data.");
+        }
+    }
+
+    private static boolean isPermanentError(final Throwable throwable) {
+        return throwable instanceof ParsingException
+            || throwable instanceof ValidationException
+            || throwable instanceof ResourceNotFoundException;
+    }
+}
@@ -0,0 +1,205 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.AdaptivePacer;
+import hiperium.city.devices.update.function.dto.DeviceImportLine;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import hiperium.city.devices.update.function.dto.ImportDevicesResponse;
+import hiperium.city.devices.update.function.dto.ImportDevicesResponse.RowFailure;
+import hiperium.city.devices.update.function.repository.DevicesRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * The DeviceImportService class writes the devices of a bulk import file to the Devices table.
+ *
+ * <p>
+ * The valid rows are first deduplicated across the whole file, keeping the last row of every device ID, so a device
+ * repeated in distant rows is written once, with its latest values. The import file is already held in memory, so
+ * keeping its unique rows doesn't change the memory bound of the import. Every device is then written with its own
+ * UpdateItem request, in groups of 25 devices, and a bounded number of groups is written concurrently, so up to
+ * {@code hiperium.devices.import.concurrency} times 25 writes are in flight (100 by default). The devices that
+ * DynamoDB throttles are retried, and the groups are paced by an {@link AdaptivePacer} shared by the whole import.
+ * </p>
+ */
+@Service
+public class DeviceImportService {
+
+    private static final int MAX_GROUP_SIZE = 25;
+    private static final String PROPERTY_PREFIX = "hiperium.devices.import.";
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DeviceImportService.class);
+
+    private final int concurrency;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxReportedFailures;
+    private final DevicesRepository devicesRepository;
+
+    private final Counter importedRowsCounter;
+    private final Counter invalidRowsCounter;
+    private final Counter failedRowsCounter;
+    private final Counter retriedRowsCounter;
+
+    /**
+     * Creates the service that imports the devices.
+     *
+     * @param environment       The environment used to read the import properties.
+     * @param meterRegistry     The registry used to publish the import metrics.
+     * @param devicesRepository The repository used for writing the devices.
+     */
+    public DeviceImportService(Environment environment, MeterRegistry meterRegistry,
+                               DevicesRepository devicesRepository) {
+        this.devicesRepository = devicesRepository;
+        this.concurrency = environment.getProperty(PROPERTY_PREFIX + "concurrency", Integer.class, 4);
+        this.maxAttempts = environment.getProperty(PROPERTY_PREFIX + "max-attempts", Integer.class, 8);
+        this.baseBackoffMillis = environment.getProperty(PROPERTY_PREFIX + "base-backoff-ms", Long.class, 50L);
+        this.maxBackoffMillis = environment.getProperty(PROPERTY_PREFIX + "max-backoff-ms", Long.class, 5_000L);
+        this.maxReportedFailures = environment.getProperty(PROPERTY_PREFIX + "max-reported-failures",
+            Integer.class, 100);
+        this.importedRowsCounter = meterRegistry.counter("devices.import.rows", "result", "imported");
+        this.invalidRowsCounter = meterRegistry.counter("devices.import.rows", "result", "invalid");
+        this.failedRowsCounter = meterRegistry.counter("devices.import.rows", "result", "failed");
+        this.retriedRowsCounter = meterRegistry.counter("devices.import.retries");
+    }
+
+    /**
+     * Imports the devices of the given import lines. The invalid lines, and the devices that couldn't be written,
+     * are reported without stopping the import.
+     *
+     * @param importLines The lines read from the import file.
+     * @return A Mono emitting the import report.
+     */
+    public Mono<ImportDevicesResponse> importDevices(final Flux<DeviceImportLine> importLines) {
+        return Mono.defer(() -> {
+            ImportProgress progress = new ImportProgress(this.maxReportedFailures, System.nanoTime(),
+                new AdaptivePacer(this.baseBackoffMillis, this.maxBackoffMillis));
+            return importLines
+                .doOnNext(importLine -> progress.totalRows.incrementAndGet())
+                .filter(importLine -> {
+                    if (!importLine.isValid()) {
+                        this.invalidRowsCounter.increment();
+                        progress.addFailure(importLine.lineNumber(), importLine.error());
+                    }
+                    return importLine.isValid();
+                })
+                .collect(LinkedHashMap<String, DeviceImportLine>::new,
+                    (uniqueLines, importLine) -> this.keepLastRow(uniqueLines, importLine, progress))
+                .flatMapIterable(Map::values)
+                .buffer(MAX_GROUP_SIZE)
+                .flatMap(group -> this.writeGroup(group, 1, progress), this.concurrency)
+                .then(Mono.fromSupplier(progress::toResponse))
+                .doOnNext(response -> LOGGER.info("Devices import finished. Imported: " + response.importedRows()
+                    + ", failed: " + response.failedRows() + ", rows/s: " + response.rowsPerSecond()));
+        });
+    }
+
+    private Mono<Void> writeGroup(final List<DeviceImportLine> group, final int attempt,
+                                  final ImportProgress progress) {
+        if (group.isEmpty()) {
+            return Mono.empty();
+        }
+        List<DeviceImportRow> deviceRows = group.stream().map(DeviceImportLine::row).toList();
+        return progress.pacer.pace()
+            .then(Mono.fromCompletionStage(() -> this.devicesRepository.batchImportAsync(deviceRows)))
+            .onErrorResume(AdaptivePacer::isThrottlingError, exception ->
+                Mono.just(IntStream.range(0, group.size()).boxed().toList()))
+            .flatMap(unprocessedPositions -> {
+                int writtenRows = group.size() - unprocessedPositions.size();
+                progress.importedRows.addAndGet(writtenRows);
+                this.importedRowsCounter.increment(writtenRows);
+                if (unprocessedPositions.isEmpty()) {
+                    progress.pacer.onWriteCompleted();
+                    return Mono.<Void>empty();
+                }
+                progress.pacer.onWriteThrottled();
+                List<DeviceImportLine> unprocessedLines = unprocessedPositions.stream().map(group::get).toList();
+                if (attempt >= this.maxAttempts) {
+                    this.failRows(unprocessedLines, "Device left unprocessed after " + attempt + " attempts.",
+                        progress);
+                    return Mono.<Void>empty();
+                }
+                this.retriedRowsCounter.increment(unprocessedLines.size());
+                return Mono.delay(progress.pacer.getBackoff(attempt))
+                    .then(this.writeGroup(unprocessedLines, attempt + 1, progress));
+            })
+            .onErrorResume(exception -> {
+                LOGGER.error("Couldn't write the devices group.", exception.getMessage());
+                this.failRows(group, "Couldn't write the device.", progress);
+                return Mono.empty();
+            });
+    }
+
+    private void keepLastRow(final Map<String, DeviceImportLine> uniqueLines, final DeviceImportLine importLine,
+                             final ImportProgress progress) {
+        DeviceImportLine replacedLine = uniqueLines.put(importLine.row().deviceId(), importLine);
+        if (Objects.nonNull(replacedLine)) {
+            this.failRows(List.of(replacedLine), "Device repeated in a later row.", progress);
+        }
+    }
+
+    private void failRows(final List<DeviceImportLine> importLines, final String reason,
+                          final ImportProgress progress) {
+        this.failedRowsCounter.increment(importLines.size());
+        importLines.forEach(importLine -> progress.addFailure(importLine.lineNumber(), reason));
+    }
+
+    /**
+     * Keeps the counters, the reported failures and the pacer of a single import.
+     */
+    private static final class ImportProgress {
+
+        private final long startNanos;
+        private final int maxReportedFailures;
+        private final AtomicLong totalRows = new AtomicLong();
+        private final AtomicLong importedRows = new AtomicLong();
+        private final AtomicLong failedRows = new AtomicLong();
+        private final AdaptivePacer pacer;
+        private final List<RowFailure> rowFailures = new ArrayList<>();
+
+        private ImportProgress(int maxReportedFailures, long startNanos, AdaptivePacer pacer) {
+            this.maxReportedFailures = maxReportedFailures;
+            this.startNanos = startNanos;
+            this.pacer = pacer;
+        }
+
+        private void addFailure(long lineNumber, String reason) {
+            this.failedRows.incrementAndGet();
+            synchronized (this.rowFailures) {
+                if (this.rowFailures.size() < this.maxReportedFailures) {
+                    this.rowFailures.add(new RowFailure(lineNumber, reason));
+                }
+            }
+        }
+
+        private ImportDevicesResponse toResponse() {
+            long elapsedNanos = System.nanoTime() - this.startNanos;
+            long importedCount = this.importedRows.get();
+            double rowsPerSecond = elapsedNanos == 0 ? 0 : importedCount * 1_000_000_000.0 / elapsedNanos;
+            List<RowFailure> reportedFailures;
+            synchronized (this.rowFailures) {
+                reportedFailures = this.rowFailures.stream()
+                    .sorted(Comparator.comparingLong(RowFailure::lineNumber))
+                    .toList();
+            }
+            return new ImportDevicesResponse(HttpStatus.OK.value(), this.totalRows.get(), importedCount,
+                this.failedRows.get(), Duration.ofNanos(elapsedNanos).toMillis(),
+                Math.round(rowsPerSecond * 100.0) / 100.0, reportedFailures, null);
+        }
+    }
+}
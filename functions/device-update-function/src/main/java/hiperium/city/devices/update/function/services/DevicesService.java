@@ -2,10 +2,16 @@ package hiperium.city.devices.update.function.services;
 
 import hiperium.cities.commons.exceptions.ResourceNotFoundException;
 import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.ComputeOffload;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.DeviceUpdateResult;
 import hiperium.city.devices.update.function.dto.EventBridgeRequest;
 import hiperium.city.devices.update.function.entities.Device;
 import hiperium.city.devices.update.function.mapper.DeviceMapper;
 import hiperium.city.devices.update.function.repository.DevicesRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
@@ -15,41 +21,121 @@ import java.util.Map;
 /**
  * The DevicesService class is responsible for performing operations related to devices.
  * It provides methods to update the status of a device and retrieve device information.
+ *
+ * <p>
+ * The devices that are already in the requested status aren't written again. By default, the device is read first
+ * and the write is skipped when its status matches. When the {@code hiperium.devices.update.conditional-write}
+ * property is enabled, the read is skipped too, and the status is changed in a single round trip with a conditional
+ * update that fails if the device is already in the requested status.
+ * </p>
+ *
+ * <p>
+ * The time of the EventBridge event is stored with the device, and the updates requested by events older than the
+ * last applied one are discarded as stale, in the same round trip as the update. EventBridge doesn't guarantee the
+ * delivery order, so an older command can't override a newer one.
+ * </p>
  */
 @Service
 public class DevicesService {
 
     private static final HiperiumLogger LOGGER = new HiperiumLogger(DevicesService.class);
 
+    private final boolean conditionalWrite;
+    private final Counter staleCounter;
+    private final Counter unchangedCounter;
     private final DeviceMapper deviceMapper;
+    private final ComputeOffload computeOffload;
+    private final CityStatusCache cityStatusCache;
     private final DevicesRepository devicesRepository;
+    private final IdempotencyService idempotencyService;
 
     /**
      * The DevicesService class is responsible for performing operations related to devices.
      * It provides methods to update the status of a device and retrieve device information.
      *
+     * @param environment         The environment used to read the update properties.
+     * @param meterRegistry       The registry used to publish the unchanged and stale devices metrics.
      * @param deviceMapper        The DeviceMapper instance used for mapping device data.
+     * @param cityStatusCache     The CityStatusCache instance used for verifying that the device's city is enabled.
      * @param devicesRepository   The DevicesRepository instance used for retrieving device information.
+     * @param idempotencyService  The IdempotencyService instance used for skipping the duplicated event deliveries.
+     * @param computeOffload      The ComputeOffload instance used for mapping the items out of the SDK threads.
      */
-    public DevicesService(DeviceMapper deviceMapper, DevicesRepository devicesRepository) {
+    public DevicesService(Environment environment, MeterRegistry meterRegistry, DeviceMapper deviceMapper,
+                          CityStatusCache cityStatusCache, DevicesRepository devicesRepository,
+                          IdempotencyService idempotencyService, ComputeOffload computeOffload) {
         this.deviceMapper = deviceMapper;
+        this.computeOffload = computeOffload;
+        this.cityStatusCache = cityStatusCache;
         this.devicesRepository = devicesRepository;
+        this.idempotencyService = idempotencyService;
+        this.conditionalWrite = environment.getProperty("hiperium.devices.update.conditional-write",
+            Boolean.class, false);
+        this.staleCounter = meterRegistry.counter("devices.update.stale");
+        this.unchangedCounter = meterRegistry.counter("devices.update.unchanged");
     }
 
     /**
      * Updates the status of a device.
      *
      * @param eventBridgeRequest The EventBridge request containing the ID and operation details of the device.
-     * @return A Mono representing the completion of the update operation.
+     * @return A Mono emitting the result of the update operation: UPDATED if the status was changed, UNCHANGED if
+     * the device was already in the requested status, DUPLICATED if the event was already delivered, or STALE if
+     * the device was already changed by a newer event.
+     * The operation fails before accessing the Devices table if the city doesn't exist or is disabled,
+     * and completes without accessing it if the event was already delivered. When the city is verified with the
+     * loaded snapshot, its failures are returned as already resolved Mono instances.
      */
-    public Mono<Void> updateDeviceStatus(final EventBridgeRequest eventBridgeRequest) {
+    public Mono<DeviceUpdateResult> updateDeviceStatus(final EventBridgeRequest eventBridgeRequest) {
+        final String cityId = eventBridgeRequest.detail().cityId();
+        try {
+            if (!this.cityStatusCache.isEnabledInSnapshot(cityId)) {
+                return this.cityStatusCache.verifyCityIsEnabled(cityId)
+                    .then(Mono.defer(() -> this.updateDeviceStatusInEnabledCity(eventBridgeRequest)));
+            }
+        } catch (RuntimeException exception) {
+            return Mono.error(exception);
+        }
+        return this.updateDeviceStatusInEnabledCity(eventBridgeRequest);
+    }
+
+    private Mono<DeviceUpdateResult> updateDeviceStatusInEnabledCity(final EventBridgeRequest eventBridgeRequest) {
+        return this.idempotencyService.executeOnce(eventBridgeRequest.id(),
+                Mono.defer(() -> this.updateDeviceStatusOnce(eventBridgeRequest)))
+            .defaultIfEmpty(DeviceUpdateResult.DUPLICATED)
+            .doOnNext(updateResult -> {
+                if (updateResult == DeviceUpdateResult.UNCHANGED) {
+                    this.unchangedCounter.increment();
+                } else if (updateResult == DeviceUpdateResult.STALE) {
+                    this.staleCounter.increment();
+                }
+            });
+    }
+
+    private Mono<DeviceUpdateResult> updateDeviceStatusOnce(final EventBridgeRequest eventBridgeRequest) {
+        final DeviceStatus newDeviceStatus = this.deviceMapper.mapToDeviceStatus(
+            eventBridgeRequest.detail().deviceOperation());
+        final Long eventTime = this.deviceMapper.mapToEventTime(eventBridgeRequest.time());
+        if (this.conditionalWrite) {
+            return this.devicesRepository.updateDeviceStatusIfChangedAsync(eventBridgeRequest.detail(),
+                newDeviceStatus, eventTime).transform(this.computeOffload::afterIo);
+        }
         return Mono.fromCompletionStage(() ->
                 this.devicesRepository.findByIdAsync(eventBridgeRequest.detail()))
-            .flatMap(deviceAttributes ->
-                this.validateAndMapDeviceAttributes(deviceAttributes, eventBridgeRequest))
-            .flatMap(device ->
-                this.devicesRepository.updateDeviceStatusAsync(device, eventBridgeRequest.detail().deviceOperation())
-            );
+            .transform(this.computeOffload::afterIo)
+            .flatMap(deviceAttributes -> this.validateAndMapDeviceAttributes(deviceAttributes, eventBridgeRequest)
+                .flatMap(device -> {
+                    if (device.status() == newDeviceStatus) {
+                        LOGGER.debug("Device already in the requested status", device);
+                        return Mono.just(DeviceUpdateResult.UNCHANGED);
+                    }
+                    if (isOlderThanLastEvent(deviceAttributes, eventTime)) {
+                        LOGGER.debug("Device already changed by a newer event", device);
+                        return Mono.just(DeviceUpdateResult.STALE);
+                    }
+                    // The write is still conditional, in case a newer event is applied after the read.
+                    return this.devicesRepository.updateDeviceStatusAsync(device, newDeviceStatus, eventTime);
+                }));
     }
 
     private Mono<Device> validateAndMapDeviceAttributes(final Map<String, AttributeValue> deviceAttributes,
@@ -60,4 +146,13 @@ public class DevicesService {
         }
         return Mono.just(this.deviceMapper.mapToDevice(deviceAttributes));
     }
+
+    private boolean isOlderThanLastEvent(final Map<String, AttributeValue> deviceAttributes, final Long eventTime) {
+        if (eventTime == null) {
+            return false;
+        }
+        Long lastEventTime = this.deviceMapper.getLongValueFromAttributesMap(deviceAttributes,
+            Device.LAST_EVENT_TIME_COLUMN_NAME);
+        return lastEventTime != null && lastEventTime > eventTime;
+    }
 }
@@ -0,0 +1,309 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.AdaptivePacer;
+import hiperium.city.devices.update.function.commons.HeartbeatResult;
+import hiperium.city.devices.update.function.dto.HeartbeatRecord;
+import hiperium.city.devices.update.function.dto.IngestHeartbeatsResponse;
+import hiperium.city.devices.update.function.dto.OfflineSweepResponse;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.repository.DeviceHeartbeatsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The HeartbeatService class writes the heartbeats of the devices to the Devices table, and marks the silent
+ * devices as offline.
+ *
+ * <p>
+ * The heartbeats of a batch are aggregated in memory, keeping only the latest one of every device. A device whose
+ * last written heartbeat is more recent than the refresh interval is skipped, so a device that sends a heartbeat
+ * every few seconds is only written once per interval. The recently written heartbeats are kept in a bounded LRU
+ * cache shared by the invocations of the same instance. The remaining heartbeats are written with a bounded
+ * concurrency, up to a fixed rate, and paced by an {@link AdaptivePacer} shared by the batch. Only the heartbeats
+ * that mark an offline device as online change its version, so the Devices table stream publishes the online state
+ * changes, but not the heartbeats of the devices that were already online.
+ * </p>
+ */
+@Service
+public class HeartbeatService {
+
+    private static final String PROPERTY_PREFIX = "hiperium.devices.heartbeats.";
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(HeartbeatService.class);
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final long offlineAfterMillis;
+    private final long refreshIntervalMillis;
+    private final long maxClockSkewMillis;
+    private final Duration writeInterval;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int sweepSegments;
+
+    private final DeviceHeartbeatsRepository deviceHeartbeatsRepository;
+    private final Map<String, Long> writtenHeartbeats;
+
+    private final Counter acceptedRecordsCounter;
+    private final Counter invalidRecordsCounter;
+    private final Counter skippedDevicesCounter;
+    private final Counter failedDevicesCounter;
+    private final Counter retriedWritesCounter;
+    private final Counter offlineDevicesCounter;
+    private final Map<HeartbeatResult, Counter> resultCounters = new EnumMap<>(HeartbeatResult.class);
+
+    /**
+     * Creates the service that ingests the device heartbeats.
+     *
+     * @param environment                The environment used to read the heartbeat properties.
+     * @param meterRegistry              The registry used to publish the heartbeat metrics.
+     * @param deviceHeartbeatsRepository The repository used for writing the heartbeats.
+     */
+    public HeartbeatService(Environment environment, MeterRegistry meterRegistry,
+                            DeviceHeartbeatsRepository deviceHeartbeatsRepository) {
+        this.deviceHeartbeatsRepository = deviceHeartbeatsRepository;
+        this.offlineAfterMillis = Duration.ofSeconds(
+            environment.getProperty(PROPERTY_PREFIX + "offline-after-seconds", Long.class, 300L)).toMillis();
+        // A device must be refreshed before it's considered offline, so the interval can't reach the threshold.
+        this.refreshIntervalMillis = Math.min(this.offlineAfterMillis / 2, Duration.ofSeconds(
+            environment.getProperty(PROPERTY_PREFIX + "refresh-interval-seconds", Long.class, 60L)).toMillis());
+        this.maxClockSkewMillis = Duration.ofSeconds(
+            environment.getProperty(PROPERTY_PREFIX + "max-clock-skew-seconds", Long.class, 30L)).toMillis();
+        int writesPerSecond = environment.getProperty(PROPERTY_PREFIX + "writes-per-second", Integer.class, 200);
+        this.writeInterval = writesPerSecond > 0 ? Duration.ofNanos(1_000_000_000L / writesPerSecond) : null;
+        this.concurrency = environment.getProperty(PROPERTY_PREFIX + "concurrency", Integer.class, 16);
+        this.maxAttempts = environment.getProperty(PROPERTY_PREFIX + "max-attempts", Integer.class, 4);
+        this.baseBackoffMillis = environment.getProperty(PROPERTY_PREFIX + "base-backoff-ms", Long.class, 50L);
+        this.maxBackoffMillis = environment.getProperty(PROPERTY_PREFIX + "max-backoff-ms", Long.class, 2_000L);
+        this.sweepSegments = environment.getProperty(PROPERTY_PREFIX + "sweep-segments", Integer.class, 4);
+        int cacheSize = environment.getProperty(PROPERTY_PREFIX + "cache-size", Integer.class, 100_000);
+        this.writtenHeartbeats = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return this.size() > cacheSize;
+            }
+        };
+        this.acceptedRecordsCounter = meterRegistry.counter("devices.heartbeats.records", "result", "accepted");
+        this.invalidRecordsCounter = meterRegistry.counter("devices.heartbeats.records", "result", "invalid");
+        this.skippedDevicesCounter = meterRegistry.counter("devices.heartbeats.writes", "result", "skipped");
+        this.failedDevicesCounter = meterRegistry.counter("devices.heartbeats.writes", "result", "failed");
+        for (HeartbeatResult heartbeatResult : HeartbeatResult.values()) {
+            this.resultCounters.put(heartbeatResult, meterRegistry.counter("devices.heartbeats.writes",
+                "result", heartbeatResult.name().toLowerCase()));
+        }
+        this.retriedWritesCounter = meterRegistry.counter("devices.heartbeats.retries");
+        this.offlineDevicesCounter = meterRegistry.counter("devices.heartbeats.offline");
+    }
+
+    /**
+     * Writes the latest heartbeat of every device of the batch. The invalid records, and the ones older than the
+     * offline threshold or too far in the future, are counted without stopping the batch.
+     *
+     * @param heartbeats The heartbeat records of the batch.
+     * @return A Mono emitting the ingestion report, with the ingestion and write rates and the coalescing ratio.
+     */
+    public Mono<IngestHeartbeatsResponse> ingestHeartbeats(final List<HeartbeatRecord> heartbeats) {
+        return Mono.defer(() -> {
+            IngestProgress progress = new IngestProgress(System.nanoTime(), heartbeats.size(),
+                new AdaptivePacer(this.baseBackoffMillis, this.maxBackoffMillis));
+            long now = System.currentTimeMillis();
+            long onlineCutoff = now - this.offlineAfterMillis;
+            Map<String, HeartbeatRecord> latestHeartbeats = this.aggregate(heartbeats, onlineCutoff,
+                now + this.maxClockSkewMillis, progress);
+            progress.devices = latestHeartbeats.size();
+
+            Flux<Map.Entry<String, HeartbeatRecord>> pendingWrites = Flux.fromIterable(latestHeartbeats.entrySet())
+                .filter(entry -> this.isWriteRequired(entry.getKey(), entry.getValue().timestamp(), progress));
+            if (Objects.nonNull(this.writeInterval)) {
+                pendingWrites = pendingWrites.delayElements(this.writeInterval);
+            }
+            return pendingWrites
+                .flatMap(entry -> this.writeHeartbeat(entry.getValue(), onlineCutoff, 1, progress)
+                    .doOnNext(heartbeatResult -> this.onHeartbeatWritten(entry.getKey(), entry.getValue(),
+                        heartbeatResult, progress))
+                    .onErrorResume(exception -> {
+                        LOGGER.error("Couldn't write the device heartbeat.", exception.getMessage(),
+                            entry.getValue().deviceId());
+                        this.failedDevicesCounter.increment();
+                        progress.failedDevices.incrementAndGet();
+                        return Mono.empty();
+                    }), this.concurrency)
+                .then(Mono.fromSupplier(progress::toResponse))
+                .doOnNext(response -> LOGGER.info("Device heartbeats ingested. Records: " + response.receivedRecords()
+                    + ", written: " + response.writtenDevices() + ", online: " + response.onlineDevices()
+                    + ", records/s: " + response.recordsPerSecond()
+                    + ", coalescing ratio: " + response.coalescingRatio()));
+        });
+    }
+
+    /**
+     * Marks as offline the online devices without a heartbeat since the offline threshold.
+     *
+     * @return A Mono emitting the counts of silent devices and of devices marked as offline.
+     */
+    public Mono<OfflineSweepResponse> sweepOfflineDevices() {
+        return Mono.defer(() -> this.sweepOfflineDevices(System.currentTimeMillis() - this.offlineAfterMillis));
+    }
+
+    Mono<OfflineSweepResponse> sweepOfflineDevices(final long onlineCutoff) {
+        AtomicLong silentDevices = new AtomicLong();
+        AtomicLong offlineDevices = new AtomicLong();
+        return Flux.range(0, this.sweepSegments)
+            .flatMap(segment -> Mono.fromCompletionStage(() ->
+                this.deviceHeartbeatsRepository.findSilentDevicesAsync(segment, this.sweepSegments, onlineCutoff)))
+            .flatMapIterable(Function.identity())
+            .doOnNext(deviceKey -> silentDevices.incrementAndGet())
+            .flatMap(deviceKey -> {
+                String deviceId = deviceKey.get(Device.ID_COLUMN_NAME).s();
+                String cityId = deviceKey.get(Device.CITY_ID_COLUMN_NAME).s();
+                return Mono.fromCompletionStage(() ->
+                        this.deviceHeartbeatsRepository.markOfflineAsync(deviceId, cityId, onlineCutoff))
+                    .filter(Boolean.TRUE::equals)
+                    .doOnNext(marked -> {
+                        this.forgetHeartbeat(cacheKeyOf(deviceId, cityId));
+                        this.offlineDevicesCounter.increment();
+                        offlineDevices.incrementAndGet();
+                    });
+            }, this.concurrency)
+            .then(Mono.fromSupplier(() -> new OfflineSweepResponse(HttpStatus.OK.value(), silentDevices.get(),
+                offlineDevices.get(), null)))
+            .doOnNext(response -> LOGGER.info("Silent devices swept. Silent: " + response.silentDevices()
+                + ", offline: " + response.offlineDevices()));
+    }
+
+    private Map<String, HeartbeatRecord> aggregate(final List<HeartbeatRecord> heartbeats, final long minTimestamp,
+                                                   final long maxTimestamp, final IngestProgress progress) {
+        Map<String, HeartbeatRecord> latestHeartbeats = new LinkedHashMap<>();
+        for (HeartbeatRecord heartbeat : heartbeats) {
+            if (!isValid(heartbeat, minTimestamp, maxTimestamp)) {
+                this.invalidRecordsCounter.increment();
+                progress.invalidRecords++;
+                continue;
+            }
+            latestHeartbeats.merge(cacheKeyOf(heartbeat.deviceId(), heartbeat.cityId()), heartbeat,
+                (latest, other) -> other.timestamp() > latest.timestamp() ? other : latest);
+        }
+        this.acceptedRecordsCounter.increment(heartbeats.size() - progress.invalidRecords);
+        return latestHeartbeats;
+    }
+
+    private boolean isWriteRequired(final String cacheKey, final long timestamp, final IngestProgress progress) {
+        Long writtenTimestamp;
+        synchronized (this.writtenHeartbeats) {
+            writtenTimestamp = this.writtenHeartbeats.get(cacheKey);
+        }
+        if (Objects.nonNull(writtenTimestamp) && timestamp < writtenTimestamp + this.refreshIntervalMillis) {
+            this.skippedDevicesCounter.increment();
+            progress.skippedDevices.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private Mono<HeartbeatResult> writeHeartbeat(final HeartbeatRecord heartbeat, final long onlineCutoff,
+                                                 final int attempt, final IngestProgress progress) {
+        return progress.pacer.pace()
+            .then(Mono.fromCompletionStage(() -> this.deviceHeartbeatsRepository.recordHeartbeatAsync(
+                heartbeat.deviceId(), heartbeat.cityId(), heartbeat.timestamp(), onlineCutoff)))
+            .doOnNext(heartbeatResult -> progress.pacer.onWriteCompleted())
+            .onErrorResume(AdaptivePacer::isThrottlingError, exception -> {
+                progress.pacer.onWriteThrottled();
+                if (attempt >= this.maxAttempts) {
+                    return Mono.error(exception);
+                }
+                this.retriedWritesCounter.increment();
+                return Mono.delay(progress.pacer.getBackoff(attempt))
+                    .then(this.writeHeartbeat(heartbeat, onlineCutoff, attempt + 1, progress));
+            });
+    }
+
+    private void onHeartbeatWritten(final String cacheKey, final HeartbeatRecord heartbeat,
+                                    final HeartbeatResult heartbeatResult, final IngestProgress progress) {
+        this.resultCounters.get(heartbeatResult).increment();
+        progress.writtenDevices.incrementAndGet();
+        if (heartbeatResult == HeartbeatResult.ONLINE) {
+            progress.onlineDevices.incrementAndGet();
+        }
+        if (heartbeatResult == HeartbeatResult.REFRESHED || heartbeatResult == HeartbeatResult.ONLINE) {
+            synchronized (this.writtenHeartbeats) {
+                this.writtenHeartbeats.merge(cacheKey, heartbeat.timestamp(), Math::max);
+            }
+        }
+    }
+
+    private void forgetHeartbeat(final String cacheKey) {
+        synchronized (this.writtenHeartbeats) {
+            this.writtenHeartbeats.remove(cacheKey);
+        }
+    }
+
+    private static boolean isValid(final HeartbeatRecord heartbeat, final long minTimestamp,
+                                   final long maxTimestamp) {
+        return Objects.nonNull(heartbeat)
+            && VALIDATOR.validate(heartbeat).isEmpty()
+            && heartbeat.timestamp() >= minTimestamp
+            && heartbeat.timestamp() <= maxTimestamp;
+    }
+
+    private static String cacheKeyOf(final String deviceId, final String cityId) {
+        return deviceId + '|' + cityId;
+    }
+
+    /**
+     * Keeps the counters and the pacer of a single batch of heartbeats.
+     */
+    private static final class IngestProgress {
+
+        private final long startNanos;
+        private final long receivedRecords;
+        private final AtomicLong skippedDevices = new AtomicLong();
+        private final AtomicLong writtenDevices = new AtomicLong();
+        private final AtomicLong onlineDevices = new AtomicLong();
+        private final AtomicLong failedDevices = new AtomicLong();
+        private final AdaptivePacer pacer;
+        private long invalidRecords;
+        private long devices;
+
+        private IngestProgress(long startNanos, long receivedRecords, AdaptivePacer pacer) {
+            this.startNanos = startNanos;
+            this.receivedRecords = receivedRecords;
+            this.pacer = pacer;
+        }
+
+        private IngestHeartbeatsResponse toResponse() {
+            long elapsedNanos = System.nanoTime() - this.startNanos;
+            long writtenCount = this.writtenDevices.get();
+            long validRecords = this.receivedRecords - this.invalidRecords;
+            return new IngestHeartbeatsResponse(HttpStatus.OK.value(), this.receivedRecords, this.invalidRecords,
+                this.devices, this.skippedDevices.get(), writtenCount, this.onlineDevices.get(),
+                this.failedDevices.get(), Duration.ofNanos(elapsedNanos).toMillis(),
+                perSecond(this.receivedRecords, elapsedNanos), perSecond(writtenCount, elapsedNanos),
+                validRecords == 0 ? 0 : round((validRecords - writtenCount) / (double) validRecords), null);
+        }
+
+        private static double perSecond(long count, long elapsedNanos) {
+            return elapsedNanos == 0 ? 0 : round(count * 1_000_000_000.0 / elapsedNanos);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+    }
+}
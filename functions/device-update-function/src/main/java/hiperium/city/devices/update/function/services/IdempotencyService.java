@@ -0,0 +1,149 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.entities.ProcessedEvent;
+import hiperium.city.devices.update.function.repository.ProcessedEventsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The IdempotencyService class detects the duplicated deliveries of the EventBridge events.
+ *
+ * <p>
+ * The event IDs recently seen by this instance are kept in an in-memory LRU, so a redelivery to the same instance
+ * is rejected without any network call. Otherwise, the event ID is claimed with a conditional put in the processed
+ * events table, which expires the items through its time-to-live attribute. The claim is only a short lease while
+ * the event is processed, and the event is marked as completed, for the whole idempotency window, once the
+ * processing succeeds. If the processing fails, the claim is released, so the EventBridge retry can process the
+ * event again, and if the invocation times out or crashes, the lease expires and a later retry processes it. A
+ * delivery that finds the lease of another one fails instead of being skipped, so it's retried until the event is
+ * completed.
+ * </p>
+ */
+@Service
+public class IdempotencyService {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(IdempotencyService.class);
+
+    private final Duration timeToLive;
+    private final Duration leaseDuration;
+    private final Map<String, Boolean> recentEventIds;
+    private final ProcessedEventsRepository processedEventsRepository;
+
+    private final Counter firstDeliveriesCounter;
+    private final Counter duplicatedInMemoryCounter;
+    private final Counter duplicatedInTableCounter;
+    private final Counter inProgressCounter;
+
+    /**
+     * Creates the idempotency service.
+     *
+     * @param environment               The environment used to read the idempotency properties.
+     * @param meterRegistry             The registry used to publish the duplicated deliveries metrics.
+     * @param processedEventsRepository The repository used to claim the event IDs.
+     */
+    public IdempotencyService(Environment environment, MeterRegistry meterRegistry,
+                              ProcessedEventsRepository processedEventsRepository) {
+        this.processedEventsRepository = processedEventsRepository;
+        this.timeToLive = Duration.ofHours(
+            environment.getProperty("hiperium.devices.idempotency.time-to-live-hours", Long.class, 24L));
+        this.leaseDuration = Duration.ofSeconds(
+            environment.getProperty("hiperium.devices.idempotency.lease-seconds", Long.class, 300L));
+        int cacheSize = environment.getProperty("hiperium.devices.idempotency.cache-size", Integer.class, 10_000);
+        this.recentEventIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return this.size() > cacheSize;
+            }
+        };
+        this.firstDeliveriesCounter = meterRegistry.counter("devices.idempotency.events", "result", "first");
+        this.duplicatedInMemoryCounter = meterRegistry.counter("devices.idempotency.events",
+            "result", "duplicate", "source", "memory");
+        this.duplicatedInTableCounter = meterRegistry.counter("devices.idempotency.events",
+            "result", "duplicate", "source", "table");
+        this.inProgressCounter = meterRegistry.counter("devices.idempotency.events", "result", "in_progress");
+    }
+
+    /**
+     * Executes the given operation only for the first delivery of the event.
+     *
+     * @param eventId   The ID of the EventBridge event. Events without ID are always processed.
+     * @param operation The operation to execute for the first delivery.
+     * @param <T>       The type of the result of the operation.
+     * @return A Mono that completes with the result of the operation, or empty if the event is a duplicate. The
+     * Mono emits a CityException if another delivery of the event is still in progress.
+     */
+    public <T> Mono<T> executeOnce(final String eventId, final Mono<T> operation) {
+        return Mono.defer(() -> {
+            if (Objects.isNull(eventId) || eventId.isBlank()) {
+                return operation;
+            }
+            return this.claimAndExecute(eventId, operation);
+        });
+    }
+
+    private <T> Mono<T> claimAndExecute(final String eventId, final Mono<T> operation) {
+        if (!this.claimInMemory(eventId)) {
+            this.duplicatedInMemoryCounter.increment();
+            LOGGER.debug("Duplicated event skipped", eventId);
+            return Mono.empty();
+        }
+        Instant now = Instant.now();
+        ProcessedEvent claimedEvent = new ProcessedEvent(eventId, now.plus(this.leaseDuration).getEpochSecond());
+        return Mono.fromCompletionStage(() -> this.processedEventsRepository.claimAsync(claimedEvent,
+                now.getEpochSecond()))
+            .onErrorResume(exception -> this.releaseInMemory(eventId).then(Mono.error(exception)))
+            .<T>flatMap(claimResult -> switch (claimResult) {
+                case CLAIMED -> {
+                    this.firstDeliveriesCounter.increment();
+                    yield operation
+                        .onErrorResume(exception -> this.releaseClaim(eventId).then(Mono.error(exception)))
+                        .flatMap(result -> this.completeClaim(eventId).thenReturn(result));
+                }
+                case IN_PROGRESS -> {
+                    this.inProgressCounter.increment();
+                    LOGGER.debug("Event in progress by another delivery", eventId);
+                    yield this.releaseInMemory(eventId)
+                        .then(Mono.<T>error(new CityException("The event is being processed by another delivery.")));
+                }
+                case COMPLETED -> {
+                    this.duplicatedInTableCounter.increment();
+                    LOGGER.debug("Duplicated event skipped", eventId);
+                    yield Mono.<T>empty();
+                }
+            });
+    }
+
+    private synchronized boolean claimInMemory(final String eventId) {
+        return Objects.isNull(this.recentEventIds.putIfAbsent(eventId, Boolean.TRUE));
+    }
+
+    private Mono<Void> releaseInMemory(final String eventId) {
+        return Mono.fromRunnable(() -> {
+            synchronized (this) {
+                this.recentEventIds.remove(eventId);
+            }
+        });
+    }
+
+    private Mono<Void> completeClaim(final String eventId) {
+        ProcessedEvent completedEvent = new ProcessedEvent(eventId,
+            Instant.now().plus(this.timeToLive).getEpochSecond());
+        return Mono.fromCompletionStage(() -> this.processedEventsRepository.completeAsync(completedEvent));
+    }
+
+    private Mono<Void> releaseClaim(final String eventId) {
+        return this.releaseInMemory(eventId)
+            .then(Mono.fromCompletionStage(() -> this.processedEventsRepository.releaseAsync(eventId)));
+    }
+}
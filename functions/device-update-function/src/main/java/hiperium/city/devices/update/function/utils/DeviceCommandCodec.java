@@ -0,0 +1,111 @@
+package hiperium.city.devices.update.function.utils;
+
+import hiperium.cities.commons.exceptions.ParsingException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.DeviceOperation;
+import hiperium.city.devices.update.function.dto.EventBridgeDetail;
+import hiperium.city.devices.update.function.dto.EventBridgeRequest;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Codec of the compact binary encoding of the device commands, used by internal producers instead of
+ * the EventBridge JSON envelope. The command has a fixed layout of 50 bytes, in big-endian order:
+ *
+ * <pre>
+ * offset  size  field
+ * 0       1     format version (1)
+ * 1       16    event ID, used for the idempotency checks
+ * 17      16    device ID
+ * 33      16    city ID
+ * 49      1     operation (0 = INACTIVATE, 1 = ACTIVATE)
+ * </pre>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class DeviceCommandCodec {
+
+    public static final String CONTENT_TYPE = "application/vnd.hiperium.device-command";
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int COMMAND_LENGTH = 50;
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DeviceCommandCodec.class);
+
+    /**
+     * Tells if the message carries a compact device command, based on its content type header.
+     *
+     * @param requestMessage the message to inspect
+     * @return true if the content type is the compact device command one
+     */
+    public static boolean isCompactCommand(Message<byte[]> requestMessage) {
+        Object contentType = requestMessage.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        return Objects.nonNull(contentType) && contentType.toString().startsWith(CONTENT_TYPE);
+    }
+
+    /**
+     * Tells if the payload has the layout of a compact device command, for the sources that don't carry a content
+     * type, like the records of a Kinesis stream, the messages of a queue or the direct invocations. A JSON document
+     * never starts with the format version byte.
+     *
+     * @param payload the payload to inspect
+     * @return true if the payload has the length and the format version of a compact command
+     */
+    public static boolean isCompactCommand(final byte[] payload) {
+        return payload.length == COMMAND_LENGTH && payload[0] == FORMAT_VERSION;
+    }
+
+    /**
+     * Encodes the device command of the given request.
+     *
+     * @param eventBridgeRequest the request to encode, whose ID must be a UUID
+     * @return the compact command bytes
+     */
+    public static byte[] encode(final EventBridgeRequest eventBridgeRequest) {
+        EventBridgeDetail detail = eventBridgeRequest.detail();
+        ByteBuffer buffer = ByteBuffer.allocate(COMMAND_LENGTH).put(FORMAT_VERSION);
+        putUuid(buffer, UUID.fromString(eventBridgeRequest.id()));
+        putUuid(buffer, UUID.fromString(detail.deviceId()));
+        putUuid(buffer, UUID.fromString(detail.cityId()));
+        buffer.put(detail.deviceOperation() == DeviceOperation.ACTIVATE ? (byte) 1 : (byte) 0);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a compact device command into the same request object created from the EventBridge envelope,
+     * so the rest of the processing doesn't depend on the encoding.
+     *
+     * @param payload the compact command bytes
+     * @return the decoded {@code EventBridgeRequest} object
+     * @throws ParsingException if the payload doesn't follow the compact command layout
+     */
+    public static EventBridgeRequest decode(final byte[] payload) {
+        if (payload.length != COMMAND_LENGTH || payload[0] != FORMAT_VERSION) {
+            LOGGER.error("Couldn't decode the compact device command.", payload.length);
+            throw new ParsingException("Couldn't decode the compact device command.");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 1, COMMAND_LENGTH - 1);
+        String eventId = getUuid(buffer).toString();
+        String deviceId = getUuid(buffer).toString();
+        String cityId = getUuid(buffer).toString();
+        DeviceOperation deviceOperation = switch (buffer.get()) {
+            case 0 -> DeviceOperation.INACTIVATE;
+            case 1 -> DeviceOperation.ACTIVATE;
+            default -> throw new ParsingException("Couldn't decode the compact device command.");
+        };
+        return new EventBridgeRequest(eventId, null, null, null, null, null, null, null,
+            new EventBridgeDetail(deviceId, cityId, deviceOperation));
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,259 @@
+package hiperium.city.devices.update.function.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hiperium.cities.commons.exceptions.ParsingException;
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.dto.DeviceImportLine;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Reads the devices of a bulk import file. The file is read line by line, so only the lines that are being
+ * imported are kept in memory. Three formats are supported:
+ *
+ * <ul>
+ *     <li>NDJSON (default): one JSON object per line, with the {@code deviceId}, {@code cityId}, {@code name},
+ *     {@code description} and {@code status} fields.</li>
+ *     <li>CSV (content type {@code text/csv}): a header line with the same field names, in any order,
+ *     followed by one device per line. Values can be enclosed in double quotes.</li>
+ *     <li>JSON array: the same objects as the NDJSON format, enclosed in a JSON array. It's the format used when
+ *     invoking the Lambda function directly, because its payload must be a JSON document. The elements are read
+ *     one at a time, and the line number reported for them is their position in the array, starting at 1.</li>
+ * </ul>
+ * Every row is validated with the same rules as the device update requests. Invalid rows are emitted with the
+ * reason why they were rejected, so they can be reported without stopping the import.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class DeviceImportReader {
+
+    public static final String CSV_CONTENT_TYPE = "text/csv";
+
+    private static final String DEVICE_ID_COLUMN = "deviceId";
+    private static final String CITY_ID_COLUMN = "cityId";
+    private static final String NAME_COLUMN = "name";
+    private static final String DESCRIPTION_COLUMN = "description";
+    private static final String STATUS_COLUMN = "status";
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(DeviceImportReader.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    /**
+     * Reads the lines of the import file carried by the given message. Blank lines, and the header line of the
+     * CSV files, are skipped.
+     *
+     * @param requestMessage the message containing the import file as a byte array
+     * @return a Flux emitting one {@code DeviceImportLine} per device line, in the order of the file
+     */
+    public static Flux<DeviceImportLine> read(Message<byte[]> requestMessage) {
+        if (isJsonArray(requestMessage.getPayload())) {
+            return readJsonArray(requestMessage.getPayload());
+        }
+        boolean csvFormat = isCsvFile(requestMessage);
+        return Flux.defer(() -> {
+            LineParser lineParser = csvFormat ? new CsvLineParser() : DeviceImportReader::parseJsonLine;
+            return Flux.using(
+                    () -> new BufferedReader(new InputStreamReader(
+                        new ByteArrayInputStream(requestMessage.getPayload()), StandardCharsets.UTF_8)),
+                    reader -> Flux.fromStream(reader.lines()),
+                    DeviceImportReader::closeReader)
+                .index((index, line) -> parseLine(index + 1, line, lineParser))
+                .filter(Objects::nonNull);
+        });
+    }
+
+    private static Flux<DeviceImportLine> readJsonArray(final byte[] payload) {
+        return Flux.using(
+            () -> {
+                JsonParser parser = OBJECT_MAPPER.getFactory().createParser(payload);
+                parser.nextToken();
+                return parser;
+            },
+            parser -> Flux.<DeviceImportLine, Long>generate(() -> 0L, (elementCount, sink) -> {
+                try {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        sink.complete();
+                        return elementCount;
+                    }
+                    JsonNode element = OBJECT_MAPPER.readTree(parser);
+                    sink.next(createImportLine(elementCount + 1,
+                        () -> OBJECT_MAPPER.treeToValue(element, DeviceImportRow.class)));
+                } catch (IOException exception) {
+                    LOGGER.error("Couldn't read the JSON array of devices.", exception.getMessage());
+                    sink.error(new ParsingException("Couldn't read the JSON array of devices."));
+                }
+                return elementCount + 1;
+            }),
+            DeviceImportReader::closeParser);
+    }
+
+    private static boolean isJsonArray(final byte[] payload) {
+        for (byte character : payload) {
+            if (!Character.isWhitespace(character)) {
+                return character == '[';
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCsvFile(Message<byte[]> requestMessage) {
+        Object contentType = requestMessage.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        return Objects.nonNull(contentType) && contentType.toString().startsWith(CSV_CONTENT_TYPE);
+    }
+
+    private static DeviceImportLine parseLine(long lineNumber, String line, LineParser lineParser) {
+        if (line.isBlank()) {
+            return null;
+        }
+        return createImportLine(lineNumber, () -> lineParser.parse(line));
+    }
+
+    private static DeviceImportLine createImportLine(long lineNumber, RowReader rowReader) {
+        DeviceImportRow row;
+        try {
+            row = rowReader.read();
+        } catch (RuntimeException | IOException exception) {
+            LOGGER.debug("Couldn't parse the import line", lineNumber);
+            return new DeviceImportLine(lineNumber, null, "Couldn't parse the device row.");
+        }
+        if (Objects.isNull(row)) {
+            return null;
+        }
+        Set<ConstraintViolation<DeviceImportRow>> violations = VALIDATOR.validate(row);
+        if (!violations.isEmpty()) {
+            return new DeviceImportLine(lineNumber, null, violations.iterator().next().getMessage());
+        }
+        return new DeviceImportLine(lineNumber, row, null);
+    }
+
+    private static DeviceImportRow parseJsonLine(String line) throws IOException {
+        return OBJECT_MAPPER.readValue(line, DeviceImportRow.class);
+    }
+
+    private static void closeReader(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static void closeParser(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+
+        /**
+         * Reads a device of the import file.
+         *
+         * @return the device, or null if there is no device to read
+         * @throws IOException if the device can't be read
+         */
+        DeviceImportRow read() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+
+        /**
+         * Parses a line of the import file.
+         *
+         * @param line the line to parse
+         * @return the parsed device, or null if the line doesn't hold a device
+         * @throws IOException if the line can't be parsed
+         */
+        DeviceImportRow parse(String line) throws IOException;
+    }
+
+    /**
+     * Parses the CSV lines. The first line is the header, which gives the position of every column.
+     */
+    private static final class CsvLineParser implements LineParser {
+
+        private Map<String, Integer> columnPositions;
+
+        @Override
+        public DeviceImportRow parse(String line) {
+            List<String> values = splitCsvLine(line);
+            if (Objects.isNull(this.columnPositions)) {
+                this.columnPositions = new HashMap<>();
+                for (int position = 0; position < values.size(); position++) {
+                    this.columnPositions.put(values.get(position).trim(), position);
+                }
+                return null;
+            }
+            String status = this.getValue(values, STATUS_COLUMN);
+            return new DeviceImportRow(
+                this.getValue(values, DEVICE_ID_COLUMN),
+                this.getValue(values, CITY_ID_COLUMN),
+                this.getValue(values, NAME_COLUMN),
+                this.getValue(values, DESCRIPTION_COLUMN),
+                Objects.isNull(status) || status.isBlank() ? null : DeviceStatus.valueOf(status.trim()));
+        }
+
+        private String getValue(List<String> values, String columnName) {
+            Integer position = this.columnPositions.get(columnName);
+            return Objects.isNull(position) || position >= values.size() ? null : values.get(position);
+        }
+
+        private static List<String> splitCsvLine(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            for (int index = 0; index < line.length(); index++) {
+                char character = line.charAt(index);
+                if (quoted) {
+                    if (character == '"' && index + 1 < line.length() && line.charAt(index + 1) == '"') {
+                        value.append('"');
+                        index++;
+                    } else if (character == '"') {
+                        quoted = false;
+                    } else {
+                        value.append(character);
+                    }
+                } else if (character == '"') {
+                    quoted = true;
+                } else if (character == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else {
+                    value.append(character);
+                }
+            }
+            values.add(value.toString());
+            return values;
+        }
+    }
+}
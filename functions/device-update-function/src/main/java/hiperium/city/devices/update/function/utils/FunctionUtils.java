@@ -4,20 +4,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import hiperium.cities.commons.exceptions.ParsingException;
 import hiperium.cities.commons.loggers.HiperiumLogger;
 import hiperium.cities.commons.utils.ExceptionHandlerUtil;
+import hiperium.city.devices.update.function.commons.CircuitBreakerOpenException;
+import hiperium.city.devices.update.function.dto.CityCommandRequest;
+import hiperium.city.devices.update.function.dto.HeartbeatsRequest;
+import hiperium.city.devices.update.function.dto.KinesisCommandEvent;
 import hiperium.city.devices.update.function.dto.UpdateDeviceResponse;
 import hiperium.city.devices.update.function.dto.EventBridgeRequest;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.ValidationException;
 import jakarta.validation.Validator;
-import jakarta.validation.ValidatorFactory;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.messaging.Message;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.Set;
 
 /**
@@ -28,24 +31,103 @@ public final class FunctionUtils {
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final HiperiumLogger LOGGER = new HiperiumLogger(FunctionUtils.class);
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
 
     /**
-     * Deserializes a request from EventBridge into an {@code EventBridgeRequest} object.
+     * Deserializes a request from EventBridge into an {@code EventBridgeRequest} object. When the content type
+     * of the message is the compact device command one, or the message has no content type but the payload has the
+     * layout of a compact command, like the commands redriven from a queue or sent in a direct invocation, the
+     * payload is decoded with the {@link DeviceCommandCodec}.
      *
      * @param requestMessage the message containing the request payload as a byte array
      * @return the deserialized {@code EventBridgeRequest} object
      * @throws ParsingException if the request message cannot be deserialized
      */
     public static EventBridgeRequest deserializeRequest(Message<byte[]> requestMessage) {
+        if (DeviceCommandCodec.isCompactCommand(requestMessage)
+            || DeviceCommandCodec.isCompactCommand(requestMessage.getPayload())) {
+            return DeviceCommandCodec.decode(requestMessage.getPayload());
+        }
         try {
             return OBJECT_MAPPER.readValue(requestMessage.getPayload(), EventBridgeRequest.class);
         } catch (IOException exception) {
-            String messageContent = new String(requestMessage.getPayload(), StandardCharsets.UTF_8);
-            LOGGER.error("Couldn't deserialize request message.", exception.getMessage(), messageContent);
+            LOGGER.error("Couldn't deserialize request message.", LogArguments.truncate(exception.getMessage()),
+                LogArguments.payload(requestMessage.getPayload()));
             throw new ParsingException("Couldn't deserialize request message.");
         }
     }
 
+    /**
+     * Deserializes a batch of records from the device commands Kinesis stream into a {@code KinesisCommandEvent}
+     * object. The data of the records is decoded later, one record at a time.
+     *
+     * @param requestMessage the message containing the Kinesis batch as a byte array
+     * @return the deserialized {@code KinesisCommandEvent} object
+     * @throws ParsingException if the request message cannot be deserialized
+     */
+    public static KinesisCommandEvent deserializeKinesisEvent(Message<byte[]> requestMessage) {
+        try {
+            return OBJECT_MAPPER.readValue(requestMessage.getPayload(), KinesisCommandEvent.class);
+        } catch (IOException exception) {
+            LOGGER.error("Couldn't deserialize Kinesis event.", LogArguments.truncate(exception.getMessage()));
+            throw new ParsingException("Couldn't deserialize Kinesis event.");
+        }
+    }
+
+    /**
+     * Deserializes the data of a device command stream record into an {@code EventBridgeRequest} object. The data
+     * is either the EventBridge JSON envelope or a compact device command, told apart by its layout.
+     *
+     * @param data the decoded data of the stream record
+     * @return the deserialized {@code EventBridgeRequest} object
+     * @throws ParsingException if the data cannot be deserialized
+     */
+    public static EventBridgeRequest deserializeStreamCommand(final byte[] data) {
+        if (DeviceCommandCodec.isCompactCommand(data)) {
+            return DeviceCommandCodec.decode(data);
+        }
+        try {
+            return OBJECT_MAPPER.readValue(data, EventBridgeRequest.class);
+        } catch (IOException exception) {
+            LOGGER.error("Couldn't deserialize stream command.", LogArguments.truncate(exception.getMessage()),
+                LogArguments.payload(data));
+            throw new ParsingException("Couldn't deserialize stream command.");
+        }
+    }
+
+    /**
+     * Deserializes a city-wide status command from EventBridge into a {@code CityCommandRequest} object.
+     *
+     * @param requestMessage the message containing the command payload as a byte array
+     * @return the deserialized {@code CityCommandRequest} object
+     * @throws ParsingException if the request message cannot be deserialized
+     */
+    public static CityCommandRequest deserializeCityCommand(Message<byte[]> requestMessage) {
+        try {
+            return OBJECT_MAPPER.readValue(requestMessage.getPayload(), CityCommandRequest.class);
+        } catch (IOException exception) {
+            LOGGER.error("Couldn't deserialize city command message.", LogArguments.truncate(exception.getMessage()),
+                LogArguments.payload(requestMessage.getPayload()));
+            throw new ParsingException("Couldn't deserialize city command message.");
+        }
+    }
+
+    /**
+     * Deserializes a batch of device heartbeats into a {@code HeartbeatsRequest} object.
+     *
+     * @param requestMessage the message containing the heartbeats batch as a byte array
+     * @return the deserialized {@code HeartbeatsRequest} object
+     * @throws ParsingException if the request message cannot be deserialized
+     */
+    public static HeartbeatsRequest deserializeHeartbeats(Message<byte[]> requestMessage) {
+        try {
+            return OBJECT_MAPPER.readValue(requestMessage.getPayload(), HeartbeatsRequest.class);
+        } catch (IOException exception) {
+            LOGGER.error("Couldn't deserialize heartbeats message.", LogArguments.truncate(exception.getMessage()));
+            throw new ParsingException("Couldn't deserialize heartbeats message.");
+        }
+    }
+
     /**
      * Validates the given EventBridge request by performing bean validations on the object.
      *
@@ -54,27 +136,60 @@ public final class FunctionUtils {
      * @throws ValidationException if the validation fails and there are constraint violations
      */
     public static void validateRequest(final EventBridgeRequest eventBridgeRequest) {
-        LOGGER.debug("Validating request message", eventBridgeRequest);
-        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
-            Validator validator = factory.getValidator();
-            Set<ConstraintViolation<EventBridgeRequest>> violations = validator.validate(eventBridgeRequest);
-            if (!violations.isEmpty()) {
-                ConstraintViolation<EventBridgeRequest> firstViolation = violations.iterator().next();
-                throw new ValidationException(firstViolation.getMessage());
-            }
-        }
+        LOGGER.debug("Validating request message", LogArguments.lazy(eventBridgeRequest::toString));
+        validate(eventBridgeRequest);
+    }
+
+    /**
+     * Validates the given city-wide status command by performing bean validations on the object.
+     *
+     * @param cityCommandRequest the CityCommandRequest object to be validated
+     *
+     * @throws ValidationException if the validation fails and there are constraint violations
+     */
+    public static void validateCityCommand(final CityCommandRequest cityCommandRequest) {
+        LOGGER.debug("Validating city command message", LogArguments.lazy(cityCommandRequest::toString));
+        validate(cityCommandRequest);
+    }
+
+    /**
+     * Validates the given batch of device heartbeats. Only the batch itself is validated, so its invalid records
+     * can be reported without rejecting the whole batch.
+     *
+     * @param heartbeatsRequest the HeartbeatsRequest object to be validated
+     *
+     * @throws ValidationException if the validation fails and there are constraint violations
+     */
+    public static void validateHeartbeats(final HeartbeatsRequest heartbeatsRequest) {
+        LOGGER.debug("Validating heartbeats message", LogArguments.lazy(heartbeatsRequest::toString));
+        validate(heartbeatsRequest);
     }
 
     /**
      * Handles a runtime exception and generates an error response wrapped in a {@code UpdateDeviceResponse} object.
+     * When the request was rejected by the open circuit breaker, the response carries a
+     * {@code 503 Service Unavailable} status code, so callers can distinguish it from a regular failure.
      *
      * @param throwable the runtime exception to handle
-     * @return a Mono emitting the {@code UpdateDeviceResponse} object with the generated error response
+     * @return an already resolved Mono emitting the {@code UpdateDeviceResponse} object with the generated error
+     * response
      */
     public static Mono<UpdateDeviceResponse> handleRuntimeException(Throwable throwable) {
-        return Mono.just(throwable)
-            .map(ExceptionHandlerUtil::generateErrorResponse)
-            .map(errorResponse -> new UpdateDeviceResponse(null, null, errorResponse))
-            .doOnNext(deviceUpdateResponse -> LOGGER.debug("Mapped response", deviceUpdateResponse));
+        UpdateDeviceResponse errorResponse = new UpdateDeviceResponse(getErrorStatusCode(throwable), null,
+            ExceptionHandlerUtil.generateErrorResponse(throwable));
+        LOGGER.debug("Mapped response", LogArguments.lazy(errorResponse::toString));
+        return Mono.just(errorResponse);
+    }
+
+    private static <T> void validate(final T request) {
+        Set<ConstraintViolation<T>> violations = VALIDATOR.validate(request);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<T> firstViolation = violations.iterator().next();
+            throw new ValidationException(firstViolation.getMessage());
+        }
+    }
+
+    private static Integer getErrorStatusCode(Throwable throwable) {
+        return throwable instanceof CircuitBreakerOpenException ? HttpStatus.SERVICE_UNAVAILABLE.value() : null;
     }
 }
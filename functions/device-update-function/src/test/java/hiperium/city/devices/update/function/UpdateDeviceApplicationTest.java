@@ -1,20 +1,34 @@
 package hiperium.city.devices.update.function;
 
+import hiperium.city.devices.update.function.audit.StatusAuditSink;
 import hiperium.city.devices.update.function.commons.TestContainersBase;
 import hiperium.city.devices.update.function.configurations.FunctionConfig;
+import hiperium.city.devices.update.function.dto.CityCommandResponse;
+import hiperium.city.devices.update.function.dto.ImportDevicesResponse;
 import hiperium.city.devices.update.function.dto.UpdateDeviceResponse;
+import hiperium.city.devices.update.function.functions.UpdateFunction;
+import hiperium.city.devices.update.function.services.CityStatusCache;
+import hiperium.city.devices.update.function.services.DevicesService;
 import hiperium.city.devices.update.function.utils.TestsUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.function.context.FunctionCatalog;
 import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.test.context.ActiveProfiles;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 
@@ -34,6 +48,18 @@ class UpdateDeviceApplicationTest extends TestContainersBase {
     @Autowired
     private FunctionCatalog functionCatalog;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DevicesService devicesService;
+
+    @Autowired
+    private StatusAuditSink statusAuditSink;
+
+    @Autowired
+    private CityStatusCache cityStatusCache;
+
     @BeforeEach
     void init() {
         TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
@@ -63,11 +89,47 @@ class UpdateDeviceApplicationTest extends TestContainersBase {
         }
     }
 
+    @ParameterizedTest
+    @DisplayName("Replayed requests")
+    @ValueSource(strings = {
+        "requests/valid/lambda-replayed-event-request.json"
+    })
+    void givenReplayedEvent_whenInvokeLambdaFunctionConcurrently_thenSkipDuplicates(String jsonFilePath)
+        throws IOException {
+        final int deliveries = 8;
+        Function<Message<byte[]>, Mono<UpdateDeviceResponse>> function = this.getFunctionUnderTest();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(jsonFilePath)) {
+            assert inputStream != null;
+            byte[] payload = inputStream.readAllBytes();
+            double duplicatesBefore = this.getDuplicatedEventsCount();
+
+            StepVerifier.create(Flux.range(0, deliveries)
+                    .flatMap(delivery -> function.apply(TestsUtils.createMessage(payload))
+                        .subscribeOn(Schedulers.parallel()))
+                    .collectList())
+                .assertNext(responses -> {
+                    assertThat(responses).hasSize(deliveries);
+                    assertThat(responses).allSatisfy(response -> {
+                        assertThat(response.error()).isNull();
+                        assertThat(response.statusCode()).isEqualTo(HttpStatus.OK.value());
+                    });
+                    assertThat(responses)
+                        .filteredOn(response -> "Duplicated device status update ignored.".equals(response.body()))
+                        .hasSize(deliveries - 1);
+                })
+                .verifyComplete();
+
+            // Only the first delivery should update the device.
+            assertThat(this.getDuplicatedEventsCount() - duplicatesBefore).isEqualTo(deliveries - 1);
+        }
+    }
+
     @ParameterizedTest
     @DisplayName("Non-valid requests")
     @ValueSource(strings = {
         "requests/invalid/empty-city-id.json",
         "requests/invalid/empty-device-id.json",
+        "requests/invalid/existing-device-disabled-city.json",
         "requests/invalid/non-existing-city.json",
         "requests/invalid/non-existing-device.json",
         "requests/invalid/wrong-city-id.json",
@@ -94,10 +156,130 @@ class UpdateDeviceApplicationTest extends TestContainersBase {
         }
     }
 
+    @ParameterizedTest
+    @DisplayName("Bulk import files")
+    @CsvSource({
+        "requests/valid/devices-import.ndjson, application/x-ndjson, 5, 3",
+        "requests/valid/devices-import.csv,    text/csv,             4, 2"
+    })
+    void givenImportFile_whenInvokeImportFunction_thenReportImportedAndFailedRows(String importFilePath,
+                                                                                 String contentType,
+                                                                                 long totalRows,
+                                                                                 long importedRows)
+        throws IOException {
+        Function<Message<byte[]>, Mono<ImportDevicesResponse>> function = this.functionCatalog.lookup(Function.class,
+            FunctionConfig.IMPORT_FUNCTION_BEAN_NAME);
+        assertThat(function).isNotNull();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(importFilePath)) {
+            assert inputStream != null;
+            Message<byte[]> requestMessage = MessageBuilder.withPayload(inputStream.readAllBytes())
+                .setHeader(MessageHeaders.CONTENT_TYPE, contentType)
+                .build();
+
+            StepVerifier.create(function.apply(requestMessage))
+                .assertNext(response -> {
+                    assertThat(response.error()).isNull();
+                    assertThat(response.statusCode()).isEqualTo(HttpStatus.OK.value());
+                    assertThat(response.totalRows()).isEqualTo(totalRows);
+                    assertThat(response.importedRows()).isEqualTo(importedRows);
+                    assertThat(response.failedRows()).isEqualTo(totalRows - importedRows);
+                    assertThat(response.rowFailures()).hasSize((int) (totalRows - importedRows));
+                })
+                .verifyComplete();
+        }
+    }
+
+    @ParameterizedTest
+    @DisplayName("City commands")
+    @ValueSource(strings = {
+        "requests/valid/eventbridge-city-command-request.json"
+    })
+    void givenCityCommand_whenInvokeCityCommandFunctionTwice_thenReturnSameCounts(String jsonFilePath)
+        throws IOException {
+        Function<Message<byte[]>, Mono<CityCommandResponse>> function = this.getCityCommandFunction();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(jsonFilePath)) {
+            assert inputStream != null;
+            byte[] payload = inputStream.readAllBytes();
+
+            CityCommandResponse firstResponse = function.apply(TestsUtils.createMessage(payload)).block();
+            assertThat(firstResponse).isNotNull();
+            assertThat(firstResponse.error()).isNull();
+            assertThat(firstResponse.statusCode()).isEqualTo(HttpStatus.OK.value());
+            assertThat(firstResponse.updatedDevices() + firstResponse.skippedDevices()).isPositive();
+            assertThat(firstResponse.failedDevices()).isZero();
+
+            // The second delivery resumes from the completed checkpoint.
+            StepVerifier.create(function.apply(TestsUtils.createMessage(payload)))
+                .assertNext(response -> assertThat(response).isEqualTo(firstResponse))
+                .verifyComplete();
+        }
+    }
+
+    @ParameterizedTest
+    @DisplayName("Non-valid city commands")
+    @ValueSource(strings = {
+        "requests/invalid/city-command-disabled-city.json"
+    })
+    void givenNonValidCityCommand_whenInvokeCityCommandFunction_thenReturnError(String jsonFilePath)
+        throws IOException {
+        Function<Message<byte[]>, Mono<CityCommandResponse>> function = this.getCityCommandFunction();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(jsonFilePath)) {
+            assert inputStream != null;
+            Message<byte[]> requestMessage = TestsUtils.createMessage(inputStream.readAllBytes());
+
+            StepVerifier.create(function.apply(requestMessage))
+                .assertNext(response -> {
+                    assertThat(response.error()).isNotNull();
+                    assertThat(response.updatedDevices()).isZero();
+                })
+                .verifyComplete();
+        }
+    }
+
+    private double getDuplicatedEventsCount() {
+        return this.meterRegistry.find("devices.idempotency.events")
+            .tag("result", "duplicate")
+            .counters()
+            .stream()
+            .mapToDouble(Counter::count)
+            .sum();
+    }
+
+    @ParameterizedTest
+    @DisplayName("Synchronous outcomes")
+    @ValueSource(strings = {
+        "requests/invalid/wrong-payload-lambda.json",
+        "requests/invalid/wrong-device-id.json",
+        "requests/invalid/existing-device-disabled-city.json"
+    })
+    void givenSynchronousOutcome_whenApplyUpdateFunction_thenReturnResolvedMono(String jsonFilePath)
+        throws IOException {
+        UpdateFunction updateFunction = new UpdateFunction(this.devicesService, this.statusAuditSink);
+        this.cityStatusCache.refreshAsync().join();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(jsonFilePath)) {
+            assert inputStream != null;
+            Mono<UpdateDeviceResponse> response = updateFunction.apply(
+                TestsUtils.createMessage(inputStream.readAllBytes()));
+
+            assertThat(response).isInstanceOf(Fuseable.ScalarCallable.class);
+            StepVerifier.create(response)
+                .expectFusion(Fuseable.SYNC)
+                .assertNext(updateResponse -> assertThat(updateResponse.error()).isNotNull())
+                .verifyComplete();
+        }
+    }
+
     private Function<Message<byte[]>, Mono<UpdateDeviceResponse>> getFunctionUnderTest() {
         Function<Message<byte[]>, Mono<UpdateDeviceResponse>> function = this.functionCatalog.lookup(Function.class,
             FunctionConfig.FUNCTION_BEAN_NAME);
         assertThat(function).isNotNull();
         return function;
     }
+
+    private Function<Message<byte[]>, Mono<CityCommandResponse>> getCityCommandFunction() {
+        Function<Message<byte[]>, Mono<CityCommandResponse>> function = this.functionCatalog.lookup(Function.class,
+            FunctionConfig.CITY_COMMAND_FUNCTION_BEAN_NAME);
+        assertThat(function).isNotNull();
+        return function;
+    }
 }
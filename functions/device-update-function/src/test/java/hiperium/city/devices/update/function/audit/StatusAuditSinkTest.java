@@ -0,0 +1,95 @@
+package hiperium.city.devices.update.function.audit;
+
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.entities.DeviceStatusTransition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatusAuditSinkTest {
+
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void givenFlushInProgress_whenFlushing_thenWaitForItAndWriteTheTransitionsRecordedMeanwhile() {
+        RecordingWriter writer = new RecordingWriter();
+        CompletableFuture<List<DeviceStatusTransition>> firstWrite = new CompletableFuture<>();
+        writer.results.add(firstWrite);
+        StatusAuditSink statusAuditSink = new StatusAuditSink(100, 10, writer, new SimpleMeterRegistry());
+
+        statusAuditSink.record(this.device(), DeviceStatus.ON);
+        CompletableFuture<Void> firstFlush = statusAuditSink.flush().toFuture();
+        statusAuditSink.record(this.device(), DeviceStatus.ON);
+        CompletableFuture<Void> secondFlush = statusAuditSink.flush().toFuture();
+        assertThat(secondFlush).isNotDone();
+
+        firstWrite.complete(List.of());
+        secondFlush.orTimeout(FLUSH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).join();
+        assertThat(firstFlush).isDone();
+        assertThat(writer.batches).hasSize(2);
+        assertThat(writer.batches).allSatisfy(batch -> assertThat(batch).hasSize(1));
+    }
+
+    @Test
+    void givenFailedWrite_whenFlushing_thenRequeueTheBatchForTheNextFlush() {
+        RecordingWriter writer = new RecordingWriter();
+        writer.results.add(CompletableFuture.failedFuture(new IllegalStateException("Write failed.")));
+        StatusAuditSink statusAuditSink = new StatusAuditSink(100, 10, writer, new SimpleMeterRegistry());
+
+        statusAuditSink.record(this.device(), DeviceStatus.OFF);
+        statusAuditSink.flush().block(FLUSH_TIMEOUT);
+        statusAuditSink.flush().block(FLUSH_TIMEOUT);
+
+        assertThat(writer.batches).hasSize(2);
+        assertThat(writer.batches.get(1)).isEqualTo(writer.batches.get(0));
+    }
+
+    @Test
+    void givenTransitionsOfTheSameDevice_whenRecording_thenGiveThemUniqueFixedWidthChangedAtKeys() {
+        RecordingWriter writer = new RecordingWriter();
+        StatusAuditSink statusAuditSink = new StatusAuditSink(100, 10, writer, new SimpleMeterRegistry());
+        Device device = this.device();
+
+        statusAuditSink.record(device, DeviceStatus.ON);
+        statusAuditSink.record(device, DeviceStatus.OFF);
+        statusAuditSink.flush().block(FLUSH_TIMEOUT);
+
+        List<String> changedAtKeys = writer.batches.get(0).stream()
+            .map(DeviceStatusTransition::changedAt)
+            .toList();
+        assertThat(changedAtKeys).doesNotHaveDuplicates().isSorted();
+        assertThat(changedAtKeys).allSatisfy(changedAt -> assertThat(changedAt)
+            .matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z#[0-9a-f]{8}-\\d{12}"));
+    }
+
+    private Device device() {
+        return new Device(UUID.randomUUID().toString(), UUID.randomUUID().toString(), DeviceStatus.OFF, 1L);
+    }
+
+    // Answers every write with the next queued result, or writes the whole batch when there is none.
+    private static final class RecordingWriter implements StatusHistoryWriter {
+
+        private final Queue<CompletableFuture<List<DeviceStatusTransition>>> results = new ConcurrentLinkedQueue<>();
+        private final List<List<DeviceStatusTransition>> batches = new ArrayList<>();
+
+        @Override
+        public synchronized CompletableFuture<List<DeviceStatusTransition>> writeAsync(
+            List<DeviceStatusTransition> transitions) {
+            this.batches.add(List.copyOf(transitions));
+            CompletableFuture<List<DeviceStatusTransition>> result = this.results.poll();
+            return Objects.isNull(result) ? CompletableFuture.completedFuture(List.of()) : result;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package hiperium.city.devices.update.function.commons;
+
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptivePacerTest {
+
+    private static final long BASE_BACKOFF_MILLIS = 50L;
+    private static final long MAX_BACKOFF_MILLIS = 400L;
+
+    @Test
+    void givenThrottledWrites_whenPacing_thenDoubleTheDelayUntilTheWritesComplete() {
+        AdaptivePacer pacer = new AdaptivePacer(BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS);
+        StepVerifier.create(pacer.pace()).verifyComplete();
+
+        pacer.onWriteThrottled();
+        pacer.onWriteThrottled();
+        this.verifyPacingDelay(pacer, Duration.ofMillis(BASE_BACKOFF_MILLIS * 2));
+
+        IntStream.range(0, 10).forEach(throttledWrite -> pacer.onWriteThrottled());
+        this.verifyPacingDelay(pacer, Duration.ofMillis(MAX_BACKOFF_MILLIS));
+
+        // The delay is halved by every completed write, and dropped once it's below the base backoff.
+        IntStream.range(0, 4).forEach(completedWrite -> pacer.onWriteCompleted());
+        StepVerifier.create(pacer.pace()).verifyComplete();
+    }
+
+    @Test
+    void givenRetryAttempts_whenGettingBackoff_thenKeepItWithinTheExponentialBounds() {
+        AdaptivePacer pacer = new AdaptivePacer(BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS);
+        assertThat(pacer.getBackoff(1).toMillis()).isBetween(BASE_BACKOFF_MILLIS / 2, BASE_BACKOFF_MILLIS);
+        assertThat(pacer.getBackoff(3).toMillis()).isBetween(BASE_BACKOFF_MILLIS * 2, BASE_BACKOFF_MILLIS * 4);
+        assertThat(pacer.getBackoff(64).toMillis()).isBetween(MAX_BACKOFF_MILLIS / 2, MAX_BACKOFF_MILLIS);
+    }
+
+    @Test
+    void givenWrappedThrottlingError_whenCheckingIt_thenDetectTheThrottling() {
+        ProvisionedThroughputExceededException throttlingError = ProvisionedThroughputExceededException.builder()
+            .message("Throttled.")
+            .build();
+        assertThat(AdaptivePacer.isThrottlingError(throttlingError)).isTrue();
+        assertThat(AdaptivePacer.isThrottlingError(new CompletionException(throttlingError))).isTrue();
+        assertThat(AdaptivePacer.isThrottlingError(new IllegalStateException("Failed."))).isFalse();
+    }
+
+    private void verifyPacingDelay(AdaptivePacer pacer, Duration expectedDelay) {
+        StepVerifier.withVirtualTime(pacer::pace)
+            .expectSubscription()
+            .expectNoEvent(expectedDelay.minusMillis(1))
+            .thenAwait(Duration.ofMillis(1))
+            .verifyComplete();
+    }
+}
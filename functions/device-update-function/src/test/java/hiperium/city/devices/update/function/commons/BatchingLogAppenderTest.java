@@ -0,0 +1,125 @@
+package hiperium.city.devices.update.function.commons;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchingLogAppenderTest {
+
+    private static final int THREADS = 4;
+    private static final int EVENTS_PER_THREAD = 5_000;
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(5);
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = this.loggerContext.getLogger(BatchingLogAppenderTest.class);
+    private BatchingLogAppender appender;
+
+    @BeforeEach
+    void init() {
+        this.logger.setLevel(Level.DEBUG);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.appender.stop();
+    }
+
+    @Test
+    void givenConcurrentLoggers_whenFlushing_thenWriteEveryEventOnceInThreadOrder() throws InterruptedException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        this.appender = this.startAppender(outputStream, 64);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        IntStream.range(0, THREADS).forEach(thread -> executorService.execute(() ->
+            IntStream.range(0, EVENTS_PER_THREAD).forEach(index ->
+                this.appender.doAppend(this.event(Level.WARN, thread + ":" + index)))));
+        executorService.shutdown();
+        assertThat(executorService.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(this.appender.flush(FLUSH_TIMEOUT)).isTrue();
+
+        List<String> lines = Arrays.asList(outputStream.toString(StandardCharsets.UTF_8).split("\n"));
+        assertThat(lines).hasSize(THREADS * EVENTS_PER_THREAD);
+        IntStream.range(0, THREADS).forEach(thread -> assertThat(lines.stream()
+            .filter(line -> line.startsWith(thread + ":"))
+            .map(line -> Integer.parseInt(line.substring(line.indexOf(':') + 1)))
+            .toList()).isSorted().hasSize(EVENTS_PER_THREAD));
+        assertThat(this.appender.getDroppedEvents()).isZero();
+    }
+
+    @Test
+    void givenStalledOutput_whenBufferIsFull_thenDropAndCountDebugEvents() throws InterruptedException {
+        CountDownLatch outputReleased = new CountDownLatch(1);
+        ByteArrayOutputStream writtenBytes = new ByteArrayOutputStream();
+        OutputStream stalledOutputStream = new OutputStream() {
+            @Override
+            public void write(int value) {
+                writtenBytes.write(value);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                try {
+                    outputReleased.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(exception);
+                }
+                writtenBytes.write(bytes, offset, length);
+            }
+        };
+        this.appender = this.startAppender(stalledOutputStream, 4);
+
+        // The first event is taken by the writer, which stalls, so the next ones fill the buffer.
+        this.appender.doAppend(this.event(Level.DEBUG, "first"));
+        assertThat(this.appender.flush(Duration.ofMillis(100))).isFalse();
+        IntStream.range(0, 10).forEach(index -> this.appender.doAppend(this.event(Level.DEBUG, "event " + index)));
+        outputReleased.countDown();
+
+        assertThat(this.appender.flush(FLUSH_TIMEOUT)).isTrue();
+        assertThat(this.appender.getDroppedEvents()).isEqualTo(6);
+        this.appender.doAppend(this.event(Level.DEBUG, "last"));
+        assertThat(this.appender.flush(FLUSH_TIMEOUT)).isTrue();
+        assertThat(writtenBytes.toString(StandardCharsets.UTF_8))
+            .contains("Dropped 6 log events because the buffer was full.")
+            .endsWith("last\n");
+    }
+
+    private BatchingLogAppender startAppender(OutputStream outputStream, int capacity) {
+        PatternLayout layout = new PatternLayout();
+        layout.setContext(this.loggerContext);
+        layout.setPattern("%msg%n");
+        layout.start();
+        BatchingLogAppender batchingLogAppender = new BatchingLogAppender(outputStream);
+        batchingLogAppender.setContext(this.loggerContext);
+        batchingLogAppender.setName("test");
+        batchingLogAppender.setLayout(layout);
+        batchingLogAppender.setCapacity(capacity);
+        batchingLogAppender.setMaxBlockMillis(FLUSH_TIMEOUT.toMillis());
+        batchingLogAppender.start();
+        return batchingLogAppender;
+    }
+
+    private LoggingEvent event(Level level, String message) {
+        return new LoggingEvent(BatchingLogAppenderTest.class.getName(), this.logger, level, message, null, null);
+    }
+}
@@ -0,0 +1,86 @@
+package hiperium.city.devices.update.function.commons;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorLogSamplerTest {
+
+    private static final Logger LOGGER = (Logger) LoggerFactory.getLogger(ErrorLogSamplerTest.class);
+
+    private final AtomicLong nanoClock = new AtomicLong();
+    private final ListAppender<ILoggingEvent> summaryAppender = new ListAppender<>();
+    private ErrorLogSampler errorLogSampler;
+
+    @BeforeEach
+    void init() {
+        this.errorLogSampler = new ErrorLogSampler(this.nanoClock::get);
+        this.errorLogSampler.setPermitsPerInterval(3);
+        this.errorLogSampler.setIntervalMillis(1_000L);
+        this.errorLogSampler.setKeyLength(20);
+        this.errorLogSampler.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        this.errorLogSampler.start();
+        this.summaryAppender.start();
+        ((Logger) LoggerFactory.getLogger(ErrorLogSampler.class)).addAppender(this.summaryAppender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ((Logger) LoggerFactory.getLogger(ErrorLogSampler.class)).detachAppender(this.summaryAppender);
+        this.errorLogSampler.stop();
+    }
+
+    @Test
+    void givenErrorFlood_whenDeciding_thenWritePermittedEventsAndSummarizeTheRest() {
+        long written = IntStream.range(0, 10)
+            .mapToObj(index -> this.errorLogSampler.decide(event(Level.ERROR, "Couldn't deserialize request " + index)))
+            .filter(reply -> reply == FilterReply.NEUTRAL)
+            .count();
+        assertThat(written).isEqualTo(3);
+
+        this.errorLogSampler.logSummaries();
+
+        assertThat(this.summaryAppender.list).singleElement()
+            .extracting(ILoggingEvent::getFormattedMessage)
+            .asString()
+            .startsWith("Suppressed 7 similar error logs:");
+    }
+
+    @Test
+    void givenEmptyBucket_whenIntervalElapses_thenWriteErrorsAgain() {
+        IntStream.range(0, 3).forEach(index -> this.errorLogSampler.decide(event(Level.ERROR, "Device not found.")));
+        assertThat(this.errorLogSampler.decide(event(Level.ERROR, "Device not found."))).isEqualTo(FilterReply.DENY);
+        assertThat(this.errorLogSampler.decide(event(Level.ERROR, "City not found."))).isEqualTo(FilterReply.NEUTRAL);
+
+        this.nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000L));
+
+        assertThat(this.errorLogSampler.decide(event(Level.ERROR, "Device not found.")))
+            .isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void givenOtherLevels_whenDeciding_thenNeverSample() {
+        assertThat(IntStream.range(0, 10)
+            .mapToObj(index -> this.errorLogSampler.decide(event(Level.WARN, "Device not found.")))
+            .allMatch(reply -> reply == FilterReply.NEUTRAL))
+            .isTrue();
+    }
+
+    private static ILoggingEvent event(Level level, String message) {
+        return new LoggingEvent(ErrorLogSamplerTest.class.getName(), LOGGER, level, message, null, null);
+    }
+}
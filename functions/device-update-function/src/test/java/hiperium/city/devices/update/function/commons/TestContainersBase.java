@@ -17,7 +17,7 @@ public abstract class TestContainersBase {
     // See: https://www.testcontainers.org/test_framework_integration/manual_lifecycle_control/#singleton-containers
     static {
         LOCALSTACK_CONTAINER = new LocalStackContainer(DockerImageName.parse("localstack/localstack:latest"))
-            .withServices(LocalStackContainer.Service.DYNAMODB)
+            .withServices(LocalStackContainer.Service.DYNAMODB, LocalStackContainer.Service.KINESIS)
             .withCopyToContainer(MountableFile.forClasspathResource("localstack/table-setup.sh"),
                 "/etc/localstack/init/ready.d/table-setup.sh")
             .withCopyToContainer(MountableFile.forClasspathResource("localstack/table-data.json"),
@@ -36,5 +36,7 @@ public abstract class TestContainersBase {
         registry.add("aws.accessKeyId", LOCALSTACK_CONTAINER::getAccessKey);
         registry.add("aws.secretAccessKey", LOCALSTACK_CONTAINER::getSecretKey);
         registry.add("spring.cloud.aws.endpoint", () -> LOCALSTACK_CONTAINER.getEndpoint().toString());
+        registry.add("hiperium.devices.audit.sink", () -> "file");
+        registry.add("hiperium.devices.audit.file-path", () -> "target/status-history.ndjson");
     }
 }
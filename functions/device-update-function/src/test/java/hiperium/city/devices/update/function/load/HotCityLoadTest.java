@@ -0,0 +1,93 @@
+package hiperium.city.devices.update.function.load;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.UpdateDeviceApplication;
+import hiperium.city.devices.update.function.commons.TestContainersBase;
+import hiperium.city.devices.update.function.configurations.FunctionConfig;
+import hiperium.city.devices.update.function.dto.UpdateDeviceResponse;
+import hiperium.city.devices.update.function.repository.CityShards;
+import hiperium.city.devices.update.function.services.CityStatusCache;
+import hiperium.city.devices.update.function.utils.TestsUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.FunctionCatalog;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the updates of a single hot city with the sharded layout, and reports how the writes are spread across
+ * the partition keys of the sharded city index. Run it with the "load-test" profile.
+ */
+@Tag("load")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+@FunctionalSpringBootTest(classes = UpdateDeviceApplication.class)
+@TestPropertySource(properties = "hiperium.devices.sharding.enabled=true")
+class HotCityLoadTest extends TestContainersBase {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(HotCityLoadTest.class);
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private FunctionCatalog functionCatalog;
+
+    @Autowired
+    private CityStatusCache cityStatusCache;
+
+    @Autowired
+    private CityShards cityShards;
+
+    @Test
+    void givenSingleCity_whenUpdateAtArrivalRate_thenSpreadWritesAcrossShards() throws IOException {
+        LoadTestSettings configuredSettings = LoadTestSettings.fromSystemProperties();
+        LoadTestSettings settings = new LoadTestSettings(configuredSettings.arrivalRate(), configuredSettings.warmup(),
+            configuredSettings.duration(), configuredSettings.maxInFlight(), configuredSettings.devices(), 1,
+            configuredSettings.distribution(), configuredSettings.zipfExponent(), configuredSettings.seed(),
+            configuredSettings.reportDirectory());
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+        LoadTestDataSeeder seeder = new LoadTestDataSeeder(settings);
+        seeder.seed(this.dynamoDbAsyncClient);
+        // The first call may join a refresh started before seeding, so the second one loads the seeded cities.
+        this.cityStatusCache.refreshAsync().join();
+        this.cityStatusCache.refreshAsync().join();
+
+        Map<String, Long> writesPerShard = new ConcurrentHashMap<>();
+        Function<Message<byte[]>, Mono<UpdateDeviceResponse>> function = this.functionCatalog.lookup(Function.class,
+            FunctionConfig.FUNCTION_BEAN_NAME);
+        LoadTestResult result = new OpenModelLoadGenerator<UpdateDeviceResponse>(settings).run(
+            deviceIndex -> {
+                writesPerShard.merge(this.cityShards.shardOf(seeder.cityId(deviceIndex), seeder.deviceId(deviceIndex)),
+                    1L, Long::sum);
+                return function.apply(TestsUtils.createMessage(
+                    UpdateDeviceLoadTest.createRequest(seeder, deviceIndex)));
+            },
+            response -> Objects.isNull(response.error()));
+
+        Path reportFile = LoadTestReport.of("hot-city", settings, result).write();
+        WriteSpreadReport spreadReport = WriteSpreadReport.of("hot-city",
+            this.cityShards.shardsOf(seeder.cityId(0)).size(), writesPerShard);
+        Path spreadReportFile = spreadReport.write(settings.reportDirectory());
+        LOGGER.info("Load test reports written to: " + reportFile.toAbsolutePath() + " and "
+            + spreadReportFile.toAbsolutePath());
+        assertThat(result.succeeded()).isPositive();
+        assertThat(writesPerShard).hasSizeGreaterThan(1);
+        assertThat(spreadReport.hottestShareRate()).isLessThan(1.0);
+    }
+}
@@ -0,0 +1,51 @@
+package hiperium.city.devices.update.function.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Selects the index of the seeded device used by each request.
+ */
+public interface KeyDistribution {
+
+    enum Type {
+        UNIFORM, ZIPFIAN
+    }
+
+    /**
+     * Returns the index of the next device, between 0 (inclusive) and the number of devices (exclusive).
+     *
+     * @param random The random generator of the load generator.
+     * @return The index of the device.
+     */
+    int nextIndex(SplittableRandom random);
+
+    static KeyDistribution of(LoadTestSettings settings) {
+        return switch (settings.distribution()) {
+            case UNIFORM -> random -> random.nextInt(settings.devices());
+            case ZIPFIAN -> zipfian(settings.devices(), settings.zipfExponent());
+        };
+    }
+
+    /**
+     * Creates a Zipfian distribution, where the device with rank k is selected with a probability proportional
+     * to 1/k^exponent. The cumulative probabilities are precomputed, so each selection is a binary search.
+     *
+     * @param size     The number of devices.
+     * @param exponent The exponent of the distribution.
+     * @return The Zipfian distribution.
+     */
+    static KeyDistribution zipfian(int size, double exponent) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        final double total = sum;
+        return random -> {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            return Math.min(index >= 0 ? index : -index - 1, size - 1);
+        };
+    }
+}
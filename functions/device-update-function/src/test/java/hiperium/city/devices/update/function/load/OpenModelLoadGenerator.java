@@ -0,0 +1,81 @@
+package hiperium.city.devices.update.function.load;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Generates the requests with an open model: the requests are started at a fixed arrival rate, regardless of
+ * how long the previous requests take to complete. The requests are sent through the function's entry point,
+ * and the responses are processed asynchronously, so a slow response never delays the next arrival.
+ *
+ * @param <R> The type of the function response.
+ */
+public class OpenModelLoadGenerator<R> {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(OpenModelLoadGenerator.class);
+
+    private final LoadTestSettings settings;
+    private final KeyDistribution keyDistribution;
+
+    public OpenModelLoadGenerator(LoadTestSettings settings) {
+        this.settings = settings;
+        this.keyDistribution = KeyDistribution.of(settings);
+    }
+
+    /**
+     * Runs the warmup and the measured phases.
+     *
+     * @param requestFactory Creates the request for the given device index and sends it through the function.
+     * @param isSuccess      Tells if a response is successful.
+     * @return The result of the measured phase.
+     */
+    public LoadTestResult run(IntFunction<Mono<R>> requestFactory, Predicate<R> isSuccess) {
+        LOGGER.info("Starting warmup phase of " + this.settings.warmup().toSeconds() + " seconds...");
+        this.runPhase(this.settings.warmup(), requestFactory, isSuccess, new LoadTestResult());
+        LOGGER.info("Starting measured phase of " + this.settings.duration().toSeconds() + " seconds...");
+        LoadTestResult result = new LoadTestResult();
+        this.runPhase(this.settings.duration(), requestFactory, isSuccess, result);
+        return result;
+    }
+
+    private void runPhase(Duration phaseDuration, IntFunction<Mono<R>> requestFactory, Predicate<R> isSuccess,
+                          LoadTestResult result) {
+        SplittableRandom random = new SplittableRandom(this.settings.seed());
+        Semaphore inFlight = new Semaphore(this.settings.maxInFlight());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / this.settings.arrivalRate();
+        long totalRequests = phaseDuration.toNanos() / intervalNanos;
+        long phaseStartNanos = System.nanoTime();
+
+        for (long request = 0; request < totalRequests; request++) {
+            long intendedStartNanos = phaseStartNanos + request * intervalNanos;
+            long waitNanos = intendedStartNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            if (!inFlight.tryAcquire()) {
+                result.recordRejection();
+                continue;
+            }
+            int deviceIndex = this.keyDistribution.nextIndex(random);
+            long actualStartNanos = System.nanoTime();
+            Mono.defer(() -> requestFactory.apply(deviceIndex))
+                .map(isSuccess::test)
+                .onErrorReturn(false)
+                .defaultIfEmpty(false)
+                .doFinally(signalType -> inFlight.release())
+                .subscribe(success ->
+                    result.recordCompletion(intendedStartNanos, actualStartNanos, System.nanoTime(), success));
+        }
+        // Waits for the requests still in flight.
+        inFlight.acquireUninterruptibly(this.settings.maxInFlight());
+        inFlight.release(this.settings.maxInFlight());
+    }
+}
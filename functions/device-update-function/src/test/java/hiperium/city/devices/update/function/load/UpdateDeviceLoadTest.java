@@ -0,0 +1,79 @@
+package hiperium.city.devices.update.function.load;
+
+import hiperium.cities.commons.loggers.HiperiumLogger;
+import hiperium.city.devices.update.function.UpdateDeviceApplication;
+import hiperium.city.devices.update.function.commons.TestContainersBase;
+import hiperium.city.devices.update.function.configurations.FunctionConfig;
+import hiperium.city.devices.update.function.dto.UpdateDeviceResponse;
+import hiperium.city.devices.update.function.services.CityStatusCache;
+import hiperium.city.devices.update.function.utils.TestsUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.FunctionCatalog;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the update function through its entry point against LocalStack. Run it with the "load-test" profile.
+ */
+@Tag("load")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+@FunctionalSpringBootTest(classes = UpdateDeviceApplication.class)
+class UpdateDeviceLoadTest extends TestContainersBase {
+
+    private static final HiperiumLogger LOGGER = new HiperiumLogger(UpdateDeviceLoadTest.class);
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private FunctionCatalog functionCatalog;
+
+    @Autowired
+    private CityStatusCache cityStatusCache;
+
+    @Test
+    void givenSeededDevices_whenUpdateAtArrivalRate_thenWriteReport() throws IOException {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+        LoadTestDataSeeder seeder = new LoadTestDataSeeder(settings);
+        seeder.seed(this.dynamoDbAsyncClient);
+        // The first call may join a refresh started before seeding, so the second one loads the seeded cities.
+        this.cityStatusCache.refreshAsync().join();
+        this.cityStatusCache.refreshAsync().join();
+
+        Function<Message<byte[]>, Mono<UpdateDeviceResponse>> function = this.functionCatalog.lookup(Function.class,
+            FunctionConfig.FUNCTION_BEAN_NAME);
+        LoadTestResult result = new OpenModelLoadGenerator<UpdateDeviceResponse>(settings).run(
+            deviceIndex -> function.apply(TestsUtils.createMessage(createRequest(seeder, deviceIndex))),
+            response -> Objects.isNull(response.error()));
+
+        Path reportFile = LoadTestReport.of("update-device", settings, result).write();
+        LOGGER.info("Load test report written to: " + reportFile.toAbsolutePath());
+        assertThat(result.succeeded()).isPositive();
+    }
+
+    // Every request carries a new event ID, so the idempotency layer doesn't skip the updates.
+    static byte[] createRequest(LoadTestDataSeeder seeder, int deviceIndex) {
+        String operation = (deviceIndex & 1) == 0 ? "ACTIVATE" : "INACTIVATE";
+        return ("{\"version\":\"0\",\"id\":\"" + UUID.randomUUID() + "\",\"source\":\"hiperium.city.tasks.api\","
+            + "\"detail-type\":\"ExecutedTaskEvent\",\"detail\":{\"deviceId\":\"" + seeder.deviceId(deviceIndex)
+            + "\",\"cityId\":\"" + seeder.cityId(deviceIndex) + "\",\"deviceOperation\":\"" + operation + "\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+package hiperium.city.devices.update.function.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The report of the writes received by every partition key of the city index during a load test run. LocalStack
+ * doesn't throttle the hot partitions, so the spread of the writes is reported instead of the throttled requests.
+ *
+ * @param scenario         The name of the scenario, used as the report file name.
+ * @param shardCount       The number of shards of every city.
+ * @param writesPerShard   The number of writes received by every city shard.
+ * @param hottestShareRate The share of the writes received by the hottest city shard. Without sharding, all the
+ *                         writes of a city go to the same partition key, so the rate would be 1.0.
+ */
+public record WriteSpreadReport(
+
+    String scenario,
+    int shardCount,
+    Map<String, Long> writesPerShard,
+    double hottestShareRate) {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static WriteSpreadReport of(String scenario, int shardCount, Map<String, Long> writesPerShard) {
+        long totalWrites = writesPerShard.values().stream().mapToLong(Long::longValue).sum();
+        long hottestShardWrites = writesPerShard.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+        return new WriteSpreadReport(scenario, shardCount, new TreeMap<>(writesPerShard),
+            totalWrites == 0 ? 0.0 : (double) hottestShardWrites / totalWrites);
+    }
+
+    /**
+     * Writes the report in the given directory, with the scenario name and the run timestamp as the file name.
+     *
+     * @param reportDirectory The directory where the report is written.
+     * @return The path of the report file.
+     * @throws IOException If the report can't be written.
+     */
+    public Path write(String reportDirectory) throws IOException {
+        Path directory = Path.of(reportDirectory);
+        Files.createDirectories(directory);
+        Path reportFile = directory.resolve(this.scenario + "-spread-" + Instant.now().getEpochSecond() + ".json");
+        OBJECT_MAPPER.writeValue(reportFile.toFile(), this);
+        return reportFile;
+    }
+}
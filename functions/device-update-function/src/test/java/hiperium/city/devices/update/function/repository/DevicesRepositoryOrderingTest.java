@@ -0,0 +1,116 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.city.devices.update.function.UpdateDeviceApplication;
+import hiperium.city.devices.update.function.commons.DeviceOperation;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.DeviceUpdateResult;
+import hiperium.city.devices.update.function.commons.TestContainersBase;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import hiperium.city.devices.update.function.dto.EventBridgeDetail;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.utils.TestsUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@FunctionalSpringBootTest(classes = UpdateDeviceApplication.class)
+class DevicesRepositoryOrderingTest extends TestContainersBase {
+
+    private static final long EVENT_TIME = 1_715_180_400_000L;
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private DevicesRepository devicesRepository;
+
+    @BeforeEach
+    void init() {
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+    }
+
+    @Test
+    void givenNewerEventApplied_whenUpdatingWithOlderEvent_thenDiscardItAsStale() {
+        Device device = this.createDevice(DeviceStatus.OFF);
+
+        assertThat(this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.ON, EVENT_TIME).block())
+            .isEqualTo(DeviceUpdateResult.UPDATED);
+        assertThat(this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.OFF, EVENT_TIME - 1).block())
+            .isEqualTo(DeviceUpdateResult.STALE);
+        EventBridgeDetail eventDetail = new EventBridgeDetail(device.id(), device.cityId(), DeviceOperation.INACTIVATE);
+        assertThat(this.devicesRepository.updateDeviceStatusIfChangedAsync(eventDetail, DeviceStatus.OFF,
+            EVENT_TIME - 1).block()).isEqualTo(DeviceUpdateResult.STALE);
+
+        Map<String, AttributeValue> item = this.findItem(device);
+        assertThat(item.get(Device.STATUS_COLUMN_NAME).s()).isEqualTo(DeviceStatus.ON.name());
+        assertThat(item.get(Device.LAST_EVENT_TIME_COLUMN_NAME).n()).isEqualTo(String.valueOf(EVENT_TIME));
+    }
+
+    @Test
+    void givenEventOfTheSameSecond_whenUpdatingIfChanged_thenApplyIt() {
+        Device device = this.createDevice(DeviceStatus.OFF);
+        EventBridgeDetail activateDetail = new EventBridgeDetail(device.id(), device.cityId(),
+            DeviceOperation.ACTIVATE);
+        EventBridgeDetail inactivateDetail = new EventBridgeDetail(device.id(), device.cityId(),
+            DeviceOperation.INACTIVATE);
+
+        assertThat(this.devicesRepository.updateDeviceStatusIfChangedAsync(activateDetail, DeviceStatus.ON,
+            EVENT_TIME).block()).isEqualTo(DeviceUpdateResult.UPDATED);
+        assertThat(this.devicesRepository.updateDeviceStatusIfChangedAsync(activateDetail, DeviceStatus.ON,
+            EVENT_TIME).block()).isEqualTo(DeviceUpdateResult.UNCHANGED);
+        assertThat(this.devicesRepository.updateDeviceStatusIfChangedAsync(inactivateDetail, DeviceStatus.OFF,
+            EVENT_TIME).block()).isEqualTo(DeviceUpdateResult.UPDATED);
+
+        assertThat(this.findItem(device).get(Device.STATUS_COLUMN_NAME).s()).isEqualTo(DeviceStatus.OFF.name());
+    }
+
+    @Test
+    void givenUpdatedDevice_whenImportingItAgain_thenKeepEventTimeAndIncreaseVersion() {
+        Device device = this.createDevice(DeviceStatus.OFF);
+        assertThat(this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.ON, EVENT_TIME).block())
+            .isEqualTo(DeviceUpdateResult.UPDATED);
+
+        assertThat(this.devicesRepository.batchImportAsync(List.of(
+            new DeviceImportRow(device.id(), device.cityId(), "Imported device", null, DeviceStatus.OFF))
+        ).join()).isEmpty();
+
+        Map<String, AttributeValue> item = this.findItem(device);
+        assertThat(item.get(Device.STATUS_COLUMN_NAME).s()).isEqualTo(DeviceStatus.OFF.name());
+        assertThat(item.get(Device.NAME_COLUMN_NAME).s()).isEqualTo("Imported device");
+        assertThat(item.get(Device.VERSION_COLUMN_NAME).n()).isEqualTo("3");
+        assertThat(item.get(Device.LAST_EVENT_TIME_COLUMN_NAME).n()).isEqualTo(String.valueOf(EVENT_TIME));
+        // An older event is still discarded, so the import doesn't reopen the device to reordered updates.
+        assertThat(this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.ON, EVENT_TIME - 1).block())
+            .isEqualTo(DeviceUpdateResult.STALE);
+    }
+
+    private Device createDevice(DeviceStatus status) {
+        Device device = new Device(UUID.randomUUID().toString(), UUID.randomUUID().toString(), status, 1L);
+        this.dynamoDbAsyncClient.putItem(PutItemRequest.builder()
+            .tableName(Device.TABLE_NAME)
+            .item(Map.of(
+                Device.ID_COLUMN_NAME, AttributeValue.fromS(device.id()),
+                Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(device.cityId()),
+                Device.STATUS_COLUMN_NAME, AttributeValue.fromS(device.status().name()),
+                Device.VERSION_COLUMN_NAME, AttributeValue.fromN("1")))
+            .build()).join();
+        return device;
+    }
+
+    private Map<String, AttributeValue> findItem(Device device) {
+        return this.dynamoDbAsyncClient.getItem(DevicesRequestTemplates.findById(device.id(), device.cityId()))
+            .join().item();
+    }
+}
@@ -0,0 +1,163 @@
+package hiperium.city.devices.update.function.repository;
+
+import hiperium.city.devices.update.function.UpdateDeviceApplication;
+import hiperium.city.devices.update.function.audit.StatusAuditSink;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.TestContainersBase;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import hiperium.city.devices.update.function.dto.ShardsBackfillResponse;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.services.CityShardsBackfillService;
+import hiperium.city.devices.update.function.utils.TestsUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@FunctionalSpringBootTest(classes = UpdateDeviceApplication.class)
+@TestPropertySource(properties = {
+    "hiperium.devices.sharding.enabled=true",
+    "hiperium.devices.sharding.shard-count=4",
+    "hiperium.devices.sharding.backfilled=true"
+})
+class DevicesRepositoryShardingTest extends TestContainersBase {
+
+    private static final int SHARDS = 4;
+    private static final int DEVICES = 23;
+    private static final int PAGE_SIZE = 5;
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private DevicesRepository devicesRepository;
+
+    @Autowired
+    private CityShards cityShards;
+
+    @Autowired
+    private CityShardsBackfillService cityShardsBackfillService;
+
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private StatusAuditSink statusAuditSink;
+
+    @Autowired
+    private CityCountersRepository cityCountersRepository;
+
+    @BeforeEach
+    void init() {
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+    }
+
+    @Test
+    void givenShardedCity_whenReadingItsDevicesByPage_thenReturnEveryDeviceOnceInOrder() {
+        String cityId = UUID.randomUUID().toString();
+        List<DeviceImportRow> deviceRows = IntStream.range(0, DEVICES)
+            .mapToObj(index -> new DeviceImportRow(UUID.randomUUID().toString(), cityId, "Device " + index, null,
+                DeviceStatus.OFF))
+            .toList();
+        for (int offset = 0; offset < DEVICES; offset += 25) {
+            assertThat(this.devicesRepository.batchImportAsync(
+                deviceRows.subList(offset, Math.min(offset + 25, DEVICES))).join()).isEmpty();
+        }
+        Set<String> usedShards = deviceRows.stream()
+            .map(deviceRow -> this.cityShards.shardOf(cityId, deviceRow.deviceId()))
+            .collect(Collectors.toSet());
+        assertThat(usedShards).hasSizeGreaterThan(1);
+
+        List<String> readDeviceIds = new ArrayList<>();
+        String lastDeviceId = null;
+        QueryResponse page;
+        do {
+            page = this.devicesRepository.findCityDevicesAsync(cityId, lastDeviceId, PAGE_SIZE).join();
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(PAGE_SIZE);
+            page.items().forEach(item -> readDeviceIds.add(item.get(Device.ID_COLUMN_NAME).s()));
+            lastDeviceId = page.hasLastEvaluatedKey()
+                ? page.lastEvaluatedKey().get(Device.ID_COLUMN_NAME).s()
+                : null;
+        } while (Objects.nonNull(lastDeviceId));
+
+        assertThat(readDeviceIds).containsExactlyElementsOf(deviceRows.stream()
+            .map(DeviceImportRow::deviceId)
+            .sorted()
+            .toList());
+    }
+
+    @Test
+    void givenDeviceWrittenBeforeSharding_whenUpdatingIt_thenWriteItsCityShard() {
+        Device device = new Device(UUID.randomUUID().toString(), UUID.randomUUID().toString(), DeviceStatus.OFF, 1L);
+        this.dynamoDbAsyncClient.putItem(PutItemRequest.builder()
+            .tableName(Device.TABLE_NAME)
+            .item(Map.of(
+                Device.ID_COLUMN_NAME, AttributeValue.fromS(device.id()),
+                Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(device.cityId()),
+                Device.STATUS_COLUMN_NAME, AttributeValue.fromS(device.status().name()),
+                Device.VERSION_COLUMN_NAME, AttributeValue.fromN("1")))
+            .build()).join();
+
+        this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.ON, null).block();
+
+        Map<String, AttributeValue> updatedItem = this.dynamoDbAsyncClient.getItem(
+            DevicesRequestTemplates.findById(device.id(), device.cityId())).join().item();
+        assertThat(updatedItem.get(Device.CITY_SHARD_COLUMN_NAME).s())
+            .isEqualTo(this.cityShards.shardOf(device.cityId(), device.id()));
+    }
+
+    @Test
+    void givenDeviceWrittenBeforeSharding_whenBackfillingShards_thenFindItInBothIndexesAndKeepItOnImports() {
+        Device device = new Device(UUID.randomUUID().toString(), UUID.randomUUID().toString(), DeviceStatus.OFF, 1L);
+        this.dynamoDbAsyncClient.putItem(PutItemRequest.builder()
+            .tableName(Device.TABLE_NAME)
+            .item(Map.of(
+                Device.ID_COLUMN_NAME, AttributeValue.fromS(device.id()),
+                Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(device.cityId()),
+                Device.STATUS_COLUMN_NAME, AttributeValue.fromS(device.status().name()),
+                Device.VERSION_COLUMN_NAME, AttributeValue.fromN("1")))
+            .build()).join();
+
+        // Until the shards are backfilled, the city reads find the device in the city index.
+        DevicesRepository unbackfilledRepository = new DevicesRepository(new CityShards(SHARDS, false),
+            this.circuitBreaker, this.statusAuditSink, this.dynamoDbAsyncClient, this.cityCountersRepository);
+        assertThat(unbackfilledRepository.findCityDevicesAsync(device.cityId(), null, PAGE_SIZE).join().items())
+            .extracting(item -> item.get(Device.ID_COLUMN_NAME).s())
+            .containsExactly(device.id());
+
+        ShardsBackfillResponse backfillResponse = this.cityShardsBackfillService.backfillShards().block();
+        assertThat(backfillResponse).isNotNull();
+        assertThat(backfillResponse.backfilledDevices()).isPositive();
+        assertThat(this.devicesRepository.findCityDevicesAsync(device.cityId(), null, PAGE_SIZE).join().items())
+            .extracting(item -> item.get(Device.ID_COLUMN_NAME).s())
+            .containsExactly(device.id());
+
+        // An unsharded import keeps the city shard of the device.
+        this.dynamoDbAsyncClient.updateItem(DevicesRequestTemplates.importDevice(
+            new DeviceImportRow(device.id(), device.cityId(), "Device", null, DeviceStatus.ON),
+            DevicesRequestTemplates.timestampOf(Instant.now()), null)).join();
+        Map<String, AttributeValue> importedItem = this.dynamoDbAsyncClient.getItem(
+            DevicesRequestTemplates.findById(device.id(), device.cityId())).join().item();
+        assertThat(importedItem.get(Device.CITY_SHARD_COLUMN_NAME).s())
+            .isEqualTo(this.cityShards.shardOf(device.cityId(), device.id()));
+    }
+}
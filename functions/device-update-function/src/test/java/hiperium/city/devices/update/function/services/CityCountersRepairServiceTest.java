@@ -0,0 +1,139 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.city.devices.update.function.UpdateDeviceApplication;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.DeviceUpdateResult;
+import hiperium.city.devices.update.function.commons.TestContainersBase;
+import hiperium.city.devices.update.function.dto.CountersRepairResponse;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import hiperium.city.devices.update.function.entities.CityDeviceCounters;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.repository.CityCountersRepository;
+import hiperium.city.devices.update.function.repository.DevicesRepository;
+import hiperium.city.devices.update.function.utils.TestsUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@FunctionalSpringBootTest(classes = UpdateDeviceApplication.class)
+@TestPropertySource(properties = "hiperium.devices.counters.enabled=true")
+class CityCountersRepairServiceTest extends TestContainersBase {
+
+    private static final int DEVICES = 3;
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private DevicesRepository devicesRepository;
+
+    @Autowired
+    private CityCountersRepository cityCountersRepository;
+
+    @Autowired
+    private CityCountersRepairService cityCountersRepairService;
+
+    @BeforeEach
+    void init() {
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+    }
+
+    @Test
+    void givenImportedCity_whenUpdatingAndRepairingDevices_thenKeepCountersInStepWithDevices() {
+        String cityId = UUID.randomUUID().toString();
+        List<DeviceImportRow> deviceRows = IntStream.range(0, DEVICES)
+            .mapToObj(index -> new DeviceImportRow(UUID.randomUUID().toString(), cityId, "Device " + index, null,
+                DeviceStatus.OFF))
+            .toList();
+        assertThat(this.devicesRepository.batchImportAsync(deviceRows).join()).isEmpty();
+        assertThat(this.findCounters(cityId)).isEqualTo(new CityDeviceCounters(cityId, DEVICES, 0, DEVICES, DEVICES));
+
+        Device device = new Device(deviceRows.get(0).deviceId(), cityId, DeviceStatus.OFF, 1L);
+        assertThat(this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.ON, null).block())
+            .isEqualTo(DeviceUpdateResult.UPDATED);
+        assertThat(this.devicesRepository.updateCityDeviceStatusAsync(device, DeviceStatus.ON).block())
+            .isEqualTo(DeviceUpdateResult.UNCHANGED);
+        assertThat(this.findCounters(cityId))
+            .isEqualTo(new CityDeviceCounters(cityId, DEVICES, 1, DEVICES - 1, DEVICES + 1));
+
+        // Importing the devices again only counts the ones whose status changed.
+        assertThat(this.devicesRepository.batchImportAsync(deviceRows).join()).isEmpty();
+        assertThat(this.findCounters(cityId))
+            .isEqualTo(new CityDeviceCounters(cityId, DEVICES, 0, DEVICES, DEVICES + 2));
+
+        CountersRepairResponse repairResponse = this.cityCountersRepairService.repairCounters().block();
+        assertThat(repairResponse).isNotNull();
+        assertThat(this.findCounters(cityId))
+            .isEqualTo(new CityDeviceCounters(cityId, DEVICES, 0, DEVICES, DEVICES + 2));
+    }
+
+    @Test
+    void givenCityWithoutCounters_whenUpdatingDevice_thenInitializeCountersWithoutNegativeValues() {
+        Device device = new Device(UUID.randomUUID().toString(), UUID.randomUUID().toString(), DeviceStatus.OFF, 1L);
+        this.dynamoDbAsyncClient.putItem(PutItemRequest.builder()
+            .tableName(Device.TABLE_NAME)
+            .item(Map.of(
+                Device.ID_COLUMN_NAME, AttributeValue.fromS(device.id()),
+                Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(device.cityId()),
+                Device.STATUS_COLUMN_NAME, AttributeValue.fromS(device.status().name()),
+                Device.VERSION_COLUMN_NAME, AttributeValue.fromN("1")))
+            .build()).join();
+
+        assertThat(this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.ON, null).block())
+            .isEqualTo(DeviceUpdateResult.UPDATED);
+
+        assertThat(this.findCounters(device.cityId())).isEqualTo(new CityDeviceCounters(device.cityId(), 1, 1, 0, 1));
+    }
+
+    @Test
+    void givenChangesThatCancelOut_whenReplacingCounters_thenDetectTheConflict() {
+        String cityId = UUID.randomUUID().toString();
+        String deviceId = UUID.randomUUID().toString();
+        assertThat(this.devicesRepository.batchImportAsync(List.of(
+            new DeviceImportRow(deviceId, cityId, "Device", null, DeviceStatus.OFF))).join()).isEmpty();
+        CityDeviceCounters liveCounters = this.findCounters(cityId);
+
+        // The device is turned on and off again, so the counters end with the values read before.
+        Device device = new Device(deviceId, cityId, DeviceStatus.OFF, 1L);
+        assertThat(this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.ON, null).block())
+            .isEqualTo(DeviceUpdateResult.UPDATED);
+        assertThat(this.devicesRepository.updateDeviceStatusAsync(device, DeviceStatus.OFF, null).block())
+            .isEqualTo(DeviceUpdateResult.UPDATED);
+        assertThat(this.findCounters(cityId).hasSameCountsAs(liveCounters)).isTrue();
+
+        CityDeviceCounters rebuiltCounters = new CityDeviceCounters(cityId, 1, 1, 0, 0);
+        assertThat(this.cityCountersRepository.replaceIfUnchangedAsync(rebuiltCounters, liveCounters).join())
+            .isFalse();
+        assertThat(this.findCounters(cityId)).isEqualTo(new CityDeviceCounters(cityId, 1, 0, 1, 3));
+    }
+
+    private CityDeviceCounters findCounters(String cityId) {
+        Map<String, AttributeValue> item = this.dynamoDbAsyncClient.getItem(GetItemRequest.builder()
+                .tableName(CityDeviceCounters.TABLE_NAME)
+                .key(Map.of(CityDeviceCounters.CITY_ID_COLUMN_NAME, AttributeValue.fromS(cityId)))
+                .consistentRead(true)
+                .build())
+            .join().item();
+        return new CityDeviceCounters(cityId,
+            Long.parseLong(item.get(CityDeviceCounters.TOTAL_COLUMN_NAME).n()),
+            Long.parseLong(item.get(CityDeviceCounters.ON_COLUMN_NAME).n()),
+            Long.parseLong(item.get(CityDeviceCounters.OFF_COLUMN_NAME).n()),
+            item.containsKey(CityDeviceCounters.CHANGES_COLUMN_NAME)
+                ? Long.parseLong(item.get(CityDeviceCounters.CHANGES_COLUMN_NAME).n()) : 0L);
+    }
+}
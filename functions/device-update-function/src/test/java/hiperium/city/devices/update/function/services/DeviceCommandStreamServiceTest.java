@@ -0,0 +1,209 @@
+package hiperium.city.devices.update.function.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hiperium.cities.commons.exceptions.ParsingException;
+import hiperium.city.devices.update.function.UpdateDeviceApplication;
+import hiperium.city.devices.update.function.commons.DeviceOperation;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.TestContainersBase;
+import hiperium.city.devices.update.function.configurations.FunctionConfig;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import hiperium.city.devices.update.function.dto.EventBridgeDetail;
+import hiperium.city.devices.update.function.dto.EventBridgeRequest;
+import hiperium.city.devices.update.function.dto.KinesisCommandEvent;
+import hiperium.city.devices.update.function.dto.KinesisCommandEvent.KinesisCommandData;
+import hiperium.city.devices.update.function.dto.KinesisCommandEvent.KinesisCommandRecord;
+import hiperium.city.devices.update.function.dto.StreamBatchResponse;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.repository.DevicesRepository;
+import hiperium.city.devices.update.function.utils.DeviceCommandCodec;
+import hiperium.city.devices.update.function.utils.TestsUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.FunctionCatalog;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsResponse;
+import software.amazon.awssdk.services.kinesis.model.PutRecordResponse;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.awssdk.services.kinesis.model.ShardIteratorType;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ActiveProfiles("test")
+@FunctionalSpringBootTest(classes = UpdateDeviceApplication.class)
+class DeviceCommandStreamServiceTest extends TestContainersBase {
+
+    private static final String STREAM_NAME = "device-commands";
+    private static final String ENABLED_CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+    private static final String DISABLED_CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328529";
+    private static final String DISABLED_CITY_DEVICE_ID = "37f44ed4-b672-4f81-a579-47679c0d6f32";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private DevicesRepository devicesRepository;
+
+    @Autowired
+    private FunctionCatalog functionCatalog;
+
+    private KinesisAsyncClient kinesisAsyncClient;
+
+    @BeforeEach
+    void init() {
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+        this.kinesisAsyncClient = KinesisAsyncClient.builder()
+            .region(Region.of(this.environment.getRequiredProperty("aws.region")))
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(
+                this.environment.getRequiredProperty("aws.accessKeyId"),
+                this.environment.getRequiredProperty("aws.secretAccessKey"))))
+            .endpointOverride(URI.create(this.environment.getRequiredProperty("spring.cloud.aws.endpoint")))
+            .build();
+    }
+
+    @AfterEach
+    void close() {
+        this.kinesisAsyncClient.close();
+    }
+
+    @Test
+    void givenInterleavedDeviceCommands_whenProcessingStreamBatch_thenApplyCommandsInOrderPerDevice()
+        throws Exception {
+        String firstDeviceId = UUID.randomUUID().toString();
+        String secondDeviceId = UUID.randomUUID().toString();
+        assertThat(this.devicesRepository.batchImportAsync(List.of(
+            new DeviceImportRow(firstDeviceId, ENABLED_CITY_ID, "First device", null, DeviceStatus.OFF),
+            new DeviceImportRow(secondDeviceId, ENABLED_CITY_ID, "Second device", null, DeviceStatus.OFF))
+        ).join()).isEmpty();
+
+        // The commands of both devices are interleaved, with a malformed and a disabled city command among them.
+        List<PutRecordResponse> putResponses = new ArrayList<>();
+        putResponses.add(this.putCommand(firstDeviceId, this.jsonCommand(firstDeviceId, DeviceOperation.ACTIVATE)));
+        putResponses.add(this.putCommand(secondDeviceId, this.jsonCommand(secondDeviceId, DeviceOperation.ACTIVATE)));
+        putResponses.add(this.putCommand(firstDeviceId, DeviceCommandCodec.encode(
+            this.command(firstDeviceId, ENABLED_CITY_ID, DeviceOperation.INACTIVATE))));
+        putResponses.add(this.putCommand(secondDeviceId, "not a device command".getBytes(StandardCharsets.UTF_8)));
+        putResponses.add(this.putCommand(DISABLED_CITY_DEVICE_ID, OBJECT_MAPPER.writeValueAsBytes(
+            this.command(DISABLED_CITY_DEVICE_ID, DISABLED_CITY_ID, DeviceOperation.ACTIVATE))));
+        putResponses.add(this.putCommand(secondDeviceId,
+            this.jsonCommand(secondDeviceId, DeviceOperation.INACTIVATE)));
+        putResponses.add(this.putCommand(firstDeviceId, this.jsonCommand(firstDeviceId, DeviceOperation.ACTIVATE)));
+
+        Message<byte[]> requestMessage = TestsUtils.createMessage(
+            OBJECT_MAPPER.writeValueAsBytes(this.readCommands(putResponses)));
+        StreamBatchResponse response = this.getFunctionUnderTest().apply(requestMessage).block();
+        assertThat(response).isNotNull();
+        assertThat(response.batchItemFailures()).isEmpty();
+        this.assertDevice(firstDeviceId, DeviceStatus.ON, 4);
+        this.assertDevice(secondDeviceId, DeviceStatus.OFF, 3);
+
+        // A redelivered batch is skipped by the idempotency checks, so the devices keep their last status.
+        response = this.getFunctionUnderTest().apply(requestMessage).block();
+        assertThat(response).isNotNull();
+        assertThat(response.batchItemFailures()).isEmpty();
+        this.assertDevice(firstDeviceId, DeviceStatus.ON, 4);
+        this.assertDevice(secondDeviceId, DeviceStatus.OFF, 3);
+    }
+
+    @Test
+    void givenMalformedStreamBatch_whenProcessingStreamBatch_thenFailTheWholeBatch() {
+        Message<byte[]> requestMessage = TestsUtils.createMessage(
+            "not a stream batch".getBytes(StandardCharsets.UTF_8));
+
+        // An empty response would checkpoint the shard past every record of the batch.
+        assertThatThrownBy(() -> this.getFunctionUnderTest().apply(requestMessage).block())
+            .isInstanceOf(ParsingException.class);
+    }
+
+    private EventBridgeRequest command(String deviceId, String cityId, DeviceOperation deviceOperation) {
+        return new EventBridgeRequest(UUID.randomUUID().toString(), "0", "hiperium.city.tasks.api", null, null,
+            null, List.of(), "ExecutedTaskEvent", new EventBridgeDetail(deviceId, cityId, deviceOperation));
+    }
+
+    private byte[] jsonCommand(String deviceId, DeviceOperation deviceOperation) throws Exception {
+        return OBJECT_MAPPER.writeValueAsBytes(this.command(deviceId, ENABLED_CITY_ID, deviceOperation));
+    }
+
+    private PutRecordResponse putCommand(String deviceId, byte[] data) {
+        return this.kinesisAsyncClient.putRecord(builder -> builder
+                .streamName(STREAM_NAME)
+                .partitionKey(deviceId)
+                .data(SdkBytes.fromByteArray(data)))
+            .join();
+    }
+
+    // Reads the records back from the stream, so the batch has the same sequence numbers and data sent to Lambda.
+    private KinesisCommandEvent readCommands(List<PutRecordResponse> putResponses) {
+        PutRecordResponse firstResponse = putResponses.get(0);
+        String shardIterator = this.kinesisAsyncClient.getShardIterator(builder -> builder
+                .streamName(STREAM_NAME)
+                .shardId(firstResponse.shardId())
+                .shardIteratorType(ShardIteratorType.AT_SEQUENCE_NUMBER)
+                .startingSequenceNumber(firstResponse.sequenceNumber()))
+            .join().shardIterator();
+        List<KinesisCommandRecord> commandRecords = new ArrayList<>();
+        while (commandRecords.size() < putResponses.size()) {
+            String currentIterator = shardIterator;
+            GetRecordsResponse recordsResponse = this.kinesisAsyncClient.getRecords(builder -> builder
+                    .shardIterator(currentIterator)
+                    .limit(putResponses.size() - commandRecords.size()))
+                .join();
+            for (Record streamRecord : recordsResponse.records()) {
+                commandRecords.add(new KinesisCommandRecord(
+                    firstResponse.shardId() + ":" + streamRecord.sequenceNumber(),
+                    new KinesisCommandData(streamRecord.partitionKey(), streamRecord.sequenceNumber(),
+                        Base64.getEncoder().encodeToString(streamRecord.data().asByteArray()))));
+            }
+            shardIterator = recordsResponse.nextShardIterator();
+        }
+        return new KinesisCommandEvent(commandRecords);
+    }
+
+    private void assertDevice(String deviceId, DeviceStatus deviceStatus, long version) {
+        Map<String, AttributeValue> item = this.dynamoDbAsyncClient.getItem(GetItemRequest.builder()
+                .tableName(Device.TABLE_NAME)
+                .key(Map.of(
+                    Device.ID_COLUMN_NAME, AttributeValue.fromS(deviceId),
+                    Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(ENABLED_CITY_ID)))
+                .consistentRead(true)
+                .build())
+            .join().item();
+        assertThat(item.get(Device.STATUS_COLUMN_NAME).s()).isEqualTo(deviceStatus.name());
+        assertThat(Long.parseLong(item.get(Device.VERSION_COLUMN_NAME).n())).isEqualTo(version);
+    }
+
+    private Function<Message<byte[]>, Mono<StreamBatchResponse>> getFunctionUnderTest() {
+        Function<Message<byte[]>, Mono<StreamBatchResponse>> function = this.functionCatalog.lookup(Function.class,
+            FunctionConfig.COMMAND_STREAM_FUNCTION_BEAN_NAME);
+        assertThat(function).isNotNull();
+        return function;
+    }
+}
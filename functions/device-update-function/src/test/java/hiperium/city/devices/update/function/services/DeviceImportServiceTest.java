@@ -0,0 +1,67 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.dto.DeviceImportLine;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import hiperium.city.devices.update.function.dto.ImportDevicesResponse;
+import hiperium.city.devices.update.function.repository.DevicesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeviceImportServiceTest {
+
+    private static final String CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+    private static final String REPEATED_DEVICE_ID = "37f44ed4-b672-4f81-a579-47679c0d6f31";
+
+    private final DevicesRepository devicesRepository = mock(DevicesRepository.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenDeviceRepeatedInDistantRows_whenImporting_thenWriteOnlyTheLastRow() {
+        when(this.devicesRepository.batchImportAsync(anyList()))
+            .thenReturn(CompletableFuture.completedFuture(List.of()));
+        DeviceImportService deviceImportService = new DeviceImportService(new MockEnvironment(),
+            new SimpleMeterRegistry(), this.devicesRepository);
+        Flux<DeviceImportLine> importLines = Flux.concat(
+            Flux.just(line(1L, REPEATED_DEVICE_ID, DeviceStatus.ON)),
+            Flux.fromStream(LongStream.rangeClosed(2L, 59L)
+                .mapToObj(lineNumber -> line(lineNumber, UUID.randomUUID().toString(), DeviceStatus.ON))),
+            Flux.just(line(60L, REPEATED_DEVICE_ID, DeviceStatus.OFF)));
+
+        ImportDevicesResponse response = deviceImportService.importDevices(importLines).block();
+
+        assertThat(response).isNotNull();
+        assertThat(response.totalRows()).isEqualTo(60L);
+        assertThat(response.importedRows()).isEqualTo(59L);
+        assertThat(response.failedRows()).isEqualTo(1L);
+        assertThat(response.rowFailures()).singleElement()
+            .satisfies(rowFailure -> assertThat(rowFailure.lineNumber()).isEqualTo(1L));
+        ArgumentCaptor<List<DeviceImportRow>> deviceRowsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(this.devicesRepository, atLeastOnce()).batchImportAsync(deviceRowsCaptor.capture());
+        assertThat(deviceRowsCaptor.getAllValues().stream().flatMap(List::stream)
+            .filter(deviceRow -> deviceRow.deviceId().equals(REPEATED_DEVICE_ID))
+            .toList())
+            .singleElement()
+            .satisfies(deviceRow -> assertThat(deviceRow.status()).isEqualTo(DeviceStatus.OFF));
+    }
+
+    private static DeviceImportLine line(final long lineNumber, final String deviceId, final DeviceStatus status) {
+        return new DeviceImportLine(lineNumber,
+            new DeviceImportRow(deviceId, CITY_ID, "Device " + lineNumber, null, status), null);
+    }
+}
@@ -0,0 +1,131 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.city.devices.update.function.UpdateDeviceApplication;
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.commons.TestContainersBase;
+import hiperium.city.devices.update.function.dto.DeviceImportRow;
+import hiperium.city.devices.update.function.dto.HeartbeatRecord;
+import hiperium.city.devices.update.function.dto.IngestHeartbeatsResponse;
+import hiperium.city.devices.update.function.dto.OfflineSweepResponse;
+import hiperium.city.devices.update.function.entities.Device;
+import hiperium.city.devices.update.function.repository.DevicesRepository;
+import hiperium.city.devices.update.function.utils.TestsUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@FunctionalSpringBootTest(classes = UpdateDeviceApplication.class)
+class HeartbeatServiceTest extends TestContainersBase {
+
+    private static final int DEVICES = 3;
+    private static final int HEARTBEATS_PER_DEVICE = 100;
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private DevicesRepository devicesRepository;
+
+    @Autowired
+    private HeartbeatService heartbeatService;
+
+    @BeforeEach
+    void init() {
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+    }
+
+    @Test
+    void givenHeartbeatBatches_whenIngesting_thenCoalesceWritesAndOnlyChangeVersionOnOnlineFlips() {
+        String cityId = UUID.randomUUID().toString();
+        List<DeviceImportRow> deviceRows = IntStream.range(0, DEVICES)
+            .mapToObj(index -> new DeviceImportRow(UUID.randomUUID().toString(), cityId, "Device " + index, null,
+                DeviceStatus.OFF))
+            .toList();
+        assertThat(this.devicesRepository.batchImportAsync(deviceRows).join()).isEmpty();
+        long baseTimestamp = System.currentTimeMillis() - 120_000L;
+
+        // Many heartbeats per device, in any order, plus an unknown device, an invalid record and an expired one.
+        List<HeartbeatRecord> heartbeats = new ArrayList<>();
+        deviceRows.forEach(deviceRow -> IntStream.range(0, HEARTBEATS_PER_DEVICE).forEach(index ->
+            heartbeats.add(new HeartbeatRecord(deviceRow.deviceId(), cityId, baseTimestamp + index * 100L))));
+        Collections.shuffle(heartbeats);
+        heartbeats.add(new HeartbeatRecord(UUID.randomUUID().toString(), cityId, baseTimestamp));
+        heartbeats.add(new HeartbeatRecord(deviceRows.get(0).deviceId(), cityId, null));
+        heartbeats.add(new HeartbeatRecord(deviceRows.get(0).deviceId(), cityId, baseTimestamp - 600_000L));
+        long lastTimestamp = baseTimestamp + (HEARTBEATS_PER_DEVICE - 1) * 100L;
+
+        IngestHeartbeatsResponse response = this.heartbeatService.ingestHeartbeats(heartbeats).block();
+        assertThat(response).isNotNull();
+        assertThat(response.receivedRecords()).isEqualTo(heartbeats.size());
+        assertThat(response.invalidRecords()).isEqualTo(2);
+        assertThat(response.devices()).isEqualTo(DEVICES + 1);
+        assertThat(response.writtenDevices()).isEqualTo(DEVICES + 1);
+        assertThat(response.onlineDevices()).isEqualTo(DEVICES);
+        assertThat(response.coalescingRatio()).isGreaterThan(0.9);
+        deviceRows.forEach(deviceRow -> this.assertDevice(deviceRow.deviceId(), cityId, true, lastTimestamp, 2));
+
+        // The heartbeats within the refresh interval of the written ones aren't written.
+        response = this.heartbeatService.ingestHeartbeats(this.heartbeatsOf(deviceRows, baseTimestamp + 30_000L))
+            .block();
+        assertThat(response).isNotNull();
+        assertThat(response.skippedDevices()).isEqualTo(DEVICES);
+        assertThat(response.writtenDevices()).isZero();
+
+        // The later heartbeats of the online devices only refresh their last seen time.
+        response = this.heartbeatService.ingestHeartbeats(this.heartbeatsOf(deviceRows, baseTimestamp + 90_000L))
+            .block();
+        assertThat(response).isNotNull();
+        assertThat(response.writtenDevices()).isEqualTo(DEVICES);
+        assertThat(response.onlineDevices()).isZero();
+        deviceRows.forEach(deviceRow ->
+            this.assertDevice(deviceRow.deviceId(), cityId, true, baseTimestamp + 90_000L, 2));
+
+        OfflineSweepResponse sweepResponse = this.heartbeatService.sweepOfflineDevices(System.currentTimeMillis())
+            .block();
+        assertThat(sweepResponse).isNotNull();
+        assertThat(sweepResponse.offlineDevices()).isGreaterThanOrEqualTo(DEVICES);
+        deviceRows.forEach(deviceRow ->
+            this.assertDevice(deviceRow.deviceId(), cityId, false, baseTimestamp + 90_000L, 3));
+
+        long onlineTimestamp = System.currentTimeMillis();
+        response = this.heartbeatService.ingestHeartbeats(this.heartbeatsOf(deviceRows, onlineTimestamp)).block();
+        assertThat(response).isNotNull();
+        assertThat(response.onlineDevices()).isEqualTo(DEVICES);
+        deviceRows.forEach(deviceRow -> this.assertDevice(deviceRow.deviceId(), cityId, true, onlineTimestamp, 4));
+    }
+
+    private List<HeartbeatRecord> heartbeatsOf(List<DeviceImportRow> deviceRows, long timestamp) {
+        return deviceRows.stream()
+            .map(deviceRow -> new HeartbeatRecord(deviceRow.deviceId(), deviceRow.cityId(), timestamp))
+            .toList();
+    }
+
+    private void assertDevice(String deviceId, String cityId, boolean online, long lastSeen, long version) {
+        Map<String, AttributeValue> item = this.dynamoDbAsyncClient.getItem(GetItemRequest.builder()
+                .tableName(Device.TABLE_NAME)
+                .key(Map.of(
+                    Device.ID_COLUMN_NAME, AttributeValue.fromS(deviceId),
+                    Device.CITY_ID_COLUMN_NAME, AttributeValue.fromS(cityId)))
+                .consistentRead(true)
+                .build())
+            .join().item();
+        assertThat(item.get(Device.ONLINE_COLUMN_NAME).bool()).isEqualTo(online);
+        assertThat(Long.parseLong(item.get(Device.LAST_SEEN_COLUMN_NAME).n())).isEqualTo(lastSeen);
+        assertThat(Long.parseLong(item.get(Device.VERSION_COLUMN_NAME).n())).isEqualTo(version);
+    }
+}
@@ -0,0 +1,97 @@
+package hiperium.city.devices.update.function.services;
+
+import hiperium.cities.commons.exceptions.CityException;
+import hiperium.city.devices.update.function.UpdateDeviceApplication;
+import hiperium.city.devices.update.function.commons.TestContainersBase;
+import hiperium.city.devices.update.function.entities.ProcessedEvent;
+import hiperium.city.devices.update.function.utils.TestsUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.function.context.test.FunctionalSpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@FunctionalSpringBootTest(classes = UpdateDeviceApplication.class)
+class IdempotencyServiceTest extends TestContainersBase {
+
+    @Autowired
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void init() {
+        TestsUtils.waitForDynamoDbToBeReady(this.dynamoDbAsyncClient);
+    }
+
+    @Test
+    void givenEventInProgressByAnotherDelivery_whenExecutingOnce_thenFailSoTheDeliveryIsRetried() {
+        String eventId = UUID.randomUUID().toString();
+        this.putProcessedEvent(eventId, ProcessedEvent.IN_PROGRESS_STATUS, Instant.now().plus(Duration.ofMinutes(5)));
+
+        StepVerifier.create(this.idempotencyService.executeOnce(eventId, Mono.just("processed")))
+            .expectError(CityException.class)
+            .verify();
+    }
+
+    @Test
+    void givenExpiredLease_whenExecutingOnce_thenProcessTheEventAndMarkItCompleted() {
+        String eventId = UUID.randomUUID().toString();
+        this.putProcessedEvent(eventId, ProcessedEvent.IN_PROGRESS_STATUS, Instant.now().minus(Duration.ofMinutes(1)));
+
+        StepVerifier.create(this.idempotencyService.executeOnce(eventId, Mono.just("processed")))
+            .expectNext("processed")
+            .verifyComplete();
+
+        Map<String, AttributeValue> item = this.findProcessedEvent(eventId);
+        assertThat(item.get(ProcessedEvent.STATUS_COLUMN_NAME).s()).isEqualTo(ProcessedEvent.COMPLETED_STATUS);
+        assertThat(Long.parseLong(item.get(ProcessedEvent.EXPIRES_AT_COLUMN_NAME).n()))
+            .isGreaterThan(Instant.now().plus(Duration.ofHours(1)).getEpochSecond());
+    }
+
+    @Test
+    void givenFailedProcessing_whenExecutingOnce_thenReleaseTheClaim() {
+        String eventId = UUID.randomUUID().toString();
+
+        StepVerifier.create(this.idempotencyService.executeOnce(eventId,
+                Mono.error(new IllegalStateException("Processing failed."))))
+            .expectError(IllegalStateException.class)
+            .verify();
+
+        assertThat(this.findProcessedEvent(eventId)).isEmpty();
+    }
+
+    private void putProcessedEvent(String eventId, String status, Instant expiresAt) {
+        this.dynamoDbAsyncClient.putItem(PutItemRequest.builder()
+            .tableName(ProcessedEvent.TABLE_NAME)
+            .item(Map.of(
+                ProcessedEvent.EVENT_ID_COLUMN_NAME, AttributeValue.fromS(eventId),
+                ProcessedEvent.STATUS_COLUMN_NAME, AttributeValue.fromS(status),
+                ProcessedEvent.EXPIRES_AT_COLUMN_NAME, AttributeValue.fromN(Long.toString(expiresAt.getEpochSecond()))))
+            .build()).join();
+    }
+
+    private Map<String, AttributeValue> findProcessedEvent(String eventId) {
+        return this.dynamoDbAsyncClient.getItem(GetItemRequest.builder()
+                .tableName(ProcessedEvent.TABLE_NAME)
+                .key(Map.of(ProcessedEvent.EVENT_ID_COLUMN_NAME, AttributeValue.fromS(eventId)))
+                .consistentRead(true)
+                .build())
+            .join().item();
+    }
+}
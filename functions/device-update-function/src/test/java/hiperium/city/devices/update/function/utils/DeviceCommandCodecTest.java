@@ -0,0 +1,61 @@
+package hiperium.city.devices.update.function.utils;
+
+import hiperium.cities.commons.exceptions.ParsingException;
+import hiperium.city.devices.update.function.commons.DeviceOperation;
+import hiperium.city.devices.update.function.dto.EventBridgeDetail;
+import hiperium.city.devices.update.function.dto.EventBridgeRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeviceCommandCodecTest {
+
+    private static final EventBridgeRequest REQUEST = new EventBridgeRequest(
+        "7bf73129-1428-4cd3-a780-95db273d1602", null, null, null, null, null, null, null,
+        new EventBridgeDetail("37f44ed4-b672-4f81-a579-47679c0d6f31", "a0ecb466-7ef5-47bf-a1ca-12f9f9328528",
+            DeviceOperation.INACTIVATE));
+
+    @Test
+    void givenCompactCommandMessage_whenDeserializing_thenReturnSameRequest() {
+        byte[] payload = DeviceCommandCodec.encode(REQUEST);
+        Message<byte[]> requestMessage = MessageBuilder.withPayload(payload)
+            .setHeader(MessageHeaders.CONTENT_TYPE, DeviceCommandCodec.CONTENT_TYPE)
+            .build();
+
+        assertThat(payload).hasSize(50);
+        assertThat(FunctionUtils.deserializeRequest(requestMessage)).isEqualTo(REQUEST);
+    }
+
+    @Test
+    void givenCompactCommandWithoutContentType_whenDeserializing_thenReturnSameRequest() {
+        Message<byte[]> requestMessage = MessageBuilder.withPayload(DeviceCommandCodec.encode(REQUEST)).build();
+
+        assertThat(FunctionUtils.deserializeRequest(requestMessage)).isEqualTo(REQUEST);
+    }
+
+    @Test
+    void givenJsonRequestWithoutContentType_whenDeserializing_thenReadTheEnvelope() {
+        byte[] payload = ("{\"id\":\"7bf73129-1428-4cd3-a780-95db273d1602\",\"detail\":{"
+            + "\"deviceId\":\"37f44ed4-b672-4f81-a579-47679c0d6f31\","
+            + "\"cityId\":\"a0ecb466-7ef5-47bf-a1ca-12f9f9328528\","
+            + "\"deviceOperation\":\"INACTIVATE\"}}").getBytes(StandardCharsets.UTF_8);
+
+        assertThat(DeviceCommandCodec.isCompactCommand(payload)).isFalse();
+        assertThat(FunctionUtils.deserializeRequest(MessageBuilder.withPayload(payload).build())).isEqualTo(REQUEST);
+    }
+
+    @Test
+    void givenTruncatedCommand_whenDecoding_thenThrowParsingException() {
+        byte[] payload = DeviceCommandCodec.encode(REQUEST);
+
+        assertThatThrownBy(() -> DeviceCommandCodec.decode(Arrays.copyOf(payload, 34)))
+            .isInstanceOf(ParsingException.class);
+    }
+}
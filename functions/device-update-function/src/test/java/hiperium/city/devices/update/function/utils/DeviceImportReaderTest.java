@@ -0,0 +1,90 @@
+package hiperium.city.devices.update.function.utils;
+
+import hiperium.city.devices.update.function.commons.DeviceStatus;
+import hiperium.city.devices.update.function.dto.DeviceImportLine;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeviceImportReaderTest {
+
+    private static final String DEVICE_ID = "37f44ed4-b672-4f81-a579-47679c0d6f31";
+    private static final String CITY_ID = "a0ecb466-7ef5-47bf-a1ca-12f9f9328528";
+
+    @Test
+    void givenNdjsonFile_whenReading_thenEmitOneLinePerDevice() {
+        String importFile = """
+            {"deviceId":"%s","cityId":"%s","name":"Device 1","status":"ON"}
+
+            {"deviceId":"wrong-id","cityId":"%s","name":"Device 2","status":"ON"}
+            not a json line
+            """.formatted(DEVICE_ID, CITY_ID, CITY_ID);
+
+        Message<byte[]> requestMessage = TestsUtils.createMessage(importFile.getBytes(StandardCharsets.UTF_8));
+
+        StepVerifier.create(DeviceImportReader.read(requestMessage))
+            .assertNext(importLine -> {
+                assertThat(importLine.isValid()).isTrue();
+                assertThat(importLine.lineNumber()).isEqualTo(1);
+                assertThat(importLine.row().status()).isEqualTo(DeviceStatus.ON);
+            })
+            .assertNext(importLine -> {
+                assertThat(importLine.lineNumber()).isEqualTo(3);
+                assertThat(importLine.error()).isEqualTo("Device ID must have a valid format.");
+            })
+            .assertNext(importLine -> {
+                assertThat(importLine.lineNumber()).isEqualTo(4);
+                assertThat(importLine.isValid()).isFalse();
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void givenCsvFile_whenReading_thenMapColumnsByHeader() {
+        String importFile = """
+            status,name,deviceId,cityId,description
+            OFF,Device 1,%s,%s,"Main avenue, ""north"" side."
+            """.formatted(DEVICE_ID, CITY_ID);
+        Message<byte[]> requestMessage = MessageBuilder.withPayload(importFile.getBytes(StandardCharsets.UTF_8))
+            .setHeader(MessageHeaders.CONTENT_TYPE, DeviceImportReader.CSV_CONTENT_TYPE)
+            .build();
+
+        StepVerifier.create(DeviceImportReader.read(requestMessage).map(DeviceImportLine::row))
+            .assertNext(row -> {
+                assertThat(row.deviceId()).isEqualTo(DEVICE_ID);
+                assertThat(row.cityId()).isEqualTo(CITY_ID);
+                assertThat(row.name()).isEqualTo("Device 1");
+                assertThat(row.description()).isEqualTo("Main avenue, \"north\" side.");
+                assertThat(row.status()).isEqualTo(DeviceStatus.OFF);
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void givenJsonArray_whenReading_thenEmitOneLinePerElement() {
+        String importFile = """
+            [
+              {"deviceId":"%s","cityId":"%s","name":"Device 1","status":"OFF"},
+              {"deviceId":"%s","cityId":"%s","name":"Device 2","status":"UNKNOWN"}
+            ]
+            """.formatted(DEVICE_ID, CITY_ID, DEVICE_ID, CITY_ID);
+        Message<byte[]> requestMessage = TestsUtils.createMessage(importFile.getBytes(StandardCharsets.UTF_8));
+
+        StepVerifier.create(DeviceImportReader.read(requestMessage))
+            .assertNext(importLine -> {
+                assertThat(importLine.lineNumber()).isEqualTo(1);
+                assertThat(importLine.row().name()).isEqualTo("Device 1");
+            })
+            .assertNext(importLine -> {
+                assertThat(importLine.lineNumber()).isEqualTo(2);
+                assertThat(importLine.error()).isEqualTo("Couldn't parse the device row.");
+            })
+            .verifyComplete();
+    }
+}
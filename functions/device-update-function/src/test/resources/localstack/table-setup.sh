@@ -7,12 +7,87 @@ awslocal dynamodb create-table              \
   --attribute-definitions                   \
     AttributeName=id,AttributeType=S        \
     AttributeName=cityId,AttributeType=S    \
+    AttributeName=cityShard,AttributeType=S \
+    AttributeName=updatedAt,AttributeType=S \
   --key-schema                              \
     AttributeName=id,KeyType=HASH           \
     AttributeName=cityId,KeyType=RANGE      \
+  --global-secondary-indexes                \
+    'IndexName=CityIdIndex,KeySchema=[{AttributeName=cityId,KeyType=HASH},{AttributeName=id,KeyType=RANGE}],Projection={ProjectionType=INCLUDE,NonKeyAttributes=[status]}' \
+    'IndexName=CityShardIndex,KeySchema=[{AttributeName=cityShard,KeyType=HASH},{AttributeName=id,KeyType=RANGE}],Projection={ProjectionType=INCLUDE,NonKeyAttributes=[status]}' \
+    'IndexName=CityUpdatedAtIndex,KeySchema=[{AttributeName=cityId,KeyType=HASH},{AttributeName=updatedAt,KeyType=RANGE}],Projection={ProjectionType=INCLUDE,NonKeyAttributes=[status,version]}' \
   --billing-mode PAY_PER_REQUEST
 
 echo ""
-echo "WRITING DEVICE ITEMS..."
+echo "CREATING CITIES TABLE..."
+awslocal dynamodb create-table              \
+  --table-name 'Cities'                     \
+  --attribute-definitions                   \
+    AttributeName=id,AttributeType=S        \
+  --key-schema                              \
+    AttributeName=id,KeyType=HASH           \
+  --billing-mode PAY_PER_REQUEST
+
+echo ""
+echo "CREATING DEVICE STATUS HISTORY TABLE..."
+awslocal dynamodb create-table              \
+  --table-name 'DeviceStatusHistory'        \
+  --attribute-definitions                   \
+    AttributeName=deviceId,AttributeType=S  \
+    AttributeName=changedAt,AttributeType=S \
+  --key-schema                              \
+    AttributeName=deviceId,KeyType=HASH     \
+    AttributeName=changedAt,KeyType=RANGE   \
+  --billing-mode PAY_PER_REQUEST
+
+echo ""
+echo "CREATING PROCESSED EVENTS TABLE..."
+awslocal dynamodb create-table              \
+  --table-name 'DeviceProcessedEvents'      \
+  --attribute-definitions                   \
+    AttributeName=eventId,AttributeType=S   \
+  --key-schema                              \
+    AttributeName=eventId,KeyType=HASH      \
+  --billing-mode PAY_PER_REQUEST
+
+awslocal dynamodb update-time-to-live       \
+  --table-name 'DeviceProcessedEvents'      \
+  --time-to-live-specification              \
+    Enabled=true,AttributeName=expiresAt
+
+echo ""
+echo "CREATING CITY COMMANDS TABLE..."
+awslocal dynamodb create-table              \
+  --table-name 'DeviceCityCommands'         \
+  --attribute-definitions                   \
+    AttributeName=commandId,AttributeType=S \
+  --key-schema                              \
+    AttributeName=commandId,KeyType=HASH    \
+  --billing-mode PAY_PER_REQUEST
+
+awslocal dynamodb update-time-to-live       \
+  --table-name 'DeviceCityCommands'         \
+  --time-to-live-specification              \
+    Enabled=true,AttributeName=expiresAt
+
+echo ""
+echo "CREATING CITY COUNTERS TABLE..."
+awslocal dynamodb create-table              \
+  --table-name 'DeviceCityCounters'         \
+  --attribute-definitions                   \
+    AttributeName=cityId,AttributeType=S    \
+  --key-schema                              \
+    AttributeName=cityId,KeyType=HASH       \
+  --billing-mode PAY_PER_REQUEST
+
+echo ""
+echo "WRITING DEVICE AND CITY ITEMS..."
 awslocal dynamodb batch-write-item          \
     --request-items file:///var/lib/localstack/table-data.json
+
+
+echo ""
+echo "CREATING DEVICE COMMANDS STREAM..."
+awslocal kinesis create-stream              \
+    --stream-name 'device-commands'         \
+    --shard-count 1
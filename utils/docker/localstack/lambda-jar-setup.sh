@@ -74,12 +74,22 @@ awslocal iam put-role-policy                \
             "Effect": "Allow",
             "Action": [
               "dynamodb:GetItem",
+              "dynamodb:BatchGetItem",
               "dynamodb:PutItem",
               "dynamodb:UpdateItem",
+              "dynamodb:BatchWriteItem",
+              "dynamodb:DeleteItem",
               "dynamodb:Scan",
               "dynamodb:Query"
             ],
-            "Resource": "arn:aws:dynamodb:us-east-1:000000000000:table/Devices"
+            "Resource": [
+              "arn:aws:dynamodb:us-east-1:000000000000:table/Devices",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/Devices/index/*",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/Cities",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/DeviceStatusHistory",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/DeviceProcessedEvents",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/DeviceCityCommands"
+            ]
           }
         ]
       }'
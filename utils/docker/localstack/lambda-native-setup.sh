@@ -58,12 +58,22 @@ awslocal iam put-role-policy                \
             "Effect": "Allow",
             "Action": [
               "dynamodb:GetItem",
+              "dynamodb:BatchGetItem",
               "dynamodb:PutItem",
               "dynamodb:UpdateItem",
+              "dynamodb:BatchWriteItem",
+              "dynamodb:DeleteItem",
               "dynamodb:Scan",
               "dynamodb:Query"
             ],
-            "Resource": "arn:aws:dynamodb:us-east-1:000000000000:table/Devices"
+            "Resource": [
+              "arn:aws:dynamodb:us-east-1:000000000000:table/Devices",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/Devices/index/*",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/Cities",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/DeviceStatusHistory",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/DeviceProcessedEvents",
+              "arn:aws:dynamodb:us-east-1:000000000000:table/DeviceCityCommands"
+            ]
           }
         ]
       }'
@@ -123,5 +133,31 @@ awslocal events put-targets                                     \
     --rule 'device-update-function-rule'                        \
     --targets 'Id=1,Arn=arn:aws:lambda:us-east-1:000000000000:function:device-update-function'
 
+echo ""
+echo "CREATING DEVICE IMPORT FUNCTION..."
+awslocal lambda create-function                                                                 \
+    --function-name 'device-import-function'                                                    \
+    --runtime 'provided.al2023'                                                                 \
+    --architectures 'arm64'                                                                     \
+    --zip-file fileb://"$UPDATE_FUNCTION_PATH"                                                  \
+    --handler 'org.springframework.cloud.function.adapter.aws.FunctionInvoker::handleRequest'   \
+    --timeout 900                                                                               \
+    --memory-size 512                                                                           \
+    --role 'arn:aws:iam::000000000000:role/lambda-role'                                         \
+    --environment 'Variables={SPRING_CLOUD_AWS_ENDPOINT=http://host.docker.internal:4566,SPRING_CLOUD_FUNCTION_DEFINITION=importDevices}'
+
+echo ""
+echo "CREATING DEVICE CITY COMMAND FUNCTION..."
+awslocal lambda create-function                                                                 \
+    --function-name 'device-city-command-function'                                              \
+    --runtime 'provided.al2023'                                                                 \
+    --architectures 'arm64'                                                                     \
+    --zip-file fileb://"$UPDATE_FUNCTION_PATH"                                                  \
+    --handler 'org.springframework.cloud.function.adapter.aws.FunctionInvoker::handleRequest'   \
+    --timeout 900                                                                               \
+    --memory-size 512                                                                           \
+    --role 'arn:aws:iam::000000000000:role/lambda-role'                                         \
+    --environment 'Variables={SPRING_CLOUD_AWS_ENDPOINT=http://host.docker.internal:4566,SPRING_CLOUD_FUNCTION_DEFINITION=updateCityStatus}'
+
 echo ""
 echo "DONE!"